@@ -0,0 +1,923 @@
+/*	BacktrackingSolver.java
+
+	A fast, reusable depth-first search solver for SudokuPuzzles of size up to 64x64.
+
+	The solver keeps its own compact copy of the puzzle:  one int per cell and one
+	long bitmask per row, column, and region holding the values used in that unit,
+	so a cell's candidates are just the complement of the OR of its three units.
+	At every node of the search it propagates naked singles and hidden singles
+	before branching on the empty cell with the fewest candidates.
+
+	With setAllDifferent(true), once singles are exhausted it also runs Regin's
+	all-different propagation on every row, column, and region:  the empty cells
+	of the unit and its missing values form a bipartite graph (cell to candidate),
+	which must have a perfect matching, and a candidate that is in no perfect
+	matching is removed.  Those are exactly the candidates whose cell and whose
+	value's matched cell are in different strongly connected components of the
+	graph with matched edges reversed (Tarjan's algorithm on bitmask adjacency).
+	The matching of each unit is kept between calls and only repaired, so most
+	calls need few or no augmenting paths.  This removes everything that naked
+	and hidden subsets of any size would, at a cost of several bitmask passes
+	over each unit per node, so it pays off on large or hard puzzles.  Removed
+	candidates are kept per cell and undone from the trail like placements.
+
+	The solver also keeps a Zobrist hash of the grid (the XOR of a key for each
+	placed value), updated as cells are set and undone.  For puzzles of size 16 and
+	up, or whenever a TranspositionTable is given with setTranspositionTable(), the
+	number of solutions below each finished branching node is stored under that
+	hash.  Within one search every node differs from the others in the value of
+	some branching cell, so the table pays off across searches:  checking a puzzle
+	again after removing or adding a value (as a generator does), or solving many
+	puzzles that reach the same partial grids.  Dead ends (0 solutions) are always
+	used;  stored counts are used once the first solution has been found.  The
+	table that a solver makes for itself is kept across load() calls (that is the
+	point of it), so solving the same puzzle again is mostly table lookups;  call
+	setTranspositionTable(null) to time or count the search itself.
+
+	Killer Sudoku cages are supported by keeping, for each cage, the values used so
+	far, the number of empty cells, and the sum still needed, and restricting the
+	candidates of the cage's cells with a lookup in CageSumTables (getDigitBound()).
+
+	The search uses an explicit stack instead of recursion and undoes placements
+	from a trail, so a single instance can be reused for any number of puzzles
+	without allocating (arrays are only reallocated when the puzzle size grows).
+	Instances are NOT thread-safe;  use one per thread.
+
+	Typical use:
+
+		solver.load(puzzle);
+		count = solver.solve(2);			// 0 = no solution, 1 = unique, 2 = multiple
+		if (count > 0)  solver.copySolutionTo(puzzle);
+
+	or, to look at solutions one at a time without counting them all first:
+
+		solver.load(puzzle);
+		for (Iterator<CompactPuzzle> it = solver.solutions(); it.hasNext(); )  ...
+
+	October 18, 2026
+ */
+
+import java.util.*;
+import java.util.stream.*;
+
+
+public class BacktrackingSolver
+{
+	public static final int		MAX_SIZE = 64;		// largest puzzle that fits in a long bitmask
+
+	private static final int	EMPTY = SudokuPuzzle.EMPTY_CELL;
+	private static final int	TABLE_MIN_SIZE = 16;	// smallest puzzle that gets a table by default
+
+	// rough difficulty of a puzzle based on what the solver needed to find its first solution
+	public	enum  Grade		{ INVALID, EASY, MEDIUM, HARD, EXPERT }
+
+	// outcome of solve(SolveBudget)
+	public	enum  Status	{ SOLVED, MULTIPLE, UNSOLVABLE, BUDGET_EXCEEDED, CANCELLED }
+
+	private int			size;				// puzzle has size x size cells
+	private int			ncells;				// size * size
+	private int			nunits;				// rows, then columns, then other regions
+	private long		full;				// bitmask with one bit for each value 1 to size
+
+	private int[]		grid;				// cell values (0 = empty) indexed by row*size + col
+	private long[]		unitUsed;			// bitmask of values used in each unit
+	private int[]		cellUnits;			// the 3 units of each cell (shared with PuzzleTopology)
+	private int[]		unitCells;			// the cells of each unit (shared with PuzzleTopology)
+	private PuzzleTopology	topology;
+	private boolean		validClues;			// false if the loaded clues already conflict
+	private long		hash;				// Zobrist hash of grid
+	private long		layoutKey;			// hash of the regions and cages, XORed into table keys
+
+	// results of finished subtrees (null = none)
+	private TranspositionTable	table;
+	private boolean		autoTable = true;	// create a table for large puzzles
+	private boolean		reverseOrder;		// branch on the last fewest-candidate cell, highest value first
+
+	// all-different propagation (see setAllDifferent())
+	private boolean		allDifferent;		// for the loaded puzzle
+	private boolean		allDifferentNext;	// for the next load()
+	private long[]		removed;			// candidates removed from each cell
+	private int[]		removedCell;		// log of removals (the trail holds ~index):  cell
+	private long[]		removedBefore;		// and its removed bits before
+	private int			removedLen;
+	private int[]		unitMatch;			// matched cell of each value of each unit, or -1 (unit*size + digit)
+	private int[]		cellSlot;			// index of each cell in matchCell during a unit's pass
+	private int[]		matchCell = new int[MAX_SIZE];		// the empty cells of the unit being propagated,
+	private long[]		matchCands = new long[MAX_SIZE];	// their candidates,
+	private int[]		matchDigit = new int[MAX_SIZE];		// their matched digits,
+	private int[]		digitOwner = new int[MAX_SIZE];		// the slot matched to each digit (or -1),
+	private long[]		matchAdj = new long[MAX_SIZE];		// slots holding the other digits they could take,
+	private int[]		sccIndex = new int[MAX_SIZE];		// and Tarjan's state
+	private int[]		sccLow = new int[MAX_SIZE];
+	private int[]		sccId = new int[MAX_SIZE];			// component of each slot
+	private int[]		sccStack = new int[MAX_SIZE];
+	private long[]		sccDigits = new long[MAX_SIZE];		// digits matched within each component
+	private int			sccCounter, sccCount, sccTop;
+	private long		sccOnStack, augmentVisited;
+	private long		allDifferentRemovals;	// cells that lost candidates
+
+	// Killer Sudoku cages (ncages == 0 if the puzzle has none)
+	private int			ncages;
+	private CageSumTables	cageTables;
+	private int[]		cellCage;			// cage containing each cell or -1
+	private long[]		cageUsed;			// bitmask of values placed in each cage
+	private int[]		cageEmpty;			// number of empty cells in each cage
+	private int[]		cageRemaining;		// sum still needed by each cage's empty cells
+
+	// search state
+	private int[]		trail;				// cells placed since load(), in order (~i for removal i)
+	private int			trailLen;
+	private int[]		frameCell;			// branching cell at each depth
+	private long[]		frameCands;			// untried candidates at each depth
+	private int[]		frameTrail;			// trail length before branching at each depth
+	private long[]		frameHash;			// hash of the grid at each depth
+	private int[]		frameSolutions;		// solutions found before branching at each depth
+	private long[]		frameNodes;			// nodes tried before branching at each depth
+	private int			depth;
+	private int[]		frameWidth;			// number of candidates of the branching cell at each depth
+	private int			countLimit;			// stop after this many solutions (0 = enumerating)
+	private SolveBudget	budget;				// limits of the current solve() or null
+	private boolean		stopped;			// the last solve() ran out of budget
+	private double		progress;			// estimated fraction of the search done when stopped
+	private int			searchId;			// changed by load() and solve() to end an enumeration
+
+	// results
+	private int[]		solution;			// first solution found
+	private int			solutionCount;
+	private long		nodes;				// number of branches tried
+	private long		nakedSingles;		// cells placed by naked singles
+	private long		hiddenSingles;		// cells placed by hidden singles
+	private long		nodesToFirst;		// statistics when the first solution was found
+	private long		hiddenToFirst;
+
+
+	public BacktrackingSolver()
+	{
+		size = 0;
+	}
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	private void allocate(PuzzleTopology topo)
+	{
+		topology = topo;
+		size = topo.size;
+		ncells = topo.ncells;
+		nunits = topo.nunits;
+		cellUnits = topo.cellUnits;
+		unitCells = topo.unitCells;
+		full = (size == 64) ? -1L : (1L << size) - 1;
+
+		if (grid == null || grid.length < ncells) {
+			grid = new int[ncells];
+			trail = new int[ncells];
+			frameCell = new int[ncells+1];
+			frameCands = new long[ncells+1];
+			frameTrail = new int[ncells+1];
+			frameHash = new long[ncells+1];
+			frameSolutions = new int[ncells+1];
+			frameNodes = new long[ncells+1];
+			frameWidth = new int[ncells+1];
+			solution = new int[ncells];
+		}
+		if (unitUsed == null || unitUsed.length < nunits) {
+			unitUsed = new long[nunits];
+		}
+		if (allDifferent)	allocateAllDifferent();
+	}
+
+	private void allocateAllDifferent()
+	{
+		if (removed == null || removed.length < ncells) {
+			removed = new long[ncells];
+			cellSlot = new int[ncells];
+			removedCell = new int[ncells];
+			removedBefore = new long[ncells];
+		}
+		if (unitMatch == null || unitMatch.length < nunits*size)	unitMatch = new int[nunits*size];
+	}
+
+	/** setTranspositionTable() makes the solver store and look up finished subtrees
+		in table, which may be shared with other solvers (even on other threads).
+		null turns the table off.  Without a call to this, a solver creates its own
+		table when it first loads a puzzle of size 16 or more.
+	 */
+	public void setTranspositionTable(TranspositionTable table)
+	{
+		this.table = table;
+		autoTable = false;
+	}
+
+	public TranspositionTable getTranspositionTable()
+	{
+		return table;
+	}
+
+	/** setReverseOrder() makes the search branch on the last of the cells with the
+		fewest candidates and try their values from the highest down, so that it
+		visits the same tree in a different order (e.g. to race against a solver in
+		the normal order, see PortfolioSolver).  The solutions and their count are
+		the same;  which one is found first and the time it takes are not.
+	 */
+	public void setReverseOrder(boolean reverse)
+	{
+		reverseOrder = reverse;
+	}
+
+	/** setAllDifferent() turns all-different matching propagation (see above) on or
+		off for the puzzles loaded afterwards.  It never changes the solutions found,
+		only how many nodes and how much time it takes to find them.
+	 */
+	public void setAllDifferent(boolean on)
+	{
+		allDifferentNext = on;
+	}
+
+	public boolean getAllDifferent()
+	{
+		return allDifferentNext;
+	}
+
+	/** load() copies the cell values of puzzle (both CLUE and SOLVED cells) into the
+		solver.  Returns SudokuPuzzle.NO_ERR, or PARAM_ERR if the puzzle is too large
+		or its regions do not partition the grid into size regions of size cells.
+	 */
+	public int load(SudokuPuzzle puzzle)
+	{
+		PuzzleTopology	topo;
+		int				cell, value;
+
+		topo = (puzzle.getSize() <= MAX_SIZE) ? PuzzleTopology.forPuzzle(puzzle) : null;
+		if (topo == null) {
+			System.err.printf("BacktrackingSolver.load(): unsupported puzzle, size=%d\n", puzzle.getSize());
+			size = 0;
+			return SudokuPuzzle.PARAM_ERR;
+		}
+		allDifferent = allDifferentNext;
+		allocate(topo);
+		loadCages(puzzle);
+
+		if (autoTable && table == null && size >= TABLE_MIN_SIZE)	table = new TranspositionTable();
+		if (table != null)	layoutKey = layoutKey(puzzle);
+
+		// copy the cell values
+		java.util.Arrays.fill(unitUsed, 0, nunits, 0L);
+		if (allDifferent) {
+			java.util.Arrays.fill(removed, 0, ncells, 0L);
+			java.util.Arrays.fill(unitMatch, 0, nunits*size, -1);
+			removedLen = 0;
+		}
+		hash = 0;
+		validClues = true;
+		for (cell = 0; cell < ncells; cell++) {
+			value = puzzle.getCellValue(cell / size, cell % size);
+			grid[cell] = EMPTY;
+			if (value != SudokuPuzzle.EMPTY_CELL) {
+				if ((candidatesOf(cell) & (1L << (value-1))) == 0)	validClues = false;
+				setCell(cell, value-1);
+			}
+		}
+
+		trailLen = 0;
+		depth = 0;
+		solutionCount = 0;
+		++searchId;
+		return SudokuPuzzle.NO_ERR;
+	}
+
+	// returns a hash of the size, regions, and cages, so results for different
+	// layouts can share a table
+	private long layoutKey(SudokuPuzzle puzzle)
+	{
+		KillerCage	cage;
+		long		key = TranspositionTable.mix(size);
+
+		for (int cell = 0; cell < ncells; cell++)	key = TranspositionTable.mix(key ^ cellUnits[cell*3 + 2]);
+		for (int c = 0; c < ncages; c++) {
+			cage = puzzle.getCage(c);
+			key = TranspositionTable.mix(key ^ ~(long)cage.getSum());
+			for (int i = 0; i < cage.getCellCount(); i++) {
+				key = TranspositionTable.mix(key ^ (cage.getCellRow(i)*size + cage.getCellColumn(i)));
+			}
+		}
+		return key;
+	}
+
+	private void loadCages(SudokuPuzzle puzzle)
+	{
+		KillerCage	cage;
+		int			cell;
+
+		ncages = puzzle.getCageCount();
+		if (ncages == 0)	return;
+
+		cageTables = CageSumTables.forSize(size);
+		if (cellCage == null || cellCage.length < ncells)	cellCage = new int[ncells];
+		if (cageUsed == null || cageUsed.length < ncages) {
+			cageUsed = new long[ncages];
+			cageEmpty = new int[ncages];
+			cageRemaining = new int[ncages];
+		}
+		java.util.Arrays.fill(cellCage, 0, ncells, -1);
+		for (int c = 0; c < ncages; c++) {
+			cage = puzzle.getCage(c);
+			cageUsed[c] = 0;
+			cageEmpty[c] = cage.getCellCount();
+			cageRemaining[c] = cage.getSum();
+			for (int i = 0; i < cage.getCellCount(); i++) {
+				cell = cage.getCellRow(i)*size + cage.getCellColumn(i);
+				cellCage[cell] = c;
+			}
+		}
+	}
+
+	// returns the bitmask of values that do not yet appear in any of the cell's units
+	// (and that can still complete the cell's cage, if any)
+	private long candidatesOf(int cell)
+	{
+		int		u = cell*3, c;
+		long	m = full & ~(unitUsed[cellUnits[u]] | unitUsed[cellUnits[u+1]] | unitUsed[cellUnits[u+2]]);
+
+		if (allDifferent)	m &= ~removed[cell];
+
+		if (ncages != 0 && (c = cellCage[cell]) >= 0) {
+			m &= cageTables.getDigitBound(cageEmpty[c], cageRemaining[c], ~cageUsed[c]);
+		}
+		return m;
+	}
+
+	// sets cell to the value with bit index 'digit' (i.e. value digit+1)
+	private void setCell(int cell, int digit)
+	{
+		long	bit = 1L << digit;
+		int		u = cell*3;
+
+		grid[cell] = digit + 1;
+		hash ^= TranspositionTable.zobrist(cell, digit);
+		unitUsed[cellUnits[u]]   |= bit;
+		unitUsed[cellUnits[u+1]] |= bit;
+		unitUsed[cellUnits[u+2]] |= bit;
+		if (ncages != 0 && (u = cellCage[cell]) >= 0) {
+			cageUsed[u] |= bit;
+			--cageEmpty[u];
+			cageRemaining[u] -= digit + 1;
+		}
+	}
+
+	private void place(int cell, int digit)
+	{
+		setCell(cell, digit);
+		trail[trailLen++] = cell;
+	}
+
+	// removes the candidates in bits from cell (undone with the placements)
+	private void remove(int cell, long bits)
+	{
+		if (removedLen == removedCell.length) {
+			removedCell = java.util.Arrays.copyOf(removedCell, 2*removedLen);
+			removedBefore = java.util.Arrays.copyOf(removedBefore, 2*removedLen);
+		}
+		if (removedLen + 1 + ncells > trail.length)	trail = java.util.Arrays.copyOf(trail, 2*trail.length);	// room for every placement too
+		removedCell[removedLen] = cell;
+		removedBefore[removedLen] = removed[cell];
+		trail[trailLen++] = ~removedLen;
+		++removedLen;
+		removed[cell] |= bits;
+	}
+
+	// removes placements (and candidate removals) from the trail until its length is mark
+	private void undoTo(int mark)
+	{
+		int		cell, u;
+		long	bit;
+
+		while (trailLen > mark) {
+			cell = trail[--trailLen];
+			if (cell < 0) {
+				removedLen = ~cell;
+				removed[removedCell[removedLen]] = removedBefore[removedLen];
+				continue;
+			}
+			bit = ~(1L << (grid[cell] - 1));
+			hash ^= TranspositionTable.zobrist(cell, grid[cell] - 1);
+			u = cell*3;
+			unitUsed[cellUnits[u]]   &= bit;
+			unitUsed[cellUnits[u+1]] &= bit;
+			unitUsed[cellUnits[u+2]] &= bit;
+			if (ncages != 0 && (u = cellCage[cell]) >= 0) {
+				cageUsed[u] &= bit;
+				++cageEmpty[u];
+				cageRemaining[u] += grid[cell];
+			}
+			grid[cell] = EMPTY;
+		}
+	}
+
+	/** propagate() places all naked and hidden singles until none remain (and
+		then, with allDifferent, removes candidates by matching and starts over if
+		it removed any).  Returns false if a contradiction is found (an empty cell
+		without candidates or a unit missing a value that has nowhere to go).
+	 */
+	private boolean propagate()
+	{
+		boolean	changed;
+		long	m, once, more, hidden, bit;
+		int		cell, base, k;
+
+		do {
+			changed = false;
+
+			// naked singles
+			for (cell = 0; cell < ncells; cell++) {
+				if (grid[cell] == EMPTY) {
+					m = candidatesOf(cell);
+					if (m == 0)	return false;
+					if ((m & (m-1)) == 0) {
+						place(cell, Long.numberOfTrailingZeros(m));
+						++nakedSingles;
+						changed = true;
+					}
+				}
+			}
+			if (changed)	continue;
+
+			// hidden singles
+			for (int unit = 0; unit < nunits; unit++) {
+				base = unit*size;
+				once = 0;
+				more = 0;
+				for (k = 0; k < size; k++) {
+					cell = unitCells[base+k];
+					if (grid[cell] == EMPTY) {
+						m = candidatesOf(cell);
+						more |= once & m;
+						once |= m;
+					}
+				}
+				if ((once | unitUsed[unit]) != full)	return false;
+				hidden = once & ~more;
+				while (hidden != 0) {
+					bit = hidden & -hidden;
+					hidden ^= bit;
+					for (k = 0; k < size; k++) {
+						cell = unitCells[base+k];
+						if (grid[cell] == EMPTY && (candidatesOf(cell) & bit) != 0)	break;
+					}
+					if (k == size)	return false;		// cell also needed for another hidden single
+					place(cell, Long.numberOfTrailingZeros(bit));
+					++hiddenSingles;
+					changed = true;
+				}
+			}
+			if (changed || !allDifferent)	continue;
+
+			// all-different matching
+			for (int unit = 0; unit < nunits; unit++) {
+				k = matchUnit(unit);
+				if (k < 0)	return false;
+				if (k > 0)	changed = true;
+			}
+		} while (changed);
+
+		return true;
+	}
+
+	/** matchUnit() removes the candidates of one unit's empty cells that are in no
+		perfect matching of cells to missing values.  Returns the number of cells
+		that lost candidates, or -1 if there is no perfect matching.
+	 */
+	private int matchUnit(int unit)
+	{
+		int		base = unit*size, n = 0, cell, changed = 0, d, i;
+		long	m, keep;
+
+		for (int k = 0; k < size; k++) {
+			cell = unitCells[base+k];
+			if (grid[cell] == EMPTY) {
+				m = candidatesOf(cell);
+				if (m == 0)	return -1;
+				cellSlot[cell] = n;
+				matchCell[n] = cell;
+				matchCands[n] = m;
+				matchDigit[n++] = -1;
+			}
+		}
+		if (n <= 1)	return 0;
+
+		// keep the pairs of the last matching that are still possible, then augment
+		java.util.Arrays.fill(digitOwner, 0, size, -1);
+		for (d = 0; d < size; d++) {
+			cell = unitMatch[base+d];
+			if (cell >= 0 && grid[cell] == EMPTY && (matchCands[i = cellSlot[cell]] & (1L << d)) != 0 && matchDigit[i] < 0) {
+				digitOwner[d] = i;
+				matchDigit[i] = d;
+			}
+		}
+		for (i = 0; i < n; i++) {
+			if (matchDigit[i] >= 0)	continue;
+			augmentVisited = 0;
+			if (!augment(i))	return -1;
+		}
+		for (d = 0; d < size; d++)	unitMatch[base+d] = (digitOwner[d] >= 0) ? matchCell[digitOwner[d]] : -1;
+
+		// slot i -> slot j if i could take j's digit instead;  an unmatched candidate
+		// is in some perfect matching iff its cell and the digit's owner are in one component
+		for (i = 0; i < n; i++) {
+			m = matchCands[i] & ~(1L << matchDigit[i]);
+			matchAdj[i] = 0;
+			while (m != 0) {
+				matchAdj[i] |= 1L << digitOwner[Long.numberOfTrailingZeros(m)];
+				m &= m - 1;
+			}
+			sccIndex[i] = -1;
+		}
+		sccCounter = sccCount = sccTop = 0;
+		sccOnStack = 0;
+		for (i = 0; i < n; i++) {
+			if (sccIndex[i] < 0)	strongConnect(i);
+		}
+		if (sccCount == 1)	return 0;
+
+		for (i = 0; i < n; i++) {
+			keep = matchCands[i] & sccDigits[sccId[i]];
+			if (keep != matchCands[i]) {
+				remove(matchCell[i], matchCands[i] & ~keep);
+				++allDifferentRemovals;
+				++changed;
+			}
+		}
+		return changed;
+	}
+
+	// finds an augmenting path from unmatched slot i (Kuhn's algorithm on digit bitmasks)
+	private boolean augment(int i)
+	{
+		long	avail, bit;
+		int		d, j;
+
+		while ((avail = matchCands[i] & ~augmentVisited) != 0) {
+			bit = avail & -avail;
+			augmentVisited |= bit;
+			d = Long.numberOfTrailingZeros(bit);
+			j = digitOwner[d];
+			if (j < 0 || augment(j)) {
+				digitOwner[d] = i;
+				matchDigit[i] = d;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Tarjan's strongly connected components from slot v;  each finished component
+	// gets a number (in sccId[] of its slots) and the digits matched in it
+	private void strongConnect(int v)
+	{
+		long	edges = matchAdj[v];
+		int		w;
+
+		sccIndex[v] = sccLow[v] = sccCounter++;
+		sccStack[sccTop++] = v;
+		sccOnStack |= 1L << v;
+		while (edges != 0) {
+			w = Long.numberOfTrailingZeros(edges);
+			edges &= edges - 1;
+			if (sccIndex[w] < 0)	strongConnect(w);
+			if ((sccOnStack & (1L << w)) != 0)	sccLow[v] = Math.min(sccLow[v], sccLow[w]);
+		}
+		if (sccLow[v] == sccIndex[v]) {
+			sccDigits[sccCount] = 0;
+			do {
+				w = sccStack[--sccTop];
+				sccOnStack &= ~(1L << w);
+				sccId[w] = sccCount;
+				sccDigits[sccCount] |= 1L << matchDigit[w];
+			} while (w != v);
+			++sccCount;
+		}
+	}
+
+	// returns the empty cell with the fewest candidates or -1 if the grid is full
+	private int chooseCell()
+	{
+		int		best = -1, bestCount = Integer.MAX_VALUE, n, cell;
+
+		for (int i = 0; i < ncells; i++) {
+			cell = reverseOrder ? ncells - 1 - i : i;
+			if (grid[cell] == EMPTY) {
+				n = Long.bitCount(candidatesOf(cell));
+				if (n < bestCount) {
+					best = cell;
+					bestCount = n;
+					if (n <= 2)	break;			// propagate() leaves no cells with fewer
+				}
+			}
+		}
+		return best;
+	}
+
+	// tries the next untried candidate at the deepest level that has one, storing
+	// the solution counts of the levels that are finished
+	private boolean nextBranch()
+	{
+		int		d;
+		long	c, bit;
+
+		while (depth > 0) {
+			d = depth - 1;
+			undoTo(frameTrail[d]);
+			c = frameCands[d];
+			if (c != 0) {
+				bit = reverseOrder ? Long.highestOneBit(c) : c & -c;
+				frameCands[d] = c ^ bit;
+				place(frameCell[d], Long.numberOfTrailingZeros(bit));
+				++nodes;
+				return true;
+			}
+			if (table != null)	table.store(frameHash[d] ^ layoutKey, solutionCount - frameSolutions[d], nodes - frameNodes[d]);
+			--depth;
+		}
+		return false;
+	}
+
+	/** solve() searches for up to maxSolutions solutions of the loaded puzzle and
+		returns the number found.  The first solution can be retrieved afterwards with
+		getSolution() or copySolutionTo().  The solver is left in the loaded state, so
+		solve() may be called again.
+	 */
+	public int solve(int maxSolutions)
+	{
+		return solve(maxSolutions, null);
+	}
+
+	/** This version of solve() gives up when budget (if not null) is exhausted.  The
+		count is then only the number of solutions found so far:  check wasStopped().
+	 */
+	public int solve(int maxSolutions, SolveBudget budget)
+	{
+		boolean	found;
+
+		restart(maxSolutions);
+		this.budget = budget;
+		if (size == 0 || !validClues || maxSolutions < 1)	return 0;
+
+		found = search(false);
+		while (found) {
+			if (solutionCount == 0) {
+				System.arraycopy(grid, 0, solution, 0, ncells);
+				nodesToFirst = nodes;
+				hiddenToFirst = hiddenSingles;
+			}
+			if (++solutionCount >= maxSolutions)	break;
+			found = search(true);
+		}
+
+		this.budget = null;
+		undoTo(0);
+		depth = 0;
+		return solutionCount;
+	}
+
+	/** This version of solve() looks for 2 solutions within budget and returns what
+		it found.  After BUDGET_EXCEEDED or CANCELLED, getNodeCount(),
+		getSolutionCount(), and getProgress() describe the partial search, and a
+		solution found before the budget ran out can still be retrieved.
+	 */
+	public Status solve(SolveBudget budget)
+	{
+		int		count = solve(2, budget);
+
+		if (stopped)	return budget.isCancelled() ? Status.CANCELLED : Status.BUDGET_EXCEEDED;
+		if (count == 0)	return Status.UNSOLVABLE;
+		return (count == 1) ? Status.SOLVED : Status.MULTIPLE;
+	}
+
+	// returns to the loaded state (even after an unfinished enumeration) and clears
+	// the results
+	private void restart(int limit)
+	{
+		undoTo(0);
+		depth = 0;
+		countLimit = limit;
+		budget = null;
+		stopped = false;
+		progress = 1.0;
+		++searchId;
+		solutionCount = 0;
+		nodes = nakedSingles = hiddenSingles = allDifferentRemovals = 0;
+		nodesToFirst = hiddenToFirst = 0;
+	}
+
+	/** search() runs the search until the grid is full (returning true, with the
+		search stopped at that solution) or there are no more solutions (returning
+		false).  resume continues after the previous solution.  Solution counts
+		from the table are only used when countLimit > 0.
+	 */
+	private boolean search(boolean resume)
+	{
+		boolean	ok;
+		int		cell;
+		long	known;
+
+		if (resume && !nextBranch())	return false;
+		ok = propagate();
+		for (;;) {
+			if (budget != null && budget.isExhausted(nodes)) {
+				progress = estimateProgress();
+				stopped = true;
+				return false;
+			}
+			if (ok) {
+				cell = chooseCell();
+				if (cell < 0)	return true;			// grid is full
+				if (table != null && (known = table.probe(hash ^ layoutKey)) >= 0 && (known == 0 || (countLimit > 0 && solutionCount > 0))) {
+					// this grid was already searched
+					if (known > 0 && known >= countLimit - solutionCount) {
+						solutionCount = countLimit;
+						return false;
+					}
+					solutionCount += (int)known;
+				}
+				else {
+					frameCell[depth] = cell;
+					frameCands[depth] = candidatesOf(cell);
+					frameTrail[depth] = trailLen;
+					frameHash[depth] = hash;
+					frameSolutions[depth] = solutionCount;
+					frameNodes[depth] = nodes;
+					frameWidth[depth] = Long.bitCount(frameCands[depth]);
+					++depth;
+				}
+			}
+			if (!nextBranch())	return false;
+			ok = propagate();
+		}
+	}
+
+	/** solutions() returns an Iterator over every solution of the loaded puzzle, in
+		the order solve() finds them.  The search only advances when next() or
+		hasNext() needs another solution, and it uses no more memory however many
+		solutions there are, so it is safe even for an empty grid.  Each solution is
+		a CompactPuzzle whose clues are the cells that had values when the puzzle was
+		loaded.  The solver must not be used for anything else while iterating:
+		load() or solve() makes the iterator throw ConcurrentModificationException.
+	 */
+	public Iterator<CompactPuzzle> solutions()
+	{
+		restart(0);
+		return new SolutionIterator();
+	}
+
+	/** solutionStream() returns the solutions() as a sequential Stream, so that
+		limit(), findFirst(), and the like stop the search early.
+	 */
+	public Stream<CompactPuzzle> solutionStream()
+	{
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(solutions(),
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+	}
+
+	/*	SolutionIterator steps the solver's search one solution at a time, sharing
+		its state.  'template' holds the loaded values (as the clues) so that each
+		solution only needs its values filled in.
+	 */
+	private final class SolutionIterator implements Iterator<CompactPuzzle>
+	{
+		private final int			id = searchId;
+		private final CompactPuzzle	template;
+		private boolean				pending;		// the grid holds a solution not yet returned
+		private boolean				done;
+
+		SolutionIterator()
+		{
+			template = (size == 0) ? null : CompactPuzzle.fromGrid(topology, grid);
+			done = (size == 0 || !validClues);
+		}
+
+		public boolean hasNext()
+		{
+			if (id != searchId)		throw new ConcurrentModificationException();
+			if (!pending && !done) {
+				pending = search(solutionCount > 0);
+				if (pending) {
+					++solutionCount;
+				}
+				else {
+					done = true;
+					undoTo(0);
+					depth = 0;
+				}
+			}
+			return pending;
+		}
+
+		public CompactPuzzle next()
+		{
+			if (!hasNext())		throw new NoSuchElementException();
+			pending = false;
+			return template.withValues(grid);
+		}
+
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	// returns the fraction of the search tree covered by finished branches, treating
+	// the branches at each level as equal in size
+	private double estimateProgress()
+	{
+		double	done = 0, scale = 1;
+
+		for (int d = 0; d < depth; d++) {
+			done += scale * (frameWidth[d] - Long.bitCount(frameCands[d]) - 1) / frameWidth[d];
+			scale /= frameWidth[d];
+		}
+		return done;
+	}
+
+	public int getSolutionCount()
+	{
+		return solutionCount;
+	}
+
+	// returns true if the last solve() ran out of budget (or was cancelled)
+	public boolean wasStopped()
+	{
+		return stopped;
+	}
+
+	/** getProgress() returns a rough estimate (0 to 1) of how much of the search the
+		last solve() finished before running out of budget, or 1 if it wasn't stopped.
+	 */
+	public double getProgress()
+	{
+		return progress;
+	}
+
+	// returns the number of branches tried by the last call to solve()
+	public long getNodeCount()
+	{
+		return nodes;
+	}
+
+	public long getNakedSingleCount()
+	{
+		return nakedSingles;
+	}
+
+	public long getHiddenSingleCount()
+	{
+		return hiddenSingles;
+	}
+
+	// returns the number of times a cell lost candidates to all-different matching in the last solve()
+	public long getAllDifferentRemovalCount()
+	{
+		return allDifferentRemovals;
+	}
+
+	/** getGrade() estimates the difficulty of the loaded puzzle from the work needed
+		to reach the first solution in the last call to solve():  EASY puzzles are
+		solved by naked singles alone, MEDIUM ones also need hidden singles, and HARD
+		and EXPERT ones need a few or many guesses.
+	 */
+	public Grade getGrade()
+	{
+		if (solutionCount == 0)			return Grade.INVALID;
+		if (nodesToFirst == 0)			return (hiddenToFirst == 0) ? Grade.EASY : Grade.MEDIUM;
+		if (nodesToFirst <= 2*size)		return Grade.HARD;
+		return Grade.EXPERT;
+	}
+
+	/** getSolution() copies the first solution found into buf (indexed by
+		row*size + col) and returns NO_ERR, or NOT_FOUND if there is none.
+	 */
+	public int getSolution(int[] buf)
+	{
+		if (solutionCount == 0)			return SudokuPuzzle.NOT_FOUND;
+		if (buf.length < ncells)		return SudokuPuzzle.PARAM_ERR;
+		System.arraycopy(solution, 0, buf, 0, ncells);
+		return SudokuPuzzle.NO_ERR;
+	}
+
+	// sets the value of every empty cell in puzzle from the first solution found (as SOLVED)
+	public int copySolutionTo(SudokuPuzzle puzzle)
+	{
+		if (solutionCount == 0)				return SudokuPuzzle.NOT_FOUND;
+		if (puzzle.getSize() != size)		return SudokuPuzzle.PARAM_ERR;
+
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				if (puzzle.getCellValue(row, col) == SudokuPuzzle.EMPTY_CELL) {
+					puzzle.setCellValue(row, col, solution[row*size + col]);
+				}
+			}
+		}
+		return SudokuPuzzle.NO_ERR;
+	}
+}
@@ -0,0 +1,395 @@
+/*	BatchCoordinator.java
+
+	Runs SudokuCli over a puzzle file that is too large for one JVM (or for one
+	time window) by splitting it among worker JVMs, each of which reads only its
+	own byte range of the file:
+
+		java -cp bin BatchCoordinator [-workers n] [-shards n] [-retries n] [-limit seconds]
+		        [-hosts host,...] [-J jvm-option] [-o file] solve|hint|count [SudokuCli options] file
+
+	The file is split into shards of about equal size (by default one per worker),
+	each starting at the beginning of a line, and each shard is run as
+
+		java [jvm-options] -cp <class path> SudokuCli <command> [options] -r start-end file
+
+	with at most -workers (default: the number of processors) running at a time.
+	Workers run on this machine unless -hosts is given, in which case they are
+	started with ssh on the hosts in turn ("local" means this machine).  Remote
+	hosts must see the puzzle file, the class path, and java at the same paths as
+	this machine (e.g. a shared filesystem).  Each worker's standard output comes
+	back to a temporary file on this machine, and its standard error is passed
+	through.
+
+	A shard fails if its worker can't be started, exits with a status other than
+	0 or SudokuCli.EXIT_PUZZLE_ERRORS (which only means that some puzzles produced
+	"error" lines;  1 is a JVM that failed to start or crashed), writes a different
+	number of lines than there are puzzles in its byte range, or runs for longer
+	than -limit seconds.  A failed shard is retried, on the next host, up to
+	-retries times (default 2).  When every shard has finished, the outputs are
+	written in shard order to -o (or standard output), so the output has one line
+	per input puzzle in the input's order, and the throughput is reported on
+	standard error.
+
+	The exit status is 0, 1 if any puzzle produced an error line (all shards
+	finished), 2 for bad arguments, or 3 if a shard failed on every try (its lines
+	are missing from the output).
+
+	Like SudokuCli, this class never loads AWT or Swing.
+
+	October 19, 2026
+ */
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+public class BatchCoordinator
+{
+	private static final String	LOCAL_HOST = "local";
+
+	private final String		command;
+	private final List<String>	cliOptions;				// passed on to SudokuCli
+	private final File			input;
+	private int					workers = Runtime.getRuntime().availableProcessors();
+	private int					shards = -1;			// -1 = one per worker
+	private int					retries = 2;
+	private long				limitSeconds = 0;		// 0 = no limit
+	private String[]			hosts = { LOCAL_HOST };
+	private List<String>		jvmOptions = new ArrayList<String>();
+
+	private long[]				bounds;					// shard i is bytes bounds[i] to bounds[i+1]-1
+	private File[]				outputs;
+	private int[]				attempts;
+	private long[]				shardNanos;
+	private final AtomicInteger	retried = new AtomicInteger();
+
+
+	public BatchCoordinator(String command, List<String> cliOptions, File input)
+	{
+		this.command = command;
+		this.cliOptions = cliOptions;
+		this.input = input.getAbsoluteFile();
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		BatchCoordinator	coordinator;
+		List<String>		jvmOptions = new ArrayList<String>();
+		String				outName = null;
+		String[]			hosts = null;
+		int					workers = -1, shards = -1, retries = -1, i = 0, status;
+		long				limit = -1;
+		OutputStream		out;
+
+		try {
+			for ( ; i < args.length && args[i].startsWith("-"); i++) {
+				if (i+1 >= args.length)	usage();
+				if (args[i].equals("-workers"))			workers = Integer.parseInt(args[++i]);
+				else if (args[i].equals("-shards"))		shards = Integer.parseInt(args[++i]);
+				else if (args[i].equals("-retries"))	retries = Integer.parseInt(args[++i]);
+				else if (args[i].equals("-limit"))		limit = Long.parseLong(args[++i]);
+				else if (args[i].equals("-hosts"))		hosts = args[++i].split(",");
+				else if (args[i].equals("-J"))			jvmOptions.add(args[++i]);
+				else if (args[i].equals("-o"))			outName = args[++i];
+				else usage();
+			}
+		}
+		catch (NumberFormatException e) {
+			usage();
+		}
+		if (args.length - i < 2 || !(args[i].equals("solve") || args[i].equals("hint") || args[i].equals("count")))	usage();
+
+		coordinator = new BatchCoordinator(args[i], Arrays.asList(args).subList(i+1, args.length-1), new File(args[args.length-1]));
+		if (workers > 0)	coordinator.workers = workers;
+		if (shards > 0)		coordinator.shards = shards;
+		if (retries >= 0)	coordinator.retries = retries;
+		if (limit > 0)		coordinator.limitSeconds = limit;
+		if (hosts != null)	coordinator.hosts = hosts;
+		coordinator.jvmOptions = jvmOptions;
+
+		out = (outName != null) ? new FileOutputStream(outName) : System.out;
+		try {
+			status = coordinator.run(out);
+		}
+		finally {
+			out.flush();
+			if (outName != null)	out.close();
+		}
+		System.exit(status);
+	}
+
+	private static void usage()
+	{
+		System.err.println("usage: java BatchCoordinator [-workers n] [-shards n] [-retries n] [-limit seconds] [-hosts host,...] [-J jvm-option] [-o file] solve|hint|count [options] file");
+		System.exit(2);
+	}
+
+	/** run() solves every shard, writes the merged output to out, and reports the
+		throughput on System.err.  Returns the exit status (see above).
+	 */
+	public int run(OutputStream out) throws IOException, InterruptedException
+	{
+		ExecutorService			pool;
+		List<Future<Integer>>	results = new ArrayList<Future<Integer>>();
+		File					tempDir;
+		long					start = System.nanoTime(), lines = 0;
+		int						status = 0, failed = 0, shardStatus;
+		double					seconds;
+
+		if (!input.canRead()) {
+			System.err.printf("BatchCoordinator: cannot read %s\n", input);
+			return 2;
+		}
+		bounds = splitFile(input, (shards > 0) ? shards : workers);
+		outputs = new File[bounds.length - 1];
+		attempts = new int[outputs.length];
+		shardNanos = new long[outputs.length];
+		tempDir = Files.createTempDirectory("sudoku-shards").toFile();
+
+		pool = Executors.newFixedThreadPool(workers);
+		try {
+			for (int shard = 0; shard < outputs.length; shard++) {
+				final int	index = shard;
+
+				outputs[shard] = new File(tempDir, "shard" + shard + ".out");
+				results.add(pool.submit(new Callable<Integer>() {
+					public Integer call() throws InterruptedException
+					{
+						return runShard(index);
+					}
+				}));
+			}
+
+			// merge in shard order as the shards finish
+			for (int shard = 0; shard < outputs.length; shard++) {
+				try {
+					shardStatus = results.get(shard).get();
+				}
+				catch (ExecutionException e) {
+					System.err.printf("BatchCoordinator: shard %d: %s\n", shard, e.getCause());
+					shardStatus = -1;
+				}
+				if (shardStatus < 0) {
+					++failed;
+					status = 3;
+					continue;
+				}
+				if (shardStatus == SudokuCli.EXIT_PUZZLE_ERRORS && status == 0)	status = 1;
+				lines += copy(outputs[shard], out);
+			}
+		}
+		finally {
+			pool.shutdownNow();
+			for (File file : outputs) {
+				if (file != null)	file.delete();
+			}
+			tempDir.delete();
+		}
+
+		seconds = (System.nanoTime() - start) / 1e9;
+		System.err.printf(Locale.ROOT, "BatchCoordinator: %d puzzles in %.2f s (%.1f puzzles/s), %d shards on %d workers, %d retries, %d failed\n",
+		                  lines, seconds, lines / Math.max(seconds, 1e-9), outputs.length, workers, retried.get(), failed);
+		for (int shard = 0; shard < outputs.length; shard++) {
+			System.err.printf(Locale.ROOT, "  shard %d: bytes %d-%d, %d tries, %.2f s\n", shard, bounds[shard], bounds[shard+1],
+			                  attempts[shard], shardNanos[shard] / 1e9);
+		}
+		return status;
+	}
+
+	/** splitFile() returns the byte offsets at which each of n shards of file
+		starts, each at the beginning of a line, followed by the file's length.
+		Shards may be empty if the file has fewer lines than shards.
+	 */
+	static long[] splitFile(File file, int n) throws IOException
+	{
+		RandomAccessFile	in = new RandomAccessFile(file, "r");
+		long[]				bounds = new long[n + 1];
+		long				length, pos;
+		int					c;
+
+		try {
+			length = in.length();
+			bounds[n] = length;
+			for (int i = 1; i < n; i++) {
+				pos = Math.max(bounds[i-1], length / n * i);
+				if (pos > 0 && pos < length) {
+					// move to just after the next newline (pos is a line start if the byte before it is one)
+					in.seek(pos - 1);
+					do {
+						c = in.read();
+					} while (c != -1 && c != '\n');
+					pos = in.getFilePointer();
+				}
+				bounds[i] = Math.min(pos, length);
+			}
+		}
+		finally {
+			in.close();
+		}
+		return bounds;
+	}
+
+	/** runShard() runs one shard's worker, retrying on the next host if it fails.
+		Returns the worker's exit status (0 or SudokuCli.EXIT_PUZZLE_ERRORS) or -1 if
+		every try failed.
+	 */
+	private int runShard(int shard) throws InterruptedException
+	{
+		ProcessBuilder	builder;
+		Process			worker;
+		String			host;
+		long			start, puzzles, lines;
+		int				status;
+
+		if (bounds[shard] == bounds[shard+1]) {
+			// nothing to do for an empty shard
+			outputs[shard].delete();
+			return 0;
+		}
+		try {
+			puzzles = countPuzzles(shard);
+		}
+		catch (IOException e) {
+			System.err.printf("BatchCoordinator: shard %d could not be read: %s\n", shard, e.getMessage());
+			return -1;
+		}
+		for (int attempt = 0; attempt <= retries; attempt++) {
+			host = hosts[(shard + attempt) % hosts.length];
+			if (attempt > 0) {
+				retried.incrementAndGet();
+				System.err.printf("BatchCoordinator: retrying shard %d on %s\n", shard, host);
+			}
+			++attempts[shard];
+			start = System.nanoTime();
+			builder = new ProcessBuilder(workerCommand(shard, host));
+			builder.redirectOutput(outputs[shard]);
+			builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+			try {
+				worker = builder.start();
+			}
+			catch (IOException e) {
+				System.err.printf("BatchCoordinator: shard %d could not start on %s: %s\n", shard, host, e.getMessage());
+				continue;
+			}
+			try {
+				worker.getOutputStream().close();		// workers don't read standard input
+			}
+			catch (IOException e) {
+			}
+
+			if (limitSeconds > 0 && !worker.waitFor(limitSeconds, TimeUnit.SECONDS)) {
+				worker.destroyForcibly().waitFor();
+				shardNanos[shard] = System.nanoTime() - start;
+				System.err.printf("BatchCoordinator: shard %d timed out on %s\n", shard, host);
+				continue;
+			}
+			status = worker.waitFor();
+			shardNanos[shard] = System.nanoTime() - start;
+			if (status != 0 && status != SudokuCli.EXIT_PUZZLE_ERRORS) {
+				System.err.printf("BatchCoordinator: shard %d failed on %s, exit status %d\n", shard, host, status);
+				continue;
+			}
+
+			// a worker that died without the JVM noticing may still have cut its output short
+			try {
+				lines = countLines(outputs[shard]);
+			}
+			catch (IOException e) {
+				lines = -1;
+			}
+			if (lines == puzzles)	return status;
+			System.err.printf("BatchCoordinator: shard %d on %s wrote %d lines for %d puzzles\n", shard, host, lines, puzzles);
+		}
+		return -1;
+	}
+
+	// returns the number of puzzle lines in a shard's byte range (as SudokuCli reads them)
+	private long countPuzzles(int shard) throws IOException
+	{
+		BufferedReader	in = new BufferedReader(new InputStreamReader(SudokuCli.openRange(input.getPath(), bounds[shard], bounds[shard+1])));
+		String			line;
+		long			count = 0;
+
+		try {
+			while ((line = in.readLine()) != null) {
+				if (SudokuCli.isPuzzleLine(line))	++count;
+			}
+		}
+		finally {
+			in.close();
+		}
+		return count;
+	}
+
+	// returns the number of lines in file (0 if it doesn't exist)
+	private static long countLines(File file) throws IOException
+	{
+		return copy(file, null);
+	}
+
+	// returns the command line that runs a shard on host
+	private List<String> workerCommand(int shard, String host)
+	{
+		List<String>	args = new ArrayList<String>();
+		StringBuilder	remote;
+
+		args.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		args.addAll(jvmOptions);
+		args.add("-cp");
+		args.add(absoluteClassPath());
+		args.add("SudokuCli");
+		args.add(command);
+		args.addAll(cliOptions);
+		args.add("-r");
+		args.add(bounds[shard] + "-" + bounds[shard+1]);
+		args.add(input.getPath());
+		if (host.equals(LOCAL_HOST))	return args;
+
+		// ssh passes one string to the remote shell, so quote every argument
+		remote = new StringBuilder();
+		for (String arg : args) {
+			if (remote.length() > 0)	remote.append(' ');
+			remote.append('\'').append(arg.replace("'", "'\\''")).append('\'');
+		}
+		return Arrays.asList("ssh", "-o", "BatchMode=yes", host, remote.toString());
+	}
+
+	// returns the class path with every entry made absolute (workers may start in another directory)
+	private static String absoluteClassPath()
+	{
+		StringBuilder	path = new StringBuilder();
+
+		for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+			if (path.length() > 0)	path.append(File.pathSeparator);
+			path.append(new File(entry).getAbsolutePath());
+		}
+		return path.toString();
+	}
+
+	// copies file to out (unless it is null) and returns the number of lines in it
+	private static long copy(File file, OutputStream out) throws IOException
+	{
+		InputStream	in;
+		byte[]		buf = new byte[65536];
+		long		lines = 0;
+		int			n;
+
+		if (!file.exists())	return 0;
+		in = new FileInputStream(file);
+		try {
+			while ((n = in.read(buf)) > 0) {
+				for (int i = 0; i < n; i++) {
+					if (buf[i] == '\n')	++lines;
+				}
+				if (out != null)	out.write(buf, 0, n);
+			}
+		}
+		finally {
+			in.close();
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,402 @@
+/*	BitSlicedSolver.java
+
+	Solves many 9x9 puzzles at once by running singles propagation on up to 64
+	puzzles in lockstep.
+
+	The candidates are "bit-sliced":  cands[cell*9 + d] is a long whose bit p is set
+	if digit d+1 is still a candidate of cell in puzzle p of the batch.  Each step
+	of naked single and hidden single propagation is then a few AND/OR/XOR
+	operations on whole words and works on all 64 puzzles with the same
+	instructions.  "Exactly one candidate" is found with a pair of bit-sliced
+	counters (ones = seen at least once, twos = seen at least twice).
+
+	Puzzles that singles alone cannot finish (they need guessing) fall out of the
+	batch and are solved one at a time by a BacktrackingSolver, as are puzzles of
+	other sizes, with cages, or with different regions than the rest of the batch.
+
+	Measured gains are modest.  On the regression corpus's easy 9x9 puzzles (all
+	finished by singles) lockstep solving is about 1.1x the throughput of
+	BacktrackingSolver;  on easy, hard, and minimal puzzles mixed together about a
+	quarter of the puzzles fall back and the two are about even.  The 64-lane
+	propagation itself is a few times faster per puzzle than the scalar search,
+	but loading the lanes and copying solutions back through SudokuPuzzle take a
+	large share of the time, and fallback puzzles cost as much as before.
+	Guessing in lockstep (splitting unfinished lanes into pairs of lanes for up to
+	two or four guess levels) cut the fallback rate to 16% or 8% but made the
+	batches 10-15% slower overall, because each guess costs a whole lane of
+	propagation while the scalar solver needs only a few nodes for those puzzles.
+	So use this solver for large batches of mostly easy puzzles;  it does not
+	multiply throughput in general.
+
+	Because propagation only makes forced deductions, a puzzle that it completes
+	has exactly one solution, and a puzzle in which it finds a contradiction has
+	none.  Results are the same as BacktrackingSolver.solve(2):  the number of
+	solutions (0, 1, or 2 for "more than one"), with the first solution copied
+	into the puzzle.  Instances are NOT thread-safe;  use one per thread.
+
+	Typical use:
+
+		solver.solve(puzzles, 0, puzzles.length, counts);
+
+	October 18, 2026
+ */
+
+public class BitSlicedSolver
+{
+	public static final int		SIZE = 9;			// only 9x9 puzzles are solved in lockstep
+	public static final int		LANES = 64;			// puzzles per batch (bits in a long)
+	public static final int		STOPPED = -1;		// count of a puzzle the budget ran out on
+
+	private static final int	NCELLS = SIZE*SIZE;
+	private static final int	NUNITS = 3*SIZE;
+
+	private final long[]		cands = new long[NCELLS*SIZE];	// bit-sliced candidates
+	private final long[]		single = new long[NCELLS];		// lanes where each cell has one candidate
+	private final long[]		given = new long[NCELLS*SIZE];	// lanes where each cell's value is given as d+1
+	private final long[]		hasValue = new long[NCELLS];	// lanes where each cell has a given value
+	private final int[]			unitCells = new int[NUNITS*SIZE];	// the cells of each unit (copied from the topology)
+	private final int[]			unitOffsets = new int[NUNITS*SIZE];	// cell*SIZE for each cell of each unit
+	private PuzzleTopology		offsetsTopo;					// topology unitOffsets was made for
+	private final int[]			cellStamp = new int[NCELLS];	// time each cell's candidates last changed
+	private final int[]			unitStamp = new int[NUNITS];	// time each unit was last examined
+	private final long[]		unitChanged = new long[SIZE];	// lanes changed in each cell of the current unit
+	private final SudokuPuzzle[]	lanePuzzles = new SudokuPuzzle[LANES];
+	private final int[]			laneIndex = new int[LANES];		// index of each lane's puzzle in the caller's array
+	private final BacktrackingSolver	fallback = new BacktrackingSolver();
+
+	private long				lockstepSolved;		// puzzles finished by propagation alone
+	private long				fallbackSolved;		// puzzles passed to the BacktrackingSolver
+
+
+	public BitSlicedSolver()
+	{
+	}
+
+	// returns the number of puzzles completed (or shown to be invalid) in lockstep
+	public long getLockstepCount()
+	{
+		return lockstepSolved;
+	}
+
+	// returns the number of puzzles that had to be solved by backtracking
+	public long getFallbackCount()
+	{
+		return fallbackSolved;
+	}
+
+	/** solve() solves puzzles[from] to puzzles[from+count-1], stores the number of
+		solutions of each (0, 1, or 2 for "more than one") in counts[from] etc., and
+		copies the first solution into each puzzle that has one (as SOLVED cells).
+		Returns the number of puzzles with a unique solution.
+	 */
+	public int solve(SudokuPuzzle[] puzzles, int from, int count, int[] counts)
+	{
+		return solve(puzzles, from, count, counts, null);
+	}
+
+	/** This version of solve() gives up when budget (if not null) is exhausted:  the
+		puzzles that were not finished by then (including one that the fallback
+		solver was working on) get a count of STOPPED and are left unchanged.  Each
+		fallback search counts its own nodes against the budget's node limit.
+	 */
+	public int solve(SudokuPuzzle[] puzzles, int from, int count, int[] counts, SolveBudget budget)
+	{
+		PuzzleTopology	topo = null, t;
+		SudokuPuzzle	puzzle;
+		int				lanes = 0, unique = 0;
+
+		for (int i = from; i < from + count; i++) {
+			puzzle = puzzles[i];
+			t = (puzzle.getSize() == SIZE && puzzle.getCageCount() == 0) ? PuzzleTopology.forPuzzle(puzzle) : null;
+			if (t != null && topo == null)	topo = t;
+			if (t == null || t != topo) {
+				// can't share the batch's bit slices
+				counts[i] = solveOne(puzzle, budget);
+			}
+			else {
+				lanePuzzles[lanes] = puzzle;
+				laneIndex[lanes] = i;
+				if (++lanes == LANES) {
+					solveBatch(topo, lanes, counts, budget);
+					lanes = 0;
+				}
+			}
+		}
+		if (lanes > 0)	solveBatch(topo, lanes, counts, budget);
+
+		for (int i = from; i < from + count; i++) {
+			if (counts[i] == 1)	++unique;
+		}
+		java.util.Arrays.fill(lanePuzzles, null);
+		return unique;
+	}
+
+	private int solveOne(SudokuPuzzle puzzle, SolveBudget budget)
+	{
+		int	n;
+
+		if (budget != null && budget.check())	return STOPPED;
+		++fallbackSolved;
+		if (fallback.load(puzzle) != SudokuPuzzle.NO_ERR)	return 0;
+		n = fallback.solve(2, budget);
+		if (fallback.wasStopped())	return STOPPED;
+		if (n > 0)	fallback.copySolutionTo(puzzle);
+		return n;
+	}
+
+	// solves lanePuzzles[0..lanes-1] in lockstep
+	private void solveBatch(PuzzleTopology topo, int lanes, int[] counts, SolveBudget budget)
+	{
+		long	live = (lanes == LANES) ? -1L : (1L << lanes) - 1;
+		long	dead, solved, bit;
+		int		value;
+
+		if (budget != null && budget.check()) {
+			for (int p = 0; p < lanes; p++)	counts[laneIndex[p]] = STOPPED;
+			return;
+		}
+
+		if (offsetsTopo != topo) {
+			for (int i = 0; i < NUNITS*SIZE; i++) {
+				unitCells[i] = topo.unitCells[i];
+				unitOffsets[i] = topo.unitCells[i]*SIZE;
+			}
+			offsetsTopo = topo;
+		}
+		
+		// load the clues:  a cell with a value keeps only that candidate
+		java.util.Arrays.fill(given, 0L);
+		java.util.Arrays.fill(hasValue, 0L);
+		for (int p = 0; p < lanes; p++) {
+			bit = 1L << p;
+			for (int row = 0; row < SIZE; row++) {
+				for (int col = 0; col < SIZE; col++) {
+					value = lanePuzzles[p].getCellValue(row, col);
+					if (value != SudokuPuzzle.EMPTY_CELL) {
+						given[(row*SIZE + col)*SIZE + value-1] |= bit;
+						hasValue[row*SIZE + col] |= bit;
+					}
+				}
+			}
+		}
+		for (int cell = 0; cell < NCELLS; cell++) {
+			for (int d = 0; d < SIZE; d++) {
+				cands[cell*SIZE + d] = live & (~hasValue[cell] | given[cell*SIZE + d]);
+			}
+		}
+
+		dead = propagate() & live;
+
+		// a puzzle is solved if every cell has exactly one candidate
+		solved = live & ~dead;
+		for (int cell = 0; cell < NCELLS && solved != 0; cell++) {
+			solved &= single[cell];
+		}
+
+		for (int p = 0; p < lanes; p++) {
+			bit = 1L << p;
+			if ((dead & bit) != 0) {
+				counts[laneIndex[p]] = 0;
+				++lockstepSolved;
+			}
+			else if ((solved & bit) != 0) {
+				copyLane(p, lanePuzzles[p]);
+				counts[laneIndex[p]] = 1;
+				++lockstepSolved;
+			}
+			else {
+				counts[laneIndex[p]] = solveOne(lanePuzzles[p], budget);
+			}
+		}
+	}
+
+	/** propagate() applies naked singles and hidden singles to every lane until
+		nothing changes, and returns the lanes that reached a contradiction.  On
+		return single[] holds the lanes in which each cell has exactly one candidate.
+		
+		A unit is only examined again if one of its cells has changed (in any lane)
+		since the last time, which is tracked with a counter that goes up by one for
+		each unit examined.
+	 */
+	private long propagate()
+	{
+		final long[]	cands = this.cands, single = this.single;
+		final int[]		offsets = unitOffsets, cells = unitCells;
+		final long[]	cellChanged = unitChanged;
+		long			dead = 0, ones, twos, any, multi, c, nc, f, h, changed;
+		int				base, idx, cell, time = 1, singlesTime = 0;
+		boolean			again;
+		
+		java.util.Arrays.fill(cellStamp, time);
+		java.util.Arrays.fill(unitStamp, 0);
+		do {
+			again = false;
+			
+			// find the cells with exactly one candidate (and those with none)
+			for (cell = 0; cell < NCELLS; cell++) {
+				if (cellStamp[cell] < singlesTime)	continue;
+				base = cell*SIZE;
+				ones = twos = 0;
+				for (int d = 0; d < SIZE; d++) {
+					c = cands[base + d];
+					twos |= ones & c;
+					ones |= c;
+				}
+				dead |= ~ones;
+				single[cell] = ones & ~twos;
+			}
+			singlesTime = time + 1;
+			
+			for (int unit = 0; unit < NUNITS; unit++) {
+				base = unit*SIZE;
+				for (int i = 0; i < SIZE; i++) {
+					if (cellStamp[cells[base + i]] >= unitStamp[unit])	break;
+					if (i == SIZE-1)	base = -1;		// nothing new in this unit
+				}
+				if (base < 0)	continue;
+				unitStamp[unit] = ++time;
+				java.util.Arrays.fill(cellChanged, 0L);
+				
+				for (int d = 0; d < SIZE; d++) {
+					// naked singles:  find the lanes where some cell's only candidate is d
+					// (two such cells is a contradiction)
+					any = multi = 0;
+					for (int i = 0; i < SIZE; i++) {
+						f = cands[offsets[base + i] + d] & single[cells[base + i]];
+						multi |= any & f;
+						any |= f;
+					}
+					dead |= multi;
+					
+					// remove d from the unit's other cells in those lanes, while counting
+					// the places left for d
+					ones = twos = 0;
+					for (int i = 0; i < SIZE; i++) {
+						idx = offsets[base + i] + d;
+						c = cands[idx];
+						nc = c & ~(any & ~single[cells[base + i]]);
+						cands[idx] = nc;
+						cellChanged[i] |= c ^ nc;
+						twos |= ones & nc;
+						ones |= nc;
+					}
+					
+					// hidden singles:  in lanes where d has only one place left in the unit,
+					// remove the other candidates of that cell (no place is a contradiction)
+					dead |= ~ones;
+					h = ones & ~twos & ~any & ~dead;
+					if (h != 0) {
+						for (int i = 0; i < SIZE; i++) {
+							idx = offsets[base + i];
+							cell = cells[base + i];
+							f = cands[idx + d] & h & ~single[cell];		// skip cells that are already done
+							if (f == 0)		continue;
+							changed = 0;
+							for (int e = 0; e < SIZE; e++) {
+								c = cands[idx + e];
+								nc = (e == d) ? c : c & ~f;
+								changed |= c ^ nc;
+								cands[idx + e] = nc;
+							}
+							single[cell] |= f;		// so later units can use it in this pass
+							cellChanged[i] |= changed;
+						}
+					}
+				}
+				for (int i = 0; i < SIZE; i++) {
+					if ((cellChanged[i] & ~dead) != 0)	cellStamp[cells[base + i]] = time;
+				}
+			}
+			
+			// go around again if any unit has changed since it was examined
+			for (int unit = 0; unit < NUNITS && !again; unit++) {
+				base = unit*SIZE;
+				for (int i = 0; i < SIZE; i++) {
+					if (cellStamp[cells[base + i]] >= unitStamp[unit]) {
+						again = true;
+						break;
+					}
+				}
+			}
+		} while (again);
+		
+		return dead;
+	}
+	
+	/** main() compares the throughput of this solver with BacktrackingSolver on a
+		file of 9x9 puzzle strings (one per line):
+
+			java BitSlicedSolver <file> [repeat]
+	 */
+	public static void main(String[] args) throws java.io.IOException
+	{
+		java.util.List<String>	lines = new java.util.ArrayList<String>();
+		java.io.BufferedReader	in;
+		SudokuPuzzle[]			puzzles;
+		int[]					counts, expected;
+		int						repeat, mismatches = 0;
+		long					start, lockstepNanos = 0, backtrackNanos = 0;
+		String					line;
+		BitSlicedSolver			solver = new BitSlicedSolver();
+		BacktrackingSolver		single = new BacktrackingSolver();
+
+		if (args.length < 1) {
+			System.err.println("usage: java BitSlicedSolver <file> [repeat]");
+			return;
+		}
+		repeat = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+		in = new java.io.BufferedReader(new java.io.FileReader(args[0]));
+		try {
+			while ((line = in.readLine()) != null) {
+				if (SudokuPuzzle.countPuzzleStringCells(line) == NCELLS)	lines.add(line);
+			}
+		}
+		finally {
+			in.close();
+		}
+		puzzles = new SudokuPuzzle[lines.size()];
+		counts = new int[puzzles.length];
+		expected = new int[puzzles.length];
+
+		for (int r = 0; r < repeat; r++) {
+			for (int i = 0; i < puzzles.length; i++)	puzzles[i] = new SudokuPuzzle(SIZE, lines.get(i));
+			start = System.nanoTime();
+			for (int i = 0; i < puzzles.length; i++) {
+				single.load(puzzles[i]);
+				expected[i] = single.solve(2);
+				if (expected[i] > 0)	single.copySolutionTo(puzzles[i]);
+			}
+			backtrackNanos += System.nanoTime() - start;
+			for (int i = 0; i < puzzles.length; i++)	puzzles[i] = new SudokuPuzzle(SIZE, lines.get(i));
+
+			start = System.nanoTime();
+			solver.solve(puzzles, 0, puzzles.length, counts);
+			lockstepNanos += System.nanoTime() - start;
+			for (int i = 0; i < puzzles.length; i++) {
+				if (counts[i] != expected[i])	++mismatches;
+			}
+		}
+		System.out.printf("%d puzzles x %d:  backtracking %.0f/s, lockstep %.0f/s (%d in lockstep, %d fell back), %d mismatches\n",
+		                  puzzles.length, repeat, puzzles.length * repeat / (backtrackNanos / 1e9),
+		                  puzzles.length * repeat / (lockstepNanos / 1e9), solver.getLockstepCount(),
+		                  solver.getFallbackCount(), mismatches);
+	}
+
+	// copies lane p's (complete) candidates into the empty cells of puzzle
+	private void copyLane(int p, SudokuPuzzle puzzle)
+	{
+		int	row, col;
+
+		for (int cell = 0; cell < NCELLS; cell++) {
+			row = cell / SIZE;
+			col = cell % SIZE;
+			if (puzzle.getCellValue(row, col) != SudokuPuzzle.EMPTY_CELL)	continue;
+			for (int d = 0; d < SIZE; d++) {
+				if ((cands[cell*SIZE + d] >>> p & 1) != 0) {
+					puzzle.setCellValue(row, col, d+1);
+					break;
+				}
+			}
+		}
+	}
+}
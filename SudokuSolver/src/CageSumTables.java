@@ -0,0 +1,300 @@
+/*	CageSumTables.java
+
+	Precomputed tables of the digits that can appear in a Killer Sudoku cage.
+
+	A cage with k empty cells that still needs to add up to s, using only digits
+	from the bitmask 'available' (bit v-1 set for value v), can only contain the
+	digits that appear in some set of k different available digits whose sum is s.
+	getAllowedDigits(k, s, available) returns the union of all such sets.
+
+	How the answer is found depends on the puzzle size N:
+
+		N <= 9		a single lookup in a table indexed by (k, s, available) that is
+					built once with a subset-sum ("superset OR") transform
+		N <= 16		an OR over the precomputed digit sets for (k, s) that fit within
+					available (no combinations are generated at solve time)
+		N <= 64		a bounds check using the smallest and largest sums of the
+					available digits (sound, but may allow a few extra digits)
+
+	The OR over digit sets can take hundreds of steps, so BacktrackingSolver, which
+	needs candidates at every node, uses getDigitBound() instead:  the same lookup
+	for N <= 9, and for larger sizes a lookup of the union of every digit set for
+	(k, s) ANDed with available.  That may allow digits that getAllowedDigits()
+	doesn't (the search finds out when it places them), but it is never wrong.
+	The unions are found by enumerating the digit sets up to N = 16, and above that
+	with a subset-sum table of the sums that k digits other than d can make.
+
+	Tables are built lazily, once per size, and are shared by all threads.
+
+	October 18, 2026
+ */
+
+import java.util.*;
+
+
+public final class CageSumTables
+{
+	public static final int		MAX_EXACT_SIZE = 9;		// largest size with a full (k, s, available) table
+	public static final int		MAX_COMBO_SIZE = 16;	// largest size with precomputed digit sets
+
+	private static final CageSumTables[]	cache = new CageSumTables[BacktrackingSolver.MAX_SIZE+1];
+
+	private final int		size;
+	private final int		maxSum;				// 1 + 2 + ... + size
+	private final long		full;
+	private final long[]	unions;				// unions[k*(maxSum+1) + s] = union of all sets for (k, s)
+	private final char[]	exact;				// exact[((k*(maxSum+1) + s) << size) | available]
+	private final long[][]	combos;				// combos[k*(maxSum+1) + s] = every digit set for (k, s)
+
+
+	private CageSumTables(int size)
+	{
+		int		idx, base;
+		long	m;
+		int[]	counts;
+
+		this.size = size;
+		maxSum = size*(size+1)/2;
+		full = (size == 64) ? -1L : (1L << size) - 1;
+
+		if (size <= MAX_COMBO_SIZE) {
+			// enumerate every digit set once
+			unions = new long[(size+1)*(maxSum+1)];
+			counts = new int[unions.length];
+			for (m = 0; m <= full; m++) {
+				idx = key(Long.bitCount(m), digitSum(m));
+				unions[idx] |= m;
+				++counts[idx];
+			}
+			combos = new long[unions.length][];
+			for (idx = 0; idx < unions.length; idx++) {
+				combos[idx] = new long[counts[idx]];
+				counts[idx] = 0;
+			}
+			for (m = 0; m <= full; m++) {
+				idx = key(Long.bitCount(m), digitSum(m));
+				combos[idx][counts[idx]++] = m;
+			}
+		}
+		else {
+			// too many digit sets to enumerate;  getAllowedDigits() uses bounds instead
+			unions = largeUnions();
+			combos = null;
+		}
+
+		if (size <= MAX_EXACT_SIZE) {
+			// start with each digit set at its own index, then OR every subset of
+			// 'available' into it, one bit at a time
+			exact = new char[unions.length << size];
+			for (m = 0; m <= full; m++) {
+				exact[(key(Long.bitCount(m), digitSum(m)) << size) | (int)m] = (char)m;
+			}
+			for (idx = 0; idx < unions.length; idx++) {
+				base = idx << size;
+				for (int bit = 0; bit < size; bit++) {
+					for (int avail = 0; avail <= (int)full; avail++) {
+						if ((avail & (1 << bit)) != 0) {
+							exact[base | avail] |= exact[base | (avail ^ (1 << bit))];
+						}
+					}
+				}
+			}
+		}
+		else {
+			exact = null;
+		}
+	}
+
+	/** largeUnions() finds the union of all digit sets for each (k, s) without
+		enumerating them:  digit d is in the union for (k, s) if k-1 of the other
+		digits can add up to s-d.  For each d, reach[j] is the set of sums (one bit
+		each) that j different digits other than d can make.
+	 */
+	private long[] largeUnions()
+	{
+		long[]		result = new long[(size+1)*(maxSum+1)];
+		long[][]	reach = new long[size][(maxSum >> 6) + 1];
+		long		bit;
+
+		for (int d = 1; d <= size; d++) {
+			bit = 1L << (d-1);
+			for (long[] sums : reach)	Arrays.fill(sums, 0);
+			reach[0][0] = 1;
+			for (int v = 1; v <= size; v++) {
+				if (v == d)	continue;
+				for (int j = Math.min(v, size-1) - 1; j >= 0; j--)	orShifted(reach[j+1], reach[j], v);
+			}
+			for (int k = 1; k <= size; k++) {
+				for (int s = d; s <= maxSum; s++) {
+					if ((reach[k-1][(s-d) >> 6] & (1L << (s-d))) != 0)	result[key(k, s)] |= bit;
+				}
+			}
+		}
+		return result;
+	}
+
+	// ORs the bits of src, moved up by shift places, into dest (of the same length)
+	private static void orShifted(long[] dest, long[] src, int shift)
+	{
+		int		words = shift >> 6, bits = shift & 63;
+
+		for (int i = dest.length - 1; i >= words; i--) {
+			dest[i] |= src[i - words] << bits;
+			if (bits != 0 && i - words - 1 >= 0)	dest[i] |= src[i - words - 1] >>> (64 - bits);
+		}
+	}
+
+	/** forSize() returns the (shared) tables for puzzles of the given size, or null
+		if the size is larger than BacktrackingSolver.MAX_SIZE.
+	 */
+	public static CageSumTables forSize(int size)
+	{
+		CageSumTables	tables;
+
+		if (size < 1 || size >= cache.length)	return null;
+		synchronized (cache) {
+			tables = cache[size];
+			if (tables == null) {
+				tables = cache[size] = new CageSumTables(size);
+			}
+		}
+		return tables;
+	}
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	private int key(int cells, int sum)
+	{
+		return cells*(maxSum+1) + sum;
+	}
+
+	// returns the sum of the values whose bits are set in mask
+	private static int digitSum(long mask)
+	{
+		int sum = 0;
+
+		for ( ; mask != 0; mask &= mask - 1) {
+			sum += Long.numberOfTrailingZeros(mask) + 1;
+		}
+		return sum;
+	}
+
+	/** getCombinationUnion() returns the bitmask of all digits that appear in at
+		least one set of 'cells' different digits adding up to sum.
+	 */
+	public long getCombinationUnion(int cells, int sum)
+	{
+		if (cells < 0 || cells > size || sum < 0 || sum > maxSum)	return 0;
+		return unions[key(cells, sum)];
+	}
+
+	/** getDigitBound() returns a superset of getAllowedDigits(cells, sum, available)
+		with one table lookup and an AND:  the exact answer for sizes up to 9, and
+		otherwise the digits in available that are in some set of 'cells' digits
+		adding up to sum.
+	 */
+	public long getDigitBound(int cells, int sum, long available)
+	{
+		if (cells < 0 || cells > size || sum < 0 || sum > maxSum)	return 0;
+		if (exact != null)	return exact[(key(cells, sum) << size) | (int)(available & full)];
+		return unions[key(cells, sum)] & available;
+	}
+
+	/** getAllowedDigits() returns the bitmask of digits that can be used to fill
+		'cells' empty cells of a cage so that they add up to sum, using only the
+		digits in available (one cell each).
+	 */
+	public long getAllowedDigits(int cells, int sum, long available)
+	{
+		long[]	list;
+		long	allowed;
+
+		if (cells < 0 || cells > size || sum < 0 || sum > maxSum)	return 0;
+		available &= full;
+
+		if (exact != null) {
+			return exact[(key(cells, sum) << size) | (int)available];
+		}
+		if (combos != null) {
+			list = combos[key(cells, sum)];
+			allowed = 0;
+			for (int i = 0; i < list.length; i++) {
+				if ((list[i] & ~available) == 0)	allowed |= list[i];
+			}
+			return allowed;
+		}
+		return boundedDigits(cells, sum, available);
+	}
+
+	/** getCellDigits() returns the candidates of one empty cell of a cage that can
+		be part of a solution of the cage, where 'cells' is the number of empty cells
+		in the cage (including this one), sum is the amount they must add up to, and
+		others is the union of the candidates of the other empty cells.
+	 */
+	public long getCellDigits(int cells, int sum, long candidates, long others)
+	{
+		long	allowed = 0, bit;
+		int		d;
+
+		for (long m = candidates & full; m != 0; m &= m - 1) {
+			bit = m & -m;
+			d = Long.numberOfTrailingZeros(bit) + 1;
+			if (cells == 1) {
+				if (d == sum)	allowed |= bit;
+			}
+			else if (getAllowedDigits(cells-1, sum-d, others & ~bit) != 0) {
+				allowed |= bit;
+			}
+		}
+		return allowed;
+	}
+
+	// returns the digits d in available for which the other cells could still add up
+	// to sum-d according to the smallest and largest sums of the remaining digits
+	private static long boundedDigits(int cells, int sum, long available)
+	{
+		long	allowed = 0, rest, bit;
+		int		d;
+
+		if (cells == 0)		return 0;
+		for (long m = available; m != 0; m &= m - 1) {
+			bit = m & -m;
+			d = Long.numberOfTrailingZeros(bit) + 1;
+			if (cells == 1) {
+				if (d == sum)	allowed |= bit;
+				continue;
+			}
+			rest = available & ~bit;
+			if (Long.bitCount(rest) >= cells-1 && smallestSum(rest, cells-1) <= sum-d && largestSum(rest, cells-1) >= sum-d) {
+				allowed |= bit;
+			}
+		}
+		return allowed;
+	}
+
+	private static int smallestSum(long digits, int n)
+	{
+		int sum = 0;
+
+		for ( ; n > 0; n--) {
+			sum += Long.numberOfTrailingZeros(digits) + 1;
+			digits &= digits - 1;
+		}
+		return sum;
+	}
+
+	private static int largestSum(long digits, int n)
+	{
+		int sum = 0, top;
+
+		for ( ; n > 0; n--) {
+			top = 63 - Long.numberOfLeadingZeros(digits);
+			sum += top + 1;
+			digits &= ~(1L << top);
+		}
+		return sum;
+	}
+}
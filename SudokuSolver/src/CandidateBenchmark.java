@@ -0,0 +1,120 @@
+/*	CandidateBenchmark.java
+
+	Times the SudokuPuzzle methods that use CandidateKernels with the scalar
+	kernels and (if available) the vector kernels, on partly filled puzzles of
+	several sizes.  Run it with the vector module to compare both:
+
+		java --add-modules jdk.incubator.vector -cp bin CandidateBenchmark [size ...]
+
+	Sizes default to 16, 25, 36, 49, and 64.  For each size the output shows the
+	average time per call of recalculateAllCandidates(), countRegionCandidateOccurences()
+	(all rows, columns, and regions), and countCellCandidates() (all cells).
+
+	October 18, 2026
+ */
+
+import java.util.*;
+
+
+public class CandidateBenchmark
+{
+	private static final double		FILL = 0.4;			// fraction of cells with values
+	private static final long		RUN_NANOS = 300000000L;	// time to spend on each measurement
+
+	private static int		sink;		// keeps results alive so loops aren't optimized away
+
+
+	public static void main(String[] args)
+	{
+		int[]					sizes = {16, 25, 36, 49, 64};
+		List<CandidateKernels>	list = new ArrayList<CandidateKernels>();
+		CandidateKernels		best = CandidateKernels.get();
+
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++)	sizes[i] = Integer.parseInt(args[i]);
+		}
+		list.add(new CandidateKernels());
+		if (!best.getName().equals("scalar"))	list.add(best);
+		else System.out.println("(vector kernels not available;  run with --add-modules jdk.incubator.vector)");
+
+		// the first pass only warms up the JIT compiler (the Vector API is very slow
+		// until its methods are compiled)
+		for (int pass = 0; pass < 2; pass++) {
+			if (pass == 1)	System.out.printf("%5s  %-16s %14s %14s %14s\n", "size", "kernels", "recalc (us)", "units (us)", "cells (us)");
+			for (int size : sizes) {
+				for (CandidateKernels kernels : list) {
+					CandidateKernels.set(kernels);
+					SudokuPuzzle puzzle = makePuzzle(size, new Random(size));
+					double recalc = timeRecalculate(puzzle), units = timeUnitCounts(puzzle), cells = timeCellCounts(puzzle);
+					if (pass == 1)	System.out.printf("%5d  %-16s %14.2f %14.2f %14.2f\n", size, kernels.getName(), recalc, units, cells);
+				}
+			}
+		}
+		CandidateKernels.set(best);
+	}
+
+	// returns a puzzle with values in about FILL of its cells (conflicts don't matter here)
+	private static SudokuPuzzle makePuzzle(int size, Random rand)
+	{
+		SudokuPuzzle	puzzle = new SudokuPuzzle(size);
+
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				if (rand.nextDouble() < FILL)	puzzle.setCellClue(row, col, 1 + rand.nextInt(size));
+			}
+		}
+		puzzle.recalculateAllCandidates();
+		return puzzle;
+	}
+
+	private static double timeRecalculate(SudokuPuzzle puzzle)
+	{
+		long	start, end, calls = 0;
+
+		start = System.nanoTime();
+		do {
+			puzzle.recalculateAllCandidates();
+			++calls;
+			end = System.nanoTime();
+		} while (end - start < RUN_NANOS);
+		sink += puzzle.getModCount();
+		return (end - start) / 1000.0 / calls;
+	}
+
+	private static double timeUnitCounts(SudokuPuzzle puzzle)
+	{
+		SudokuPuzzle.RegionType[]	types = SudokuPuzzle.RegionType.values();
+		int[]						counts = new int[puzzle.getSize()+1];
+		long						start, end, calls = 0;
+
+		start = System.nanoTime();
+		do {
+			for (SudokuPuzzle.RegionType type : types) {
+				for (int rgn = 0; rgn < puzzle.getRegionCount(type); rgn++) {
+					puzzle.countRegionCandidateOccurences(type, rgn, counts);
+					sink += counts[1];
+				}
+			}
+			++calls;
+			end = System.nanoTime();
+		} while (end - start < RUN_NANOS);
+		return (end - start) / 1000.0 / calls;
+	}
+
+	private static double timeCellCounts(SudokuPuzzle puzzle)
+	{
+		int		size = puzzle.getSize();
+		long	start, end, calls = 0;
+
+		start = System.nanoTime();
+		do {
+			for (int row = 0; row < size; row++) {
+				for (int col = 0; col < size; col++)	sink += puzzle.countCellCandidates(row, col);
+			}
+			++calls;
+			end = System.nanoTime();
+		} while (end - start < RUN_NANOS);
+		return (end - start) / 1000.0 / calls;
+	}
+}
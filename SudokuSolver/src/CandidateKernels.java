@@ -0,0 +1,101 @@
+/*	CandidateKernels.java
+
+	The inner loops that SudokuPuzzle runs over the candidate arrays of a whole
+	row, column, or region.  This class is the plain (scalar) version.
+
+	A faster version that uses the JDK Vector API (jdk.incubator.vector) lives in
+	../vector/VectorCandidateKernels.java.  It is kept out of src/ because it can
+	only be compiled when that module is available:
+
+		javac --add-modules jdk.incubator.vector -cp bin -d bin ../vector/*.java
+		java --add-modules jdk.incubator.vector -cp bin SudokuSolverApp
+
+	get() uses the vector version if it was compiled and the module is present at
+	run time, and this one otherwise.  Setting the system property
+	"sudoku.scalar" to true forces the scalar version.
+
+	October 18, 2026
+ */
+
+public class CandidateKernels
+{
+	private static CandidateKernels		active;
+
+
+	/** get() returns the kernels that SudokuPuzzle should use, choosing them the
+		first time it is called.
+	 */
+	public static synchronized CandidateKernels get()
+	{
+		if (active == null) {
+			active = select();
+		}
+		return active;
+	}
+
+	// replaces the active kernels (used by CandidateBenchmark to compare them, and by
+	// SudokuCli to avoid loading the vector version by name)
+	static synchronized void set(CandidateKernels kernels)
+	{
+		active = kernels;
+	}
+
+	private static CandidateKernels select()
+	{
+		if (!Boolean.getBoolean("sudoku.scalar")) {
+			try {
+				// fails if the class was not compiled or if the module is not loaded
+				return (CandidateKernels)Class.forName("VectorCandidateKernels").getConstructor().newInstance();
+			}
+			catch (Exception e) {
+				// use the scalar version
+			}
+			catch (LinkageError le) {
+				// use the scalar version
+			}
+		}
+		return new CandidateKernels();
+	}
+
+	// returns a short name for these kernels
+	public String getName()
+	{
+		return "scalar";
+	}
+
+	/** setUnknown() sets dest[i] to true for each i < n where a[i], b[i], and c[i]
+		are all false, and to false otherwise.
+	 */
+	public void setUnknown(boolean[] dest, boolean[] a, boolean[] b, boolean[] c, int n)
+	{
+		for (int i = 0; i < n; i++) {
+			dest[i] = !(a[i] | b[i] | c[i]);
+		}
+	}
+
+	// returns the number of elements in a[0..n-1] that are true
+	public int countTrue(boolean[] a, int n)
+	{
+		int count = 0;
+
+		for (int i = 0; i < n; i++) {
+			if (a[i])	++count;
+		}
+		return count;
+	}
+
+	/** addCounts() adds to counts[offset+i] (i < n) the number of the first
+		'arrays' arrays in list that have element i set to true.
+	 */
+	public void addCounts(boolean[][] list, int arrays, int n, int[] counts, int offset)
+	{
+		boolean[]	a;
+
+		for (int j = 0; j < arrays; j++) {
+			a = list[j];
+			for (int i = 0; i < n; i++) {
+				if (a[i])	++counts[offset+i];
+			}
+		}
+	}
+}
@@ -0,0 +1,325 @@
+/*	CompactPuzzle.java
+
+	An immutable puzzle value for holding large corpora in memory.  A SudokuPuzzle
+	keeps 2D arrays of values, clue flags, candidates, and region lists (several
+	kilobytes even for 9x9); a CompactPuzzle keeps one byte array and a reference to
+	a shared PuzzleTopology, about 80 bytes in all for a 9x9 puzzle.
+
+	The byte array holds the cell values, 4 bits per cell for sizes up to 15 and one
+	byte per cell for larger sizes (0 for an empty cell), followed by a bitmap of
+	the CLUE cells.  Only the values, clues, and regions are kept:  candidates,
+	killer cages, and solve traces are not.
+
+	Equal puzzles (same layout, values, and clues) are equal() and have the same
+	hashCode(), so CompactPuzzles can be used as keys in sets and maps.
+
+	October 19, 2026
+ */
+
+import java.util.Arrays;
+
+
+public final class CompactPuzzle
+{
+	// the topology with the default regions for each size, created when first needed
+	private static final PuzzleTopology[]	standardTopologies = new PuzzleTopology[BacktrackingSolver.MAX_SIZE + 1];
+
+	private final PuzzleTopology	topology;
+	private final byte[]			data;			// cell values, then the clue bitmap
+	private int						hash;			// 0 until computed
+
+
+	private CompactPuzzle(PuzzleTopology topology, byte[] data)
+	{
+		this.topology = topology;
+		this.data = data;
+	}
+
+	// returns the number of bytes used for the cell values of a puzzle with this size
+	private static int valueBytes(int size)
+	{
+		return (size <= 15) ? (size*size + 1)/2 : size*size;
+	}
+
+	private static byte[] newData(int size)
+	{
+		return new byte[valueBytes(size) + (size*size + 7)/8];
+	}
+
+	private static void putValue(byte[] data, int size, int cell, int value)
+	{
+		if (size <= 15)	data[cell >> 1] |= (byte)(value << ((cell & 1) << 2));
+		else data[cell] = (byte)value;
+	}
+
+	private static void putClue(byte[] data, int size, int cell)
+	{
+		data[valueBytes(size) + (cell >> 3)] |= (byte)(1 << (cell & 7));
+	}
+
+	/** fromPuzzle() returns the values and clues of puzzle, or null (after printing
+		an error) if its regions are not supported by PuzzleTopology.
+	 */
+	public static CompactPuzzle fromPuzzle(SudokuPuzzle puzzle)
+	{
+		PuzzleTopology	topology = PuzzleTopology.forPuzzle(puzzle);
+		byte[]			data;
+		int				size, cell, value;
+
+		if (topology == null)	return null;
+		size = topology.size;
+		if (topology.hasSameLayout(standardTopology(size)))	topology = standardTopology(size);
+		data = newData(size);
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				cell = row*size + col;
+				value = puzzle.getCellValue(row, col);
+				if (value == SudokuPuzzle.EMPTY_CELL)	continue;
+				putValue(data, size, cell, value);
+				if (puzzle.getCellStatus(row, col) == SudokuPuzzle.CLUE)	putClue(data, size, cell);
+			}
+		}
+		return new CompactPuzzle(topology, data);
+	}
+
+	/** fromGrid() returns a puzzle with the values in grid (indexed by cell, 0 for
+		empty), all of them CLUEs.
+	 */
+	static CompactPuzzle fromGrid(PuzzleTopology topology, int[] grid)
+	{
+		int		size = topology.size;
+		byte[]	data = newData(size);
+
+		if (topology.hasSameLayout(standardTopology(size)))	topology = standardTopology(size);
+		for (int cell = 0; cell < topology.ncells; cell++) {
+			if (grid[cell] == SudokuPuzzle.EMPTY_CELL)	continue;
+			putValue(data, size, cell, grid[cell]);
+			putClue(data, size, cell);
+		}
+		return new CompactPuzzle(topology, data);
+	}
+
+	/** withValues() returns a puzzle with the same layout and clues as this one and
+		the values in grid (which must agree with the clues).
+	 */
+	CompactPuzzle withValues(int[] grid)
+	{
+		int		size = topology.size, nvalues = valueBytes(size);
+		byte[]	values = data.clone();
+
+		Arrays.fill(values, 0, nvalues, (byte)0);
+		for (int cell = 0; cell < topology.ncells; cell++)	putValue(values, size, cell, grid[cell]);
+		return new CompactPuzzle(topology, values);
+	}
+
+	/** standardTopology() returns the shared topology with the default regions for
+		size (boxes for standard sizes, broken diagonals otherwise).
+	 */
+	public static PuzzleTopology standardTopology(int size)
+	{
+		PuzzleTopology	topology;
+
+		if (size < 1 || size > BacktrackingSolver.MAX_SIZE) {
+			System.err.printf("CompactPuzzle.standardTopology(): size out of range, size=%d\n", size);
+			return null;
+		}
+		synchronized (standardTopologies) {
+			topology = standardTopologies[size];
+			if (topology == null) {
+				topology = standardTopologies[size] = PuzzleTopology.forPuzzle(new SudokuPuzzle(size));
+			}
+		}
+		return topology;
+	}
+
+	/** parse() reads a puzzle string (see SudokuPuzzle) without creating a
+		SudokuPuzzle.  The size is inferred from the number of cells, and the puzzle
+		gets the default regions.  Every value is a CLUE.  Returns null (after
+		printing an error) if the size cannot be inferred or a value is out of range.
+	 */
+	public static CompactPuzzle parse(String puzzleString)
+	{
+		int		count = SudokuPuzzle.countPuzzleStringCells(puzzleString);
+		int		size = (int)Math.round(Math.sqrt(count));
+
+		if (size*size != count || size < 1 || size > BacktrackingSolver.MAX_SIZE) {
+			System.err.printf("CompactPuzzle.parse(): cannot infer puzzle size from %d cells\n", count);
+			return null;
+		}
+		return parse(standardTopology(size), puzzleString);
+	}
+
+	/** This version of parse() uses the given topology, which must have at least as
+		many cells as puzzleString specifies.
+	 */
+	public static CompactPuzzle parse(PuzzleTopology topology, String puzzleString)
+	{
+		int		size = topology.size, ncells = topology.ncells;
+		int		cell = 0, pos = 0, len = puzzleString.length(), value;
+		byte[]	data = newData(size);
+		char	c, c1, c2;
+
+		for ( ; pos < len && cell < ncells; pos++) {
+			c = puzzleString.charAt(pos);
+			if (c >= '0' && c <= '9') {
+				value = c - '0';
+			}
+			else if (c == '=' && pos+2 < len) {
+				// two-digit value ("=00" means 100)
+				c1 = puzzleString.charAt(++pos);
+				c2 = puzzleString.charAt(++pos);
+				if (c1 < '0' || c1 > '9' || c2 < '0' || c2 > '9') {
+					System.err.printf("CompactPuzzle.parse(): found '%c%c' following '=' instead of two digits\n", c1, c2);
+					return null;
+				}
+				value = (c1 - '0')*10 + (c2 - '0');
+				if (value == 0)	value = 100;
+			}
+			else if (c == '.' || c == ' ' || c == '-') {
+				++cell;
+				continue;
+			}
+			else {
+				// ignore all other characters
+				continue;
+			}
+			if (value < 1 || value > size) {
+				System.err.printf("CompactPuzzle.parse(): cell value is out of range, value=%d\n", value);
+				return null;
+			}
+			putValue(data, size, cell, value);
+			putClue(data, size, cell);
+			++cell;
+		}
+		if (cell < ncells) {
+			System.err.println("CompactPuzzle.parse(): puzzle string does not specify every cell in puzzle");
+			return null;
+		}
+		return new CompactPuzzle(topology, data);
+	}
+
+	public int getSize()
+	{
+		return topology.size;
+	}
+
+	public PuzzleTopology getTopology()
+	{
+		return topology;
+	}
+
+	// returns the value of a cell (numbered row*size + col), or EMPTY_CELL
+	public int getValue(int cell)
+	{
+		if (topology.size <= 15)	return (data[cell >> 1] >> ((cell & 1) << 2)) & 0x0F;
+		else return data[cell] & 0xFF;
+	}
+
+	public int getValue(int row, int col)
+	{
+		return getValue(row*topology.size + col);
+	}
+
+	public boolean isClue(int cell)
+	{
+		return (data[valueBytes(topology.size) + (cell >> 3)] & (1 << (cell & 7))) != 0;
+	}
+
+	public int getClueCount()
+	{
+		int		count = 0;
+
+		for (int i = valueBytes(topology.size); i < data.length; i++)	count += Integer.bitCount(data[i] & 0xFF);
+		return count;
+	}
+
+	/** toPuzzle() returns a new SudokuPuzzle with these values, clues, and regions,
+		and with all candidates reset.
+	 */
+	public SudokuPuzzle toPuzzle()
+	{
+		SudokuPuzzle	puzzle = new SudokuPuzzle(topology.size);
+
+		copyTo(puzzle);
+		return puzzle;
+	}
+
+	/** copyTo() replaces the values, clues, and (if different) the regions of
+		puzzle, which must have the same size, and resets all candidates.  Killer
+		cages are left alone.  Returns NO_ERR or PARAM_ERR.
+	 */
+	public int copyTo(SudokuPuzzle puzzle)
+	{
+		int		size = topology.size, cell, value;
+		int[][]	regions;
+
+		if (puzzle.getSize() != size) {
+			System.err.printf("CompactPuzzle.copyTo(): puzzle size is %d, not %d\n", puzzle.getSize(), size);
+			return SudokuPuzzle.PARAM_ERR;
+		}
+		puzzle.clearAllCells();
+		if (!topology.matches(puzzle)) {
+			regions = new int[size][size];
+			for (cell = 0; cell < topology.ncells; cell++)	regions[cell/size][cell%size] = topology.getCellRegion(cell);
+			if (puzzle.setCellRegions(regions) != SudokuPuzzle.NO_ERR)	return SudokuPuzzle.PARAM_ERR;
+		}
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				cell = row*size + col;
+				value = getValue(cell);
+				if (value == SudokuPuzzle.EMPTY_CELL)	continue;
+				if (isClue(cell))	puzzle.setCellClue(row, col, value);
+				else puzzle.setCellValue(row, col, value);
+			}
+		}
+		puzzle.resetAllCandidates();
+		return SudokuPuzzle.NO_ERR;
+	}
+
+	/** toPuzzleString() returns the same string as SudokuPuzzle.toPuzzleString()
+		would for this puzzle.
+	 */
+	public String toPuzzleString()
+	{
+		int				size = topology.size, value;
+		StringBuilder	str = new StringBuilder(topology.ncells*((size > 9) ? 3 : 1));
+
+		for (int cell = 0; cell < topology.ncells; cell++) {
+			value = getValue(cell);
+			if (value == SudokuPuzzle.EMPTY_CELL)	str.append('.');
+			else if (value <= 9)		str.append((char)('0' + value));
+			else str.append('=').append((char)('0' + (value/10)%10)).append((char)('0' + value%10));
+		}
+		return str.toString();
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		CompactPuzzle	other;
+
+		if (obj == this)	return true;
+		if (!(obj instanceof CompactPuzzle))	return false;
+		other = (CompactPuzzle)obj;
+		return Arrays.equals(data, other.data) && topology.hasSameLayout(other.topology);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int		h = hash;
+
+		if (h == 0) {
+			h = 31*topology.size + Arrays.hashCode(data);
+			if (h == 0)	h = 1;
+			hash = h;
+		}
+		return h;
+	}
+
+	@Override
+	public String toString()
+	{
+		return toPuzzleString();
+	}
+}
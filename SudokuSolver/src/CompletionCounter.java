@@ -0,0 +1,711 @@
+/*	CompletionCounter.java
+
+	Counts all of the valid completions of a partially filled SudokuPuzzle, using
+	every available processor.
+
+	Most puzzles are counted by exhaustive search.  The search tree is split into
+	fork-join tasks on the empty cell with the fewest candidates, SPLIT_DEPTH levels
+	deep, and each task counts the solutions below it with its own copy of the
+	puzzle and its own BacktrackingSolver.  This works for any regions and cages,
+	and is practical for small layouts (4x4, 6x6 with 2x3 or 3x2 boxes, etc.) and
+	for larger puzzles that have enough clues.  An empty grid without cages is
+	counted with 1 to size in its first row and the result multiplied by size!.
+
+	9x9 puzzles with the standard boxes whose values all lie in one band (three
+	rows of boxes) or one stack (three columns of boxes), including the empty grid,
+	have far too many completions to search.  They are counted with the band and
+	stack decomposition used by Felgenhauer and Jarvis:
+
+	-	The "signature" of a band is, for each digit, the column (0 to 2) that it
+		occupies within each of the three stacks.  Because the digits are
+		interchangeable, only how many digits share each of the 27 possible column
+		triples matters, so a signature is packed into a long with 2 bits per triple.
+
+	-	The lower two bands only "see" the top band through the digits left for each
+		column, so the number of ways to complete rows 4 to 9 depends only on the top
+		band's signature.  Permuting the columns within a stack or permuting the
+		stacks doesn't change it either, so the top bands are enumerated, counted by
+		signature, and the signatures grouped into classes (44 for the empty grid).
+
+	-	For each class, the second band's signature is chosen column by column (56
+		ways per stack, since each digit must move to one of the two columns it isn't
+		in yet), which fixes the third band's signature.  The completions are then
+		the sum of bands(second) * bands(third), where bands() counts the bands with
+		a signature and is memoized (there are only about 23000 distinct ones).
+
+	The counts for the classes are computed by separate fork-join tasks and added
+	up as BigIntegers.  The empty 9x9 grid takes 8 to 10 seconds on one core.
+
+	Instances can be reused;  the memoized band counts are kept between calls, and
+	so is a TranspositionTable shared by all of the search solvers, so counting a
+	puzzle after adding or removing a few values reuses the counts of the partial
+	grids the two searches have in common.
+
+	October 19, 2026
+ */
+
+import java.io.*;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.*;
+
+
+public class CompletionCounter
+{
+	private static final int	EMPTY = SudokuPuzzle.EMPTY_CELL;
+	private static final int	SPLIT_DEPTH = 4;		// levels of the search split into separate tasks
+	private static final int	BAND_SPLIT_DEPTH = 2;	// levels of the band enumeration split into tasks
+	private static final int	TABLE_ENTRIES = 1 << 18;	// entries in the table of subtree counts
+	private static final long	STOPPED = -2;			// countLeaf() result when the budget runs out
+
+	// the permutations of three things (columns within a stack, or the stacks)
+	private static final int[][]	PERMS = {{0,1,2}, {0,2,1}, {1,0,2}, {1,2,0}, {2,0,1}, {2,1,0}};
+
+	// for each of the 1296 column and stack permutations, where it moves each of
+	// the 27 column triples (triple = 9*stack0col + 3*stack1col + stack2col)
+	private static final int[][]	SYMMETRIES = makeSymmetries();
+
+	private final ForkJoinPool		pool;
+	private final ConcurrentHashMap<Long, Long>	bandCounts = new ConcurrentHashMap<Long, Long>();	// bands with each signature
+	private final ConcurrentHashMap<Long, Long>	belowCounts = new ConcurrentHashMap<Long, Long>();	// completions below each class of top band
+	private final TranspositionTable	table = new TranspositionTable(TABLE_ENTRIES);	// subtree counts of the searches
+
+
+	public CompletionCounter()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public CompletionCounter(int threads)
+	{
+		pool = new ForkJoinPool(Math.max(1, threads));
+	}
+
+	/** count() returns the number of ways to fill the empty cells of puzzle so that
+		every row, column, region, and cage is valid (0 if the puzzle's values already
+		conflict).  All cells with values (CLUE or SOLVED) are kept.  Returns null if
+		the puzzle is larger than BacktrackingSolver.MAX_SIZE or its regions are not
+		supported.
+	 */
+	public BigInteger count(SudokuPuzzle puzzle)
+	{
+		return count(puzzle, null);
+	}
+
+	/** This version of count() also returns null if budget (which may be null) runs
+		out before the count is finished.  The deadline and cancel() apply to the
+		whole count;  a node limit applies to each search task's solver separately.
+	 */
+	public BigInteger count(SudokuPuzzle puzzle, SolveBudget budget)
+	{
+		PuzzleTopology	topo;
+		int				size = puzzle.getSize();
+		int[]			grid, band, start;
+		BigInteger		total, multiplier = BigInteger.ONE;
+
+		topo = (size <= BacktrackingSolver.MAX_SIZE) ? PuzzleTopology.forPuzzle(puzzle) : null;
+		if (topo == null) {
+			System.err.printf("CompletionCounter.count(): unsupported puzzle, size=%d\n", size);
+			return null;
+		}
+		if (puzzle.getConflictCount() > 0)	return BigInteger.ZERO;
+
+		grid = new int[size*size];
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++)	grid[row*size + col] = puzzle.getCellValue(row, col);
+		}
+		start = grid;
+		if (hasStandardBoxes(puzzle) && (band = extractBand(grid)) != null) {
+			return countBandCompletions(band, budget);
+		}
+		if (puzzle.getCageCount() == 0 && isEmpty(grid)) {
+			// the values are interchangeable, so put 1 to size in the first row and
+			// multiply by the size! ways to relabel them
+			start = grid.clone();
+			for (int col = 0; col < size; col++)	start[col] = col + 1;
+			for (int i = 2; i <= size; i++)	multiplier = multiplier.multiply(BigInteger.valueOf(i));
+		}
+		total = pool.invoke(new SearchTask(new Search(puzzle, topo, grid, table, budget), start, 0));
+		return (total == null) ? null : total.multiply(multiplier);
+	}
+
+	private static boolean isEmpty(int[] grid)
+	{
+		for (int value : grid) {
+			if (value != EMPTY)	return false;
+		}
+		return true;
+	}
+
+	// returns true if puzzle is 9x9 with the standard 3x3 boxes and no cages
+	private static boolean hasStandardBoxes(SudokuPuzzle puzzle)
+	{
+		if (puzzle.getSize() != 9 || puzzle.getCageCount() != 0)	return false;
+		for (int row = 0; row < 9; row++) {
+			for (int col = 0; col < 9; col++) {
+				if (puzzle.getCellRegionIdx(row, col) != (row/3)*3 + col/3)	return false;
+			}
+		}
+		return true;
+	}
+
+	/** extractBand() returns the values of the one band or stack of the 9x9 grid that
+		contains all of its values, as 3 rows of 9 (a stack is transposed, which turns
+		its boxes into the boxes of a band), or null if the values are spread over
+		more than one band and more than one stack.  The count is the same because
+		swapping bands or transposing the grid maps completions onto completions.
+	 */
+	private static int[] extractBand(int[] grid)
+	{
+		int		bands = 0, stacks = 0, first;
+		int[]	band = new int[27];
+
+		for (int cell = 0; cell < 81; cell++) {
+			if (grid[cell] != EMPTY) {
+				bands |= 1 << (cell/27);
+				stacks |= 1 << ((cell % 9)/3);
+			}
+		}
+		if (Integer.bitCount(bands) <= 1) {
+			first = (bands == 0) ? 0 : 27*Integer.numberOfTrailingZeros(bands);
+			System.arraycopy(grid, first, band, 0, 27);
+		}
+		else if (Integer.bitCount(stacks) == 1) {
+			first = 3*Integer.numberOfTrailingZeros(stacks);
+			for (int r = 0; r < 3; r++) {
+				for (int c = 0; c < 9; c++)	band[r*9 + c] = grid[c*9 + first + r];
+			}
+		}
+		else return null;
+		return band;
+	}
+
+	// returns the number of 9x9 grids whose top band completes band (3 rows of 9),
+	// or null if budget runs out
+	private BigInteger countBandCompletions(int[] band, final SolveBudget budget)
+	{
+		Map<Long, long[]>	signatures, classes = new HashMap<Long, long[]>();
+		Map<Long, ForkJoinTask<Long>>	tasks = new HashMap<Long, ForkJoinTask<Long>>();
+		BigInteger			total = BigInteger.ZERO, multiplier = BigInteger.ONE;
+		long[]				n;
+		long				key, below;
+		int					checked = 0;
+
+		if (isEmpty(band)) {
+			// the digits are interchangeable, so put 1 to 9 in the first box and
+			// multiply by the 9! ways to relabel them
+			band = band.clone();
+			for (int i = 0; i < 9; i++)	band[(i/3)*9 + i%3] = i + 1;
+			multiplier = BigInteger.valueOf(362880);
+		}
+
+		// count the top bands by signature, then group the signatures into classes
+		signatures = pool.invoke(new BandTask(band, 0, budget));
+		if (budget != null && budget.check())	return null;
+		for (Map.Entry<Long, long[]> entry : signatures.entrySet()) {
+			if (budget != null && (++checked & 1023) == 0 && budget.check())	return null;
+			key = canonical(entry.getKey());
+			n = classes.get(key);
+			if (n == null)	classes.put(key, new long[] {entry.getValue()[0]});
+			else n[0] += entry.getValue()[0];
+		}
+
+		// count the completions below each class (in parallel)
+		for (final long sig : classes.keySet()) {
+			tasks.put(sig, pool.submit(new Callable<Long>() {
+				public Long call()		{ return countBelow(sig, budget); }
+			}));
+		}
+		for (Map.Entry<Long, long[]> entry : classes.entrySet()) {
+			below = tasks.get(entry.getKey()).join();
+			if (below < 0)	return null;
+			total = total.add(BigInteger.valueOf(entry.getValue()[0]).multiply(BigInteger.valueOf(below)));
+		}
+		return total.multiply(multiplier);
+	}
+
+	// returns the signature of a complete band (3 rows of 9)
+	private static long signature(int[] band, int[] triple)
+	{
+		long	sig = 0;
+		int		cell;
+
+		Arrays.fill(triple, 0);
+		for (int r = 0; r < 3; r++) {
+			for (int c = 0; c < 9; c++) {
+				cell = r*9 + c;
+				triple[band[cell]-1] += ((c < 3) ? 9 : (c < 6) ? 3 : 1) * (c % 3);
+			}
+		}
+		for (int d = 0; d < 9; d++)	sig += 1L << (2*triple[d]);
+		return sig;
+	}
+
+	// returns the smallest signature that any column or stack permutation turns sig into
+	private static long canonical(long sig)
+	{
+		int[]	triples = new int[9], counts = new int[9];
+		int		n = 0, count;
+		long	best = Long.MAX_VALUE, key;
+
+		for (int t = 0; t < 27; t++) {
+			count = (int)(sig >>> (2*t)) & 3;
+			if (count != 0) {
+				triples[n] = t;
+				counts[n++] = count;
+			}
+		}
+		for (int[] map : SYMMETRIES) {
+			key = 0;
+			for (int i = 0; i < n; i++)	key += (long)counts[i] << (2*map[triples[i]]);
+			if (key < best)	best = key;
+		}
+		return best;
+	}
+
+	private static int[][] makeSymmetries()
+	{
+		int[][]	maps = new int[PERMS.length*PERMS.length*PERMS.length*PERMS.length][27];
+		int		m = 0;
+
+		for (int[] stacks : PERMS) {
+			for (int[] p0 : PERMS) {
+				for (int[] p1 : PERMS) {
+					for (int[] p2 : PERMS) {
+						for (int t = 0; t < 27; t++) {
+							int[] cols = {t/9, (t/3) % 3, t % 3};
+							maps[m][t] = 9*p0[cols[stacks[0]]] + 3*p1[cols[stacks[1]]] + p2[cols[stacks[2]]];
+						}
+						++m;
+					}
+				}
+			}
+		}
+		return maps;
+	}
+
+	// returns the column of each digit within each stack for some band with signature sig
+	private static int[][] expand(long sig)
+	{
+		int[][]	cols = new int[3][9];
+		int		d = 0;
+
+		for (int t = 0; t < 27; t++) {
+			for (int i = (int)(sig >>> (2*t)) & 3; i > 0; i--) {
+				cols[0][d] = t/9;
+				cols[1][d] = (t/3) % 3;
+				cols[2][d] = t % 3;
+				++d;
+			}
+		}
+		return cols;
+	}
+
+	/** countBelow() returns the number of ways to fill rows 4 to 9 below any top band
+		with signature sig, or -1 if budget (if not null) runs out first.
+	 */
+	private long countBelow(long sig, SolveBudget budget)
+	{
+		Long		memo = belowCounts.get(sig);
+		int[][]		top, second;
+		int[][][]	choices = new int[3][][];
+		int[]		p1 = new int[9], q1 = new int[9], p2 = new int[9], q2 = new int[9];
+		long		sig2, sig3, n2, total = 0;
+
+		if (memo != null)	return memo;
+
+		// the second band puts each digit in one of the other two columns of each
+		// stack, and the third band gets the remaining column
+		top = expand(sig);
+		for (int s = 0; s < 3; s++)	choices[s] = nextBandColumns(top[s]);
+		for (int[] b0 : choices[0]) {
+			for (int d = 0; d < 9; d++) {
+				p1[d] = 9*b0[d];
+				q1[d] = 9*(3 - top[0][d] - b0[d]);
+			}
+			for (int[] b1 : choices[1]) {
+				if (budget != null && budget.check())	return -1;
+				for (int d = 0; d < 9; d++) {
+					p2[d] = p1[d] + 3*b1[d];
+					q2[d] = q1[d] + 3*(3 - top[1][d] - b1[d]);
+				}
+				for (int[] b2 : choices[2]) {
+					sig2 = sig3 = 0;
+					for (int d = 0; d < 9; d++) {
+						sig2 += 1L << (2*(p2[d] + b2[d]));
+						sig3 += 1L << (2*(q2[d] + 3 - top[2][d] - b2[d]));
+					}
+					n2 = countBands(sig2);
+					if (n2 != 0)	total += n2 * countBands(sig3);
+				}
+			}
+		}
+		belowCounts.put(sig, total);
+		return total;
+	}
+
+	// returns the ways to give each digit a column other than cols[digit], 3 digits per column
+	private static int[][] nextBandColumns(int[] cols)
+	{
+		List<int[]>	list = new ArrayList<int[]>();
+		int[]		next, used;
+
+		for (int bits = 0; bits < 512; bits++) {
+			next = new int[9];
+			used = new int[3];
+			for (int d = 0; d < 9; d++) {
+				next[d] = (cols[d] + 1 + ((bits >> d) & 1)) % 3;
+				++used[next[d]];
+			}
+			if (used[0] == 3 && used[1] == 3 && used[2] == 3)	list.add(next);
+		}
+		return list.toArray(new int[list.size()][]);
+	}
+
+	/** countBands() returns the number of bands (3 rows of 9 with valid rows and boxes)
+		that have signature sig.  Each column's three digits can go in any order, and
+		the band is valid when each digit ends up in a different row in each stack:
+		the rows for the first two stacks are tried (216 * 216 ways) and those for
+		the third stack are then forced.
+	 */
+	private long countBands(long sig)
+	{
+		Long		memo = bandCounts.get(sig);
+		int[][]		cols;
+		long[]		rows0, rows1;
+		int[]		third = new int[3];
+		int			x0, x1, x2, y0, y1, y2, z0, z1, z2, m;
+		long		count = 0;
+
+		if (memo != null)	return memo;
+
+		cols = expand(sig);
+		for (int d = 0; d < 9; d++)	third[cols[2][d]] |= 1 << d;
+		rows0 = rowArrangements(cols[0]);
+		rows1 = rowArrangements(cols[1]);
+		for (long r0 : rows0) {
+			x0 = (int)r0 & 511;
+			x1 = (int)(r0 >>> 9) & 511;
+			x2 = (int)(r0 >>> 18) & 511;
+			for (long r1 : rows1) {
+				y0 = (int)r1 & 511;
+				y1 = (int)(r1 >>> 9) & 511;
+				y2 = (int)(r1 >>> 18) & 511;
+				if (((x0 & y0) | (x1 & y1) | (x2 & y2)) != 0)	continue;
+
+				// each row of the third stack gets the digits left for it, which must
+				// be one from each of the stack's columns
+				z0 = 511 ^ x0 ^ y0;
+				z1 = 511 ^ x1 ^ y1;
+				z2 = 511 ^ x2 ^ y2;
+				for (m = 0; m < 3; m++) {
+					if (Integer.bitCount(z0 & third[m]) != 1 || Integer.bitCount(z1 & third[m]) != 1
+					    || Integer.bitCount(z2 & third[m]) != 1)	break;
+				}
+				if (m == 3)	++count;
+			}
+		}
+		bandCounts.put(sig, count);
+		return count;
+	}
+
+	/** rowArrangements() returns the 216 ways to put the digits of a stack's columns
+		(cols[digit] = column) into its three rows, each as three 9-bit masks of the
+		digits in rows 0, 1, and 2.
+	 */
+	private static long[] rowArrangements(int[] cols)
+	{
+		long[]	result = new long[216];
+		int[][]	digits = new int[3][3];
+		int[]	fill = new int[3], rows = new int[3];
+		int		n = 0;
+
+		for (int d = 0; d < 9; d++)	digits[cols[d]][fill[cols[d]]++] = d;
+		for (int[] p0 : PERMS) {
+			for (int[] p1 : PERMS) {
+				for (int[] p2 : PERMS) {
+					Arrays.fill(rows, 0);
+					for (int i = 0; i < 3; i++) {
+						rows[p0[i]] |= 1 << digits[0][i];
+						rows[p1[i]] |= 1 << digits[1][i];
+						rows[p2[i]] |= 1 << digits[2][i];
+					}
+					result[n++] = rows[0] | ((long)rows[1] << 9) | ((long)rows[2] << 18);
+				}
+			}
+		}
+		return result;
+	}
+
+	/*	BandTask enumerates the completions of a band (3 rows of 9) and returns how
+		many there are with each signature.  The first BAND_SPLIT_DEPTH empty cells
+		are split into subtasks.
+	 */
+	private static final class BandTask extends RecursiveTask<Map<Long, long[]>>
+	{
+		private static final long	serialVersionUID = 1L;
+
+		private final int[]		band;
+		private final int		depth;
+		private final SolveBudget	budget;		// or null
+		private int				leaves;			// bands enumerated, for checking the budget
+		private boolean			stopped;
+
+		BandTask(int[] band, int depth, SolveBudget budget)
+		{
+			this.band = band;
+			this.depth = depth;
+			this.budget = budget;
+		}
+
+		protected Map<Long, long[]> compute()
+		{
+			Map<Long, long[]>	result = new HashMap<Long, long[]>();
+			List<BandTask>		tasks = new ArrayList<BandTask>();
+			int[]				rowUsed = new int[3], boxUsed = new int[3], child;
+			int					cell = 0, free;
+			long[]				n;
+
+			for (int i = 0; i < 27; i++) {
+				if (band[i] != EMPTY) {
+					rowUsed[i/9] |= 1 << (band[i]-1);
+					boxUsed[(i % 9)/3] |= 1 << (band[i]-1);
+				}
+			}
+			if (budget != null && budget.check())	return result;		// the caller checks the budget too
+			if (depth >= BAND_SPLIT_DEPTH) {
+				enumerate(band.clone(), 0, rowUsed, boxUsed, new int[9], result);
+				return result;
+			}
+
+			while (cell < 27 && band[cell] != EMPTY)	++cell;
+			if (cell == 27) {
+				enumerate(band.clone(), 27, rowUsed, boxUsed, new int[9], result);
+				return result;
+			}
+			free = 511 & ~(rowUsed[cell/9] | boxUsed[(cell % 9)/3]);
+			for (int d = 0; d < 9; d++) {
+				if ((free & (1 << d)) != 0) {
+					child = band.clone();
+					child[cell] = d + 1;
+					tasks.add(new BandTask(child, depth + 1, budget));
+				}
+			}
+			for (BandTask task : invokeAll(tasks)) {
+				if (budget != null && budget.check())	return result;
+				for (Map.Entry<Long, long[]> entry : task.join().entrySet()) {
+					n = result.get(entry.getKey());
+					if (n == null)	result.put(entry.getKey(), entry.getValue());
+					else n[0] += entry.getValue()[0];
+				}
+			}
+			return result;
+		}
+
+		private void enumerate(int[] band, int cell, int[] rowUsed, int[] boxUsed, int[] triple, Map<Long, long[]> result)
+		{
+			int		row, box, free, bit;
+			long	sig;
+			long[]	n;
+
+			while (cell < 27 && band[cell] != EMPTY)	++cell;
+			if (cell == 27) {
+				sig = signature(band, triple);
+				n = result.get(sig);
+				if (n == null)	result.put(sig, new long[] {1});
+				else ++n[0];
+				if (budget != null && (++leaves & 4095) == 0 && budget.check())	stopped = true;
+				return;
+			}
+			row = cell/9;
+			box = (cell % 9)/3;
+			for (free = 511 & ~(rowUsed[row] | boxUsed[box]); free != 0 && !stopped; free &= free - 1) {
+				bit = free & -free;
+				band[cell] = Integer.numberOfTrailingZeros(bit) + 1;
+				rowUsed[row] |= bit;
+				boxUsed[box] |= bit;
+				enumerate(band, cell + 1, rowUsed, boxUsed, triple, result);
+				rowUsed[row] &= ~bit;
+				boxUsed[box] &= ~bit;
+			}
+			band[cell] = EMPTY;
+		}
+	}
+
+	/*	Search holds what the search tasks of one count() share:  a snapshot of the
+		puzzle, from which each worker thread makes its own copy, and the topology
+		used to pick the cells to split on.
+	 */
+	private static final class Search
+	{
+		final PuzzleTopology	topo;
+		final int[]				base;			// the values of the original puzzle
+		private final byte[]	snapshot;		// the original puzzle, as written by SudokuPuzzle.write()
+		private final TranspositionTable	table;
+		final SolveBudget		budget;			// or null
+		private final ThreadLocal<SudokuPuzzle>			puzzles = new ThreadLocal<SudokuPuzzle>();
+		private final ThreadLocal<BacktrackingSolver>	solvers = new ThreadLocal<BacktrackingSolver>();
+
+		Search(SudokuPuzzle puzzle, PuzzleTopology topo, int[] base, TranspositionTable table, SolveBudget budget)
+		{
+			ByteArrayOutputStream	bytes = new ByteArrayOutputStream();
+
+			this.topo = topo;
+			this.table = table;
+			this.budget = budget;
+			this.base = base;
+			try {
+				puzzle.write(new DataOutputStream(bytes));
+			}
+			catch (IOException e) {
+				throw new IllegalStateException("CompletionCounter: cannot copy puzzle", e);
+			}
+			snapshot = bytes.toByteArray();
+		}
+
+		/** countLeaf() returns the number of completions of grid (the original puzzle
+			with some empty cells filled), -1 if there are too many to count with a
+			BacktrackingSolver, or STOPPED if the budget runs out.
+		 */
+		long countLeaf(int[] grid)
+		{
+			SudokuPuzzle		puzzle = puzzles.get();
+			BacktrackingSolver	solver = solvers.get();
+			int					size = topo.size, count;
+
+			if (puzzle == null) {
+				try {
+					puzzle = SudokuPuzzle.read(new DataInputStream(new ByteArrayInputStream(snapshot)));
+				}
+				catch (IOException e) {
+					throw new IllegalStateException("CompletionCounter: cannot copy puzzle", e);
+				}
+				solver = new BacktrackingSolver();
+				solver.setTranspositionTable(table);
+				puzzles.set(puzzle);
+				solvers.set(solver);
+			}
+
+			for (int cell = 0; cell < grid.length; cell++) {
+				if (base[cell] == EMPTY && grid[cell] != EMPTY)	puzzle.setCellValue(cell / size, cell % size, grid[cell]);
+			}
+			solver.load(puzzle);
+			count = solver.solve(Integer.MAX_VALUE, budget);
+			for (int cell = 0; cell < grid.length; cell++) {
+				if (base[cell] == EMPTY && grid[cell] != EMPTY)	puzzle.setCellValue(cell / size, cell % size, EMPTY);
+			}
+			if (solver.wasStopped())	return STOPPED;
+			return (count == Integer.MAX_VALUE) ? -1 : count;
+		}
+	}
+
+	/*	SearchTask counts the completions of grid.  Below SPLIT_DEPTH (or when the
+		BacktrackingSolver's count would overflow) it makes a subtask for each
+		candidate of the empty cell with the fewest candidates.  Its result is null
+		if the budget runs out.
+	 */
+	private static final class SearchTask extends RecursiveTask<BigInteger>
+	{
+		private static final long	serialVersionUID = 1L;
+
+		private final Search	search;
+		private final int[]		grid;
+		private final int		depth;
+
+		SearchTask(Search search, int[] grid, int depth)
+		{
+			this.search = search;
+			this.grid = grid;
+			this.depth = depth;
+		}
+
+		protected BigInteger compute()
+		{
+			PuzzleTopology		topo = search.topo;
+			List<SearchTask>	tasks = new ArrayList<SearchTask>();
+			BigInteger			total = BigInteger.ZERO;
+			long[]				used = new long[topo.nunits];
+			long				all, cands, best = 0, n;
+			int					bestCell = -1, bestCount = Integer.MAX_VALUE, count;
+			int[]				child;
+
+			if (search.budget != null && search.budget.check())	return null;
+			if (depth >= SPLIT_DEPTH && (n = search.countLeaf(grid)) != -1) {
+				return (n == STOPPED) ? null : BigInteger.valueOf(n);
+			}
+
+			all = (topo.size == 64) ? -1L : (1L << topo.size) - 1;
+			for (int cell = 0; cell < topo.ncells; cell++) {
+				if (grid[cell] != EMPTY) {
+					for (int i = 0; i < 3; i++)	used[topo.cellUnits[cell*3 + i]] |= 1L << (grid[cell]-1);
+				}
+			}
+			for (int cell = 0; cell < topo.ncells && bestCount > 0; cell++) {
+				if (grid[cell] == EMPTY) {
+					cands = all & ~(used[topo.cellUnits[cell*3]] | used[topo.cellUnits[cell*3 + 1]] | used[topo.cellUnits[cell*3 + 2]]);
+					count = Long.bitCount(cands);
+					if (count < bestCount) {
+						bestCell = cell;
+						bestCount = count;
+						best = cands;
+					}
+				}
+			}
+			if (bestCell < 0) {
+				// full (cages may still fail)
+				n = search.countLeaf(grid);
+				return (n == STOPPED) ? null : BigInteger.valueOf(n);
+			}
+			if (bestCount == 0)	return BigInteger.ZERO;
+
+			for ( ; best != 0; best &= best - 1) {
+				child = grid.clone();
+				child[bestCell] = Long.numberOfTrailingZeros(best) + 1;
+				tasks.add(new SearchTask(search, child, depth + 1));
+			}
+			for (SearchTask task : invokeAll(tasks)) {
+				if (task.join() == null)	return null;
+				total = total.add(task.join());
+			}
+			return total;
+		}
+	}
+
+	/** main() prints the number of completions of each argument, which is either a
+		box shape such as 2x3 (an empty grid of boxes 2 cells wide and 3 tall), a size
+		(an empty grid with the default regions), or a puzzle or session file.  With
+		no arguments it counts the empty 4x4, 2x3, 3x2, and 9x9 grids.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		CompletionCounter	counter = new CompletionCounter();
+		SudokuPuzzle		puzzle;
+		BigInteger			count;
+		String[]			parts;
+		int[][]				regions;
+		int					width, height, size;
+		long				start;
+
+		if (args.length == 0)	args = new String[] {"2x2", "2x3", "3x2", "3x3"};
+		for (String arg : args) {
+			if (arg.matches("\\d+x\\d+")) {
+				parts = arg.split("x");
+				width = Integer.parseInt(parts[0]);
+				height = Integer.parseInt(parts[1]);
+				size = width*height;
+				puzzle = new SudokuPuzzle(size);
+				regions = new int[size][size];
+				for (int row = 0; row < size; row++) {
+					for (int col = 0; col < size; col++)	regions[row][col] = (row/height)*height + col/width;
+				}
+				if (puzzle.setCellRegions(regions) != SudokuPuzzle.NO_ERR)	continue;
+			}
+			else if (arg.matches("\\d+"))	puzzle = new SudokuPuzzle(Integer.parseInt(arg));
+			else puzzle = SudokuSession.read(new File(arg)).puzzle;
+
+			start = System.nanoTime();
+			count = counter.count(puzzle);
+			System.out.printf("%-12s %s  (%.2f s)\n", arg, count, (System.nanoTime() - start) / 1e9);
+		}
+	}
+}
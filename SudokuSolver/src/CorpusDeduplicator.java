@@ -0,0 +1,604 @@
+/*	CorpusDeduplicator.java
+
+	Removes duplicate puzzles from a corpus, where two puzzles are duplicates if one
+	can be turned into the other by the symmetries of PuzzleCanonicalizer (band,
+	row, stack, and column permutations, transposition, and relabeling):
+
+		java -cp bin CorpusDeduplicator [-threads n] [-memory mb] [-tmp dir] [-o file] [file ...]
+
+	Puzzle strings are read one per line from the files (or standard input if there
+	are none, or for "-"), as in SudokuCli:  blank lines and lines that start with
+	'#' are skipped, and the size of each puzzle is inferred from its number of
+	cells.  Each distinct puzzle produces one line of output, its canonical form and
+	how many times it appeared:
+
+		count	canonical-puzzle-string
+
+	grouped by size (smallest first) and otherwise in an arbitrary but repeatable
+	order.
+
+	The input is read in batches of lines, which are parsed and canonicalized on
+	-threads threads (default: the number of processors), with only a few batches
+	in flight at a time.  The canonical forms are counted in one open-addressing hash
+	table per size, with the values packed as in CompactPuzzle (4 bits per cell up
+	to 15x15) followed by a 4-byte count.  The tables together never use more than
+	-memory megabytes (default 256):  when a table is full and can't grow, the
+	largest table that can shrink (or else the full one) is sorted and written to a
+	temporary file in -tmp (default: the system's temporary directory) as a run,
+	and shrunk back to its first capacity.
+	At the end the runs of each size are merged, adding the counts of equal forms,
+	so the memory used does not depend on the number of distinct puzzles.
+
+	A summary is reported on standard error.  The exit status is 0, 1 if any line
+	could not be parsed as a puzzle, or 2 for bad arguments.
+
+	Like SudokuCli, this class never loads AWT or Swing.
+
+	October 19, 2026
+ */
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+
+public class CorpusDeduplicator
+{
+	private static final int		BATCH_LINES = 4096;
+	private static final int		MIN_CAPACITY = 1 << 12;		// slots in a new table
+
+	private final int				threads;
+	private final long				memoryBytes;
+	private final File				tempDir;
+	private final ExecutorService	pool;
+	private final ArrayDeque<Future<Batch>>	inFlight = new ArrayDeque<Future<Batch>>();
+	private List<String>			lines = new ArrayList<String>();
+
+	private final KeyTable[]		tables = new KeyTable[BacktrackingSolver.MAX_SIZE + 1];
+	private final List<List<File>>	runs = new ArrayList<List<File>>();		// spilled runs of each size
+	private long					tableBytes;				// total size of the tables
+
+	private long					puzzleCount, errorCount, gaveUpCount, spillCount;
+
+	// one canonicalizer per size for each thread
+	private final ThreadLocal<PuzzleCanonicalizer[]>	canonicalizers = new ThreadLocal<PuzzleCanonicalizer[]>() {
+		protected PuzzleCanonicalizer[] initialValue()
+		{
+			return new PuzzleCanonicalizer[BacktrackingSolver.MAX_SIZE + 1];
+		}
+	};
+
+
+	public CorpusDeduplicator(int threads, long memoryBytes, File tempDir)
+	{
+		this.threads = threads;
+		this.memoryBytes = memoryBytes;
+		this.tempDir = tempDir;
+		pool = Executors.newFixedThreadPool(threads);
+		for (int size = 0; size <= BacktrackingSolver.MAX_SIZE; size++)	runs.add(new ArrayList<File>());
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		CorpusDeduplicator	dedup;
+		List<String>		files = new ArrayList<String>();
+		String				outName = null;
+		File				tempDir = new File(System.getProperty("java.io.tmpdir"));
+		int					threads = Runtime.getRuntime().availableProcessors(), i = 0;
+		long				memory = 256, start = System.nanoTime(), unique;
+		double				seconds;
+		OutputStream		out;
+
+		try {
+			for ( ; i < args.length && args[i].startsWith("-") && args[i].length() > 1; i++) {
+				if (i+1 >= args.length)	usage();
+				if (args[i].equals("-threads"))		threads = Integer.parseInt(args[++i]);
+				else if (args[i].equals("-memory"))	memory = Long.parseLong(args[++i]);
+				else if (args[i].equals("-tmp"))	tempDir = new File(args[++i]);
+				else if (args[i].equals("-o"))		outName = args[++i];
+				else usage();
+			}
+		}
+		catch (NumberFormatException e) {
+			usage();
+		}
+		if (threads < 1 || memory < 1)	usage();
+		for ( ; i < args.length; i++)	files.add(args[i]);
+		if (files.isEmpty())	files.add("-");
+
+		dedup = new CorpusDeduplicator(threads, memory << 20, tempDir);
+		out = (outName != null) ? new FileOutputStream(outName) : System.out;
+		try {
+			for (String name : files)	dedup.addFile(name);
+			unique = dedup.finish(out);
+		}
+		finally {
+			out.flush();
+			if (outName != null)	out.close();
+		}
+
+		seconds = (System.nanoTime() - start) / 1e9;
+		System.err.printf(Locale.ROOT, "CorpusDeduplicator: %d puzzles, %d distinct, %d errors in %.2f s (%.1f puzzles/s), %d threads, %d runs spilled\n",
+		                  dedup.puzzleCount, unique, dedup.errorCount, seconds, dedup.puzzleCount / Math.max(seconds, 1e-9), threads, dedup.spillCount);
+		if (dedup.gaveUpCount > 0) {
+			System.err.printf("CorpusDeduplicator: %d puzzles had too many symmetries to canonicalize and were only relabeled\n", dedup.gaveUpCount);
+		}
+		System.exit((dedup.errorCount > 0) ? 1 : 0);
+	}
+
+	private static void usage()
+	{
+		System.err.println("usage: java CorpusDeduplicator [-threads n] [-memory mb] [-tmp dir] [-o file] [file ...]");
+		System.exit(2);
+	}
+
+	// adds every puzzle in a file ("-" for standard input)
+	public void addFile(String name) throws IOException, InterruptedException
+	{
+		BufferedReader	in;
+		String			line;
+
+		try {
+			in = name.equals("-") ? new BufferedReader(new InputStreamReader(System.in))
+			                      : new BufferedReader(new FileReader(name));
+		}
+		catch (FileNotFoundException e) {
+			System.err.printf("CorpusDeduplicator: %s: file not found\n", name);
+			++errorCount;
+			return;
+		}
+		try {
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#"))	continue;
+				lines.add(line);
+				if (lines.size() == BATCH_LINES)	submit();
+			}
+		}
+		finally {
+			if (!name.equals("-"))	in.close();
+		}
+	}
+
+	// hands the lines read so far to a thread, first counting the oldest batch if too many are in flight
+	private void submit() throws IOException, InterruptedException
+	{
+		final List<String>	batch = lines;
+
+		lines = new ArrayList<String>();
+		while (inFlight.size() >= 2*threads)	add(take(inFlight.removeFirst()));
+		inFlight.addLast(pool.submit(new Callable<Batch>() {
+			public Batch call()
+			{
+				return canonicalize(batch);
+			}
+		}));
+	}
+
+	private static Batch take(Future<Batch> future) throws InterruptedException
+	{
+		try {
+			return future.get();
+		}
+		catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	// parses and canonicalizes a batch of puzzle strings (on a pool thread)
+	private Batch canonicalize(List<String> strings)
+	{
+		PuzzleCanonicalizer[]	canon = canonicalizers.get();
+		Batch					batch = new Batch(strings.size());
+		CompactPuzzle			puzzle;
+		int[]					grid;
+		int						size, status;
+
+		for (int i = 0; i < strings.size(); i++) {
+			puzzle = CompactPuzzle.parse(strings.get(i));
+			if (puzzle == null) {
+				++batch.errors;
+				continue;
+			}
+			size = puzzle.getSize();
+			if (canon[size] == null)	canon[size] = new PuzzleCanonicalizer(size);
+			grid = new int[size*size];
+			for (int cell = 0; cell < grid.length; cell++)	grid[cell] = puzzle.getValue(cell);
+			status = canon[size].canonicalize(grid, grid);
+			if (status == SudokuPuzzle.NOT_FOUND)	++batch.gaveUp;
+			batch.sizes[batch.count] = size;
+			batch.keys[batch.count++] = encode(size, grid);
+		}
+		return batch;
+	}
+
+	// counts the forms of a batch (on the main thread)
+	private void add(Batch batch) throws IOException
+	{
+		KeyTable	table;
+		int			size, largest;
+
+		errorCount += batch.errors;
+		gaveUpCount += batch.gaveUp;
+		for (int i = 0; i < batch.count; i++) {
+			size = batch.sizes[i];
+			table = tables[size];
+			if (table == null) {
+				table = tables[size] = new KeyTable(batch.keys[i].length, MIN_CAPACITY);
+				tableBytes += table.bytes();
+			}
+			while (table.needsToGrow()) {
+				if (tableBytes + table.bytes() <= memoryBytes && table.canGrow()) {
+					tableBytes += table.bytes();		// growing doubles it
+					table.grow();
+				}
+				else {
+					// spill the table that frees the most, or this one if none can
+					largest = largestTable();
+					spill((largest != 0) ? largest : size);
+				}
+			}
+			table.add(batch.keys[i], 1);
+			++puzzleCount;
+		}
+	}
+
+	/** largestTable() returns the size whose table uses the most memory among those
+		that hold forms and are larger than MIN_CAPACITY (so spilling them frees
+		some), or 0 if there are none.
+	 */
+	private int largestTable()
+	{
+		int		largest = 0;
+
+		for (int size = 1; size < tables.length; size++) {
+			if (tables[size] == null || tables[size].count == 0 || tables[size].capacity <= MIN_CAPACITY)	continue;
+			if (largest == 0 || tables[size].bytes() > tables[largest].bytes())	largest = size;
+		}
+		return largest;
+	}
+
+	// writes a table's forms, sorted, to a new run file and empties and shrinks it
+	private void spill(int size) throws IOException
+	{
+		KeyTable			table = tables[size];
+		File				file = File.createTempFile("dedup" + size + "-", ".run", tempDir);
+		DataOutputStream	out;
+
+		file.deleteOnExit();
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+		try {
+			table.write(out);
+		}
+		finally {
+			out.close();
+		}
+		runs.get(size).add(file);
+		tableBytes -= table.bytes();
+		table.reset(MIN_CAPACITY);
+		tableBytes += table.bytes();
+		++spillCount;
+	}
+
+	/** finish() counts the batches still in flight and writes every distinct
+		form with its count to out.  Returns the number of distinct forms.
+	 */
+	public long finish(OutputStream out) throws IOException, InterruptedException
+	{
+		PrintWriter		writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out), 65536));
+		long			unique = 0;
+
+		if (!lines.isEmpty())	submit();
+		while (!inFlight.isEmpty())	add(take(inFlight.removeFirst()));
+		pool.shutdown();
+
+		for (int size = 1; size < tables.length; size++) {
+			if (tables[size] == null)	continue;
+			if (runs.get(size).isEmpty()) {
+				unique += tables[size].write(writer, size);
+			}
+			else {
+				if (tables[size].count > 0)	spill(size);
+				unique += merge(runs.get(size), writer, size, tables[size].keyBytes);
+				for (File file : runs.get(size))	file.delete();
+			}
+			tables[size] = null;
+		}
+		writer.flush();
+		return unique;
+	}
+
+	// merges sorted runs, adding the counts of equal forms, and writes them out
+	private static long merge(List<File> files, PrintWriter writer, int size, int keyBytes) throws IOException
+	{
+		PriorityQueue<RunReader>	queue = new PriorityQueue<RunReader>(files.size(), new Comparator<RunReader>() {
+			public int compare(RunReader a, RunReader b)
+			{
+				return compareKeys(a.key, 0, b.key, 0, a.key.length);
+			}
+		});
+		RunReader	reader;
+		byte[]		key = new byte[keyBytes];
+		long		count, unique = 0;
+
+		try {
+			for (File file : files) {
+				reader = new RunReader(file, keyBytes);
+				if (reader.next())	queue.add(reader);
+				else reader.close();
+			}
+			while (!queue.isEmpty()) {
+				reader = queue.poll();
+				System.arraycopy(reader.key, 0, key, 0, keyBytes);
+				count = 0;
+				for ( ; ; ) {
+					count += reader.count;
+					if (reader.next())	queue.add(reader);
+					else reader.close();
+					reader = queue.peek();
+					if (reader == null || compareKeys(reader.key, 0, key, 0, keyBytes) != 0)	break;
+					queue.poll();
+				}
+				writeForm(writer, size, key, 0, count);
+				++unique;
+			}
+		}
+		finally {
+			for (RunReader r : queue)	r.close();
+		}
+		return unique;
+	}
+
+	// packs a canonical form's values as CompactPuzzle does
+	private static byte[] encode(int size, int[] grid)
+	{
+		byte[]	key = new byte[(size <= 15) ? (grid.length + 1)/2 : grid.length];
+
+		for (int cell = 0; cell < grid.length; cell++) {
+			if (size <= 15)	key[cell >> 1] |= (byte)(grid[cell] << ((cell & 1) << 2));
+			else key[cell] = (byte)grid[cell];
+		}
+		return key;
+	}
+
+	private static void writeForm(PrintWriter writer, int size, byte[] data, int offset, long count)
+	{
+		int[]	grid = new int[size*size];
+
+		for (int cell = 0; cell < grid.length; cell++) {
+			grid[cell] = (size <= 15) ? (data[offset + (cell >> 1)] >> ((cell & 1) << 2)) & 0xF : data[offset + cell] & 0xFF;
+		}
+		writer.print(count);
+		writer.print('\t');
+		writer.println(CompactPuzzle.fromGrid(CompactPuzzle.standardTopology(size), grid).toPuzzleString());
+	}
+
+	// compares keys as unsigned bytes
+	static int compareKeys(byte[] a, int aOffset, byte[] b, int bOffset, int length)
+	{
+		int		x, y;
+
+		for (int i = 0; i < length; i++) {
+			x = a[aOffset + i] & 0xFF;
+			y = b[bOffset + i] & 0xFF;
+			if (x != y)	return (x < y) ? -1 : 1;
+		}
+		return 0;
+	}
+
+	// the results of one batch of lines
+	private static final class Batch
+	{
+		final int[]		sizes;
+		final byte[][]	keys;
+		int				count, errors, gaveUp;
+
+		Batch(int n)
+		{
+			sizes = new int[n];
+			keys = new byte[n][];
+		}
+	}
+
+	/*	KeyTable is an open-addressing hash table of packed forms and their counts,
+		kept in one byte array:  each slot is the key followed by a 4-byte count (0
+		for an empty slot).
+	 */
+	private static final class KeyTable
+	{
+		private static final int	MAX_BYTES = Integer.MAX_VALUE - 16;
+
+		final int		keyBytes, slotBytes;
+		byte[]			slots;
+		int				capacity, count;		// capacity is a power of 2
+
+		KeyTable(int keyBytes, int capacity)
+		{
+			this.keyBytes = keyBytes;
+			slotBytes = keyBytes + 4;
+			this.capacity = capacity;
+			slots = new byte[capacity*slotBytes];
+		}
+
+		long bytes()
+		{
+			return (long)slots.length;
+		}
+
+		// returns true if the table is three quarters full
+		boolean needsToGrow()
+		{
+			return count >= capacity - (capacity >> 2);
+		}
+
+		boolean canGrow()
+		{
+			return 2L*capacity*slotBytes <= MAX_BYTES;
+		}
+
+		void grow()
+		{
+			byte[]	old = slots;
+			int		n = capacity;
+
+			capacity *= 2;
+			slots = new byte[capacity*slotBytes];
+			count = 0;
+			for (int slot = 0; slot < n; slot++) {
+				if (getCount(old, slot*slotBytes + keyBytes) != 0)	add(old, slot*slotBytes, getCount(old, slot*slotBytes + keyBytes));
+			}
+		}
+
+		// empties the table and gives it a new capacity
+		void reset(int capacity)
+		{
+			this.capacity = capacity;
+			slots = new byte[capacity*slotBytes];
+			count = 0;
+		}
+
+		void add(byte[] key, int n)
+		{
+			add(key, 0, n);
+		}
+
+		// adds n to the count of the key at key[offset]
+		void add(byte[] key, int offset, int n)
+		{
+			int		slot = (int)hash(key, offset, keyBytes) & (capacity - 1), pos, c;
+
+			for ( ; ; slot = (slot + 1) & (capacity - 1)) {
+				pos = slot*slotBytes;
+				c = getCount(slots, pos + keyBytes);
+				if (c == 0) {
+					System.arraycopy(key, offset, slots, pos, keyBytes);
+					putCount(slots, pos + keyBytes, n);
+					++count;
+					return;
+				}
+				if (compareKeys(slots, pos, key, offset, keyBytes) == 0) {
+					putCount(slots, pos + keyBytes, (int)Math.min((long)c + n, Integer.MAX_VALUE));
+					return;
+				}
+			}
+		}
+
+		// returns the occupied slots in key order
+		int[] sortedSlots()
+		{
+			int[]	order = new int[count];
+			int		n = 0;
+
+			for (int slot = 0; slot < capacity; slot++) {
+				if (getCount(slots, slot*slotBytes + keyBytes) != 0)	order[n++] = slot;
+			}
+			sort(order, 0, n - 1);
+			return order;
+		}
+
+		// writes the forms in key order as a run:  each key followed by its count
+		void write(DataOutputStream out) throws IOException
+		{
+			for (int slot : sortedSlots()) {
+				out.write(slots, slot*slotBytes, keyBytes);
+				out.writeInt(getCount(slots, slot*slotBytes + keyBytes));
+			}
+		}
+
+		// writes the forms in key order as output lines, and returns how many there were
+		long write(PrintWriter writer, int size)
+		{
+			for (int slot : sortedSlots())	writeForm(writer, size, slots, slot*slotBytes, getCount(slots, slot*slotBytes + keyBytes));
+			return count;
+		}
+
+		// quicksorts slot numbers by their keys
+		private void sort(int[] a, int lo, int hi)
+		{
+			int		i, j, pivot, t;
+
+			while (lo < hi) {
+				pivot = a[(lo + hi) >>> 1];
+				i = lo;
+				j = hi;
+				while (i <= j) {
+					while (compareSlots(a[i], pivot) < 0)	++i;
+					while (compareSlots(a[j], pivot) > 0)	--j;
+					if (i <= j) {
+						t = a[i];
+						a[i++] = a[j];
+						a[j--] = t;
+					}
+				}
+				// recurse into the smaller part
+				if (j - lo < hi - i) {
+					sort(a, lo, j);
+					lo = i;
+				}
+				else {
+					sort(a, i, hi);
+					hi = j;
+				}
+			}
+		}
+
+		private int compareSlots(int a, int b)
+		{
+			return compareKeys(slots, a*slotBytes, slots, b*slotBytes, keyBytes);
+		}
+
+		private static long hash(byte[] key, int offset, int length)
+		{
+			long	h = 0;
+
+			for (int i = 0; i < length; i++)	h = h*0x100000001B3L + (key[offset + i] & 0xFF);
+			return TranspositionTable.mix(h);
+		}
+
+		private static int getCount(byte[] a, int pos)
+		{
+			return ((a[pos] & 0xFF) << 24) | ((a[pos+1] & 0xFF) << 16) | ((a[pos+2] & 0xFF) << 8) | (a[pos+3] & 0xFF);
+		}
+
+		private static void putCount(byte[] a, int pos, int c)
+		{
+			a[pos] = (byte)(c >>> 24);
+			a[pos+1] = (byte)(c >>> 16);
+			a[pos+2] = (byte)(c >>> 8);
+			a[pos+3] = (byte)c;
+		}
+	}
+
+	/*	RunReader reads the forms of a run file in order.
+	 */
+	private static final class RunReader
+	{
+		private final DataInputStream	in;
+		final byte[]					key;
+		int								count;
+
+		RunReader(File file, int keyBytes) throws IOException
+		{
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+			key = new byte[keyBytes];
+		}
+
+		// reads the next form, or returns false at the end of the run
+		boolean next() throws IOException
+		{
+			try {
+				in.readFully(key);
+			}
+			catch (EOFException e) {
+				return false;
+			}
+			count = in.readInt();
+			return true;
+		}
+
+		void close() throws IOException
+		{
+			in.close();
+		}
+	}
+}
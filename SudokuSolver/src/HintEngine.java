@@ -0,0 +1,845 @@
+/*	HintEngine.java
+
+	Finds the next logical deduction for a puzzle WITHOUT changing the puzzle.
+
+	Techniques are tried from cheapest to most expensive and the first deduction
+	found is returned as a SudokuHint:
+
+		CANDIDATES			a candidate that is already a value in one of the cell's regions
+		NAKED_SINGLE		an empty cell with only one candidate
+		HIDDEN_SINGLE		a value with only one possible cell in a region
+		KILLER_CAGE			a candidate that cannot complete the sum of its cage
+		LOCKED_CANDIDATES	a value confined to the intersection of a box and a row/column
+		NAKED_PAIR			two cells in a region with the same two candidates
+		X_WING				a value whose candidates in 2 rows lie in the same 2 columns
+							(or vice versa)
+		SWORDFISH			the same with 3 rows and columns
+		JELLYFISH			the same with 4 rows and columns
+		FINNED_FISH			one of the above with up to MAX_FINS extra columns (or rows)
+							of "fin" cells, each of which sees every eliminated cell
+		SIMPLE_COLORING		two cells of one color in the same unit (that color is false),
+							or a cell that sees both colors of one digit's strong links
+		X_CHAIN				an alternating chain of strong and weak links on one digit
+		XY_CHAIN			a chain of cells with two candidates each
+		ALTERNATING_CHAIN	an alternating inference chain through any links
+
+	The fish and chain techniques use the puzzle's LinkGraph, which the puzzle keeps
+	up to date as its candidates change.  Fish are found from the graph's bitmask of
+	a digit's positions in each row and column:  only lines with at most n (plus
+	fins) positions are combined, and a combination is abandoned as soon as the
+	union of its positions is too large, so even a 25x25 puzzle only tries a small
+	part of the C(25,4) line sets for each digit.  A chain that starts and ends with strong links means
+	that one of its two ends is true, so any candidate that is weakly linked to both
+	ends can be removed.  Chains are at most MAX_CHAIN_LINKS links long and the
+	shortest one is found first.  Since the graph remembers which digits have
+	changed, a single-digit search that found nothing isn't repeated until its digit
+	changes.
+
+	Deductions are made from the puzzle's candidates as they currently are, so the
+	hints reflect the user's candidate marks (if a candidate has been removed, the
+	engine trusts that it is not possible).
+
+	Results are cached by a 128-bit hash of the puzzle's values and candidates, so
+	asking again for the same state (from any SudokuPuzzle object) just looks up the
+	previous answer.  Asking again for the same, unchanged puzzle object doesn't
+	even need to hash it.  HintEngine is thread-safe and may be shared, but one
+	puzzle should only be searched by one thread at a time (as with any other use
+	of a SudokuPuzzle).
+
+	getHint() and findHint() take an optional SolveBudget.  Its deadline and cancel()
+	are checked between techniques and between the digits and starting candidates
+	of the fish, coloring, and chain searches (its node limit doesn't apply).  A
+	search that the budget stops returns null, like one that found nothing, but
+	it is not cached and doesn't mark any digit as exhausted, so asking again with
+	more time picks up where it would have.
+
+	Only puzzles up to 64x64 are supported (candidates are handled as long bitmasks).
+
+	October 18, 2026
+ */
+
+import java.util.*;
+
+
+public class HintEngine
+{
+	public static final int		DEFAULT_CACHE_SIZE = 1024;
+	public static final int		MAX_CHAIN_LINKS = 11;		// longest chain searched for
+	public static final int		MAX_FISH_SIZE = 4;			// jellyfish
+	public static final int		MAX_FINS = 2;				// extra columns (or rows) of a finned fish
+
+	private static final long	HASH_SEED1 = 0x243F6A8885A308D3L;
+	private static final long	HASH_SEED2 = 0x13198A2E03707344L;
+
+	// cached value meaning "no deduction found" (since the map can't hold nulls usefully)
+	private static final SudokuHint	NO_HINT = new SudokuHint(SolveTechnique.USER, 1, -1, new int[0], -1, 0, null, null);
+
+	// key for the hint cache
+	private static final class StateKey
+	{
+		final long	h1, h2;
+
+		StateKey(long h1, long h2)
+		{
+			this.h1 = h1;
+			this.h2 = h2;
+		}
+
+		public boolean equals(Object obj)
+		{
+			return (obj instanceof StateKey) && ((StateKey)obj).h1 == h1 && ((StateKey)obj).h2 == h2;
+		}
+
+		public int hashCode()
+		{
+			return (int)(h1 ^ (h1 >>> 32));
+		}
+	}
+
+	private final LinkedHashMap<StateKey, SudokuHint>	cache;
+
+	// the last puzzle object seen and its state, for answering repeated requests without hashing
+	private SudokuPuzzle	lastPuzzle;
+	private int				lastModCount;
+	private SudokuHint		lastHint;
+
+	private long			hits, misses;
+
+
+	public HintEngine()
+	{
+		this(DEFAULT_CACHE_SIZE);
+	}
+
+	public HintEngine(final int cacheSize)
+	{
+		// access-ordered LinkedHashMap = LRU cache
+		cache = new LinkedHashMap<StateKey, SudokuHint>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<StateKey, SudokuHint> eldest)
+			{
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/** getHint() returns the cheapest deduction for the puzzle's current state or
+		null if none of the engine's techniques applies (or the puzzle is too large).
+	 */
+	public SudokuHint getHint(SudokuPuzzle puzzle)
+	{
+		return getHint(puzzle, null);
+	}
+
+	/** This version of getHint() gives up and returns null when budget (if not null)
+		runs out;  check budget.check() to tell that from "no deduction".
+	 */
+	public SudokuHint getHint(SudokuPuzzle puzzle, SolveBudget budget)
+	{
+		StateKey	key;
+		SudokuHint	hint;
+
+		synchronized (this) {
+			if (puzzle == lastPuzzle && puzzle.getModCount() == lastModCount) {
+				++hits;
+				return (lastHint == NO_HINT) ? null : lastHint;
+			}
+		}
+
+		key = new StateKey(puzzle.hashState(HASH_SEED1), puzzle.hashState(HASH_SEED2));
+		synchronized (this) {
+			hint = cache.get(key);
+		}
+		if (hint == null) {
+			hint = findHint(puzzle, budget);
+			if (hint == null && stopped(budget))	return null;		// unfinished, so don't remember it
+			if (hint == null)	hint = NO_HINT;
+			synchronized (this) {
+				cache.put(key, hint);
+				++misses;
+			}
+		}
+		else {
+			synchronized (this) {
+				++hits;
+			}
+		}
+
+		synchronized (this) {
+			lastPuzzle = puzzle;
+			lastModCount = puzzle.getModCount();
+			lastHint = hint;
+		}
+		return (hint == NO_HINT) ? null : hint;
+	}
+
+	public synchronized long getCacheHits()
+	{
+		return hits;
+	}
+
+	public synchronized long getCacheMisses()
+	{
+		return misses;
+	}
+
+	public synchronized void clearCache()
+	{
+		cache.clear();
+		lastPuzzle = null;
+		lastHint = null;
+	}
+
+
+	/** findHint() searches for the cheapest deduction without using the cache. */
+	public SudokuHint findHint(SudokuPuzzle puzzle)
+	{
+		return findHint(puzzle, null);
+	}
+
+	// this version gives up and returns null when budget (if not null) runs out
+	public SudokuHint findHint(SudokuPuzzle puzzle, SolveBudget budget)
+	{
+		PuzzleTopology	topo;
+		SudokuHint		hint;
+		int[]			values;
+		long[]			cands;
+		int				size = puzzle.getSize(), cell;
+
+		if (size > BacktrackingSolver.MAX_SIZE)		return null;
+		topo = PuzzleTopology.forPuzzle(puzzle);
+		if (topo == null)	return null;
+
+		// copy the puzzle state into bitmasks (bit v-1 set if v is a candidate)
+		values = new int[topo.ncells];
+		cands = new long[topo.ncells];
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				cell = row*size + col;
+				values[cell] = puzzle.getCellValue(row, col);
+				if (values[cell] == SudokuPuzzle.EMPTY_CELL) {
+					cands[cell] = puzzle.getCellCandidateMask(row, col);
+				}
+			}
+		}
+
+		hint = findCandidateElimination(topo, values, cands);
+		if (hint == null)	hint = findNakedSingle(topo, cands);
+		if (hint == null)	hint = findHiddenSingle(topo, values, cands);
+		if (hint == null)	hint = findCageElimination(puzzle, values, cands);
+		if (hint == null)	hint = findLockedCandidates(topo, cands);
+		if (hint == null)	hint = findNakedPair(topo, cands);
+		if (hint == null && !stopped(budget))	hint = findChainHint(puzzle, budget);
+		return hint;
+	}
+
+	// returns true if budget is not null and has run out (or was cancelled)
+	private static boolean stopped(SolveBudget budget)
+	{
+		return budget != null && budget.check();
+	}
+
+	// tries the techniques that use the puzzle's LinkGraph
+	private static SudokuHint findChainHint(SudokuPuzzle puzzle, SolveBudget budget)
+	{
+		LinkGraph	links = puzzle.getLinkGraph();
+		SudokuHint	hint;
+
+		if (links == null)	return null;
+		hint = findFish(links, false, budget);
+		if (hint == null)	hint = findFish(links, true, budget);
+		if (hint == null)	hint = findSimpleColoring(links, budget);
+		if (hint == null)	hint = findXChain(links, budget);
+		if (hint == null && !links.isExhausted()) {
+			hint = findChain(links, SolveTechnique.XY_CHAIN, LinkGraph.STRONG_CELL | LinkGraph.WEAK_UNIT, budget);
+			if (hint == null)	hint = findChain(links, SolveTechnique.ALTERNATING_CHAIN, LinkGraph.ALL_LINKS, budget);
+			if (hint == null && !stopped(budget))	links.setExhausted();
+		}
+		return hint;
+	}
+
+	// a value in one cell eliminates that candidate from the other cells in its regions
+	private static SudokuHint findCandidateElimination(PuzzleTopology topo, int[] values, long[] cands)
+	{
+		int		size = topo.size, unit, peer, n;
+		long	bit;
+		int[]	elimCells = null;
+
+		for (int cell = 0; cell < topo.ncells; cell++) {
+			if (values[cell] == SudokuPuzzle.EMPTY_CELL)	continue;
+			bit = 1L << (values[cell] - 1);
+			n = 0;
+			for (int i = 0; i < 3; i++) {
+				unit = topo.cellUnits[cell*3 + i];
+				for (int k = 0; k < size; k++) {
+					peer = topo.unitCells[unit*size + k];
+					if ((cands[peer] & bit) != 0 && !contains(elimCells, n, peer)) {
+						if (elimCells == null)	elimCells = new int[3*size];
+						elimCells[n++] = peer;
+					}
+				}
+			}
+			if (n > 0) {
+				return new SudokuHint(SolveTechnique.CANDIDATES, size, -1, new int[] { cell }, -1, 0,
+				                      Arrays.copyOf(elimCells, n), filled(n, values[cell]));
+			}
+		}
+		return null;
+	}
+
+	private static SudokuHint findNakedSingle(PuzzleTopology topo, long[] cands)
+	{
+		long	m;
+
+		for (int cell = 0; cell < topo.ncells; cell++) {
+			m = cands[cell];
+			if (m != 0 && (m & (m-1)) == 0) {
+				return new SudokuHint(SolveTechnique.NAKED_SINGLE, topo.size, -1, new int[] { cell },
+				                      cell, Long.numberOfTrailingZeros(m) + 1, null, null);
+			}
+		}
+		return null;
+	}
+
+	private static SudokuHint findHiddenSingle(PuzzleTopology topo, int[] values, long[] cands)
+	{
+		int		size = topo.size, cell, base;
+		long	once, more, placed, hidden, bit;
+
+		for (int unit = 0; unit < topo.nunits; unit++) {
+			base = unit*size;
+			once = more = placed = 0;
+			for (int k = 0; k < size; k++) {
+				cell = topo.unitCells[base+k];
+				if (values[cell] != SudokuPuzzle.EMPTY_CELL)	placed |= 1L << (values[cell] - 1);
+				more |= once & cands[cell];
+				once |= cands[cell];
+			}
+			// a value already placed in the unit doesn't count (its candidates are stale)
+			hidden = once & ~more & ~placed;
+			if (hidden != 0) {
+				bit = hidden & -hidden;
+				for (int k = 0; k < size; k++) {
+					cell = topo.unitCells[base+k];
+					if ((cands[cell] & bit) != 0) {
+						return new SudokuHint(SolveTechnique.HIDDEN_SINGLE, size, unit, new int[] { cell },
+						                      cell, Long.numberOfTrailingZeros(bit) + 1, null, null);
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	// removes the candidates that cannot complete their cage's sum (see CageSumTables)
+	private static SudokuHint findCageElimination(SudokuPuzzle puzzle, int[] values, long[] cands)
+	{
+		CageSumTables	tables;
+		KillerCage		cage;
+		int				size = puzzle.getSize(), n, empty, remaining, cell, k;
+		long			placed, others, removed;
+		int[]			cageCells, elimCells, elimValues;
+
+		if (puzzle.getCageCount() == 0)		return null;
+		tables = CageSumTables.forSize(size);
+		cageCells = new int[size];
+		elimCells = new int[size*size];
+		elimValues = new int[size*size];
+
+		for (int c = 0; c < puzzle.getCageCount(); c++) {
+			cage = puzzle.getCage(c);
+			n = cage.getCellCount();
+			empty = 0;
+			remaining = cage.getSum();
+			placed = 0;
+			for (int i = 0; i < n; i++) {
+				cell = cageCells[i] = cage.getCellRow(i)*size + cage.getCellColumn(i);
+				if (values[cell] != SudokuPuzzle.EMPTY_CELL) {
+					remaining -= values[cell];
+					placed |= 1L << (values[cell] - 1);
+				}
+				else ++empty;
+			}
+
+			k = 0;
+			for (int i = 0; i < n; i++) {
+				cell = cageCells[i];
+				if (values[cell] != SudokuPuzzle.EMPTY_CELL)	continue;
+				others = 0;
+				for (int j = 0; j < n; j++) {
+					if (j != i)	others |= cands[cageCells[j]];
+				}
+				removed = cands[cell] & ~tables.getCellDigits(empty, remaining, cands[cell] & ~placed, others & ~placed);
+				for ( ; removed != 0; removed &= removed - 1) {
+					elimCells[k] = cell;
+					elimValues[k++] = Long.numberOfTrailingZeros(removed) + 1;
+				}
+			}
+			if (k > 0) {
+				return new SudokuHint(SolveTechnique.KILLER_CAGE, size, -1, Arrays.copyOf(cageCells, n), -1, 0,
+				                      Arrays.copyOf(elimCells, k), Arrays.copyOf(elimValues, k));
+			}
+		}
+		return null;
+	}
+
+	/** findLockedCandidates() looks for a value whose candidates within one unit all
+		lie inside a second unit;  the value can then be removed from the rest of the
+		second unit.  This covers both "pointing" (box -> row/column) and "claiming"
+		(row/column -> box).
+	 */
+	private static SudokuHint findLockedCandidates(PuzzleTopology topo, long[] cands)
+	{
+		int		size = topo.size, cell, first, target, n;
+		long	bit;
+		int[]	elimCells = new int[size];
+
+		for (int unit = 0; unit < topo.nunits; unit++) {
+			for (int v = 0; v < size; v++) {
+				bit = 1L << v;
+				// find which of the other unit types all of the value's cells share
+				for (int type = 0; type < 3; type++) {
+					if (type == unit / size)	continue;
+					if (unit < 2*size && type < 2)	continue;		// rows & columns only meet boxes
+					target = -1;
+					first = -1;
+					for (int k = 0; k < size; k++) {
+						cell = topo.unitCells[unit*size + k];
+						if ((cands[cell] & bit) == 0)	continue;
+						if (first < 0) {
+							first = cell;
+							target = topo.cellUnits[cell*3 + type];
+						}
+						else if (topo.cellUnits[cell*3 + type] != target) {
+							target = -1;
+							break;
+						}
+					}
+					if (target < 0 || first < 0)	continue;
+
+					// remove the value from target cells outside of unit
+					n = 0;
+					for (int k = 0; k < size; k++) {
+						cell = topo.unitCells[target*size + k];
+						if ((cands[cell] & bit) != 0 && topo.cellUnits[cell*3 + unit / size] != unit) {
+							elimCells[n++] = cell;
+						}
+					}
+					if (n > 0) {
+						return new SudokuHint(SolveTechnique.LOCKED_CANDIDATES, size, unit, cellsWith(topo, unit, bit, cands),
+						                      -1, 0, Arrays.copyOf(elimCells, n), filled(n, v+1));
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	private static SudokuHint findNakedPair(PuzzleTopology topo, long[] cands)
+	{
+		int		size = topo.size, a, b, cell, n;
+		long	m;
+		int[]	elimCells = new int[2*size], elimValues = new int[2*size];
+
+		for (int unit = 0; unit < topo.nunits; unit++) {
+			for (int i = 0; i < size; i++) {
+				a = topo.unitCells[unit*size + i];
+				m = cands[a];
+				if (Long.bitCount(m) != 2)	continue;
+				for (int j = i+1; j < size; j++) {
+					b = topo.unitCells[unit*size + j];
+					if (cands[b] != m)	continue;
+
+					// both values can be removed from the other cells in the unit
+					n = 0;
+					for (int k = 0; k < size; k++) {
+						cell = topo.unitCells[unit*size + k];
+						if (cell == a || cell == b)	continue;
+						for (long rest = cands[cell] & m; rest != 0; rest &= rest - 1) {
+							elimCells[n] = cell;
+							elimValues[n++] = Long.numberOfTrailingZeros(rest) + 1;
+						}
+					}
+					if (n > 0) {
+						return new SudokuHint(SolveTechnique.NAKED_PAIR, size, unit, new int[] { a, b }, -1, 0,
+						                      Arrays.copyOf(elimCells, n), Arrays.copyOf(elimValues, n));
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/** findFish() looks for n rows in which all of a digit's candidates lie in n
+		columns (or n columns and n rows), for n from 2 to MAX_FISH_SIZE:  the digit
+		must then be in those rows at the n crossings, so it is removed from the rest
+		of the columns.  If finned is true, it looks for fish with up to MAX_FINS
+		extra columns instead, removing only the candidates that see every fin.
+		Digits marked as exhausted in the graph are skipped (the fish searches always
+		run before the searches that mark them).
+	 */
+	private static SudokuHint findFish(LinkGraph links, boolean finned, SolveBudget budget)
+	{
+		FishSearch	search = new FishSearch(links);
+		SudokuHint	hint;
+
+		for (int n = 2; n <= MAX_FISH_SIZE && n <= links.size/2; n++) {
+			for (int d = 0; d < links.size; d++) {
+				if (links.isExhausted(d))	continue;
+				if (stopped(budget))	return null;
+				for (int base = 0; base < 2; base++) {
+					hint = search.find(d, n, base, finned ? MAX_FINS : 0);
+					if (hint != null)	return hint;
+				}
+			}
+		}
+		return null;
+	}
+
+	/*	FishSearch tries combinations of the rows (or columns) where a digit has
+		few enough candidates, using each line's bitmask of candidate positions.
+	 */
+	private static final class FishSearch
+	{
+		final LinkGraph			links;
+		final PuzzleTopology	topo;
+		final int				size;
+		final int[]				lines, chosen;
+		final long[]			masks;
+		int						digit, n, fins, baseOffset, coverOffset, count;
+
+		FishSearch(LinkGraph links)
+		{
+			this.links = links;
+			topo = links.topology;
+			size = topo.size;
+			lines = new int[size];
+			masks = new long[size];
+			chosen = new int[MAX_FISH_SIZE];
+		}
+
+		// searches the rows (base == 0) or columns (base == 1) for one fish
+		SudokuHint find(int digit, int n, int base, int fins)
+		{
+			long	m;
+
+			this.digit = digit;
+			this.n = n;
+			this.fins = fins;
+			baseOffset = base*size;
+			coverOffset = (1 - base)*size;
+
+			// only lines with 2 to n+fins positions can be part of a fish
+			count = 0;
+			for (int line = 0; line < size; line++) {
+				m = links.getUnitCells(baseOffset + line, digit);
+				if (Long.bitCount(m) >= 2 && Long.bitCount(m) <= n + fins) {
+					lines[count] = line;
+					masks[count++] = m;
+				}
+			}
+			if (count < n)	return null;
+			return combine(0, 0, 0);
+		}
+
+		// chooses lines[first..] for chosen[depth..], abandoning any union that has grown too large
+		private SudokuHint combine(int first, int depth, long union)
+		{
+			SudokuHint	hint;
+			long		next;
+
+			if (depth == n) {
+				// n lines with fewer than n positions can't all hold the digit;  that
+				// contradiction is not a fish, so it is left to the other searches
+				if (Long.bitCount(union) < n)	return null;
+				if (Long.bitCount(union) == n)	return (fins == 0) ? eliminate(union, 0) : null;
+				return finned(union);
+			}
+			for (int i = first; i <= count - (n - depth); i++) {
+				next = union | masks[i];
+				if (Long.bitCount(next) > n + fins)	continue;
+				chosen[depth] = i;
+				hint = combine(i+1, depth+1, next);
+				if (hint != null)	return hint;
+			}
+			return null;
+		}
+
+		// tries each choice of fin positions from a union of n+1 to n+fins positions
+		private SudokuHint finned(long union)
+		{
+			SudokuHint	hint;
+			long		first, second;
+
+			for (long a = union; a != 0; a &= a - 1) {
+				first = a & -a;
+				if (Long.bitCount(union) == n + 1) {
+					hint = eliminate(union & ~first, first);
+					if (hint != null)	return hint;
+					continue;
+				}
+				for (long b = a & (a - 1); b != 0; b &= b - 1) {
+					second = b & -b;
+					hint = eliminate(union & ~(first | second), first | second);
+					if (hint != null)	return hint;
+				}
+			}
+			return null;
+		}
+
+		/** eliminate() returns a hint removing the digit from the cover lines (the
+			positions in cover) outside of the chosen lines, keeping only the cells
+			that see every fin (the chosen lines' cells at the positions in finMask).
+		 */
+		private SudokuHint eliminate(long cover, long finMask)
+		{
+			int[]	cells = new int[n*size], elimCells = new int[n*size], fin = new int[MAX_FINS*n];
+			int		ncells = 0, nelim = 0, nfins = 0, unit, cell;
+			long	baseLines = 0;
+
+			for (int i = 0; i < n; i++) {
+				if ((masks[chosen[i]] & cover) == 0)	return null;	// every line needs a candidate in the cover
+				baseLines |= 1L << lines[chosen[i]];
+				unit = baseOffset + lines[chosen[i]];
+				for (long m = masks[chosen[i]]; m != 0; m &= m - 1) {
+					cell = topo.unitCells[unit*size + Long.numberOfTrailingZeros(m)];
+					cells[ncells++] = cell;
+					if (((m & -m) & finMask) != 0)	fin[nfins++] = cell;
+				}
+			}
+			for (long c = cover; c != 0; c &= c - 1) {
+				unit = coverOffset + Long.numberOfTrailingZeros(c);
+				for (long m = links.getUnitCells(unit, digit) & ~baseLines; m != 0; m &= m - 1) {
+					cell = topo.unitCells[unit*size + Long.numberOfTrailingZeros(m)];
+					if (seesAll(cell, fin, nfins))	elimCells[nelim++] = cell;
+				}
+			}
+			if (nelim == 0)	return null;
+			return new SudokuHint((finMask != 0) ? SolveTechnique.FINNED_FISH
+			                      : (n == 2) ? SolveTechnique.X_WING : (n == 3) ? SolveTechnique.SWORDFISH : SolveTechnique.JELLYFISH,
+			                      size, -1, Arrays.copyOf(cells, ncells), -1, 0, Arrays.copyOf(elimCells, nelim), filled(nelim, digit+1));
+		}
+
+		private boolean seesAll(int cell, int[] fin, int nfins)
+		{
+			for (int i = 0; i < nfins; i++) {
+				if (!links.sees(cell, fin[i]))	return false;
+			}
+			return true;
+		}
+	}
+
+	/** findSimpleColoring() colors each group of cells connected by one digit's
+		strong links with two alternating colors;  all the cells of one color have the
+		digit.  If two cells of the same color see each other, that color is false and
+		the digit is removed from all of its cells.  Otherwise, the digit is removed
+		from any other cell that sees cells of both colors.
+	 */
+	private static SudokuHint findSimpleColoring(LinkGraph links, SolveBudget budget)
+	{
+		PuzzleTopology	topo = links.topology;
+		int				size = topo.size, n, k, c, next, group, wrong;
+		int[]			colors = new int[topo.ncells];		// 2*group + 0 or 1, or 0 if not colored
+		int[]			cells = new int[topo.ncells];
+		int[]			elimCells = new int[topo.ncells];
+		boolean[]		seen = new boolean[2];
+
+		for (int d = 0; d < size; d++) {
+			if (links.isExhausted(d))	continue;
+			if (stopped(budget))	return null;
+			Arrays.fill(colors, 0);
+			group = 0;
+			for (int start = 0; start < topo.ncells; start++) {
+				if (!links.hasCandidate(start, d) || colors[start] != 0)	continue;
+
+				// color the cells connected to start by strong links
+				++group;
+				colors[start] = 2*group;
+				cells[0] = start;
+				n = 1;
+				for (int i = 0; i < n; i++) {
+					c = cells[i];
+					for (int u = 0; u < 3; u++) {
+						next = links.getConjugate(c, u, d);
+						if (next >= 0 && colors[next] == 0) {
+							colors[next] = colors[c] ^ 1;
+							cells[n++] = next;
+						}
+					}
+				}
+				if (n < 3)	continue;		// a single strong link is covered by simpler techniques
+
+				// color wrap:  two cells of one color in the same unit
+				wrong = -1;
+				for (int i = 0; i < n && wrong < 0; i++) {
+					for (int j = i+1; j < n; j++) {
+						if (colors[cells[i]] == colors[cells[j]] && links.sees(cells[i], cells[j])) {
+							wrong = colors[cells[i]];
+							break;
+						}
+					}
+				}
+				k = 0;
+				if (wrong >= 0) {
+					for (int i = 0; i < n; i++) {
+						if (colors[cells[i]] == wrong)	elimCells[k++] = cells[i];
+					}
+				}
+				else {
+					// color trap:  an uncolored cell that sees both colors
+					for (c = 0; c < topo.ncells; c++) {
+						if (!links.hasCandidate(c, d) || colors[c] >> 1 == group)	continue;
+						seen[0] = seen[1] = false;
+						for (int i = 0; i < n; i++) {
+							if (links.sees(c, cells[i]))	seen[colors[cells[i]] & 1] = true;
+						}
+						if (seen[0] && seen[1])	elimCells[k++] = c;
+					}
+				}
+				if (k > 0) {
+					return new SudokuHint(SolveTechnique.SIMPLE_COLORING, size, -1, Arrays.copyOf(cells, n), -1, 0,
+					                      Arrays.copyOf(elimCells, k), filled(k, d+1));
+				}
+			}
+		}
+		return null;
+	}
+
+	/** findXChain() looks for a chain of alternating strong and weak links on one
+		digit.  Digits that it finds nothing for are marked as exhausted in the graph
+		(after findSimpleColoring() has also found nothing for them).
+	 */
+	private static SudokuHint findXChain(LinkGraph links, SolveBudget budget)
+	{
+		SudokuHint	hint;
+
+		for (int d = 0; d < links.size; d++) {
+			if (links.isExhausted(d))	continue;
+			hint = findChain(links, SolveTechnique.X_CHAIN, LinkGraph.STRONG_UNIT | LinkGraph.WEAK_UNIT, d, budget);
+			if (hint != null)	return hint;
+			if (stopped(budget))	return null;		// the digit wasn't searched completely
+			links.setExhausted(d);
+		}
+		return null;
+	}
+
+	// searches for a chain of the given kinds of link starting from any digit
+	private static SudokuHint findChain(LinkGraph links, SolveTechnique technique, int kinds, SolveBudget budget)
+	{
+		return findChain(links, technique, kinds, -1, budget);
+	}
+
+	/** This version of findChain() only starts from candidates for digit (unless it
+		is -1).  Every candidate with a strong link is tried as the (false) start of
+		a chain, and the first chain with an elimination is returned as a hint.
+	 */
+	private static SudokuHint findChain(LinkGraph links, SolveTechnique technique, int kinds, int digit, SolveBudget budget)
+	{
+		PuzzleTopology		topo = links.topology;
+		ChainEliminations	elims = new ChainEliminations(topo.size);
+		int					end, n;
+		int[]				chain, cells;
+		long				m;
+
+		for (int cell = 0; cell < topo.ncells; cell++) {
+			m = links.getCandidates(cell);
+			if (digit >= 0)	m &= 1L << digit;
+			for ( ; m != 0; m &= m - 1) {
+				if (stopped(budget))	return null;
+				elims.startCell = cell;
+				elims.startDigit = Long.numberOfTrailingZeros(m);
+				end = links.findChain(cell, elims.startDigit, kinds, MAX_CHAIN_LINKS, elims);
+				if (end < 0)	continue;
+
+				// list the chain's cells (a cell may appear twice in a row with different digits)
+				chain = links.getChain(end);
+				cells = new int[chain.length];
+				n = 0;
+				for (int node : chain) {
+					if (n == 0 || cells[n-1] != node / topo.size)	cells[n++] = node / topo.size;
+				}
+				return new SudokuHint(technique, topo.size, -1, Arrays.copyOf(cells, n), -1, 0,
+				                      Arrays.copyOf(elims.cells, elims.count), Arrays.copyOf(elims.values, elims.count));
+			}
+		}
+		return null;
+	}
+
+	/*	ChainEliminations collects the candidates that are weakly linked to both
+		ends of a chain found by LinkGraph.findChain():  since one of the ends must be
+		true, they are all false.
+	 */
+	private static final class ChainEliminations implements LinkGraph.ChainHandler
+	{
+		int			startCell, startDigit, count;
+		final int[]	cells, values;
+
+		ChainEliminations(int size)
+		{
+			cells = new int[4*size];
+			values = new int[4*size];
+		}
+
+		public boolean found(LinkGraph links, int state)
+		{
+			PuzzleTopology	topo = links.topology;
+			int				size = topo.size, end = links.stateCell(state), digit = links.stateDigit(state), unit, c;
+
+			count = 0;
+			if (end == startCell && digit == startDigit)	return false;
+
+			// the other digits of the end cell
+			for (long m = links.getCandidates(end) & ~(1L << digit); m != 0; m &= m - 1) {
+				add(links, end, Long.numberOfTrailingZeros(m));
+			}
+			// the end digit in the end cell's units
+			for (int i = 0; i < 3; i++) {
+				unit = topo.cellUnits[end*3 + i];
+				for (long m = links.getUnitCells(unit, digit); m != 0; m &= m - 1) {
+					c = topo.unitCells[unit*size + Long.numberOfTrailingZeros(m)];
+					if (c != end)	add(links, c, digit);
+				}
+			}
+			return count > 0;
+		}
+
+		// adds a candidate weakly linked to the end if it is also weakly linked to the start
+		private void add(LinkGraph links, int cell, int digit)
+		{
+			if (cell == startCell && digit == startDigit)	return;
+			if (!links.isWeakLink(cell, digit, startCell, startDigit))	return;
+			for (int i = 0; i < count; i++) {
+				if (cells[i] == cell && values[i] == digit + 1)	return;
+			}
+			cells[count] = cell;
+			values[count++] = digit + 1;
+		}
+	}
+
+	// returns the cells of unit that have the candidate bit
+	private static int[] cellsWith(PuzzleTopology topo, int unit, long bit, long[] cands)
+	{
+		int[]	list = new int[topo.size];
+		int		n = 0, cell;
+
+		for (int k = 0; k < topo.size; k++) {
+			cell = topo.unitCells[unit*topo.size + k];
+			if ((cands[cell] & bit) != 0)	list[n++] = cell;
+		}
+		return Arrays.copyOf(list, n);
+	}
+
+	private static int[] filled(int n, int value)
+	{
+		int[] a = new int[n];
+		Arrays.fill(a, value);
+		return a;
+	}
+
+	private static boolean contains(int[] a, int n, int x)
+	{
+		for (int i = 0; i < n; i++) {
+			if (a[i] == x)	return true;
+		}
+		return false;
+	}
+}
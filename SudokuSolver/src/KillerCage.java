@@ -0,0 +1,116 @@
+/*	KillerCage.java
+
+	A Killer Sudoku "cage":  a group of cells whose values must all be different
+	and must add up to a given sum.  Cages are added to a SudokuPuzzle on top of
+	its rows, columns, and regions (see SudokuPuzzle.addCage()).
+
+	"Cage strings" are a simple text representation of a list of cages.  Each cage
+	is written as its sum, a ':', and its cells in "r<row>c<col>" notation (1-based)
+	separated by commas.  Cages are separated by ';' or newlines.
+
+	Eg. "3:r1c1,r1c2; 15:r1c3,r2c3,r3c3" specifies two cages.
+
+	October 18, 2026
+ */
+
+import java.util.*;
+
+
+public class KillerCage
+{
+	private final int		sum;
+	private final int[]		rows;
+	private final int[]		cols;
+
+
+	public KillerCage(int sum, int[] rows, int[] cols)
+	{
+		if (rows.length != cols.length) {
+			throw new IllegalArgumentException("KillerCage: rows and cols have different lengths");
+		}
+		this.sum = sum;
+		this.rows = rows.clone();
+		this.cols = cols.clone();
+	}
+
+	public int getSum()
+	{
+		return sum;
+	}
+
+	public int getCellCount()
+	{
+		return rows.length;
+	}
+
+	public int getCellRow(int i)
+	{
+		return rows[i];
+	}
+
+	public int getCellColumn(int i)
+	{
+		return cols[i];
+	}
+
+	// returns true if the cage contains the cell at (row,col)
+	public boolean contains(int row, int col)
+	{
+		for (int i = 0; i < rows.length; i++) {
+			if (rows[i] == row && cols[i] == col)	return true;
+		}
+		return false;
+	}
+
+	/** parseCages() returns the list of cages described by a cage string (see above).
+		Returns null (after printing an error) if the string is malformed.
+	 */
+	public static List<KillerCage> parseCages(String cageString)
+	{
+		ArrayList<KillerCage>	list = new ArrayList<KillerCage>();
+		String[]				cells, rc;
+		int[]					rows, cols;
+		int						colon, sum;
+
+		for (String spec : cageString.split("[;\n]")) {
+			spec = spec.trim();
+			if (spec.length() == 0)	continue;
+
+			colon = spec.indexOf(':');
+			try {
+				if (colon < 0)	throw new NumberFormatException("missing ':'");
+				sum = Integer.parseInt(spec.substring(0, colon).trim());
+				cells = spec.substring(colon+1).split(",");
+				rows = new int[cells.length];
+				cols = new int[cells.length];
+				for (int i = 0; i < cells.length; i++) {
+					rc = cells[i].trim().toLowerCase().split("[rc]");
+					if (rc.length != 3 || rc[0].length() != 0) {
+						throw new NumberFormatException("bad cell '" + cells[i].trim() + "'");
+					}
+					rows[i] = Integer.parseInt(rc[1]) - 1;
+					cols[i] = Integer.parseInt(rc[2]) - 1;
+				}
+			}
+			catch (NumberFormatException nfe) {
+				System.err.printf("KillerCage.parseCages(): cannot parse cage '%s' (%s)\n", spec, nfe.getMessage());
+				return null;
+			}
+			list.add(new KillerCage(sum, rows, cols));
+		}
+		return list;
+	}
+
+	// returns this cage in cage string notation
+	public String toString()
+	{
+		StringBuilder	str = new StringBuilder();
+
+		str.append(sum).append(':');
+		for (int i = 0; i < rows.length; i++) {
+			if (i > 0)	str.append(',');
+			str.append('r').append(rows[i] + 1).append('c').append(cols[i] + 1);
+		}
+		return str.toString();
+	}
+}
@@ -0,0 +1,345 @@
+/*	LinkGraph.java
+
+	The strong and weak links between the candidates of a puzzle, for the chain and
+	coloring techniques in HintEngine.  A candidate is a digit of an empty cell.  Two
+	candidates are weakly linked if they cannot both be true (the same digit in two
+	cells of one unit, or two digits of one cell) and strongly linked if they also
+	cannot both be false (a digit with only two cells left in a unit, or the two
+	digits of a cell with only two candidates).
+
+	A graph belongs to one SudokuPuzzle (see SudokuPuzzle.getLinkGraph()) and is
+	updated by the puzzle one candidate at a time as candidates are removed and
+	values placed, instead of being rebuilt for every search.  For each unit and
+	digit it keeps a bitmask of the unit's cells that have the digit (bit k for
+	unitCells[unit*size + k]), so the links of a candidate are found with a few mask
+	operations:  a unit mask with two bits set is a strong link.  After bulk changes
+	(e.g. recalculateAllCandidates() without a solve trace) the puzzle marks the
+	graph stale, and it is brought up to date by comparing each cell's candidates.
+
+	Every digit has a version number that changes whenever one of its candidates
+	does.  Searches use them to remember where they have already found nothing:  a
+	single-digit search that failed for a digit isn't repeated until that digit
+	changes, and the multiple-digit searches aren't repeated until anything changes.
+
+	Chains are found by a breadth-first search over (candidate, true/false) states,
+	so the shortest chain is found first, and no chain is longer than the limit
+	given.  The search's bookkeeping arrays are kept with the graph and reset by
+	changing a stamp rather than by clearing them.
+
+	Only puzzles up to 64x64 are supported (candidates are handled as long bitmasks).
+
+	October 19, 2026
+ */
+
+import java.util.Arrays;
+
+
+public final class LinkGraph
+{
+	// kinds of link that a chain may use (see findChain())
+	public static final int		STRONG_UNIT = 1;	// a digit with two cells left in a unit
+	public static final int		STRONG_CELL = 2;	// a cell with two candidates left
+	public static final int		WEAK_UNIT = 4;		// a digit in two cells of a unit
+	public static final int		WEAK_CELL = 8;		// two digits of a cell
+	public static final int		ALL_LINKS = 15;
+
+	final PuzzleTopology	topology;
+	final int				size;
+
+	private final long[]	cellMasks;			// candidates of each empty cell (bit d for digit d+1)
+	private final long[]	unitMasks;			// cells with each digit:  unitMasks[unit*size + digit]
+	private final int[]		unitPos;			// position of each cell in its units:  unitPos[cell*3 + i]
+	private final int[]		digitVersions;
+	private int				version;
+	private boolean			stale;
+
+	// search memos:  the versions at which searches last found nothing (-1 = never searched)
+	private final int[]		exhaustedDigits;
+	private int				exhaustedVersion = -1;
+
+	// breadth-first search state, indexed by state = (cell*size + digit)*2 + (1 if true)
+	private int[]			visited;			// == stamp if the state has been reached
+	private int[]			parents;			// the state it was reached from (-1 for the start)
+	private int[]			depths;				// number of links from the start
+	private int[]			queue;
+	private int				stamp;
+
+
+	LinkGraph(PuzzleTopology topology)
+	{
+		int		unit;
+
+		this.topology = topology;
+		size = topology.size;
+		cellMasks = new long[topology.ncells];
+		unitMasks = new long[topology.nunits*size];
+		unitPos = new int[topology.ncells*3];
+		for (unit = 0; unit < topology.nunits; unit++) {
+			for (int k = 0; k < size; k++)	unitPos[topology.unitCells[unit*size + k]*3 + unit/size] = k;
+		}
+		digitVersions = new int[size];
+		exhaustedDigits = new int[size];
+		Arrays.fill(exhaustedDigits, -1);
+	}
+
+	/** setCandidate() adds or removes one candidate (digit 0 to size-1) of an empty
+		cell.  Called by the puzzle whenever a candidate changes.
+	 */
+	void setCandidate(int cell, int digit, boolean isCandidate)
+	{
+		long	bit = 1L << digit;
+
+		if (((cellMasks[cell] & bit) != 0) == isCandidate)	return;
+		cellMasks[cell] ^= bit;
+		for (int i = 0; i < 3; i++)	unitMasks[topology.cellUnits[cell*3 + i]*size + digit] ^= 1L << unitPos[cell*3 + i];
+		++digitVersions[digit];
+		++version;
+	}
+
+	// replaces all of a cell's candidates (0 for a cell with a value)
+	void setCandidates(int cell, long mask)
+	{
+		for (long changed = cellMasks[cell] ^ mask; changed != 0; changed &= changed - 1) {
+			setCandidate(cell, Long.numberOfTrailingZeros(changed), (mask & (changed & -changed)) != 0);
+		}
+	}
+
+	// called by the puzzle after changes that it didn't report one at a time
+	void invalidate()
+	{
+		stale = true;
+	}
+
+	boolean isStale()
+	{
+		return stale;
+	}
+
+	// brings a stale graph up to date with the puzzle's cells
+	void update(SudokuPuzzle puzzle)
+	{
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				setCandidates(row*size + col, (puzzle.getCellValue(row, col) == SudokuPuzzle.EMPTY_CELL)
+				                              ? puzzle.getCellCandidateMask(row, col) : 0);
+			}
+		}
+		stale = false;
+	}
+
+	public PuzzleTopology getTopology()
+	{
+		return topology;
+	}
+
+	// returns the candidates of a cell as a bitmask (bit d for digit d+1), 0 if it has a value
+	public long getCandidates(int cell)
+	{
+		return cellMasks[cell];
+	}
+
+	public boolean hasCandidate(int cell, int digit)
+	{
+		return (cellMasks[cell] & (1L << digit)) != 0;
+	}
+
+	/** getUnitCells() returns the cells of unit that have digit as a bitmask of
+		their positions in the unit (bit k for unitCells[unit*size + k]).
+	 */
+	public long getUnitCells(int unit, int digit)
+	{
+		return unitMasks[unit*size + digit];
+	}
+
+	/** getConjugate() returns the other cell of a strong link on digit from cell
+		within one of its units (i = 0 to 2, see PuzzleTopology.cellUnits), or -1 if
+		there isn't one.
+	 */
+	public int getConjugate(int cell, int i, int digit)
+	{
+		int		unit = topology.cellUnits[cell*3 + i];
+		long	m = unitMasks[unit*size + digit];
+
+		if (Long.bitCount(m) != 2 || (m & (1L << unitPos[cell*3 + i])) == 0)	return -1;
+		return topology.unitCells[unit*size + Long.numberOfTrailingZeros(m & ~(1L << unitPos[cell*3 + i]))];
+	}
+
+	// returns true if two different cells share a unit
+	public boolean sees(int a, int b)
+	{
+		int[]	units = topology.cellUnits;
+
+		return a != b && (units[a*3] == units[b*3] || units[a*3 + 1] == units[b*3 + 1] || units[a*3 + 2] == units[b*3 + 2]);
+	}
+
+	// returns true if two candidates are weakly linked (they can't both be true)
+	public boolean isWeakLink(int cellA, int digitA, int cellB, int digitB)
+	{
+		if (!hasCandidate(cellA, digitA) || !hasCandidate(cellB, digitB))	return false;
+		if (cellA == cellB)	return digitA != digitB;
+		return digitA == digitB && sees(cellA, cellB);
+	}
+
+	// returns a number that changes whenever any candidate of digit changes
+	public int getDigitVersion(int digit)
+	{
+		return digitVersions[digit];
+	}
+
+	// returns a number that changes whenever any candidate changes
+	public int getVersion()
+	{
+		return version;
+	}
+
+	// returns true if a single-digit search already found nothing for digit as it is now
+	boolean isExhausted(int digit)
+	{
+		return exhaustedDigits[digit] == digitVersions[digit];
+	}
+
+	void setExhausted(int digit)
+	{
+		exhaustedDigits[digit] = digitVersions[digit];
+	}
+
+	// returns true if the multiple-digit searches already found nothing in the current graph
+	boolean isExhausted()
+	{
+		return exhaustedVersion == version;
+	}
+
+	void setExhausted()
+	{
+		exhaustedVersion = version;
+	}
+
+	/** findChain() searches for the shortest alternating chain of at most maxLinks
+		links that starts at candidate (cell, digit), which is assumed false, and
+		follows strong and weak links in turn, using only the kinds of link in
+		'kinds'.  Chains that end on a strong link (at least 3 links long) are passed
+		to the handler, which returns true to stop the search.  Returns the state
+		the search stopped at (see getChain()) or -1.
+	 */
+	int findChain(int cell, int digit, int kinds, int maxLinks, ChainHandler handler)
+	{
+		int		head = 0, tail = 0, state, next, c, d, unit, depth;
+		long	m;
+
+		if (visited == null) {
+			visited = new int[topology.ncells*size*2];
+			parents = new int[visited.length];
+			depths = new int[visited.length];
+			queue = new int[visited.length];
+		}
+		if (++stamp == 0) {
+			// the stamp wrapped around:  clear the old marks
+			Arrays.fill(visited, 0);
+			stamp = 1;
+		}
+
+		state = (cell*size + digit)*2;
+		visited[state] = stamp;
+		parents[state] = -1;
+		depths[state] = 0;
+		queue[tail++] = state;
+		while (head < tail) {
+			state = queue[head++];
+			depth = depths[state];
+			if ((state & 1) != 0 && depth >= 3 && handler.found(this, state))	return state;
+			if (depth >= maxLinks)	continue;
+			c = state / (2*size);
+			d = (state >> 1) % size;
+
+			if ((state & 1) == 0) {
+				// false:  a strong link makes the other end true
+				if ((kinds & STRONG_UNIT) != 0) {
+					for (int i = 0; i < 3; i++) {
+						next = getConjugate(c, i, d);
+						if (next >= 0)	tail = visit(tail, state, (next*size + d)*2 + 1, depth);
+					}
+				}
+				if ((kinds & STRONG_CELL) != 0 && Long.bitCount(cellMasks[c]) == 2) {
+					m = cellMasks[c] & ~(1L << d);
+					tail = visit(tail, state, (c*size + Long.numberOfTrailingZeros(m))*2 + 1, depth);
+				}
+			}
+			else {
+				// true:  every weakly linked candidate is false (only those with a strong link can continue)
+				if ((kinds & WEAK_UNIT) != 0) {
+					for (int i = 0; i < 3; i++) {
+						unit = topology.cellUnits[c*3 + i];
+						for (m = unitMasks[unit*size + d] & ~(1L << unitPos[c*3 + i]); m != 0; m &= m - 1) {
+							next = topology.unitCells[unit*size + Long.numberOfTrailingZeros(m)];
+							if (hasStrongLink(next, d, kinds))	tail = visit(tail, state, (next*size + d)*2, depth);
+						}
+					}
+				}
+				if ((kinds & WEAK_CELL) != 0) {
+					for (m = cellMasks[c] & ~(1L << d); m != 0; m &= m - 1) {
+						next = Long.numberOfTrailingZeros(m);
+						if (hasStrongLink(c, next, kinds))	tail = visit(tail, state, (c*size + next)*2, depth);
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	// adds a state to the search queue if it hasn't been reached yet
+	private int visit(int tail, int from, int state, int depth)
+	{
+		if (visited[state] == stamp)	return tail;
+		visited[state] = stamp;
+		parents[state] = from;
+		depths[state] = depth + 1;
+		queue[tail] = state;
+		return tail + 1;
+	}
+
+	// returns true if the candidate has a strong link of one of the kinds given
+	private boolean hasStrongLink(int cell, int digit, int kinds)
+	{
+		if ((kinds & STRONG_CELL) != 0 && Long.bitCount(cellMasks[cell]) == 2)	return true;
+		if ((kinds & STRONG_UNIT) != 0) {
+			for (int i = 0; i < 3; i++) {
+				if (Long.bitCount(unitMasks[topology.cellUnits[cell*3 + i]*size + digit]) == 2)	return true;
+			}
+		}
+		return false;
+	}
+
+	/** getChain() returns the candidates of the chain that ends at state (as found
+		by the last findChain()), from the start to the end, each as cell*size + digit.
+	 */
+	int[] getChain(int state)
+	{
+		int[]	chain = new int[depths[state] + 1];
+
+		for (int i = chain.length - 1; i >= 0; i--) {
+			chain[i] = state >> 1;
+			state = parents[state];
+		}
+		return chain;
+	}
+
+	// returns the cell of a search state
+	int stateCell(int state)
+	{
+		return state / (2*size);
+	}
+
+	// returns the digit of a search state
+	int stateDigit(int state)
+	{
+		return (state >> 1) % size;
+	}
+
+	/*	ChainHandler is called by findChain() for each chain it finds that ends with
+		a strong link.
+	 */
+	interface ChainHandler
+	{
+		boolean found(LinkGraph graph, int state);
+	}
+}
@@ -0,0 +1,571 @@
+/*	LocalSearchSolver.java
+
+	Finds a solution of a very large puzzle (49x49 to 100x100) by simulated
+	annealing, for when an exact search can't finish in time.  It never proves
+	anything:  it may find a solution quickly, but it can't tell whether the puzzle
+	has only one, and it can't tell an unsolvable puzzle from a hard one (except
+	when singles, or filling a region with candidates, runs into a contradiction).
+
+	solve() first places naked and hidden singles on a copy of the puzzle.  Then
+	every region (normally a box) is filled with a permutation of its missing
+	values, so regions never have conflicts, and the search swaps two free cells of
+	one region at a time to reduce the number of conflicts in rows and columns (the
+	number of values missing from each row and column).  Fills give every cell one
+	of its candidates (a matching of cells and values), but swaps may not, since
+	the swaps that keep to candidates can't reach every permutation.  The number of
+	cells with each value in each row and column is kept up to date, so the change
+	in conflicts of a swap is found in constant time, without changing anything.
+	Most swaps tried start at a cell with a conflict.  Swaps that add conflicts are
+	accepted with probability exp(-delta/temperature), and the temperature is
+	lowered after every round of moves;  when a search stops improving it is heated
+	part of the way back up, and after a few of those it restarts from a new fill.
+
+	Independent searches (different random seeds) run on all processors, and the
+	first one to reach no conflicts wins.  solve() checks that answer with a
+	SudokuPuzzle before reporting SOLVED.  The search is an anytime method:  if the
+	budget runs out first, copyBestTo() gives the assignment with the fewest
+	conflicts found so far.
+
+	It is only practical for puzzles with many clues.  On one processor, test
+	49x49 puzzles with 70% clues were solved in well under a second and ones with
+	60% in a few seconds, but none with 55% or fewer (down to 45%) was solved in
+	30 seconds;  100x100 puzzles were solved with 70% clues but not with 60%.
+
+	The regions are the puzzle's own:  puzzle strings larger than 25x25 get
+	SudokuPuzzle's default broken diagonals unless the caller sets square boxes
+	first (see SudokuPuzzle.setSquareBoxRegions() and SudokuCli -boxes), as the
+	measurements above did.  The budget's node limit counts swaps tried by each
+	search.  Puzzles with killer cages are not supported.  An instance is NOT
+	thread-safe;  its search threads are daemons that are stopped by shutdown().
+
+	Typical use:
+
+		local.load(puzzle);
+		if (local.solve(SolveBudget.millis(5000)) == BacktrackingSolver.Status.SOLVED)  local.copyBestTo(puzzle);
+
+	October 19, 2026
+ */
+
+import java.util.*;
+import java.util.concurrent.*;
+
+
+public final class LocalSearchSolver
+{
+	public static final int		MAX_SIZE = 100;				// the largest size of a puzzle string
+
+	private static final double	COOLING = 0.99;				// temperature factor after each round
+	private static final double	REHEAT = 0.3;				// fraction of the starting temperature to reheat to
+	private static final int	STALL_ROUNDS = 40;			// rounds without improvement before reheating
+	private static final int	REHEATS = 8;				// reheats without improvement before restarting
+	private static final int	FOCUS_TRIES = 32;			// random cells looked at for one in conflict
+	private static final int	SAMPLE_MOVES = 200;			// moves used to set the starting temperature
+	private static final int	CHECK_INTERVAL = 4096;		// moves between looks at the budget
+
+	private final int				threadCount;
+	private final ExecutorService	threads;
+
+	// the loaded puzzle and what solve() found
+	private SudokuPuzzle	puzzle;
+	private int				size, ncells;
+	private int[]			start;				// values after singles (0 = free)
+	private int[][]			regionFree;			// free cells of each region
+	private int[]			swappable;			// free cells of the regions with at least 2
+	private int[]			cellRegion;
+	private boolean[]		allowed;			// candidates after singles:  [cell*(size+1) + value]
+	private int[]			best;				// the assignment with the fewest conflicts found
+	private int				bestConflicts;
+	private int				startConflicts;		// of the first fill, for getProgress()
+	private long			moves;
+
+
+	// runs one search on each processor
+	public LocalSearchSolver()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public LocalSearchSolver(int threads)
+	{
+		threadCount = Math.max(1, threads);
+		this.threads = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+			public Thread newThread(Runnable r)
+			{
+				Thread	t = new Thread(r, "LocalSearchSolver");
+
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	// stops the search threads;  the solver can't be used afterwards
+	public void shutdown()
+	{
+		threads.shutdownNow();
+	}
+
+	/** load() makes puzzle the one that solve() solves (it is not changed by
+		solve()).  Returns NO_ERR, or PARAM_ERR if the puzzle is larger than MAX_SIZE,
+		has cages, or doesn't have size regions of size cells.
+	 */
+	public int load(SudokuPuzzle puzzle)
+	{
+		int		n = puzzle.getSize();
+
+		this.puzzle = null;
+		if (n < 1 || n > MAX_SIZE || puzzle.getCageCount() != 0 || puzzle.getRegionCount(SudokuPuzzle.RegionType.OTHER) != n) {
+			System.err.printf("LocalSearchSolver.load(): unsupported puzzle, size=%d\n", n);
+			return SudokuPuzzle.PARAM_ERR;
+		}
+		this.puzzle = puzzle;
+		size = n;
+		ncells = n*n;
+		best = null;
+		moves = 0;
+		return SudokuPuzzle.NO_ERR;
+	}
+
+	/** solve() looks for a solution of the loaded puzzle within budget (which may be
+		null) and returns SOLVED (a checked solution, which may not be the only one),
+		UNSOLVABLE (singles or a fill found a contradiction), BUDGET_EXCEEDED, or
+		CANCELLED.
+	 */
+	public BacktrackingSolver.Status solve(SolveBudget budget)
+	{
+		final SolveBudget			raceBudget;
+		CompletionService<Integer>	done;
+		Future<Integer>				finished;
+		final long					seed = System.nanoTime();
+		int							running = 0;
+
+		best = null;
+		moves = 0;
+		if (puzzle == null)	return BacktrackingSolver.Status.UNSOLVABLE;
+		if (budget == null)	budget = SolveBudget.unlimited();
+		if (!prepare(budget))	return BacktrackingSolver.Status.UNSOLVABLE;
+		if (bestConflicts == 0)	return check();
+
+		raceBudget = new SolveBudget(budget.getRemainingNanos(), budget.getMaxNodes());
+		done = new ExecutorCompletionService<Integer>(threads);
+		for (int i = 0; i < threadCount; i++) {
+			final long	threadSeed = TranspositionTable.mix(seed + i);
+
+			done.submit(new Callable<Integer>() {
+				public Integer call()
+				{
+					return new Annealer(threadSeed).run(raceBudget);
+				}
+			});
+			++running;
+		}
+
+		// wait for a search to reach no conflicts (or for all of them to stop), passing on a cancellation
+		try {
+			while (running > 0) {
+				finished = done.poll(1, TimeUnit.MILLISECONDS);
+				if (finished == null) {
+					if (budget.isCancelled())	raceBudget.cancel();
+					continue;
+				}
+				--running;
+				if (finished.get() == 0)	raceBudget.cancel();
+			}
+		}
+		catch (InterruptedException e) {
+			raceBudget.cancel();
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+
+		if (bestConflicts == 0)	return check();
+		return budget.isCancelled() ? BacktrackingSolver.Status.CANCELLED : BacktrackingSolver.Status.BUDGET_EXCEEDED;
+	}
+
+	/*	prepare() places singles on a copy of the puzzle, makes the lists of free
+		cells, and sets best to a first fill.  Returns false if singles found a
+		contradiction.
+	 */
+	private boolean prepare(SolveBudget budget)
+	{
+		SudokuPuzzle	copy = new SudokuPuzzle(size);
+		int[][]			values = new int[size][size], regions = new int[size][size];
+		int[]			free = new int[size];
+		int				cell, nfree, nswappable;
+
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				values[row][col] = puzzle.getCellValue(row, col);
+				regions[row][col] = puzzle.getCellRegionIdx(row, col);
+			}
+		}
+		if (copy.setCellRegions(regions) != SudokuPuzzle.NO_ERR || copy.setAllCells(values) != SudokuPuzzle.NO_ERR)	return false;
+		do {
+			copy.recalculateAllCandidates();
+		} while ((copy.acceptSingleCandidateSolutions() | placeHiddenSingles(copy)) && !budget.check());
+		if (copy.getConflictCount() != 0)	return false;
+
+		start = new int[ncells];
+		allowed = new boolean[ncells*(size + 1)];
+		regionFree = new int[size][];
+		swappable = new int[ncells];
+		cellRegion = new int[ncells];
+		nswappable = 0;
+		for (int rgn = 0; rgn < size; rgn++) {
+			nfree = 0;
+			for (int i = 0; i < size; i++) {
+				cell = copy.getRegionCell(SudokuPuzzle.RegionType.OTHER, rgn, i);
+				start[cell] = copy.getCellValue(cell / size, cell % size);
+				if (start[cell] != SudokuPuzzle.EMPTY_CELL)	continue;
+				for (int value = 1; value <= size; value++)	allowed[cell*(size + 1) + value] = copy.testCellCandidate(cell / size, cell % size, value - 1);
+				cellRegion[cell] = rgn;
+				free[nfree++] = cell;
+			}
+			regionFree[rgn] = Arrays.copyOf(free, nfree);
+			if (nfree >= 2) {
+				System.arraycopy(free, 0, swappable, nswappable, nfree);
+				nswappable += nfree;
+			}
+		}
+		swappable = Arrays.copyOf(swappable, nswappable);
+
+		// the first fill (without a search) gives the starting point of getProgress()
+		Annealer	first = new Annealer(0);
+
+		if (!first.fill())	return false;
+		best = first.grid.clone();
+		bestConflicts = startConflicts = first.conflicts;
+		return true;
+	}
+
+	/*	placeHiddenSingles() sets each value that has only one candidate cell in a
+		row, column, or region, and returns true if it set any.  The candidates are
+		not updated in between, so a value that would conflict with one set earlier
+		in the same pass is left for the next pass.
+	 */
+	private boolean placeHiddenSingles(SudokuPuzzle copy)
+	{
+		int[]		counts = new int[size + 1];
+		int			cell;
+		boolean		placed = false;
+
+		for (SudokuPuzzle.RegionType type : SudokuPuzzle.RegionType.values()) {
+			for (int unit = 0; unit < size; unit++) {
+				copy.countRegionCandidateOccurences(type, unit, counts);
+				for (int value = 1; value <= size; value++) {
+					if (counts[value] != 1)	continue;
+					cell = copy.findCandidateCell(value, type, unit);
+					if (cell < 0 || copy.getCellValue(cell / size, cell % size) != SudokuPuzzle.EMPTY_CELL)	continue;
+					copy.setCellValue(cell / size, cell % size, value);
+					if (copy.isCellInConflict(cell / size, cell % size))	copy.setCellValue(cell / size, cell % size, SudokuPuzzle.EMPTY_CELL);
+					else placed = true;
+				}
+			}
+		}
+		return placed;
+	}
+
+	// checks a best assignment with no conflicts on a copy of the puzzle
+	private BacktrackingSolver.Status check()
+	{
+		SudokuPuzzle	copy = new SudokuPuzzle(size);
+		int[][]			values = new int[size][size], regions = new int[size][size];
+
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				values[row][col] = best[row*size + col];
+				regions[row][col] = puzzle.getCellRegionIdx(row, col);
+			}
+		}
+		if (copy.setCellRegions(regions) == SudokuPuzzle.NO_ERR && copy.setAllCells(values) == SudokuPuzzle.NO_ERR && copy.isSolved()) {
+			return BacktrackingSolver.Status.SOLVED;
+		}
+		System.err.println("LocalSearchSolver.solve(): assignment with no conflicts is not a solution");
+		bestConflicts = Math.max(1, copy.getConflictCount());
+		return BacktrackingSolver.Status.BUDGET_EXCEEDED;
+	}
+
+	// offers an assignment found by a search
+	private synchronized void offer(int[] grid, int conflicts)
+	{
+		if (conflicts < bestConflicts) {
+			System.arraycopy(grid, 0, best, 0, ncells);
+			bestConflicts = conflicts;
+		}
+	}
+
+	private synchronized void addMoves(long n)
+	{
+		moves += n;
+	}
+
+	// returns the number of conflicts of the best assignment found by the last solve() (0 = solved)
+	public synchronized int getConflicts()
+	{
+		return bestConflicts;
+	}
+
+	// returns the number of swaps tried by all of the searches of the last solve()
+	public synchronized long getNodeCount()
+	{
+		return moves;
+	}
+
+	// returns the fraction of the first fill's conflicts that the best assignment removed
+	public synchronized double getProgress()
+	{
+		if (best == null)	return 0;
+		return (startConflicts == 0) ? 1.0 : 1.0 - (double)bestConflicts / startConflicts;
+	}
+
+	/** copyBestTo() sets the value of every empty cell in puzzle from the best
+		assignment found by the last solve() (a solution if it returned SOLVED, or
+		the one with the fewest conflicts so far).  Returns NO_ERR, NOT_FOUND, or
+		PARAM_ERR.
+	 */
+	public synchronized int copyBestTo(SudokuPuzzle puzzle)
+	{
+		if (best == null)	return SudokuPuzzle.NOT_FOUND;
+		if (puzzle.getSize() != size)	return SudokuPuzzle.PARAM_ERR;
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				if (puzzle.getCellValue(row, col) == SudokuPuzzle.EMPTY_CELL)	puzzle.setCellValue(row, col, best[row*size + col]);
+			}
+		}
+		return SudokuPuzzle.NO_ERR;
+	}
+
+	/*	Annealer is one search:  an assignment, the value counts of its rows and
+		columns, and a random number generator.
+	 */
+	private final class Annealer
+	{
+		final int[]		grid = new int[ncells];
+		final int[]		rowCounts = new int[size*(size + 1)];	// [row*(size+1) + value]
+		final int[]		colCounts = new int[size*(size + 1)];
+		int				conflicts;
+		long			random;
+
+		Annealer(long seed)
+		{
+			random = seed;
+		}
+
+		// returns a random number from 0 to n-1
+		int nextInt(int n)
+		{
+			random += 0x9E3779B97F4A7C15L;
+			return (int)(((TranspositionTable.mix(random) >>> 33) * n) >>> 31);
+		}
+
+		double nextDouble()
+		{
+			random += 0x9E3779B97F4A7C15L;
+			return (TranspositionTable.mix(random) >>> 11) * 0x1.0p-53;
+		}
+
+		/** fill() fills each region's free cells with a random permutation of its
+			missing values in which every cell gets one of its candidates (a matching
+			of cells and values).  Returns false if there is no such permutation for
+			some region, so the puzzle has no solution.
+		 */
+		boolean fill()
+		{
+			boolean[]	present = new boolean[size + 1];
+			boolean[]	visited = new boolean[size];
+			int[]		missing = new int[size], owner = new int[size];
+			int			n, j, t;
+
+			System.arraycopy(start, 0, grid, 0, ncells);
+			for (int rgn = 0; rgn < size; rgn++) {
+				int[]	free = regionFree[rgn];
+
+				if (free.length == 0)	continue;
+				Arrays.fill(present, false);
+				for (int i = 0; i < size; i++) {
+					present[start[puzzle.getRegionCell(SudokuPuzzle.RegionType.OTHER, rgn, i)]] = true;
+				}
+				n = 0;
+				for (int value = 1; value <= size; value++) {
+					if (!present[value])	missing[n++] = value;
+				}
+				for (int i = n - 1; i > 0; i--) {
+					j = nextInt(i + 1);
+					t = missing[i];
+					missing[i] = missing[j];
+					missing[j] = t;
+				}
+				Arrays.fill(owner, 0, n, -1);
+				for (int i = 0; i < n; i++) {
+					Arrays.fill(visited, 0, n, false);
+					if (!match(free, i, missing, n, owner, visited))	return false;
+				}
+				for (int k = 0; k < n; k++)	grid[free[owner[k]]] = missing[k];
+			}
+
+			Arrays.fill(rowCounts, 0);
+			Arrays.fill(colCounts, 0);
+			conflicts = 0;
+			for (int cell = 0; cell < ncells; cell++) {
+				if (rowCounts[(cell / size)*(size + 1) + grid[cell]]++ > 0)	++conflicts;
+				if (colCounts[(cell % size)*(size + 1) + grid[cell]]++ > 0)	++conflicts;
+			}
+			return true;
+		}
+
+		// gives free[i] a missing value (owner[k] is the cell given missing[k]), moving others along an augmenting path
+		boolean match(int[] free, int i, int[] missing, int n, int[] owner, boolean[] visited)
+		{
+			int		base = free[i]*(size + 1);
+
+			for (int k = 0; k < n; k++) {
+				if (visited[k] || !allowed[base + missing[k]])	continue;
+				visited[k] = true;
+				if (owner[k] < 0 || match(free, owner[k], missing, n, owner, visited)) {
+					owner[k] = i;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		// returns the change in conflicts if cells a and b (in the same region) swapped values
+		int delta(int a, int b)
+		{
+			int		x = grid[a], y = grid[b], d = 0, ra, rb, ca, cb;
+
+			ra = (a / size)*(size + 1);
+			rb = (b / size)*(size + 1);
+			if (ra != rb) {
+				// x leaves row a and y arrives, and the other way around in row b
+				d += ((rowCounts[ra + y] > 0) ? 1 : 0) - ((rowCounts[ra + x] > 1) ? 1 : 0);
+				d += ((rowCounts[rb + x] > 0) ? 1 : 0) - ((rowCounts[rb + y] > 1) ? 1 : 0);
+			}
+			ca = (a % size)*(size + 1);
+			cb = (b % size)*(size + 1);
+			if (ca != cb) {
+				d += ((colCounts[ca + y] > 0) ? 1 : 0) - ((colCounts[ca + x] > 1) ? 1 : 0);
+				d += ((colCounts[cb + x] > 0) ? 1 : 0) - ((colCounts[cb + y] > 1) ? 1 : 0);
+			}
+			return d;
+		}
+
+		void swap(int a, int b, int d)
+		{
+			int		x = grid[a], y = grid[b], ra, rb, ca, cb;
+
+			ra = (a / size)*(size + 1);
+			rb = (b / size)*(size + 1);
+			--rowCounts[ra + x];	++rowCounts[ra + y];
+			--rowCounts[rb + y];	++rowCounts[rb + x];
+			ca = (a % size)*(size + 1);
+			cb = (b % size)*(size + 1);
+			--colCounts[ca + x];	++colCounts[ca + y];
+			--colCounts[cb + y];	++colCounts[cb + x];
+			grid[a] = y;
+			grid[b] = x;
+			conflicts += d;
+		}
+
+		/** pick() picks a random swap of two free cells of a region, returning one
+			cell and storing the other in pair[0].  The first cell is one with a
+			conflict if one of FOCUS_TRIES random cells has one, so that most swaps
+			tried can remove a conflict.
+		 */
+		int pick(int[] pair)
+		{
+			int[]	free;
+			int		a, j;
+
+			a = swappable[nextInt(swappable.length)];
+			for (int t = 1; t < FOCUS_TRIES && rowCounts[(a / size)*(size + 1) + grid[a]] < 2 && colCounts[(a % size)*(size + 1) + grid[a]] < 2; t++) {
+				a = swappable[nextInt(swappable.length)];
+			}
+			free = regionFree[cellRegion[a]];
+			do {
+				j = nextInt(free.length);
+			} while (free[j] == a);
+			pair[0] = free[j];
+			return a;
+		}
+
+		/** run() anneals until there are no conflicts or the budget is exhausted
+			(offering its best assignments to the solver), and returns the fewest
+			conflicts it reached.
+		 */
+		int run(SolveBudget budget)
+		{
+			int[]	pair = new int[1];
+			int		roundMoves = 0, a, b, d, fewest, restartFewest, heatFewest, roundFewest, stalled, reheats;
+			long	tried = 0;
+			double	temperature, initial, sum, sumSquares;
+
+			for (int rgn = 0; rgn < size; rgn++) {
+				if (regionFree[rgn].length >= 2)	roundMoves += regionFree[rgn].length*regionFree[rgn].length;
+			}
+			roundMoves = Math.max(roundMoves / 2, 1);
+			fewest = Integer.MAX_VALUE;
+			try {
+				while (true) {
+					// a new random fill, starting at the standard deviation of the change of random swaps
+					fill();
+					offer(grid, conflicts);
+					fewest = Math.min(fewest, conflicts);
+					if (conflicts == 0 || swappable.length == 0)	return conflicts;
+					sum = sumSquares = 0;
+					for (int i = 0; i < SAMPLE_MOVES; i++) {
+						d = delta(pick(pair), pair[0]);
+						sum += d;
+						sumSquares += (double)d*d;
+					}
+					initial = Math.max(0.5, Math.sqrt(Math.max(0, sumSquares / SAMPLE_MOVES - (sum / SAMPLE_MOVES)*(sum / SAMPLE_MOVES))));
+					temperature = initial;
+					restartFewest = heatFewest = conflicts;
+					stalled = reheats = 0;
+
+					while (reheats < REHEATS) {
+						roundFewest = heatFewest;
+						for (int m = 0; m < roundMoves; m++) {
+							a = pick(pair);
+							b = pair[0];
+							d = delta(a, b);
+							if (d <= 0 || nextDouble() < Math.exp(-d / temperature)) {
+								swap(a, b, d);
+								if (conflicts < heatFewest) {
+									heatFewest = conflicts;
+									if (conflicts == 0) {
+										offer(grid, 0);
+										return 0;
+									}
+								}
+							}
+							if ((++tried & (CHECK_INTERVAL - 1)) == 0 && (tried >= budget.getMaxNodes() || budget.check()))	return Math.min(fewest, heatFewest);
+						}
+						offer(grid, conflicts);
+						temperature *= COOLING;
+						if (heatFewest < roundFewest) {
+							stalled = 0;
+						}
+						else if (++stalled >= STALL_ROUNDS) {
+							// stuck:  heat part of the way back up, or start over if the last few heats didn't get any further
+							if (heatFewest < restartFewest) {
+								restartFewest = heatFewest;
+								reheats = 0;
+							}
+							else ++reheats;
+							fewest = Math.min(fewest, heatFewest);
+							temperature = initial*REHEAT;
+							heatFewest = conflicts;
+							stalled = 0;
+						}
+					}
+				}
+			}
+			finally {
+				addMoves(tried);
+			}
+		}
+	}
+}
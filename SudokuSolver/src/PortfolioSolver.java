@@ -0,0 +1,355 @@
+/*	PortfolioSolver.java
+
+	Solves puzzles by racing several methods and taking the first answer, since no
+	one method is fastest on every puzzle:  singles are all an easy puzzle needs,
+	while a hard one needs a search, and two searches that branch in different
+	orders can take very different times on the same puzzle.
+
+	solve() first runs singles (recalculateAllCandidates() and
+	acceptSingleCandidateSolutions() until nothing changes) on the calling thread,
+	on a copy of the puzzle, for at most a short budget.  If that doesn't finish
+	the puzzle, it escalates:  BacktrackingSolvers in the normal and reverse order
+	(see setReverseOrder()) start from the cells placed so far, each on its own
+	thread, and the first one to give an answer wins.  The others are cancelled
+	through a shared SolveBudget, and solve() waits for them to stop so that their
+	solvers can be reused.  For puzzles of size 16 and up, the searches share one
+	TranspositionTable, so dead ends found by one are skipped by the other.
+
+	The singles budget is learned for each size from the times singles took on
+	the puzzles it did finish:  twice their 95th percentile, so that singles gets
+	time to finish the puzzles it can, and the rest escalate early instead of
+	adding the whole budget to the tail.  If singles finishes fewer than 1 in 50
+	puzzles of a size, it is skipped for that size except for every EXPLORE_INTERVAL
+	puzzles, which keep the statistics current.  Puzzles with killer cages go
+	straight to the searches (singles doesn't use cages).
+
+	A budget given to solve() applies to the whole solve:  its deadline and
+	cancellation to every method, and its node limit to each search separately.
+	An instance is NOT thread-safe (use one per calling thread);  its search
+	threads are daemons that are stopped by shutdown().
+
+	Typical use:
+
+		portfolio.load(puzzle);
+		status = portfolio.solve(SolveBudget.millis(100));
+		if (status == BacktrackingSolver.Status.SOLVED)  portfolio.copySolutionTo(puzzle);
+
+	October 19, 2026
+ */
+
+import java.util.*;
+import java.util.concurrent.*;
+
+
+public final class PortfolioSolver
+{
+	public static final int		MAX_ENGINES = 2;			// searches in the normal and reverse order
+	public static final String	SINGLES = "singles";
+
+	private static final String[]	ENGINE_NAMES = { "forward", "reverse" };
+	private static final int	TABLE_MIN_SIZE = 16;			// smallest size that shares a table
+	private static final long	DEFAULT_SINGLES_NANOS = 2000000L;	// before anything is learned
+	private static final long	MIN_SINGLES_NANOS = 20000L;
+	private static final long	MAX_SINGLES_NANOS = 50000000L;
+	private static final int	SAMPLES = 128;					// recent singles times kept per size
+	private static final int	MIN_SAMPLES = 16;				// before which the default budget is used
+	private static final int	SKIP_RATIO = 50;				// skip singles if it finishes fewer than 1 in this many
+	private static final int	EXPLORE_INTERVAL = 32;
+	private static final int	DECAY_INTERVAL = 1024;			// tries after which the success counts are halved
+
+	private final int					engineCount;
+	private final BacktrackingSolver[]	engines;
+	private final ExecutorService		threads;
+	private final TranspositionTable	table = new TranspositionTable();
+	private final SizeStats[]			stats = new SizeStats[BacktrackingSolver.MAX_SIZE + 1];
+	private final SudokuPuzzle[]		scratch = new SudokuPuzzle[BacktrackingSolver.MAX_SIZE + 1];	// singles copies
+
+	// the loaded puzzle and the results of the last solve()
+	private SudokuPuzzle				puzzle;
+	private int[]						solution;
+	private int							winner;			// -1 = none, 0 = singles, 1 + engine index
+	private boolean						solutionFound;
+	private BacktrackingSolver.Grade	grade;
+	private long						nodes;
+	private double						progress;
+
+
+	// races MAX_ENGINES searches
+	public PortfolioSolver()
+	{
+		this(MAX_ENGINES);
+	}
+
+	// races the first 'engines' (1 to MAX_ENGINES) of the searches
+	public PortfolioSolver(int engines)
+	{
+		engineCount = Math.max(1, Math.min(engines, MAX_ENGINES));
+		this.engines = new BacktrackingSolver[engineCount];
+		for (int i = 0; i < engineCount; i++) {
+			this.engines[i] = new BacktrackingSolver();
+			this.engines[i].setReverseOrder(i == 1);
+		}
+		threads = Executors.newFixedThreadPool(engineCount, new ThreadFactory() {
+			public Thread newThread(Runnable r)
+			{
+				Thread	t = new Thread(r, "PortfolioSolver");
+
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	// stops the search threads;  the solver can't be used afterwards
+	public void shutdown()
+	{
+		threads.shutdownNow();
+	}
+
+	/** load() makes puzzle the one that solve() solves (it is not changed by
+		solve()).  Returns NO_ERR, or PARAM_ERR if BacktrackingSolver doesn't support
+		it.
+	 */
+	public int load(SudokuPuzzle puzzle)
+	{
+		if (puzzle.getSize() > BacktrackingSolver.MAX_SIZE || PuzzleTopology.forPuzzle(puzzle) == null) {
+			System.err.printf("PortfolioSolver.load(): unsupported puzzle, size=%d\n", puzzle.getSize());
+			this.puzzle = null;
+			return SudokuPuzzle.PARAM_ERR;
+		}
+		this.puzzle = puzzle;
+		winner = -1;
+		solutionFound = false;
+		return SudokuPuzzle.NO_ERR;
+	}
+
+	/** solve() looks for 2 solutions of the loaded puzzle within budget (which may
+		be null), as BacktrackingSolver.solve(SolveBudget) does, and returns the
+		first answer found by any method.
+	 */
+	public BacktrackingSolver.Status solve(SolveBudget budget)
+	{
+		SizeStats		sizeStats;
+		SudokuPuzzle	source;
+		CompactPuzzle	compact;
+		long			start = System.nanoTime(), limit, deadline;
+		int				size;
+		boolean			solved;
+
+		winner = -1;
+		solutionFound = false;
+		grade = BacktrackingSolver.Grade.INVALID;
+		nodes = 0;
+		progress = 0;
+		if (puzzle == null)	return BacktrackingSolver.Status.UNSOLVABLE;
+		if (budget == null)	budget = SolveBudget.unlimited();
+		size = puzzle.getSize();
+		if (solution == null || solution.length < size*size)	solution = new int[size*size];
+		if (stats[size] == null)	stats[size] = new SizeStats();
+		sizeStats = stats[size];
+		++sizeStats.puzzles;
+
+		// singles, on a copy
+		source = puzzle;
+		limit = Math.min(sizeStats.singlesBudget(), budget.getRemainingNanos());
+		if (puzzle.getCageCount() == 0 && limit > 0 && (compact = CompactPuzzle.fromPuzzle(puzzle)) != null) {
+			if (scratch[size] == null)	scratch[size] = new SudokuPuzzle(size);
+			source = scratch[size];
+			compact.copyTo(source);
+			deadline = start + limit;
+			do {
+				source.recalculateAllCandidates();
+			} while (source.acceptSingleCandidateSolutions() && System.nanoTime() < deadline && !budget.isCancelled());
+			solved = source.isSolved();
+			sizeStats.recordSingles(solved, System.nanoTime() - start);
+			if (solved) {
+				for (int cell = 0; cell < size*size; cell++)	solution[cell] = source.getCellValue(cell / size, cell % size);
+				winner = 0;
+				solutionFound = true;
+				++sizeStats.wins[0];
+				grade = BacktrackingSolver.Grade.EASY;
+				progress = 1.0;
+				return BacktrackingSolver.Status.SOLVED;
+			}
+		}
+		return race(source, budget, sizeStats);
+	}
+
+	// runs the searches on source and returns the first answer
+	private BacktrackingSolver.Status race(SudokuPuzzle source, final SolveBudget budget, SizeStats sizeStats)
+	{
+		final SolveBudget						raceBudget = new SolveBudget(budget.getRemainingNanos(), budget.getMaxNodes());
+		CompletionService<Integer>				done = new ExecutorCompletionService<Integer>(threads);
+		final BacktrackingSolver.Status[]		results = new BacktrackingSolver.Status[engineCount];
+		BacktrackingSolver.Status				status = null;
+		Future<Integer>							finished;
+		int										running = 0, i;
+
+		for (i = 0; i < engineCount; i++) {
+			final int	index = i;
+
+			engines[i].setTranspositionTable((source.getSize() >= TABLE_MIN_SIZE) ? table : null);
+			if (engines[i].load(source) != SudokuPuzzle.NO_ERR)	return BacktrackingSolver.Status.UNSOLVABLE;
+			done.submit(new Callable<Integer>() {
+				public Integer call()
+				{
+					results[index] = engines[index].solve(raceBudget);
+					return index;
+				}
+			});
+			++running;
+		}
+
+		// take the first answer, passing on a cancellation of the caller's budget
+		try {
+			while (running > 0) {
+				finished = done.poll(1, TimeUnit.MILLISECONDS);
+				if (finished == null) {
+					if (budget.isCancelled())	raceBudget.cancel();
+					continue;
+				}
+				--running;
+				i = finished.get();
+				if (status == null && results[i] != BacktrackingSolver.Status.BUDGET_EXCEEDED && results[i] != BacktrackingSolver.Status.CANCELLED) {
+					status = results[i];
+					winner = 1 + i;
+					++sizeStats.wins[winner];
+					raceBudget.cancel();
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			raceBudget.cancel();
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+
+		for (i = 0; i < engineCount; i++)	nodes += engines[i].getNodeCount();
+		if (status == null) {
+			for (i = 0; i < engineCount; i++)	progress = Math.max(progress, engines[i].getProgress());
+			return budget.isCancelled() ? BacktrackingSolver.Status.CANCELLED : BacktrackingSolver.Status.BUDGET_EXCEEDED;
+		}
+		solutionFound = (engines[winner - 1].getSolution(solution) == SudokuPuzzle.NO_ERR);
+		grade = engines[winner - 1].getGrade();
+		progress = 1.0;
+		return status;
+	}
+
+	// returns the method that gave the last answer ("singles", "forward", or "reverse"), or null
+	public String getWinner()
+	{
+		if (winner < 0)	return null;
+		return (winner == 0) ? SINGLES : ENGINE_NAMES[winner - 1];
+	}
+
+	// returns the grade of the last answer (EASY if singles finished it)
+	public BacktrackingSolver.Grade getGrade()
+	{
+		return grade;
+	}
+
+	// returns the number of branches tried by all of the searches of the last solve()
+	public long getNodeCount()
+	{
+		return nodes;
+	}
+
+	// returns the furthest progress of the searches if the last solve() ran out of budget (see BacktrackingSolver.getProgress())
+	public double getProgress()
+	{
+		return progress;
+	}
+
+	// sets the value of every empty cell in puzzle from the solution found by the last solve() (as SOLVED)
+	public int copySolutionTo(SudokuPuzzle puzzle)
+	{
+		int		size = puzzle.getSize();
+
+		if (!solutionFound)	return SudokuPuzzle.NOT_FOUND;
+		if (this.puzzle == null || size != this.puzzle.getSize())	return SudokuPuzzle.PARAM_ERR;
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				if (puzzle.getCellValue(row, col) == SudokuPuzzle.EMPTY_CELL)	puzzle.setCellValue(row, col, solution[row*size + col]);
+			}
+		}
+		return SudokuPuzzle.NO_ERR;
+	}
+
+	// copies the solution found by the last solve() into buf (indexed by row*size + col)
+	public int getSolution(int[] buf)
+	{
+		if (!solutionFound)	return SudokuPuzzle.NOT_FOUND;
+		if (buf.length < puzzle.getSize()*puzzle.getSize())	return SudokuPuzzle.PARAM_ERR;
+		System.arraycopy(solution, 0, buf, 0, puzzle.getSize()*puzzle.getSize());
+		return SudokuPuzzle.NO_ERR;
+	}
+
+	// returns the singles budget currently used for a size, in nanoseconds (0 = skipped)
+	public long getSinglesBudget(int size)
+	{
+		return (stats[size] != null) ? stats[size].budgetNanos : DEFAULT_SINGLES_NANOS;
+	}
+
+	// returns a line for each size solved, with the number of puzzles, the wins of each method, and the singles budget
+	public String report()
+	{
+		StringBuilder	str = new StringBuilder();
+
+		for (int size = 1; size < stats.length; size++) {
+			if (stats[size] == null)	continue;
+			str.append(String.format(Locale.ROOT, "%dx%d: %d puzzles, %s %d", size, size, stats[size].puzzles, SINGLES, stats[size].wins[0]));
+			for (int i = 0; i < engineCount; i++)	str.append(", ").append(ENGINE_NAMES[i]).append(' ').append(stats[size].wins[1 + i]);
+			str.append(String.format(Locale.ROOT, ", singles budget %.3f ms%s\n", stats[size].budgetNanos / 1e6, stats[size].skipping() ? " (skipped)" : ""));
+		}
+		return str.toString();
+	}
+
+	/*	SizeStats holds what has been learned about the puzzles of one size.
+	 */
+	private static final class SizeStats
+	{
+		final long[]	singlesNanos = new long[SAMPLES];	// recent times of singles runs that finished
+		final long[]	sorted = new long[SAMPLES];
+		int				samples, next;
+		int				tries, finished;					// recent singles runs
+		long			puzzles;
+		final long[]	wins = new long[1 + MAX_ENGINES];	// singles, then each search
+		long			budgetNanos = DEFAULT_SINGLES_NANOS;
+
+		// returns true if singles rarely finishes puzzles of this size
+		boolean skipping()
+		{
+			return tries >= MIN_SAMPLES && finished*SKIP_RATIO < tries;
+		}
+
+		// returns the time to give singles on the next puzzle (0 = skip it)
+		long singlesBudget()
+		{
+			if (skipping() && puzzles % EXPLORE_INTERVAL != 0)	return 0;
+			return budgetNanos;
+		}
+
+		void recordSingles(boolean solved, long nanos)
+		{
+			int		p95;
+
+			if (++tries > DECAY_INTERVAL) {
+				tries /= 2;
+				finished /= 2;
+			}
+			if (!solved)	return;
+			++finished;
+			singlesNanos[next] = nanos;
+			next = (next + 1) % SAMPLES;
+			if (samples < SAMPLES)	++samples;
+			if (samples < MIN_SAMPLES)	return;
+
+			System.arraycopy(singlesNanos, 0, sorted, 0, samples);
+			Arrays.sort(sorted, 0, samples);
+			p95 = Math.min(samples - 1, (int)Math.ceil(samples*0.95) - 1);
+			budgetNanos = Math.max(MIN_SINGLES_NANOS, Math.min(MAX_SINGLES_NANOS, 2*sorted[p95]));
+		}
+	}
+}
@@ -0,0 +1,557 @@
+/*	PuzzleCanonicalizer.java
+
+	Finds the canonical form of a puzzle:  one member of its isomorphism class that
+	is the same for every member of the class, so that two puzzles are the same
+	puzzle "in disguise" exactly when their canonical forms are equal.
+
+	For sizes with box regions (see SudokuPuzzle.regionBoxWidths), the symmetries are
+	the ones that map boxes to boxes:
+
+		- permuting the bands (rows of boxes) and the rows within each band
+		- permuting the stacks (columns of boxes) and the columns within each stack
+		- transposing, when the boxes are square
+		- relabeling the digits
+
+	The canonical form is the least member of the class as a row-major string with
+	0 for empty cells, with the digits labeled in order of first appearance (as in
+	"minlex" forms).  For other sizes only relabeling is used.
+
+	The search chooses the output rows one at a time, level by level:  each level
+	keeps only the partial arrangements whose rows so far are the least found, and
+	tries each row that may come next in each of them.  Columns are not chosen up
+	front:  they are kept in ordered classes that are still interchangeable (equal
+	in every row chosen so far), and each new row only sorts within those classes,
+	splitting them where the values differ.  So the many arrangements of empty
+	columns are never enumerated.
+
+	Digits that appear for the first time in a row are ordered by a profile that no
+	symmetry changes (see rankDigits()), and only cells whose digits have equal
+	profiles are branched on, since their order decides the labels.  Because of
+	this the form is not always the least member of the class, but it is the same
+	for every member.  Identical rows in a band are only tried once.
+
+	Puzzles with many symmetries of their own (e.g. a grid built from a pattern)
+	can have more equal arrangements than are worth keeping.  If a level has more
+	than MAX_ARRANGEMENTS, the search gives up and canonicalize() returns NOT_FOUND
+	with the puzzle only relabeled:  still a member of the class, so equal results
+	still mean equal classes, but other members may give other results.  Since
+	the number of arrangements is the same for every member, they all give up.
+
+	A canonicalizer keeps its scratch arrays for one size and is not thread-safe;
+	use one per thread.
+
+	October 19, 2026
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+public final class PuzzleCanonicalizer
+{
+	public static final int		MAX_ARRANGEMENTS = 1 << 16;		// equal partial arrangements kept at one level
+
+	private final int		size, ncells;
+	private final int		bandHeight, stackWidth;		// 0 if the size has no box regions
+	private final int		nstacks;
+	private final boolean	transposable;
+	private final int		NEW;						// keys of digits that have no label yet start here
+
+	private final int[]		grid, transposed;			// the sources of the rows
+	private final int[]		best;						// the least rows found, row-major
+	private boolean			haveBest;					// true once the current row of best is set
+	private long			arrangements;				// number with the current row of best (kept or not)
+
+	// the partial arrangements being extended, the ones for the next row, and unused ones
+	private List<Node>			frontier = new ArrayList<Node>();
+	private List<Node>			nextLevel = new ArrayList<Node>();
+	private final List<Node>	free = new ArrayList<Node>();
+
+	// the row being tried:  its sorted column order and classes, keys, and values
+	private final int[]		order, keys, values;
+	private final boolean[]	colTied, stackTied;
+	private final int[]		runStarts, runLengths;		// runs of cells (or -1 - slot for stacks) to branch on
+	private int				runCount;
+
+	private final int[]		ranks;						// rank of each digit's profile
+	private final long[]	profiles;
+	private final int[]		boxCounts, bandCounts, stackCounts;
+	private final int[]		rowPairs, colPairs;			// [d*(size+1) + e]:  row or column segments of a box with both digits
+
+
+	public PuzzleCanonicalizer(int size)
+	{
+		this.size = size;
+		ncells = size*size;
+		if (size < SudokuPuzzle.regionBoxWidths.length && SudokuPuzzle.regionBoxWidths[size] != 0) {
+			stackWidth = SudokuPuzzle.regionBoxWidths[size];
+			bandHeight = SudokuPuzzle.regionBoxHeights[size];
+		}
+		else {
+			stackWidth = bandHeight = 0;
+		}
+		nstacks = (stackWidth > 0) ? size / stackWidth : 0;
+		transposable = (stackWidth > 0 && stackWidth == bandHeight);
+		NEW = size + 1;
+
+		grid = new int[ncells];
+		transposed = new int[ncells];
+		best = new int[ncells];
+		order = new int[size];
+		keys = new int[size];
+		values = new int[size];
+		colTied = new boolean[size];
+		stackTied = new boolean[nstacks];
+		runStarts = new int[size];
+		runLengths = new int[size];
+		ranks = new int[size + 1];
+		profiles = new long[size + 1];
+		boxCounts = new int[size];
+		bandCounts = new int[size];
+		stackCounts = new int[size];
+		rowPairs = new int[(size + 1)*(size + 1)];
+		colPairs = new int[(size + 1)*(size + 1)];
+	}
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	// returns true if more symmetries than relabeling are used for this size
+	public boolean hasBoxSymmetries()
+	{
+		return stackWidth > 0;
+	}
+
+	/** canonicalize() stores the canonical form of cells (values indexed by
+		row*size + col, 0 for empty) in result, which may be the same array.
+		Returns NO_ERR, NOT_FOUND if the search gave up (see above), or PARAM_ERR.
+	 */
+	public int canonicalize(int[] cells, int[] result)
+	{
+		List<Node>	t;
+
+		if (cells.length < ncells || result.length < ncells) {
+			System.err.printf("PuzzleCanonicalizer.canonicalize(): arrays must have %d cells\n", ncells);
+			return SudokuPuzzle.PARAM_ERR;
+		}
+		for (int cell = 0; cell < ncells; cell++) {
+			if (cells[cell] < 0 || cells[cell] > size) {
+				System.err.printf("PuzzleCanonicalizer.canonicalize(): cell value is out of range, value=%d\n", cells[cell]);
+				return SudokuPuzzle.PARAM_ERR;
+			}
+		}
+
+		if (stackWidth == 0) {
+			relabel(cells, result);
+			return SudokuPuzzle.NO_ERR;
+		}
+		System.arraycopy(cells, 0, grid, 0, ncells);
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++)	transposed[col*size + row] = grid[row*size + col];
+		}
+		rankDigits();
+
+		frontier.add(start(grid));
+		if (transposable)	frontier.add(start(transposed));
+		for (int depth = 0; depth < size; depth++) {
+			haveBest = false;
+			arrangements = 0;
+			for (Node node : frontier)	extend(node, depth);
+			free.addAll(frontier);
+			frontier.clear();
+			t = frontier;
+			frontier = nextLevel;
+			nextLevel = t;
+			if (arrangements > MAX_ARRANGEMENTS) {
+				free.addAll(frontier);
+				frontier.clear();
+				relabel(cells, result);
+				return SudokuPuzzle.NOT_FOUND;
+			}
+		}
+		free.addAll(frontier);
+		frontier.clear();
+		System.arraycopy(best, 0, result, 0, ncells);
+		return SudokuPuzzle.NO_ERR;
+	}
+
+	// labels the digits in order of first appearance (the only symmetry for sizes without boxes)
+	private void relabel(int[] cells, int[] result)
+	{
+		int[]	label = new int[size + 1];
+		int		next = 1, v;
+
+		for (int cell = 0; cell < ncells; cell++) {
+			v = cells[cell];
+			if (v != 0 && label[v] == 0)	label[v] = next++;
+			result[cell] = (v != 0) ? label[v] : 0;
+		}
+	}
+
+	/** rankDigits() ranks the digits by a profile that no symmetry changes:  how
+		many times the digit appears in each box, band, and stack, and how many
+		times it shares a row or column within a box with each other digit, each as
+		a sorted list.  (Transposing swaps the row and column halves.)
+	 */
+	private void rankDigits()
+	{
+		int		nbands = size / bandHeight, v, w, row, col;
+		long	box, rowSide, colSide;
+
+		Arrays.fill(rowPairs, 0);
+		Arrays.fill(colPairs, 0);
+		for (int cell = 0; cell < ncells; cell++) {
+			if ((v = grid[cell]) == 0)	continue;
+			row = cell / size;
+			col = cell % size;
+			for (int c = col + 1; c < (col / stackWidth + 1)*stackWidth; c++) {
+				if ((w = grid[row*size + c]) == 0)	continue;
+				++rowPairs[v*(size + 1) + w];
+				++rowPairs[w*(size + 1) + v];
+			}
+			for (int r = row + 1; r < (row / bandHeight + 1)*bandHeight; r++) {
+				if ((w = grid[r*size + col]) == 0)	continue;
+				++colPairs[v*(size + 1) + w];
+				++colPairs[w*(size + 1) + v];
+			}
+		}
+
+		for (int d = 1; d <= size; d++) {
+			Arrays.fill(boxCounts, 0);
+			Arrays.fill(bandCounts, 0);
+			Arrays.fill(stackCounts, 0);
+			for (int cell = 0; cell < ncells; cell++) {
+				if (grid[cell] != d)	continue;
+				row = cell / size;
+				col = cell % size;
+				++boxCounts[(row / bandHeight)*nstacks + col / stackWidth];
+				++bandCounts[row / bandHeight];
+				++stackCounts[col / stackWidth];
+			}
+			box = profile(boxCounts, 0, size);
+			rowSide = TranspositionTable.mix(profile(bandCounts, 0, nbands)*31 + profile(rowPairs, d*(size + 1) + 1, size));
+			colSide = TranspositionTable.mix(profile(stackCounts, 0, nstacks)*31 + profile(colPairs, d*(size + 1) + 1, size));
+			if (transposable && rowSide > colSide) {
+				// transposing swaps the two sides
+				profiles[d] = TranspositionTable.mix(TranspositionTable.mix(box*31 + colSide)*31 + rowSide);
+			}
+			else {
+				profiles[d] = TranspositionTable.mix(TranspositionTable.mix(box*31 + rowSide)*31 + colSide);
+			}
+		}
+		for (int d = 1; d <= size; d++) {
+			ranks[d] = 0;
+			for (int e = 1; e <= size; e++) {
+				if (profiles[e] < profiles[d])	++ranks[d];
+			}
+		}
+	}
+
+	// returns a hash of counts[from] to counts[from+n-1] in sorted order (sorting them in place)
+	private static long profile(int[] counts, int from, int n)
+	{
+		long	h = 0;
+
+		Arrays.sort(counts, from, from + n);
+		for (int i = from; i < from + n; i++)	h = TranspositionTable.mix(h*31 + counts[i]);
+		return h;
+	}
+
+	// returns the arrangement with no rows chosen:  the columns of each stack and all of the stacks are interchangeable
+	private Node start(int[] source)
+	{
+		Node	node = newNode();
+
+		for (int p = 0; p < size; p++) {
+			node.order[p] = p;
+			node.colTied[p] = (p % stackWidth != 0);
+		}
+		for (int j = 0; j < nstacks; j++)	node.stackTied[j] = (j != 0);
+		Arrays.fill(node.labels, 0);
+		node.nextLabel = 1;
+		node.usedRows = 0;
+		node.source = source;
+		return node;
+	}
+
+	// tries every source row that can be output row 'depth' of node
+	private void extend(Node node, int depth)
+	{
+		if (depth % bandHeight != 0) {
+			tryBand(node, depth, node.band);
+			return;
+		}
+		// start a new band
+		for (int band = 0; band < size / bandHeight; band++) {
+			if ((node.usedRows & (1L << (band*bandHeight))) == 0)	tryBand(node, depth, band);
+		}
+	}
+
+	// tries each unused row of band as output row 'depth' of node
+	private void tryBand(Node node, int depth, int band)
+	{
+		int		first = band*bandHeight;
+
+		for (int row = first; row < first + bandHeight; row++) {
+			if ((node.usedRows & (1L << row)) == 0 && !repeatsEarlierRow(node, first, row))	tryRow(node, depth, band, row);
+		}
+	}
+
+	// returns true if an unused row before 'row' in the band has the same values (and so the same results)
+	private boolean repeatsEarlierRow(Node node, int first, int row)
+	{
+		int[]	source = node.source;
+		int		col;
+
+		for (int other = first; other < row; other++) {
+			if ((node.usedRows & (1L << other)) != 0)	continue;
+			for (col = 0; col < size && source[other*size + col] == source[row*size + col]; col++)	;
+			if (col == size)	return true;
+		}
+		return false;
+	}
+
+	/** tryRow() makes source row x output row 'depth' of node:  it sorts the cells
+		within each class of interchangeable columns and stacks, and compares the
+		resulting row with the least one found at this depth.  If it is not larger,
+		each order of the cells whose digits get new labels becomes an arrangement
+		for the next level.
+	 */
+	private void tryRow(Node node, int depth, int band, int x)
+	{
+		int[]	source = node.source, label = node.labels;
+		int		v, n, cmp, next, bw = stackWidth;
+		boolean	hasNew;
+
+		System.arraycopy(node.order, 0, order, 0, size);
+		System.arraycopy(node.colTied, 0, colTied, 0, size);
+		System.arraycopy(node.stackTied, 0, stackTied, 0, nstacks);
+		for (int p = 0; p < size; p++) {
+			v = source[x*size + order[p]];
+			keys[p] = (v == 0) ? 0 : (label[v] != 0) ? label[v] : NEW + ranks[v];
+		}
+
+		// sort each class of columns by key (empty, then labeled digits, then new ones)
+		for (int p = 1; p < size; p++) {
+			for (int q = p; colTied[q] && keys[q-1] > keys[q]; q--) {
+				swap(keys, q-1, q);
+				swap(order, q-1, q);
+			}
+		}
+		// sort each class of stacks by their cells' keys
+		for (int j = 1; j < nstacks; j++) {
+			for (int k = j; stackTied[k] && compareSlots(k-1, k) > 0; k--)	swapSlots(k-1, k);
+		}
+
+		// compare the row with the least one (new digits are labeled in order)
+		next = node.nextLabel;
+		for (int p = 0; p < size; p++)	values[p] = (keys[p] < NEW) ? keys[p] : next++;
+		cmp = haveBest ? compareRow(depth) : -1;
+		if (cmp > 0)	return;
+		if (cmp < 0) {
+			System.arraycopy(values, 0, best, depth*size, size);
+			haveBest = true;
+			arrangements = 0;
+			free.addAll(nextLevel);
+			nextLevel.clear();
+		}
+		else if (arrangements > MAX_ARRANGEMENTS) {
+			return;
+		}
+
+		// split the classes where the keys differ;  runs of new digits must be branched on
+		n = 0;
+		for (int j = 1; j < nstacks; j++) {
+			if (!stackTied[j])	continue;
+			stackTied[j] = false;
+			if (compareSlots(j-1, j) != 0)	continue;
+			hasNew = false;
+			for (int p = j*bw; p < j*bw + bw; p++)	hasNew |= (keys[p] >= NEW);
+			if (!hasNew) {
+				stackTied[j] = true;
+			}
+			else if (n > 0 && runStarts[n-1] == -1 - (j - runLengths[n-1])) {
+				++runLengths[n-1];
+			}
+			else {
+				runStarts[n] = -1 - (j-1);
+				runLengths[n++] = 2;
+			}
+		}
+		for (int p = 1; p < size; p++) {
+			if (!colTied[p])	continue;
+			if (keys[p] != keys[p-1]) {
+				colTied[p] = false;
+			}
+			else if (keys[p] >= NEW) {
+				colTied[p] = false;
+				if (n > 0 && runStarts[n-1] >= 0 && runStarts[n-1] + runLengths[n-1] == p) {
+					++runLengths[n-1];
+				}
+				else {
+					runStarts[n] = p - 1;
+					runLengths[n++] = 2;
+				}
+			}
+		}
+		runCount = n;
+
+		// count the orders first, and stop keeping arrangements once there are too many
+		arrangements += countOrders();
+		if (arrangements > MAX_ARRANGEMENTS) {
+			free.addAll(nextLevel);
+			nextLevel.clear();
+			return;
+		}
+		branch(node, band, x, 0);
+	}
+
+	// returns the number of orders of the runs (at most MAX_ARRANGEMENTS + 1)
+	private long countOrders()
+	{
+		long	count = 1;
+
+		for (int i = 0; i < runCount; i++) {
+			for (int k = 2; k <= runLengths[i]; k++)	count = Math.min(count*k, MAX_ARRANGEMENTS + 1);
+		}
+		return count;
+	}
+
+	/** branch() tries every order of each run of cells (or stacks) with new digits
+		from run i on, and adds an arrangement for each one to the next level.
+		Every order gives the same row, but different labels for the rows below.
+	 */
+	private void branch(Node node, int band, int x, int i)
+	{
+		Node	child;
+		int[]	label;
+		int		v, next;
+
+		if (i < runCount) {
+			permute(node, band, x, i, 0);
+			return;
+		}
+
+		child = newNode();
+		System.arraycopy(order, 0, child.order, 0, size);
+		System.arraycopy(colTied, 0, child.colTied, 0, size);
+		System.arraycopy(stackTied, 0, child.stackTied, 0, nstacks);
+		label = child.labels;
+		System.arraycopy(node.labels, 0, label, 0, size + 1);
+		next = node.nextLabel;
+		for (int p = 0; p < size; p++) {
+			v = node.source[x*size + order[p]];
+			if (v != 0 && label[v] == 0)	label[v] = next++;
+		}
+		child.nextLabel = next;
+		child.usedRows = node.usedRows | (1L << x);
+		child.band = band;
+		child.source = node.source;
+		nextLevel.add(child);
+	}
+
+	// tries each element of run i (from position k on) in position k, by swapping
+	private void permute(Node node, int band, int x, int i, int k)
+	{
+		int		start = runStarts[i], length = runLengths[i];
+
+		if (k == length - 1) {
+			branch(node, band, x, i + 1);
+			return;
+		}
+		for (int m = k; m < length; m++) {
+			swapRunElements(start, k, m);
+			permute(node, band, x, i, k + 1);
+			swapRunElements(start, k, m);
+		}
+	}
+
+	private void swapRunElements(int start, int a, int b)
+	{
+		if (a == b)	return;
+		if (start >= 0)	swap(order, start + a, start + b);
+		else swapSlots(-1 - start + a, -1 - start + b);
+	}
+
+	// swaps the columns (with their keys and ties) of two stack slots
+	private void swapSlots(int a, int b)
+	{
+		boolean	t;
+
+		for (int k = 0; k < stackWidth; k++) {
+			swap(order, a*stackWidth + k, b*stackWidth + k);
+			swap(keys, a*stackWidth + k, b*stackWidth + k);
+			t = colTied[a*stackWidth + k];
+			colTied[a*stackWidth + k] = colTied[b*stackWidth + k];
+			colTied[b*stackWidth + k] = t;
+		}
+	}
+
+	/** compareSlots() compares the keys of two stack slots as the rows they give
+		(all new digits alike), then by the ranks of their new digits.
+	 */
+	private int compareSlots(int a, int b)
+	{
+		int		ka, kb;
+
+		for (int k = 0; k < stackWidth; k++) {
+			ka = Math.min(keys[a*stackWidth + k], NEW);
+			kb = Math.min(keys[b*stackWidth + k], NEW);
+			if (ka != kb)	return (ka < kb) ? -1 : 1;
+		}
+		for (int k = 0; k < stackWidth; k++) {
+			ka = keys[a*stackWidth + k];
+			kb = keys[b*stackWidth + k];
+			if (ka != kb)	return (ka < kb) ? -1 : 1;
+		}
+		return 0;
+	}
+
+	// compares the values of the row being tried with row 'depth' of best
+	private int compareRow(int depth)
+	{
+		for (int p = 0; p < size; p++) {
+			if (values[p] != best[depth*size + p])	return (values[p] < best[depth*size + p]) ? -1 : 1;
+		}
+		return 0;
+	}
+
+	private Node newNode()
+	{
+		return free.isEmpty() ? new Node(size, nstacks) : free.remove(free.size() - 1);
+	}
+
+	private static void swap(int[] a, int i, int j)
+	{
+		int		t = a[i];
+
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	/*	Node is a partial arrangement:  the rows chosen so far, the classes of
+		interchangeable columns and stacks they leave, and the digits' labels.
+	 */
+	private static final class Node
+	{
+		final int[]		order;			// source column at each output position
+		final boolean[]	colTied;		// position p is interchangeable with p-1 (same stack)
+		final boolean[]	stackTied;		// stack slot j is interchangeable with slot j-1
+		final int[]		labels;			// label of each digit (0 = none yet)
+		int				nextLabel;
+		long			usedRows;
+		int				band;			// source band of the band being filled
+		int[]			source;			// the puzzle or its transpose
+
+		Node(int size, int nstacks)
+		{
+			order = new int[size];
+			colTied = new boolean[size];
+			stackTied = new boolean[nstacks];
+			labels = new int[size + 1];
+		}
+	}
+}
@@ -0,0 +1,335 @@
+/*	PuzzleRenderer.java
+
+	Draws a SudokuPuzzle's grid, Killer cages, values, and candidates at a given
+	cell size, on any Graphics:  SudokuView paints its window with one, and
+	PuzzleImageExporter paints offscreen images with another.  The grid starts
+	marginSize pixels from the top left corner and is imageSize() pixels square
+	including the margins.
+
+	When the cells' background is known to be one color, a renderer can cache the
+	digits as small opaque images on that color, one per value and color, trimmed
+	to the pixels the digit touches, so that drawing a value is one drawImage()
+	(a plain copy of pixels between RGB images) instead of making a String and
+	laying out and blending its text.  The cached glyphs are drawn with
+	antialiased text, so they are meant for offscreen images (the window, whose
+	cells can be highlighted, keeps drawing strings).  A renderer is not
+	thread-safe;  use one per thread.
+
+	October 19, 2026
+ */
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+
+public class PuzzleRenderer
+{
+	public final static int		marginSize = 10;
+	public final static int		defaultCellSize = 50;		// the offsets below are for this size
+	public final static int		minValueCellSize = 12;		// smaller cells show values as colored squares
+	private final static float	minCandidateFontSize = 6.0f;	// smaller candidates are not drawn
+	private final static int	lgNumXOffset1digit = 15;
+	private final static int	lgNumXOffset2digit = 6;
+	private final static int	lgNumYOffset = 37;
+	private final static Color	conflictColor = Color.red;
+	private final static Color	cageColor = Color.gray;
+	private final static int	cageInset = 4;
+
+	private final static Font	largeNumFont = new Font("Lucida Grande", Font.PLAIN, 30);
+	private final static Font	smallNumFont = new Font("Lucida Grande", Font.PLAIN, 13);
+	private final static Font	cageSumFont = new Font("Lucida Grande", Font.PLAIN, 9);
+
+	// the colors of cached glyphs (candidates are always small and dark gray)
+	private final static int	CLUE_GLYPH = 0, SOLVED_GLYPH = 1, CONFLICT_GLYPH = 2, CANDIDATE_GLYPH = 3;
+	private final static Color[]	glyphColors = { Color.black, Color.blue, conflictColor, Color.darkGray };
+
+	private int			cellSize;
+	private Font		scaledLargeFont, scaledSmallFont, scaledCageFont;
+	private int			candidateColumns = 3;		// candidates are drawn in a square of this many columns
+	private float		candidateStep;				// distance between candidates in pixels
+	private final Color	glyphBackground;			// null unless glyphs are cached
+	private BufferedImage[][]	glyphs;				// [glyph color][value], made when first drawn
+	private int[][]		glyphX, glyphY;				// where each glyph image goes relative to the baseline
+
+
+	/** The renderer draws digits as strings if glyphBackground is null, or else
+		as cached images on glyphBackground, which must then be the color of every
+		cell's background.
+	 */
+	public PuzzleRenderer(int cellSize, Color glyphBackground)
+	{
+		this.glyphBackground = glyphBackground;
+		setCellSize(cellSize);
+	}
+
+	/** setCellSize() rescales the fonts and the candidate layout so that each cell
+		is size pixels square.
+	 */
+	public void setCellSize(int size)
+	{
+		float	scale;
+
+		cellSize = Math.max(1, size);
+		scale = cellSize / (float)defaultCellSize;
+		scaledLargeFont = largeNumFont.deriveFont(largeNumFont.getSize2D() * scale);
+		scaledCageFont = cageSumFont.deriveFont(cageSumFont.getSize2D() * scale);
+
+		// at the default size, 9 candidates are 15 pixels apart in a 13 point font
+		candidateStep = (cellSize - 5) / (float)candidateColumns;
+		scaledSmallFont = smallNumFont.deriveFont(smallNumFont.getSize2D() * candidateStep / 15);
+		glyphs = null;
+	}
+
+	public int getCellSize()
+	{
+		return cellSize;
+	}
+
+	/** setCandidateColumns() lays candidates out in a square of n columns (at least
+		3), e.g. ceil(sqrt(size)) so that every candidate of a puzzle fits.
+	 */
+	public void setCandidateColumns(int n)
+	{
+		candidateColumns = Math.max(3, n);
+		setCellSize(cellSize);
+	}
+
+	// returns the width and height of a whole puzzle of the given size, with its margins
+	public int imageSize(int puzzleSize)
+	{
+		return 2*marginSize + cellSize*puzzleSize + 1;
+	}
+
+	// true if the cells are big enough to show digits
+	public boolean drawsValues()
+	{
+		return cellSize >= minValueCellSize;
+	}
+
+	// true if the cells are big enough to show candidates
+	public boolean drawsCandidates()
+	{
+		return drawsValues() && scaledSmallFont.getSize2D() >= minCandidateFontSize;
+	}
+
+	/** drawPuzzle() draws all of puzzle (but not the background), with the
+		candidates of unsolved cells if showCandidates is true.
+	 */
+	public void drawPuzzle(Graphics g, SudokuPuzzle puzzle, boolean showCandidates)
+	{
+		int		size = puzzle.getSize();
+		boolean	conflicts = (puzzle.getConflictCount() > 0);
+
+		drawGridLines(g, size, 0, size-1, 0, size-1);
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				drawCell(g, puzzle, row, col, showCandidates, conflicts);
+			}
+		}
+	}
+
+	/** drawGridLines() draws the lines around rows firstRow to lastRow and columns
+		firstCol to lastCol of a grid of the given size (only as far as those cells
+		reach), with thicker lines between the default regions.
+	 */
+	public void drawGridLines(Graphics g, int gridSize, int firstRow, int lastRow, int firstCol, int lastCol)
+	{
+		int		left, right, top, bottom, boxHeight, boxWidth;
+
+		g.setColor(Color.black);
+		left = marginSize + cellSize*firstCol;
+		right = marginSize + cellSize*(lastCol+1);
+		top = marginSize + cellSize*firstRow;
+		bottom = marginSize + cellSize*(lastRow+1);
+		boxHeight = (gridSize < SudokuPuzzle.regionBoxHeights.length) ? SudokuPuzzle.regionBoxHeights[gridSize] : 0;
+		boxWidth = (gridSize < SudokuPuzzle.regionBoxWidths.length) ? SudokuPuzzle.regionBoxWidths[gridSize] : 0;
+		for	( int i = firstRow; i <= lastRow+1; i++ )	{
+			// horizontal lines (at the smallest sizes, only the region boundaries)
+			if (cellSize >= minValueCellSize || boxHeight == 0 || i % boxHeight == 0) {
+				g.drawLine(left, marginSize + cellSize*i, right, marginSize + cellSize*i);
+			}
+			// make region boundaries thicker (only for puzzles with default regions for now)
+			if (boxHeight > 0 && i % boxHeight == 0) {
+				g.drawLine(left, marginSize + cellSize*i + 1, right, marginSize + cellSize*i + 1);
+				g.drawLine(left, marginSize + cellSize*i - 1, right, marginSize + cellSize*i - 1);
+			}
+		}
+		for	( int i = firstCol; i <= lastCol+1; i++ )	{
+			// vertical lines
+			if (cellSize >= minValueCellSize || boxWidth == 0 || i % boxWidth == 0) {
+				g.drawLine(marginSize + cellSize*i, top, marginSize + cellSize*i, bottom);
+			}
+			if (boxWidth > 0 && i % boxWidth == 0) {
+				g.drawLine(marginSize + cellSize*i - 1, top, marginSize + cellSize*i - 1, bottom);
+				g.drawLine(marginSize + cellSize*i + 1, top, marginSize + cellSize*i + 1, bottom);
+			}
+		}
+	}
+
+	/** drawCell() draws the cage edges and the value or candidates of the cell at
+		(row,col), over whatever background has already been filled in.  conflicts
+		is whether the puzzle has any conflicting values (so that cells without
+		conflicts aren't checked one by one).
+	 */
+	public void drawCell(Graphics g, SudokuPuzzle puzzle, int row, int col, boolean showCandidates, boolean conflicts)
+	{
+		int		cellX = marginSize + col*cellSize, cellY = marginSize + row*cellSize;
+		int		cellstatus, cellvalue, lgNumXOffset, glyph, size = puzzle.getSize();
+		float	scale = cellSize / (float)defaultCellSize;
+
+		if (puzzle.getCellCage(row, col) >= 0) {
+			drawCageEdges(g, puzzle, row, col, cellX, cellY);
+		}
+
+		cellstatus = puzzle.getCellStatus(row, col);
+		if (cellstatus == SudokuPuzzle.UNSOLVED) {
+			if (showCandidates && drawsCandidates()) {
+				// draw (small) candidate numbers in a square, 3x3 for up to 9 values
+				g.setFont(scaledSmallFont);
+				g.setColor(Color.darkGray);
+				for ( int i = 0; i < size; i++ )	{
+					if (puzzle.testCellCandidate(row, col, i)) {
+						drawNumber(g, i+1, CANDIDATE_GLYPH,
+						           cellX + 2 + (int)(candidateStep*(i % candidateColumns + ((i < 9) ? 0.33f : 0.1f))),
+						           cellY + 1 + (int)(candidateStep*(i / candidateColumns + 1)));
+					}
+				}
+			}
+		}
+		else {
+			// draw clues and (large) answer numbers
+			if (conflicts && puzzle.isCellInConflict(row, col))
+				 glyph = CONFLICT_GLYPH;		// value is repeated in the row, column, or region
+			else if (cellstatus == SudokuPuzzle.CLUE)
+				 glyph = CLUE_GLYPH;
+			else glyph = SOLVED_GLYPH;
+			g.setColor(glyphColors[glyph]);
+			if (drawsValues()) {
+				g.setFont(scaledLargeFont);
+				cellvalue = puzzle.getCellValue(row, col);
+				lgNumXOffset = (cellvalue < 10) ? lgNumXOffset1digit : lgNumXOffset2digit;
+				drawNumber(g, cellvalue, glyph, cellX + (int)(lgNumXOffset*scale), cellY + (int)(lgNumYOffset*scale));
+			}
+			else {
+				// too small for digits:  just show that the cell has a value
+				g.fillRect(cellX + cellSize/4, cellY + cellSize/4, Math.max(1, cellSize/2), Math.max(1, cellSize/2));
+			}
+		}
+	}
+
+	/** drawCageEdges() draws the inset outline of a Killer cage on the sides of the
+		cell at (row,col) that border cells outside of its cage, and the cage's sum in
+		the cage's first cell.
+	 */
+	private void drawCageEdges(Graphics g, SudokuPuzzle puzzle, int row, int col, int cellX, int cellY)
+	{
+		int			cage = puzzle.getCellCage(row, col);
+		int			inset = Math.max(1, cageInset*cellSize/defaultCellSize);
+		int			left = cellX + inset, top = cellY + inset;
+		int			right = cellX + cellSize - inset, bottom = cellY + cellSize - inset;
+		KillerCage	cageObj = puzzle.getCage(cage);
+
+		g.setColor(cageColor);
+		if (puzzle.getCellCage(row-1, col) != cage)	g.drawLine(left, top, right, top);
+		if (puzzle.getCellCage(row+1, col) != cage)	g.drawLine(left, bottom, right, bottom);
+		if (puzzle.getCellCage(row, col-1) != cage)	g.drawLine(left, top, left, bottom);
+		if (puzzle.getCellCage(row, col+1) != cage)	g.drawLine(right, top, right, bottom);
+
+		if (cageObj.getCellRow(0) == row && cageObj.getCellColumn(0) == col && cellSize >= minValueCellSize) {
+			g.setFont(scaledCageFont);
+			g.drawString(String.valueOf(cageObj.getSum()), left + 1, top + (int)scaledCageFont.getSize2D());
+		}
+	}
+
+	// draws value with its baseline at (x,y) in the current font and color, or as its cached glyph
+	private void drawNumber(Graphics g, int value, int glyph, int x, int y)
+	{
+		if (glyphBackground == null) {
+			g.drawString(String.valueOf(value), x, y);
+			return;
+		}
+		if (glyphs == null) {
+			glyphs = new BufferedImage[glyphColors.length][];
+			glyphX = new int[glyphColors.length][];
+			glyphY = new int[glyphColors.length][];
+		}
+		if (glyphs[glyph] == null || glyphs[glyph].length <= value) {
+			growGlyphs(glyph, value + 1);
+		}
+		if (glyphs[glyph][value] == null) {
+			makeGlyph(glyph, value, g.getFont());
+		}
+		if (glyphs[glyph][value] != glyphs[glyph][0]) {
+			g.drawImage(glyphs[glyph][value], x + glyphX[glyph][value], y + glyphY[glyph][value], null);
+		}
+	}
+
+	private void growGlyphs(int glyph, int length)
+	{
+		BufferedImage[]	images = new BufferedImage[length];
+		int[]			xs = new int[length], ys = new int[length];
+
+		if (glyphs[glyph] != null) {
+			System.arraycopy(glyphs[glyph], 0, images, 0, glyphs[glyph].length);
+			System.arraycopy(glyphX[glyph], 0, xs, 0, glyphX[glyph].length);
+			System.arraycopy(glyphY[glyph], 0, ys, 0, glyphY[glyph].length);
+		}
+		glyphs[glyph] = images;
+		glyphX[glyph] = xs;
+		glyphY[glyph] = ys;
+	}
+
+	/*	makeGlyph() draws value in font on the background, then keeps only the
+		smallest rectangle that holds every pixel that isn't the background (a
+		glyph with no such pixels is stored as glyphs[glyph][0], which is never a
+		digit, and isn't drawn).
+	 */
+	private void makeGlyph(int glyph, int value, Font font)
+	{
+		String			text = String.valueOf(value);
+		BufferedImage	image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+		Graphics2D		g = image.createGraphics();
+		FontMetrics		metrics;
+		int				ascent, width, height, background = glyphBackground.getRGB() & 0xffffff;
+		int				left, right, top, bottom;
+
+		metrics = g.getFontMetrics(font);
+		ascent = metrics.getAscent() + 2;
+		width = metrics.stringWidth(text) + 4;
+		height = ascent + metrics.getDescent() + 2;
+		g.dispose();
+
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		g = image.createGraphics();
+		g.setColor(glyphBackground);
+		g.fillRect(0, 0, width, height);
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setFont(font);
+		g.setColor(glyphColors[glyph]);
+		g.drawString(text, 2, ascent);
+		g.dispose();
+
+		left = width;
+		right = -1;
+		top = height;
+		bottom = -1;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if ((image.getRGB(x, y) & 0xffffff) != background) {
+					left = Math.min(left, x);
+					right = Math.max(right, x);
+					top = Math.min(top, y);
+					bottom = Math.max(bottom, y);
+				}
+			}
+		}
+		if (right < 0) {
+			if (glyphs[glyph][0] == null)	glyphs[glyph][0] = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+			glyphs[glyph][value] = glyphs[glyph][0];
+			return;
+		}
+		glyphs[glyph][value] = image.getSubimage(left, top, right - left + 1, bottom - top + 1);
+		glyphX[glyph][value] = left - 2;
+		glyphY[glyph][value] = top - ascent;
+	}
+}
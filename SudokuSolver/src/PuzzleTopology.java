@@ -0,0 +1,159 @@
+/*	PuzzleTopology.java
+
+	The "shape" of a puzzle:  which cells belong to each unit (row, column, or other
+	region) and which units each cell belongs to, stored as flat int arrays so that
+	solving engines can walk them without allocating.
+
+	Cells are numbered row*size + col.  Units are numbered with the rows first
+	(0 to size-1), then the columns (size to 2*size-1), then the other regions
+	(2*size to 3*size-1).  Every cell belongs to exactly three units.
+
+	Topologies are immutable and are shared by every puzzle with the same layout.
+	Only layouts where the other regions partition the grid into size regions of
+	size cells are supported.
+
+	October 18, 2026
+ */
+
+public final class PuzzleTopology
+{
+	// the most recently used topology for each size (almost always the default regions)
+	private static final PuzzleTopology[]	cache = new PuzzleTopology[101];
+
+	// these arrays are shared and must be treated as read-only
+	final int		size;
+	final int		ncells;
+	final int		nunits;
+	final int[]		cellUnits;			// the 3 units of each cell:  cellUnits[cell*3 + i]
+	final int[]		unitCells;			// the cells of each unit:  unitCells[unit*size + i]
+
+
+	private PuzzleTopology(int size, int[] cellRegions)
+	{
+		int[]	rgnFill = new int[size];
+		int		cell, rgn;
+
+		this.size = size;
+		ncells = size*size;
+		nunits = 3*size;
+		cellUnits = new int[ncells*3];
+		unitCells = new int[nunits*size];
+
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				cell = row*size + col;
+				rgn = cellRegions[cell];
+				cellUnits[cell*3]     = row;
+				cellUnits[cell*3 + 1] = size + col;
+				cellUnits[cell*3 + 2] = 2*size + rgn;
+				unitCells[row*size + col] = cell;
+				unitCells[(size + col)*size + row] = cell;
+				unitCells[(2*size + rgn)*size + rgnFill[rgn]++] = cell;
+			}
+		}
+	}
+
+	/** forPuzzle() returns the topology for the puzzle's current regions, or null
+		(after printing an error) if the regions do not partition the grid evenly.
+		Repeated calls for puzzles with the same layout return the same object and
+		do not allocate.
+	 */
+	public static PuzzleTopology forPuzzle(SudokuPuzzle puzzle)
+	{
+		int				size = puzzle.getSize(), rgn;
+		int[]			cellRegions, rgnCounts;
+		PuzzleTopology	topo;
+
+		synchronized (cache) {
+			topo = (size < cache.length) ? cache[size] : null;
+		}
+		if (topo != null && topo.matches(puzzle))	return topo;
+
+		if (size < 1 || size > 100 || puzzle.getRegionCount(SudokuPuzzle.RegionType.OTHER) != size) {
+			System.err.printf("PuzzleTopology.forPuzzle(): unsupported regions, size=%d\n", size);
+			return null;
+		}
+		cellRegions = new int[size*size];
+		rgnCounts = new int[size];
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				rgn = puzzle.getCellRegionIdx(row, col);
+				if (rgn < 0 || rgn >= size || ++rgnCounts[rgn] > size) {
+					System.err.printf("PuzzleTopology.forPuzzle(): bad region for cell, row=%d, col=%d, region=%d\n", row, col, rgn);
+					return null;
+				}
+				cellRegions[row*size + col] = rgn;
+			}
+		}
+
+		topo = new PuzzleTopology(size, cellRegions);
+		synchronized (cache) {
+			cache[size] = topo;
+		}
+		return topo;
+	}
+
+	// returns true if this topology describes the puzzle's current regions
+	boolean matches(SudokuPuzzle puzzle)
+	{
+		if (puzzle.getSize() != size)	return false;
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				if (cellUnits[(row*size + col)*3 + 2] - 2*size != puzzle.getCellRegionIdx(row, col))	return false;
+			}
+		}
+		return true;
+	}
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	public int getCellCount()
+	{
+		return ncells;
+	}
+
+	public int getUnitCount()
+	{
+		return nunits;
+	}
+
+	// returns the i'th (0 to 2) unit containing cell
+	public int getCellUnit(int cell, int i)
+	{
+		return cellUnits[cell*3 + i];
+	}
+
+	// returns the i'th (0 to size-1) cell of unit
+	public int getUnitCell(int unit, int i)
+	{
+		return unitCells[unit*size + i];
+	}
+
+	// returns the index (0 to size-1) of the OTHER region containing cell
+	public int getCellRegion(int cell)
+	{
+		return cellUnits[cell*3 + 2] - 2*size;
+	}
+
+	// returns true if other has the same size and regions as this topology
+	public boolean hasSameLayout(PuzzleTopology other)
+	{
+		return other == this || (other != null && other.size == size && java.util.Arrays.equals(other.cellUnits, cellUnits));
+	}
+
+	public SudokuPuzzle.RegionType getUnitType(int unit)
+	{
+		if (unit < size)		return SudokuPuzzle.RegionType.ROW;
+		if (unit < 2*size)		return SudokuPuzzle.RegionType.COLUMN;
+		return SudokuPuzzle.RegionType.OTHER;
+	}
+
+	// returns the index of the unit among the units of its type (e.g. the row number)
+	public int getUnitIndex(int unit)
+	{
+		return unit % size;
+	}
+}
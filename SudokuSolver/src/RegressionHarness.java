@@ -0,0 +1,432 @@
+/*	RegressionHarness.java
+
+	Runs a versioned corpus of puzzles through every solving path, checks every
+	answer, and compares the solve times with stored baselines, so that an engine
+	that gets slower or starts giving wrong answers is noticed.  It does not use AWT
+	or Swing and can be run on a build machine:
+
+		java -cp bin RegressionHarness [-record] [-threshold ratio] [-repeat n] [corpus-dir]
+
+	The corpus directory (default "corpus") holds puzzle files with one puzzle
+	string per line.  Lines that start with '#' are comments, except "# version N",
+	which gives the version of the file.  The version must be increased whenever the
+	puzzles of a file change, because its old baselines no longer apply.  The size
+	of the puzzles in a file is inferred from the first puzzle.
+
+	The solving paths are:
+
+		backtracking	BacktrackingSolver.solve(2), then copySolutionTo(), with no
+						transposition table
+		bitsliced		BitSlicedSolver on batches of 64 puzzles (9x9 files only)
+		singles			recalculateAllCandidates() and acceptSingleCandidateSolutions()
+						until no more cells can be filled
+		hints			HintEngine.findHint() and SudokuHint.apply() until no hint is found
+
+	Every puzzle that a path finishes must keep its clues and pass isSolved().  If
+	backtracking finds that a puzzle has a unique solution, every other path must
+	agree with it, and the values placed by the logical paths (singles and hints)
+	must match it even when they get stuck.
+
+	Each path first solves the whole file over and over for half a second to warm up
+	the JIT compiler, then solves it 'repeat' times (default 5).  The time for a
+	puzzle is the fastest of those runs, and the median and 99th percentile over
+	the file are compared with the baselines in corpus-dir/baselines.txt.  The run
+	fails (exit status 1) if any answer is wrong, if fewer puzzles are solved than
+	in the baseline, or if the median or p99 is more than 'threshold' times the
+	baseline (default 2, since timings on a busy machine easily vary by half).
+
+	Baselines depend on the machine, so record them on the machine that will run the
+	checks with -record, which runs everything and rewrites baselines.txt.
+
+	October 19, 2026
+ */
+
+import java.io.*;
+import java.util.*;
+
+
+public class RegressionHarness
+{
+	private static final String		BASELINE_FILE = "baselines.txt";
+	private static final double		DEFAULT_THRESHOLD = 2.0;
+	private static final int		DEFAULT_REPEAT = 5;
+	private static final long		WARMUP_NANOS = 500000000L;	// least time to spend warming up each path on each file
+
+	// one file of the corpus
+	private static final class CorpusFile
+	{
+		String			name;
+		int				version;
+		int				size;
+		List<String>	puzzles = new ArrayList<String>();
+	}
+
+	// the timings and results of one path on one file (also used for baselines)
+	private static final class Result
+	{
+		int				solved;			// puzzles completely solved
+		int				total;
+		double			medianMicros;
+		double			p99Micros;
+		List<String>	errors = new ArrayList<String>();
+	}
+
+	/*	A SolvePath solves all of the puzzles of a file with one engine, timing each
+		puzzle.  run() leaves the puzzles in their final state for checking.
+	 */
+	private static abstract class SolvePath
+	{
+		final String	name;
+
+		SolvePath(String name)
+		{
+			this.name = name;
+		}
+
+		boolean accepts(int size)
+		{
+			return size <= BacktrackingSolver.MAX_SIZE;
+		}
+
+		abstract void run(SudokuPuzzle[] puzzles, long[] nanos);
+	}
+
+
+	public static void main(String[] args) throws IOException
+	{
+		File						dir = new File("corpus");
+		boolean						record = false;
+		double						threshold = DEFAULT_THRESHOLD;
+		int							repeat = DEFAULT_REPEAT, failures = 0;
+		List<CorpusFile>			corpus;
+		Map<String, Result>			baselines, results = new LinkedHashMap<String, Result>();
+		Map<String, Integer>		versions = new HashMap<String, Integer>();
+		Result						result, base;
+		String						key, status;
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-record"))									record = true;
+			else if (args[i].equals("-threshold") && i+1 < args.length)		threshold = Double.parseDouble(args[++i]);
+			else if (args[i].equals("-repeat") && i+1 < args.length)		repeat = Math.max(1, Integer.parseInt(args[++i]));
+			else if (!args[i].startsWith("-"))								dir = new File(args[i]);
+			else {
+				System.err.println("usage: java RegressionHarness [-record] [-threshold ratio] [-repeat n] [corpus-dir]");
+				System.exit(2);
+			}
+		}
+
+		corpus = readCorpus(dir);
+		if (corpus.isEmpty()) {
+			System.err.printf("RegressionHarness: no puzzle files in %s\n", dir);
+			System.exit(2);
+		}
+		baselines = record ? new HashMap<String, Result>() : readBaselines(new File(dir, BASELINE_FILE), versions);
+
+		System.out.printf("%-18s %-13s %9s %11s %11s %11s %11s  %s\n", "file", "path", "solved",
+		                  "median(us)", "p99(us)", "base med", "base p99", "status");
+		for (CorpusFile file : corpus) {
+			for (SolvePath path : makePaths()) {
+				if (!path.accepts(file.size))	continue;
+				result = runPath(path, file, repeat);
+				key = file.name + " " + path.name;
+				results.put(key, result);
+
+				base = baselines.get(key);
+				status = "ok";
+				if (!result.errors.isEmpty()) {
+					status = "WRONG";
+				}
+				else if (record) {
+					status = "recorded";
+				}
+				else if (base == null || versions.get(file.name) != file.version) {
+					status = "no baseline";
+				}
+				else if (result.solved < base.solved) {
+					status = "FEWER SOLVED";
+				}
+				else if (result.medianMicros > threshold * base.medianMicros || result.p99Micros > threshold * base.p99Micros) {
+					status = "SLOWER";
+				}
+				if (!status.equals("ok") && !status.equals("recorded") && !status.equals("no baseline"))	++failures;
+
+				System.out.printf("%-18s %-13s %4d/%-4d %11.1f %11.1f %11s %11s  %s\n", file.name, path.name,
+				                  result.solved, result.total, result.medianMicros, result.p99Micros,
+				                  (base != null) ? String.format("%.1f", base.medianMicros) : "-",
+				                  (base != null) ? String.format("%.1f", base.p99Micros) : "-", status);
+				for (int i = 0; i < result.errors.size() && i < 5; i++)	System.out.println("    " + result.errors.get(i));
+			}
+		}
+
+		if (record) {
+			writeBaselines(new File(dir, BASELINE_FILE), corpus, results);
+			System.out.printf("baselines written to %s\n", new File(dir, BASELINE_FILE));
+		}
+		if (failures > 0) {
+			System.out.printf("%d regression(s) (threshold %.2f)\n", failures, threshold);
+			System.exit(1);
+		}
+	}
+
+	private static List<SolvePath> makePaths()
+	{
+		List<SolvePath>	paths = new ArrayList<SolvePath>();
+
+		paths.add(new SolvePath("backtracking") {
+			private final BacktrackingSolver	solver = new BacktrackingSolver();
+
+			{
+				// the solver is reused for every run, so a transposition table would
+				// time lookups of the subtrees that the warm-up runs stored, not solving
+				solver.setTranspositionTable(null);
+			}
+
+			void run(SudokuPuzzle[] puzzles, long[] nanos)
+			{
+				long	start;
+
+				for (int i = 0; i < puzzles.length; i++) {
+					start = System.nanoTime();
+					solver.load(puzzles[i]);
+					if (solver.solve(2) > 0)	solver.copySolutionTo(puzzles[i]);
+					nanos[i] = System.nanoTime() - start;
+				}
+			}
+		});
+
+		paths.add(new SolvePath("bitsliced") {
+			private final BitSlicedSolver	solver = new BitSlicedSolver();
+
+			boolean accepts(int size)
+			{
+				return size == BitSlicedSolver.SIZE;
+			}
+
+			void run(SudokuPuzzle[] puzzles, long[] nanos)
+			{
+				int[]	counts = new int[puzzles.length];
+				int		count;
+				long	start, each;
+
+				// the puzzles of a batch are solved together, so each one gets an equal share
+				for (int from = 0; from < puzzles.length; from += BitSlicedSolver.LANES) {
+					count = Math.min(BitSlicedSolver.LANES, puzzles.length - from);
+					start = System.nanoTime();
+					solver.solve(puzzles, from, count, counts);
+					each = (System.nanoTime() - start) / count;
+					Arrays.fill(nanos, from, from + count, each);
+				}
+			}
+		});
+
+		paths.add(new SolvePath("singles") {
+			void run(SudokuPuzzle[] puzzles, long[] nanos)
+			{
+				long	start;
+
+				for (int i = 0; i < puzzles.length; i++) {
+					start = System.nanoTime();
+					do {
+						puzzles[i].recalculateAllCandidates();
+					} while (puzzles[i].acceptSingleCandidateSolutions());
+					nanos[i] = System.nanoTime() - start;
+				}
+			}
+		});
+
+		paths.add(new SolvePath("hints") {
+			private final HintEngine	engine = new HintEngine();
+
+			void run(SudokuPuzzle[] puzzles, long[] nanos)
+			{
+				SudokuHint	hint;
+				long		start;
+
+				// findHint() rather than getHint(), so that the timed runs don't just
+				// look up the answers cached by the warm-up run
+				for (int i = 0; i < puzzles.length; i++) {
+					start = System.nanoTime();
+					while ((hint = engine.findHint(puzzles[i])) != null)	hint.apply(puzzles[i]);
+					nanos[i] = System.nanoTime() - start;
+				}
+			}
+		});
+		return paths;
+	}
+
+	// solves the file with path (warm-up runs, then 'repeat' timed runs) and checks the answers
+	private static Result runPath(SolvePath path, CorpusFile file, int repeat)
+	{
+		int				n = file.puzzles.size();
+		SudokuPuzzle[]	puzzles = new SudokuPuzzle[n];
+		long[]			nanos = new long[n], best = new long[n];
+		int[][]			solutions = new int[n][];
+		Result			result = new Result();
+		long			start = System.nanoTime();
+
+		do {
+			for (int i = 0; i < n; i++)	puzzles[i] = new SudokuPuzzle(file.size, file.puzzles.get(i));
+			path.run(puzzles, nanos);
+		} while (System.nanoTime() - start < WARMUP_NANOS);
+
+		Arrays.fill(best, Long.MAX_VALUE);
+		for (int run = 0; run < repeat; run++) {
+			for (int i = 0; i < n; i++)	puzzles[i] = new SudokuPuzzle(file.size, file.puzzles.get(i));
+			path.run(puzzles, nanos);
+			for (int i = 0; i < n; i++)	best[i] = Math.min(best[i], nanos[i]);
+		}
+
+		// check the final state of each puzzle against its unique solution (if any)
+		findUniqueSolutions(file, solutions);
+		result.total = n;
+		for (int i = 0; i < n; i++) {
+			if (checkPuzzle(file, i, puzzles[i], solutions[i], result))	++result.solved;
+		}
+
+		Arrays.sort(best);
+		result.medianMicros = best[(n - 1) / 2] / 1000.0;
+		result.p99Micros = best[(int)Math.ceil(0.99 * n) - 1] / 1000.0;
+		return result;
+	}
+
+	// stores the solution of each puzzle of the file that has exactly one (and null otherwise)
+	private static void findUniqueSolutions(CorpusFile file, int[][] solutions)
+	{
+		BacktrackingSolver	solver = new BacktrackingSolver();
+		SudokuPuzzle		puzzle;
+
+		for (int i = 0; i < solutions.length; i++) {
+			puzzle = new SudokuPuzzle(file.size, file.puzzles.get(i));
+			solutions[i] = null;
+			if (solver.load(puzzle) == SudokuPuzzle.NO_ERR && solver.solve(2) == 1) {
+				solutions[i] = new int[file.size * file.size];
+				solver.getSolution(solutions[i]);
+			}
+		}
+	}
+
+	/** checkPuzzle() checks the final state of one puzzle and adds any errors to
+		result.  Returns true if the puzzle was solved correctly.
+	 */
+	private static boolean checkPuzzle(CorpusFile file, int index, SudokuPuzzle puzzle, int[] solution, Result result)
+	{
+		SudokuPuzzle	original = new SudokuPuzzle(file.size, file.puzzles.get(index));
+		int				size = file.size, value;
+		boolean			complete = true;
+
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				value = puzzle.getCellValue(row, col);
+				if (original.getCellStatus(row, col) == SudokuPuzzle.CLUE && value != original.getCellValue(row, col)) {
+					result.errors.add(String.format("puzzle %d: clue changed at r%dc%d", index + 1, row + 1, col + 1));
+					return false;
+				}
+				if (value == SudokuPuzzle.EMPTY_CELL) {
+					complete = false;
+				}
+				else if (solution != null && value != solution[row*size + col]) {
+					result.errors.add(String.format("puzzle %d: r%dc%d = %d, but the solution has %d", index + 1,
+					                                row + 1, col + 1, value, solution[row*size + col]));
+					return false;
+				}
+			}
+		}
+		if (complete && !puzzle.isSolved()) {
+			result.errors.add(String.format("puzzle %d: solution breaks the rules", index + 1));
+			return false;
+		}
+		if (puzzle.getConflictCount() > 0) {
+			result.errors.add(String.format("puzzle %d: conflicting values", index + 1));
+			return false;
+		}
+		return complete;
+	}
+
+	// reads every *.txt file in dir except the baselines, sorted by name
+	private static List<CorpusFile> readCorpus(File dir) throws IOException
+	{
+		List<CorpusFile>	corpus = new ArrayList<CorpusFile>();
+		File[]				files = dir.listFiles();
+		BufferedReader		in;
+		CorpusFile			file;
+		String				line;
+
+		if (files == null)	return corpus;
+		Arrays.sort(files);
+		for (File f : files) {
+			if (!f.getName().endsWith(".txt") || f.getName().equals(BASELINE_FILE))	continue;
+			file = new CorpusFile();
+			file.name = f.getName();
+			in = new BufferedReader(new FileReader(f));
+			try {
+				while ((line = in.readLine()) != null) {
+					line = line.trim();
+					if (line.startsWith("# version "))	file.version = Integer.parseInt(line.substring(10).trim());
+					else if (line.length() > 0 && !line.startsWith("#"))	file.puzzles.add(line);
+				}
+			}
+			finally {
+				in.close();
+			}
+			if (file.puzzles.isEmpty())	continue;
+			file.size = (int)Math.round(Math.sqrt(SudokuPuzzle.countPuzzleStringCells(file.puzzles.get(0))));
+			corpus.add(file);
+		}
+		return corpus;
+	}
+
+	/** readBaselines() reads lines of "file version path solved total median p99"
+		into a map keyed by "file path", and the version of each file into versions.
+		A missing file just means there are no baselines yet.
+	 */
+	private static Map<String, Result> readBaselines(File f, Map<String, Integer> versions) throws IOException
+	{
+		Map<String, Result>	baselines = new HashMap<String, Result>();
+		BufferedReader		in;
+		String				line;
+		String[]			fields;
+		Result				base;
+
+		if (!f.exists())	return baselines;
+		in = new BufferedReader(new FileReader(f));
+		try {
+			while ((line = in.readLine()) != null) {
+				fields = line.trim().split("\\s+");
+				if (fields.length != 7 || fields[0].startsWith("#"))	continue;
+				base = new Result();
+				base.solved = Integer.parseInt(fields[3]);
+				base.total = Integer.parseInt(fields[4]);
+				base.medianMicros = Double.parseDouble(fields[5]);
+				base.p99Micros = Double.parseDouble(fields[6]);
+				baselines.put(fields[0] + " " + fields[2], base);
+				versions.put(fields[0], Integer.parseInt(fields[1]));
+			}
+		}
+		finally {
+			in.close();
+		}
+		return baselines;
+	}
+
+	private static void writeBaselines(File f, List<CorpusFile> corpus, Map<String, Result> results) throws IOException
+	{
+		PrintWriter	out = new PrintWriter(new BufferedWriter(new FileWriter(f)));
+		Result		result;
+
+		try {
+			out.println("# RegressionHarness baselines (recorded with -record;  times in microseconds)");
+			out.println("# file  version  path  solved  total  median  p99");
+			for (CorpusFile file : corpus) {
+				for (SolvePath path : makePaths()) {
+					result = results.get(file.name + " " + path.name);
+					if (result == null)	continue;
+					out.printf(Locale.ROOT, "%s %d %s %d %d %.1f %.1f\n", file.name, file.version, path.name,
+					           result.solved, result.total, result.medianMicros, result.p99Micros);
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*	SolveBudget.java
+
+	Limits on how much work a solve may do:  a deadline, a maximum number of search
+	nodes, or both, plus a cancellation flag that any thread may set.
+
+	Solvers call isExhausted() once per search node.  The node limit is checked
+	every time, and the clock and the cancellation flag only every CHECK_INTERVAL
+	nodes, so on almost every call the check is just a compare and a bit test.  A
+	budget may be shared by several solvers (cancel() stops them all), but each
+	solver counts its own nodes.
+
+	Typical use:
+
+		SolveBudget	budget = SolveBudget.millis(50);
+		status = solver.solve(budget);		// SOLVED, MULTIPLE, UNSOLVABLE, BUDGET_EXCEEDED, or CANCELLED
+
+	October 19, 2026
+ */
+
+public final class SolveBudget
+{
+	public static final long	NO_LIMIT = Long.MAX_VALUE;
+
+	private static final int	CHECK_INTERVAL = 256;		// nodes between looks at the clock
+
+	private final long			deadline;			// System.nanoTime() value, or NO_LIMIT
+	private final long			maxNodes;
+	private volatile boolean	cancelled;
+	private volatile boolean	expired;			// the deadline has passed (sticky)
+
+
+	/** A budget with an optional deadline (nanoseconds from now) and node limit;
+		use NO_LIMIT for either one to leave it out.
+	 */
+	public SolveBudget(long nanos, long maxNodes)
+	{
+		this.deadline = (nanos == NO_LIMIT) ? NO_LIMIT : System.nanoTime() + Math.max(0, nanos);
+		this.maxNodes = maxNodes;
+	}
+
+	// returns a budget that expires the given number of milliseconds from now
+	public static SolveBudget millis(long millis)
+	{
+		return new SolveBudget(millis*1000000L, NO_LIMIT);
+	}
+
+	// returns a budget of at most maxNodes search nodes
+	public static SolveBudget nodes(long maxNodes)
+	{
+		return new SolveBudget(NO_LIMIT, maxNodes);
+	}
+
+	// returns a budget that only ends by cancel()
+	public static SolveBudget unlimited()
+	{
+		return new SolveBudget(NO_LIMIT, NO_LIMIT);
+	}
+
+	// stops every solver using this budget at its next check (may be called from any thread)
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	public long getMaxNodes()
+	{
+		return maxNodes;
+	}
+
+	// returns the nanoseconds left before the deadline (0 if it has passed, NO_LIMIT if none)
+	public long getRemainingNanos()
+	{
+		if (deadline == NO_LIMIT)	return NO_LIMIT;
+		return Math.max(0, deadline - System.nanoTime());
+	}
+
+	/** isExhausted() returns true once a solver that has tried 'nodes' nodes must
+		stop:  the node limit is reached, the deadline has passed, or the budget was
+		cancelled.  The clock is only read when nodes is a multiple of CHECK_INTERVAL.
+	 */
+	public boolean isExhausted(long nodes)
+	{
+		if (nodes >= maxNodes)	return true;
+		if ((nodes & (CHECK_INTERVAL - 1)) != 0)	return false;
+		return check();
+	}
+
+	/** check() returns true if the deadline has passed or the budget was cancelled,
+		reading the clock every time.  For loops that don't count nodes.
+	 */
+	public boolean check()
+	{
+		if (cancelled || expired)	return true;
+		if (deadline != NO_LIMIT && System.nanoTime() - deadline >= 0)	expired = true;
+		return expired;
+	}
+}
@@ -0,0 +1,38 @@
+/*	SolveTechnique.java
+
+	Identifies the technique that was used to make a change to a puzzle
+	(e.g. placing a cell value or eliminating a candidate).
+
+	The ordinal of each technique is stored in recorded solve traces, so new
+	techniques must always be added at the END of this list and existing ones
+	must never be reordered or removed.
+
+	October 18, 2026
+ */
+
+public enum SolveTechnique
+{
+	USER,				// change made directly by the user (or by an unknown technique)
+	CANDIDATES,			// candidates recalculated from the known values in each region
+	NAKED_SINGLE,		// an empty cell with only one remaining candidate
+	HIDDEN_SINGLE,		// a candidate that occurs only once within a region
+	LOCKED_CANDIDATES,	// a candidate confined to the intersection of two regions
+	NAKED_PAIR,			// two cells in a region with the same two candidates
+	KILLER_CAGE,		// a candidate that cannot complete its cage's sum
+	SIMPLE_COLORING,	// a contradiction or trap in the two-coloring of one digit's strong links
+	X_CHAIN,			// an alternating chain of strong and weak links on one digit
+	XY_CHAIN,			// a chain of cells with two candidates each
+	ALTERNATING_CHAIN,	// an alternating inference chain of any strong and weak links
+	X_WING,				// a value confined to the same 2 columns in 2 rows (or vice versa)
+	SWORDFISH,			// the same with 3 rows and columns
+	JELLYFISH,			// the same with 4 rows and columns
+	FINNED_FISH;		// one of the above except for a few "fin" cells (including sashimi fish)
+
+	private static final SolveTechnique[]	all = values();		// values() returns a new copy every call
+
+	// returns the technique with the given ordinal or null if there is none
+	public static SolveTechnique fromOrdinal(int ordinal)
+	{
+		return ((ordinal >= 0 && ordinal < all.length) ? all[ordinal] : null);
+	}
+}
@@ -0,0 +1,428 @@
+/*	SolveTrace.java
+
+	A compact, binary log of the changes made to a SudokuPuzzle while solving it.
+
+	Each entry records one primitive change to the puzzle -- a cell value being
+	placed or cleared, or a candidate being eliminated or restored -- along with
+	the technique that caused it.  Entries are packed into a fixed number of bytes
+	that depends only on the puzzle size (3 bytes per entry for 9x9 puzzles, and
+	at most 4 bytes for sizes up to 100x100), so any entry can be located directly
+	and a trace can be replayed either forwards or backwards in time proportional
+	to the number of entries replayed.
+
+	Entry layout (least significant bits first):
+
+		op (3 bits) | technique (6 bits) | cell index (row*size + col) | value
+
+	where the cell index and value fields are just wide enough for the puzzle size.
+	For PLACE and CLEAR entries the value is the cell value placed or removed, and
+	for ELIMINATE and RESTORE entries it is the candidate value (1 to size).
+	STEP entries mark the end of a user-visible solving step (e.g. one click of
+	"Solve Next") so that a viewer can scrub through a solution step by step.
+	They have no cell or value, so those fields together hold the viewer's flags
+	(STEP_SHOW_CANDIDATES, STEP_SOLVING) as they were at the end of the step.
+
+	Every entry is reversible on its own:  CLEAR entries store the value that was
+	removed, so replaying backwards never needs to look at earlier entries.
+
+	October 18, 2026
+ */
+
+import java.io.*;
+import java.util.*;
+
+
+public class SolveTrace
+{
+	// entry operation codes
+	public static final int		OP_PLACE = 0;			// empty cell set to value (SOLVED)
+	public static final int		OP_PLACE_CLUE = 1;		// empty cell set to value (CLUE)
+	public static final int		OP_CLEAR = 2;			// SOLVED cell with value made empty
+	public static final int		OP_CLEAR_CLUE = 3;		// CLUE cell with value made empty
+	public static final int		OP_ELIMINATE = 4;		// candidate value removed from cell
+	public static final int		OP_RESTORE = 5;			// candidate value added back to cell
+	public static final int		OP_STEP = 6;			// end of a solving step (no change)
+
+	// viewer flags recorded with STEP entries
+	public static final int		STEP_SHOW_CANDIDATES = 1;
+	public static final int		STEP_SOLVING = 2;
+	private static final int	STEP_FLAG_MASK = STEP_SHOW_CANDIDATES | STEP_SOLVING;
+
+	private static final int	OP_BITS = 3;
+	private static final int	TECHNIQUE_BITS = 6;
+	private static final int	MAX_TECHNIQUE = (1 << TECHNIQUE_BITS) - 1;
+
+	// serialized trace header
+	private static final int	FILE_MAGIC = 0x53545243;	// "STRC"
+	private static final int	FILE_VERSION = 1;
+
+	private final int		size;				// puzzle size (size x size cells)
+	private final int		cellBits;			// width of the cell index field
+	private final int		valueBits;			// width of the value field
+	private final int		entryBytes;			// number of bytes per packed entry
+	private final int		cellShift;			// bit offset of the cell index field
+	private final int		valueShift;			// bit offset of the value field
+
+	private byte[]			data;				// packed entries
+	private int				count;				// number of entries in data
+	private SolveTechnique	technique = SolveTechnique.USER;	// technique for generic changes
+
+
+	public SolveTrace(int puzzleSize)
+	{
+		this(puzzleSize, 64);
+	}
+
+	public SolveTrace(int puzzleSize, int initialCapacity)
+	{
+		int		bits;
+
+		if (puzzleSize < 1 || puzzleSize > 100) {
+			throw new IllegalArgumentException("SolveTrace: puzzle size out of range, size=" + puzzleSize);
+		}
+
+		size = puzzleSize;
+		cellBits = bitsNeeded(size*size - 1);
+		valueBits = bitsNeeded(size);
+		cellShift = OP_BITS + TECHNIQUE_BITS;
+		valueShift = cellShift + cellBits;
+		bits = valueShift + valueBits;
+		entryBytes = (bits + 7) / 8;
+		data = new byte[Math.max(1, initialCapacity) * entryBytes];
+		count = 0;
+	}
+
+	// returns the number of bits required to store values from 0 to maxValue
+	private static int bitsNeeded(int maxValue)
+	{
+		return Math.max(1, 32 - Integer.numberOfLeadingZeros(maxValue));
+	}
+
+	public int getPuzzleSize()
+	{
+		return size;
+	}
+
+	// returns the number of entries in the trace
+	public int length()
+	{
+		return count;
+	}
+
+	// returns the number of bytes used by each entry in this trace
+	public int getEntryBytes()
+	{
+		return entryBytes;
+	}
+
+	/** getTechnique() returns the technique that is recorded for changes made
+		through SudokuPuzzle's generic setters (e.g. setCellValue()).  Solvers should
+		call setTechnique() before changing the puzzle so that their changes are
+		attributed correctly.  The default is SolveTechnique.USER.
+	 */
+	public SolveTechnique getTechnique()
+	{
+		return technique;
+	}
+
+	public void setTechnique(SolveTechnique technique)
+	{
+		this.technique = (technique != null) ? technique : SolveTechnique.USER;
+	}
+
+	// removes all entries
+	public void clear()
+	{
+		count = 0;
+	}
+
+	/** truncate() discards all entries at index newLength and beyond.  Use this
+		to start recording a new line of solving after scrubbing backwards.
+	 */
+	public void truncate(int newLength)
+	{
+		if (newLength >= 0 && newLength < count) {
+			count = newLength;
+		}
+	}
+
+
+	/* Recording methods.  Row, col, and value are not checked beyond what is
+	   needed to keep the packed fields from overflowing, so callers (normally
+	   SudokuPuzzle) must pass valid values.
+	 */
+
+	public void recordPlace(int row, int col, int value, boolean isClue, SolveTechnique tech)
+	{
+		append(isClue ? OP_PLACE_CLUE : OP_PLACE, tech, row, col, value);
+	}
+
+	public void recordClear(int row, int col, int oldValue, boolean wasClue, SolveTechnique tech)
+	{
+		append(wasClue ? OP_CLEAR_CLUE : OP_CLEAR, tech, row, col, oldValue);
+	}
+
+	public void recordEliminate(int row, int col, int value, SolveTechnique tech)
+	{
+		append(OP_ELIMINATE, tech, row, col, value);
+	}
+
+	public void recordRestore(int row, int col, int value, SolveTechnique tech)
+	{
+		append(OP_RESTORE, tech, row, col, value);
+	}
+
+	/** markStep() marks the end of a solving step and records the viewer's flags
+		(STEP_SHOW_CANDIDATES and/or STEP_SOLVING) as of the end of the step.
+		Consecutive step marks are collapsed into one that keeps the newest flags.
+	 */
+	public void markStep(int viewFlags)
+	{
+		int		techidx = (technique.ordinal() <= MAX_TECHNIQUE) ? technique.ordinal() : 0;
+		long	entry = OP_STEP | ((long)techidx << OP_BITS)
+		                        | ((long)(viewFlags & STEP_FLAG_MASK) << cellShift);
+
+		if (count > 0 && getOp(count-1) == OP_STEP)	--count;
+		appendEntry(entry);
+	}
+
+	/** getStepFlags() returns the viewer flags that go with position pos, i.e. the
+		flags of the last STEP mark before pos, or 0 if there is none.
+	 */
+	public int getStepFlags(int pos)
+	{
+		for (int i = Math.min(pos, count) - 1; i >= 0; i--) {
+			if (getOp(i) == OP_STEP) {
+				return (int)((getEntry(i) >>> cellShift) & STEP_FLAG_MASK);
+			}
+		}
+		return 0;
+	}
+
+	private void append(int op, SolveTechnique tech, int row, int col, int value)
+	{
+		int		techidx;
+
+		techidx = (tech != null) ? tech.ordinal() : 0;
+		if (techidx > MAX_TECHNIQUE)	techidx = 0;
+		appendEntry(op | ((long)techidx << OP_BITS)
+		               | ((long)(row*size + col) << cellShift)
+		               | ((long)value << valueShift));
+	}
+
+	private void appendEntry(long entry)
+	{
+		int		pos;
+
+		pos = count * entryBytes;
+		if (pos + entryBytes > data.length) {
+			data = Arrays.copyOf(data, Math.max(data.length * 2, pos + entryBytes));
+		}
+		for (int i = 0; i < entryBytes; i++) {
+			data[pos+i] = (byte)entry;
+			entry >>>= 8;
+		}
+		++count;
+	}
+
+
+	/* Methods for reading individual entries (0 to length()-1) */
+
+	private long getEntry(int index)
+	{
+		long	entry = 0;
+		int		pos = index * entryBytes;
+
+		for (int i = entryBytes - 1; i >= 0; i--) {
+			entry = (entry << 8) | (data[pos+i] & 0xFF);
+		}
+		return entry;
+	}
+
+	public int getOp(int index)
+	{
+		return (int)(getEntry(index) & ((1 << OP_BITS) - 1));
+	}
+
+	public SolveTechnique getTechnique(int index)
+	{
+		return SolveTechnique.fromOrdinal((int)((getEntry(index) >>> OP_BITS) & MAX_TECHNIQUE));
+	}
+
+	public int getRow(int index)
+	{
+		return getCellIndex(index) / size;
+	}
+
+	public int getColumn(int index)
+	{
+		return getCellIndex(index) % size;
+	}
+
+	private int getCellIndex(int index)
+	{
+		return (int)((getEntry(index) >>> cellShift) & ((1L << cellBits) - 1));
+	}
+
+	public int getValue(int index)
+	{
+		return (int)((getEntry(index) >>> valueShift) & ((1L << valueBits) - 1));
+	}
+
+
+	/* Replay methods.  The puzzle's own trace (if any) is detached during replay
+	   so that replayed changes are not recorded a second time.
+	 */
+
+	/** replayForward() re-applies entries [from, to) to puzzle in order and returns
+		the new position (to).  The puzzle should be in the state that it had when
+		entry 'from' was recorded.
+	 */
+	public int replayForward(SudokuPuzzle puzzle, int from, int to)
+	{
+		SolveTrace	saved;
+		long		entry;
+		int			op, cell, value;
+
+		if (!checkReplayArgs(puzzle, from, to, "replayForward"))	return from;
+
+		saved = puzzle.getSolveTrace();
+		puzzle.setSolveTrace(null);
+		try {
+			for (int i = from; i < to; i++) {
+				entry = getEntry(i);
+				op = (int)(entry & ((1 << OP_BITS) - 1));
+				cell = (int)((entry >>> cellShift) & ((1L << cellBits) - 1));
+				value = (int)((entry >>> valueShift) & ((1L << valueBits) - 1));
+				switch (op) {
+					case OP_PLACE:		puzzle.setCellValue(cell / size, cell % size, value);	break;
+					case OP_PLACE_CLUE:	puzzle.setCellClue(cell / size, cell % size, value);	break;
+					case OP_CLEAR:
+					case OP_CLEAR_CLUE:	puzzle.setCellValue(cell / size, cell % size, SudokuPuzzle.EMPTY_CELL);	break;
+					case OP_ELIMINATE:	puzzle.setCellCandidate(cell / size, cell % size, value, false);	break;
+					case OP_RESTORE:	puzzle.setCellCandidate(cell / size, cell % size, value, true);		break;
+					default:			break;
+				}
+			}
+		}
+		finally {
+			puzzle.setSolveTrace(saved);
+		}
+
+		return to;
+	}
+
+	/** replayBackward() undoes entries [to, from) in reverse order and returns the
+		new position (to).  The puzzle should be in the state that it had after
+		entry 'from'-1 was recorded.
+	 */
+	public int replayBackward(SudokuPuzzle puzzle, int from, int to)
+	{
+		SolveTrace	saved;
+		long		entry;
+		int			op, cell, value;
+
+		if (!checkReplayArgs(puzzle, to, from, "replayBackward"))	return from;
+
+		saved = puzzle.getSolveTrace();
+		puzzle.setSolveTrace(null);
+		try {
+			for (int i = from - 1; i >= to; i--) {
+				entry = getEntry(i);
+				op = (int)(entry & ((1 << OP_BITS) - 1));
+				cell = (int)((entry >>> cellShift) & ((1L << cellBits) - 1));
+				value = (int)((entry >>> valueShift) & ((1L << valueBits) - 1));
+				switch (op) {
+					case OP_PLACE:
+					case OP_PLACE_CLUE:	puzzle.setCellValue(cell / size, cell % size, SudokuPuzzle.EMPTY_CELL);	break;
+					case OP_CLEAR:		puzzle.setCellValue(cell / size, cell % size, value);	break;
+					case OP_CLEAR_CLUE:	puzzle.setCellClue(cell / size, cell % size, value);	break;
+					case OP_ELIMINATE:	puzzle.setCellCandidate(cell / size, cell % size, value, true);		break;
+					case OP_RESTORE:	puzzle.setCellCandidate(cell / size, cell % size, value, false);	break;
+					default:			break;
+				}
+			}
+		}
+		finally {
+			puzzle.setSolveTrace(saved);
+		}
+
+		return to;
+	}
+
+	private boolean checkReplayArgs(SudokuPuzzle puzzle, int lo, int hi, String method)
+	{
+		if (puzzle.getSize() != size) {
+			System.err.printf("SolveTrace.%s(): puzzle size does not match trace, puzzle=%d, trace=%d\n", method, puzzle.getSize(), size);
+			return false;
+		}
+		if (lo < 0 || hi > count || lo > hi) {
+			System.err.printf("SolveTrace.%s(): positions out of range, from=%d, to=%d, length=%d\n", method, lo, hi, count);
+			return false;
+		}
+		return true;
+	}
+
+	/** nextStep() returns the position just after the end of the solving step that
+		begins at pos (i.e. after the next STEP mark), or length() if there is none.
+	 */
+	public int nextStep(int pos)
+	{
+		for (int i = pos; i < count; i++) {
+			if (getOp(i) == OP_STEP)	return i + 1;
+		}
+		return count;
+	}
+
+	/** previousStep() returns the position at the start of the solving step that
+		ends at pos (i.e. just after the STEP mark preceding it), or 0 if there is none.
+	 */
+	public int previousStep(int pos)
+	{
+		int i = Math.min(pos, count) - 1;
+
+		if (i >= 0 && getOp(i) == OP_STEP)	--i;		// skip the mark that ends this step
+		for ( ; i >= 0; i--) {
+			if (getOp(i) == OP_STEP)	return i + 1;
+		}
+		return 0;
+	}
+
+
+	/* Serialization.  The format is a small header followed by the packed entries
+	   exactly as they are stored in memory.
+	 */
+
+	public void write(DataOutput out) throws IOException
+	{
+		out.writeInt(FILE_MAGIC);
+		out.writeShort(FILE_VERSION);
+		out.writeShort(size);
+		out.writeInt(count);
+		out.write(data, 0, count * entryBytes);
+	}
+
+	public static SolveTrace read(DataInput in) throws IOException
+	{
+		SolveTrace	trace;
+		int			version, psize, entries;
+
+		if (in.readInt() != FILE_MAGIC) {
+			throw new IOException("SolveTrace.read(): not a solve trace");
+		}
+		version = in.readShort();
+		if (version != FILE_VERSION) {
+			throw new IOException("SolveTrace.read(): unsupported version " + version);
+		}
+		psize = in.readShort();
+		entries = in.readInt();
+		if (psize < 1 || psize > 100 || entries < 0) {
+			throw new IOException("SolveTrace.read(): corrupt header, size=" + psize + ", entries=" + entries);
+		}
+
+		trace = new SolveTrace(psize, entries);
+		in.readFully(trace.data, 0, entries * trace.entryBytes);
+		trace.count = entries;
+		return trace;
+	}
+}
@@ -0,0 +1,340 @@
+/*	SudokuCli.java
+
+	A command-line entry point for the model and solving code that never loads AWT
+	or Swing, for scripts, containers, and other short-lived uses:
+
+		java -cp bin SudokuCli solve [-portfolio | -local] [-alldiff] [-boxes] [-t ms] [-n nodes] [-r start-end] [-p puzzle] [file ...]
+		java -cp bin SudokuCli hint  [-boxes] [-t ms] [-r start-end] [-p puzzle] [file ...]
+		java -cp bin SudokuCli count [-boxes] [-t ms] [-n nodes] [-r start-end] [-p puzzle] [file ...]
+
+	Puzzles are given with -p or read from files (or standard input if there are
+	none, or for "-"), one puzzle string per line.  Blank lines and lines that start
+	with '#' are skipped, and the size of each puzzle is inferred from its number of
+	cells.  A file can also be a saved session (see SudokuSession).  Each puzzle
+	produces one line of output:
+
+		solve	"solved GRADE solution", "multiple GRADE solution" (the first one
+				found), "found solution" (a solution from local search, which
+				may not be the only one), "unsolvable", "budget_exceeded NODES
+				PROGRESS", or "error message"
+		hint	the next logical step (see HintEngine), "none", or "budget_exceeded"
+		count	the number of completions (see CompletionCounter), or
+				"budget_exceeded"
+
+	-t and -n limit each puzzle to a time in milliseconds or a number of search
+	nodes (see SolveBudget).  -portfolio solves with a PortfolioSolver, which races
+	singles and searches in two orders, instead of one BacktrackingSolver.  -local
+	solves with a LocalSearchSolver, which is also used for puzzles larger than
+	BacktrackingSolver supports (up to 100x100).  Puzzle strings larger than 25x25
+	have SudokuPuzzle's default regions, broken diagonals, unless -boxes is given:
+	then 36x36, 49x49, 64x64, 81x81, and 100x100 puzzle strings have square boxes,
+	for every command and solver.  -alldiff turns on all-different
+	matching propagation in the BacktrackingSolver (see setAllDifferent()), which
+	makes large or hard searches much smaller.  -r only reads bytes start to end-1 of each puzzle file,
+	which must begin at the start of a line (see BatchCoordinator).
+
+	The exit status is 0, or EXIT_PUZZLE_ERRORS (65) if any puzzle produced an
+	error line.  It is not 1, which is what the JVM exits with when it cannot
+	start or dies of an uncaught exception, so that BatchCoordinator can tell a
+	finished worker from a crashed one.
+
+	To start as quickly as possible, this class only uses classes that don't refer
+	to java.awt or javax.swing (SudokuView and SudokuSolverApp are never loaded).
+	It installs the scalar CandidateKernels itself, so no class is looked up by
+	name and the jdk.incubator.vector module is not loaded.  (Use -vector before the
+	command to let CandidateKernels.get() choose.)  Without reflection or lambdas the
+	same classes are loaded on every run, so a class-data-sharing archive covers
+	everything:
+
+		java -XX:ArchiveClassesAtExit=sudoku.jsa -cp bin SudokuCli solve puzzles.txt
+		java -XX:SharedArchiveFile=sudoku.jsa -cp bin SudokuCli solve puzzles.txt
+
+	October 19, 2026
+ */
+
+import java.io.*;
+import java.math.BigInteger;
+import java.util.*;
+
+
+public class SudokuCli
+{
+	public static final int				EXIT_PUZZLE_ERRORS = 65;		// some puzzles produced "error" lines
+
+	private final String				command;
+	private final PrintWriter			out;
+	private final BacktrackingSolver	solver = new BacktrackingSolver();
+	private final SudokuPuzzle[]		puzzles = new SudokuPuzzle[LocalSearchSolver.MAX_SIZE + 1];		// one reusable puzzle per size
+	private PortfolioSolver				portfolio;		// null unless -portfolio
+	private LocalSearchSolver			local;			// created when first needed
+	private boolean						localOnly;		// -local
+	private boolean						squareBoxes;	// -boxes
+	private HintEngine					hints;			// created when first needed
+	private CompletionCounter			counter;
+	private int							errors;
+	private long						millis = SolveBudget.NO_LIMIT;		// limits for each puzzle
+	private long						maxNodes = SolveBudget.NO_LIMIT;
+	private long						rangeStart = 0;						// byte range of each file to read
+	private long						rangeEnd = Long.MAX_VALUE;
+
+
+	public SudokuCli(String command, PrintWriter out)
+	{
+		this.command = command;
+		this.out = out;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		PrintWriter			out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+		SudokuCli			cli;
+		List<String>		files = new ArrayList<String>();
+		List<String>		puzzleStrings = new ArrayList<String>();
+		boolean				vector = false;
+		int					i = 0;
+
+		if (i < args.length && args[i].equals("-vector")) {
+			vector = true;
+			++i;
+		}
+		if (i >= args.length || !(args[i].equals("solve") || args[i].equals("hint") || args[i].equals("count"))) {
+			System.err.println("usage: java SudokuCli [-vector] solve|hint|count [-portfolio | -local] [-alldiff] [-boxes] [-t ms] [-n nodes] [-r start-end] [-p puzzle] [file ...]");
+			System.exit(2);
+		}
+		cli = new SudokuCli(args[i++], out);
+		for ( ; i < args.length; i++) {
+			if (args[i].equals("-p") && i+1 < args.length)	puzzleStrings.add(args[++i]);
+			else if (args[i].equals("-portfolio"))	cli.portfolio = new PortfolioSolver();
+			else if (args[i].equals("-local"))		cli.localOnly = true;
+			else if (args[i].equals("-alldiff"))	cli.solver.setAllDifferent(true);
+			else if (args[i].equals("-boxes"))		cli.squareBoxes = true;
+			else if (args[i].equals("-t") && i+1 < args.length)	cli.millis = Long.parseLong(args[++i]);
+			else if (args[i].equals("-n") && i+1 < args.length)	cli.maxNodes = Long.parseLong(args[++i]);
+			else if (args[i].equals("-r") && i+1 < args.length && args[i+1].indexOf('-') > 0) {
+				cli.rangeStart = Long.parseLong(args[++i].substring(0, args[i].indexOf('-')));
+				cli.rangeEnd = Long.parseLong(args[i].substring(args[i].indexOf('-') + 1));
+			}
+			else files.add(args[i]);
+		}
+		if (files.isEmpty() && puzzleStrings.isEmpty())	files.add("-");
+
+		if (!vector)	CandidateKernels.set(new CandidateKernels());
+		for (String str : puzzleStrings)	cli.process(str);
+		for (String name : files)	cli.processFile(name);
+		out.flush();
+		System.exit((cli.errors > 0) ? EXIT_PUZZLE_ERRORS : 0);
+	}
+
+	/** processFile() handles every puzzle in a file of puzzle strings ("-" for
+		standard input), or the puzzle of a session file.
+	 */
+	public void processFile(String name) throws IOException
+	{
+		BufferedReader	in;
+		SudokuSession	session;
+		String			line;
+
+		if (!name.equals("-") && isSessionFile(name)) {
+			try {
+				session = SudokuSession.read(new File(name));
+				process(session.puzzle);
+			}
+			catch (IOException e) {
+				error(name + ": " + e.getMessage());
+			}
+			return;
+		}
+
+		try {
+			in = name.equals("-") ? new BufferedReader(new InputStreamReader(System.in))
+			                      : new BufferedReader(new InputStreamReader(openRange(name)));
+		}
+		catch (FileNotFoundException e) {
+			error(name + ": file not found");
+			return;
+		}
+		try {
+			while ((line = in.readLine()) != null) {
+				if (isPuzzleLine(line))	process(line.trim());
+			}
+		}
+		finally {
+			if (!name.equals("-"))	in.close();
+		}
+	}
+
+	// returns true if a line of a puzzle file is a puzzle (not blank or a comment)
+	static boolean isPuzzleLine(String line)
+	{
+		line = line.trim();
+		return line.length() > 0 && !line.startsWith("#");
+	}
+
+	// opens a file positioned at rangeStart that ends at rangeEnd
+	private InputStream openRange(String name) throws IOException
+	{
+		return openRange(name, rangeStart, rangeEnd);
+	}
+
+	// opens a file positioned at start that ends at end (Long.MAX_VALUE for the end of the file)
+	static InputStream openRange(String name, long start, long end) throws IOException
+	{
+		FileInputStream	file = new FileInputStream(name);
+		final long		length = end - start;
+
+		if (start == 0 && end == Long.MAX_VALUE)	return file;
+		file.getChannel().position(start);
+		return new FilterInputStream(new BufferedInputStream(file)) {
+			private long	remaining = length;
+
+			public int read() throws IOException
+			{
+				if (remaining <= 0)	return -1;
+				--remaining;
+				return super.read();
+			}
+
+			public int read(byte[] b, int off, int len) throws IOException
+			{
+				int		n;
+
+				if (remaining <= 0)	return -1;
+				n = super.read(b, off, (int)Math.min(len, remaining));
+				if (n > 0)	remaining -= n;
+				return n;
+			}
+		};
+	}
+
+	// returns true if the file starts with the session magic number ("SDKS")
+	private static boolean isSessionFile(String name)
+	{
+		byte[]		magic = new byte[4];
+		InputStream	in;
+
+		try {
+			in = new FileInputStream(name);
+			try {
+				return in.read(magic) == 4 && new String(magic, "US-ASCII").equals("SDKS");
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	// handles one puzzle string
+	public void process(String puzzleString)
+	{
+		SudokuPuzzle	puzzle;
+		int				count, size, box;
+
+		count = SudokuPuzzle.countPuzzleStringCells(puzzleString);
+		size = (int)Math.round(Math.sqrt(count));
+		box = (int)Math.round(Math.sqrt(size));
+		if (size*size != count || size < 1 || size > ((command.equals("solve")) ? LocalSearchSolver.MAX_SIZE : BacktrackingSolver.MAX_SIZE)) {
+			error("cannot infer puzzle size from " + count + " cells");
+			return;
+		}
+
+		puzzle = puzzles[size];
+		if (puzzle == null) {
+			puzzle = puzzles[size] = new SudokuPuzzle(size);
+			if (squareBoxes && size >= SudokuPuzzle.regionBoxWidths.length && box*box == size)	puzzle.setSquareBoxRegions();
+		}
+		else {
+			puzzle.clearAllCells();
+		}
+		puzzle.setAllCells(puzzleString);
+		process(puzzle);
+	}
+
+	// handles one puzzle (which may be changed)
+	public void process(SudokuPuzzle puzzle)
+	{
+		SudokuHint	hint;
+		BigInteger	completions;
+		SolveBudget	budget = null;
+		BacktrackingSolver.Status	status;
+
+		if (millis != SolveBudget.NO_LIMIT || maxNodes != SolveBudget.NO_LIMIT) {
+			budget = new SolveBudget((millis == SolveBudget.NO_LIMIT) ? millis : millis*1000000L, maxNodes);
+		}
+		if (command.equals("solve") && (localOnly || puzzle.getSize() > BacktrackingSolver.MAX_SIZE)) {
+			if (local == null)	local = new LocalSearchSolver();
+			if (local.load(puzzle) != SudokuPuzzle.NO_ERR) {
+				error("unsupported puzzle");
+				return;
+			}
+			status = local.solve(budget);
+			if (status == BacktrackingSolver.Status.UNSOLVABLE) {
+				out.println("unsolvable");
+			}
+			else if (status != BacktrackingSolver.Status.SOLVED) {
+				out.printf(Locale.ROOT, "budget_exceeded %d %.3f\n", local.getNodeCount(), local.getProgress());
+			}
+			else {
+				local.copyBestTo(puzzle);
+				out.println("found " + puzzle.toPuzzleString());
+			}
+		}
+		else if (command.equals("solve") && portfolio != null) {
+			if (portfolio.load(puzzle) != SudokuPuzzle.NO_ERR) {
+				error("unsupported puzzle");
+				return;
+			}
+			status = portfolio.solve(budget);
+			if (status == BacktrackingSolver.Status.UNSOLVABLE) {
+				out.println("unsolvable");
+			}
+			else if (status == BacktrackingSolver.Status.BUDGET_EXCEEDED || status == BacktrackingSolver.Status.CANCELLED) {
+				out.printf(Locale.ROOT, "budget_exceeded %d %.3f\n", portfolio.getNodeCount(), portfolio.getProgress());
+			}
+			else {
+				portfolio.copySolutionTo(puzzle);
+				out.println(((status == BacktrackingSolver.Status.SOLVED) ? "solved " : "multiple ") + portfolio.getGrade() + " " + puzzle.toPuzzleString());
+			}
+		}
+		else if (command.equals("solve")) {
+			if (solver.load(puzzle) != SudokuPuzzle.NO_ERR) {
+				error("unsupported puzzle");
+				return;
+			}
+			status = solver.solve((budget != null) ? budget : SolveBudget.unlimited());
+			if (status == BacktrackingSolver.Status.UNSOLVABLE) {
+				out.println("unsolvable");
+			}
+			else if (status == BacktrackingSolver.Status.BUDGET_EXCEEDED || status == BacktrackingSolver.Status.CANCELLED) {
+				out.printf(Locale.ROOT, "budget_exceeded %d %.3f\n", solver.getNodeCount(), solver.getProgress());
+			}
+			else {
+				solver.copySolutionTo(puzzle);
+				out.println(((status == BacktrackingSolver.Status.SOLVED) ? "solved " : "multiple ") + solver.getGrade() + " " + puzzle.toPuzzleString());
+			}
+		}
+		else if (command.equals("hint")) {
+			if (hints == null)	hints = new HintEngine();
+			puzzle.recalculateAllCandidates();
+			hint = hints.findHint(puzzle, budget);
+			if (hint != null)	out.println(hint.toString());
+			else if (budget != null && budget.check())	out.println("budget_exceeded");
+			else out.println("none");
+		}
+		else {
+			if (counter == null)	counter = new CompletionCounter();
+			completions = counter.count(puzzle, budget);
+			if (completions != null)	out.println(completions);
+			else if (budget != null && puzzle.getSize() <= BacktrackingSolver.MAX_SIZE && PuzzleTopology.forPuzzle(puzzle) != null)	out.println("budget_exceeded");
+			else error("unsupported puzzle");
+		}
+	}
+
+	private void error(String message)
+	{
+		out.println("error " + message);
+		++errors;
+	}
+}
@@ -0,0 +1,169 @@
+/*	SudokuHint.java
+
+	One logical deduction that can be made from a puzzle's current state, as found
+	by HintEngine:  the technique used, the cells that justify it, and its result
+	(a cell value to place and/or a list of candidates to eliminate).
+
+	Hints are immutable and refer to cells by index (row*size + col).  A hint does
+	nothing to a puzzle until apply() is called.
+
+	October 18, 2026
+ */
+
+public class SudokuHint
+{
+	private final SolveTechnique	technique;
+	private final int				size;
+	private final int				unit;			// unit the deduction was made in (see PuzzleTopology) or -1
+	private final int[]				cells;			// cells that justify the deduction
+	private final int				placeCell;		// cell to set or -1
+	private final int				placeValue;
+	private final int[]				elimCells;		// candidates to remove:  elimValues[i] from elimCells[i]
+	private final int[]				elimValues;
+
+
+	SudokuHint(SolveTechnique technique, int size, int unit, int[] cells, int placeCell, int placeValue,
+	           int[] elimCells, int[] elimValues)
+	{
+		this.technique = technique;
+		this.size = size;
+		this.unit = unit;
+		this.cells = cells;
+		this.placeCell = placeCell;
+		this.placeValue = placeValue;
+		this.elimCells = (elimCells != null) ? elimCells : new int[0];
+		this.elimValues = (elimValues != null) ? elimValues : new int[0];
+	}
+
+	public SolveTechnique getTechnique()
+	{
+		return technique;
+	}
+
+	// returns the index of the unit (see PuzzleTopology) the deduction was made in, or -1
+	public int getUnit()
+	{
+		return unit;
+	}
+
+	public int getCellCount()
+	{
+		return cells.length;
+	}
+
+	public int getCellRow(int i)
+	{
+		return cells[i] / size;
+	}
+
+	public int getCellColumn(int i)
+	{
+		return cells[i] % size;
+	}
+
+	// returns true if the hint sets a cell value
+	public boolean isPlacement()
+	{
+		return (placeCell >= 0);
+	}
+
+	public int getPlacementRow()
+	{
+		return (placeCell >= 0) ? placeCell / size : SudokuPuzzle.NOT_FOUND;
+	}
+
+	public int getPlacementColumn()
+	{
+		return (placeCell >= 0) ? placeCell % size : SudokuPuzzle.NOT_FOUND;
+	}
+
+	public int getPlacementValue()
+	{
+		return placeValue;
+	}
+
+	public int getEliminationCount()
+	{
+		return elimCells.length;
+	}
+
+	public int getEliminationRow(int i)
+	{
+		return elimCells[i] / size;
+	}
+
+	public int getEliminationColumn(int i)
+	{
+		return elimCells[i] % size;
+	}
+
+	public int getEliminationValue(int i)
+	{
+		return elimValues[i];
+	}
+
+	/** apply() makes the hint's changes to puzzle.  A placed cell also loses all
+		of its candidates.  If the puzzle is recording a solve trace, the changes are
+		recorded with the hint's technique.
+	 */
+	public void apply(SudokuPuzzle puzzle)
+	{
+		SolveTrace		trace = puzzle.getSolveTrace();
+		SolveTechnique	saved = null;
+		int				row, col;
+
+		if (puzzle.getSize() != size) {
+			System.err.printf("SudokuHint.apply(): puzzle size does not match hint, puzzle=%d, hint=%d\n", puzzle.getSize(), size);
+			return;
+		}
+
+		if (trace != null) {
+			saved = trace.getTechnique();
+			trace.setTechnique(technique);
+		}
+		if (placeCell >= 0) {
+			row = placeCell / size;
+			col = placeCell % size;
+			puzzle.setCellValue(row, col, placeValue);
+			for (int value = 1; value <= size; value++) {
+				puzzle.setCellCandidate(row, col, value, false);
+			}
+		}
+		for (int i = 0; i < elimCells.length; i++) {
+			puzzle.setCellCandidate(elimCells[i] / size, elimCells[i] % size, elimValues[i], false);
+		}
+		if (trace != null) {
+			trace.setTechnique(saved);
+		}
+	}
+
+	// returns a short description such as "HIDDEN_SINGLE: r3c5 = 7 (only place for 7 in row 3)"
+	public String toString()
+	{
+		StringBuilder	str = new StringBuilder();
+
+		str.append(technique);
+		if (placeCell >= 0) {
+			str.append(": ");
+			appendCell(str, placeCell).append(" = ").append(placeValue);
+		}
+		if (unit >= 0) {
+			str.append(" in ").append((unit < size) ? "row " : (unit < 2*size) ? "column " : "region ").append(unit % size + 1);
+		}
+		if (elimCells.length > 0) {
+			str.append(": removes ");
+			for (int i = 0; i < elimCells.length; i++) {
+				if (i > 0)	str.append(", ");
+				str.append(elimValues[i]).append(" from ");
+				appendCell(str, elimCells[i]);
+			}
+		}
+		return str.toString();
+	}
+
+	// appends cell in the common "r<row>c<col>" notation (1-based)
+	private StringBuilder appendCell(StringBuilder str, int cell)
+	{
+		return str.append('r').append(cell / size + 1).append('c').append(cell % size + 1);
+	}
+}
@@ -12,7 +12,7 @@
 		- grid size is 9x9 with standard 3x3 regions if unspecified
 		- grid sizes of 4x4, 6x6, 12x12, 16x16, 20x20, 25x25 have non-overlapping regions 
 		       that are 2x2, 2x3, 3x4,   4x4,   4x5, or 5x5, respectively, if unspecified
-		- irregular regions can be defined for any grid size (NOT YET!)
+		- irregular regions can be defined for any grid size (see setCellRegions())
 		- cell values range between 1 and N
 		- cell status can be "clue", "solved", or "unsolved":
 			- "clue" & "solved" cells have a cell value between 1 and N
@@ -37,6 +37,7 @@
 	March 19, 2014
  */
 
+import java.io.*;
 import java.util.*;
 
 
@@ -72,6 +73,36 @@ public class SudokuPuzzle
 	// dim'd int[n][size][2]:  n regions each with size cells specified by a {row,col} pair
 	private int[][][]		regionCellLists;
 	
+	// index of the "other" region containing each cell
+	private int[][]			cellRegions;
+	
+	// optional log of changes made while solving (null if not recording)
+	private SolveTrace		trace;
+	
+	// links between candidates for chain searches (null until getLinkGraph() is first called);
+	// kept up to date by updateCandidate() and updateCell(), or marked stale by bulk changes
+	private LinkGraph		links;
+	
+	// incremented by every change to cell values or candidates
+	private int				modCount = 0;
+	
+	// number of cells with each value in each row, column, and region:  valueCounts[unit][value]
+	// where units 0..size-1 are rows, size..2*size-1 columns, and 2*size..3*size-1 regions
+	private int[][]			valueCounts;
+	
+	// number of (unit, value) pairs where the value appears more than once in the unit
+	private int				conflictCount = 0;
+	
+	// loops over whole candidate arrays (scalar or vector versions)
+	private final CandidateKernels	kernels = CandidateKernels.get();
+	private boolean[][]				unitCandidates;		// reusable list of one unit's candidate arrays
+	private boolean[][]				unitKnowns;			// reusable sets of the values placed in each unit
+	private boolean[]				keepValues;			// reusable set of values for setCellCandidates()
+	
+	// Killer Sudoku cages (if any) and the index of the cage containing each cell (-1 = none)
+	private ArrayList<KillerCage>	cages = new ArrayList<KillerCage>();
+	private int[][]					cellCages;
+	
 
 	// create an empty, standard, 9x9 puzzle 
 	public SudokuPuzzle()
@@ -117,6 +148,11 @@ public class SudokuPuzzle
 		isClue = new boolean[size][size];
 		candidates = new boolean[size][size][size];
 		regionCellLists = new int[size][size][2];		// FIXME: assume 'size' other regions for now
+		cellRegions = new int[size][size];
+		valueCounts = new int[3*size][size+1];
+		unitCandidates = new boolean[size][];
+		unitKnowns = new boolean[3*size][size];
+		keepValues = new boolean[size];
 	}
 	
 	private void MakeDefaultRegionLists()
@@ -130,6 +166,7 @@ public class SudokuPuzzle
 		for (int row = 0; row < size; row++) {
 			for (int col = 0; col < size; col++) {
 				rgnidx = getCellDefaultRegion(row, col);
+				cellRegions[row][col] = rgnidx;
 				regionCellLists[rgnidx][ listidx[rgnidx] ][0] = row;
 				regionCellLists[rgnidx][ listidx[rgnidx] ][1] = col;
 				++listidx[rgnidx];
@@ -198,14 +235,11 @@ public class SudokuPuzzle
 		return rgnidx;
 	}
 	
-	/** Returns the index of the first OTHER-type region for the cell at (row,col)
-		NOTE: only works for the "default" regions created for some sizes at this time
-	 */
+	/** Returns the index of the first OTHER-type region for the cell at (row,col) */
 	public int getCellRegionIdx(int row, int col)
 	{
 		if (row >= 0 && row < size && col >= 0 && col < size) {
-			// FIXME: make this function work for non-default regions!
-			return getCellDefaultRegion(row, col);
+			return cellRegions[row][col];
 		}
 		else {
 			System.err.printf("SudokuPuzzle.getCellRegionIdx(): parameter(s) out of range, row=%d, col=%d\n", row, col);
@@ -213,6 +247,71 @@ public class SudokuPuzzle
 		}
 	}
 	
+	/** setCellRegions() replaces the puzzle's OTHER-type regions.  regionIdx[row][col]
+		is the index (0 to size-1) of the region containing each cell, and every region
+		must contain exactly size cells.  Returns NO_ERR or PARAM_ERR.
+	 */
+	public int setCellRegions(int[][] regionIdx)
+	{
+		int[]	listidx = new int[size];
+		int		rgnidx;
+		
+		// verify that the regions partition the grid
+		if (regionIdx.length < size) {
+			System.err.println("SudokuPuzzle.setCellRegions(): not enough rows in regionIdx");
+			return PARAM_ERR;
+		}
+		for (int row = 0; row < size; row++) {
+			if (regionIdx[row].length < size) {
+				System.err.printf("SudokuPuzzle.setCellRegions(): not enough columns in regionIdx, row %d\n", row);
+				return PARAM_ERR;
+			}
+			for (int col = 0; col < size; col++) {
+				rgnidx = regionIdx[row][col];
+				if (rgnidx < 0 || rgnidx >= size || ++listidx[rgnidx] > size) {
+					System.err.printf("SudokuPuzzle.setCellRegions(): bad region, row=%d, col=%d, region=%d\n", row, col, rgnidx);
+					return PARAM_ERR;
+				}
+			}
+		}
+		
+		// rebuild the region lists
+		Arrays.fill(listidx, 0);
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				rgnidx = regionIdx[row][col];
+				cellRegions[row][col] = rgnidx;
+				regionCellLists[rgnidx][ listidx[rgnidx] ][0] = row;
+				regionCellLists[rgnidx][ listidx[rgnidx] ][1] = col;
+				++listidx[rgnidx];
+			}
+		}
+		recountValues();
+		++modCount;
+		if (links != null)	links.invalidate();
+		return NO_ERR;
+	}
+	
+	/** setSquareBoxRegions() replaces the puzzle's OTHER-type regions with square
+		boxes, for puzzles larger than 25x25 (whose default regions are broken
+		diagonals) that are written with boxes.  Returns NO_ERR, or PARAM_ERR if
+		the size is not a square.
+	 */
+	public int setSquareBoxRegions()
+	{
+		int		box = (int)Math.round(Math.sqrt(size));
+		int[][]	regionIdx = new int[size][size];
+		
+		if (box*box != size) {
+			System.err.printf("SudokuPuzzle.setSquareBoxRegions(): size is not a square, size=%d\n", size);
+			return PARAM_ERR;
+		}
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++)	regionIdx[row][col] = (row/box)*box + col/box;
+		}
+		return setCellRegions(regionIdx);
+	}
+	
 	/** testCellCandidate() tests if value is a candidate for the specified cell.
 		Note that this may not be *accurate* according to the CLUE & SOLVED cell values,
 		but merely reflects the current state of the SudokuPuzzle object as set by the user.
@@ -223,42 +322,336 @@ public class SudokuPuzzle
 		return candidates[row][col][value];
 	}
 	
+	/** getCellCandidateMask() returns the candidates of the specified cell as a
+		bitmask with bit v-1 set if v is a candidate.  Only values up to 64 fit, so
+		use getCellCandidates(row, col, values) for larger puzzles.
+	 */
+	public long getCellCandidateMask(int row, int col)
+	{
+		boolean[]	cands = candidates[row][col];
+		long		mask = 0;
+		int			n = (size < 64) ? size : 64;
+		
+		for (int cand = 0; cand < n; cand++) {
+			if (cands[cand])	mask |= 1L << cand;
+		}
+		return mask;
+	}
+	
+	/** This version of getCellCandidates() stores the candidate values (1 to size)
+		of the specified cell in values (which must have room for size values) and
+		returns how many there are, or PARAM_ERR.  Nothing is allocated.
+	 */
+	public int getCellCandidates(int row, int col, int[] values)
+	{
+		boolean[]	cands;
+		int			count = 0;
+		
+		if (row < 0 || row >= size || col < 0 || col >= size) {
+			System.err.printf("SudokuPuzzle.getCellCandidates(): parameter(s) out of range, row=%d, col=%d\n", row, col);
+			return PARAM_ERR;
+		}
+		cands = candidates[row][col];
+		for (int cand = 0; cand < size; cand++) {
+			if (cands[cand])	values[count++] = cand+1;
+		}
+		return count;
+	}
+	
+	// returns a new array with the candidate values (1 to size) of the specified cell
 	public int[] getCellCandidates(int row, int col)
 	{
-		return new int[0];
+		int[]	values = new int[size];
+		int		count = getCellCandidates(row, col, values);
+		
+		return Arrays.copyOf(values, (count > 0) ? count : 0);
+	}
+	
+	/** setCellCandidate() adds (isCandidate == true) or removes value (1 to size)
+		from the candidates of the specified cell.
+	 */
+	public void setCellCandidate(int row, int col, int value, boolean isCandidate)
+	{
+		if (row >= 0 && row < size && col >= 0 && col < size && (value >= 1 && value <= size)) {
+			updateCandidate(row, col, value-1, isCandidate, (trace != null) ? trace.getTechnique() : null);
+		}
+		else {
+			System.err.printf("SudokuPuzzle.setCellCandidate(): parameter(s) out of range, row=%d, col=%d, value=%d\n", row, col, value);
+		}
+	}
+	
+	// sets one candidate (zero-indexed) and records the change in the solve trace if any
+	private void updateCandidate(int row, int col, int cand, boolean isCandidate, SolveTechnique tech)
+	{
+		if (candidates[row][col][cand] != isCandidate) {
+			candidates[row][col][cand] = isCandidate;
+			++modCount;
+			if (links != null && cells[row][col] == EMPTY_CELL)	links.setCandidate(row*size + col, cand, isCandidate);
+			if (trace != null) {
+				if (isCandidate)	trace.recordRestore(row, col, cand+1, tech);
+				else				trace.recordEliminate(row, col, cand+1, tech);
+			}
+		}
+	}
+	
+	/** updateCell() sets one cell's value & clue status, records the change in the
+		solve trace if any, and updates the value counts.  Returns the change in
+		getConflictCount():  positive if conflicts were created, negative if some were
+		resolved.
+	 */
+	private int updateCell(int row, int col, int value, boolean clue, SolveTechnique tech)
+	{
+		int		oldValue = cells[row][col];
+		int		oldConflicts = conflictCount;
+		boolean	wasClue = isClue[row][col];
+		
+		if (trace != null && (oldValue != value || (value != EMPTY_CELL && wasClue != clue))) {
+			if (oldValue != EMPTY_CELL)	trace.recordClear(row, col, oldValue, wasClue, tech);
+			if (value != EMPTY_CELL)	trace.recordPlace(row, col, value, clue, tech);
+		}
+		if (oldValue != value) {
+			countValue(row, col, oldValue, -1);
+			countValue(row, col, value, 1);
+		}
+		cells[row][col] = value;
+		isClue[row][col] = clue;
+		++modCount;
+		if (links != null && (oldValue == EMPTY_CELL) != (value == EMPTY_CELL)) {
+			// a cell's candidates only count while it is empty
+			links.setCandidates(row*size + col, (value == EMPTY_CELL) ? getCellCandidateMask(row, col) : 0);
+		}
+		return conflictCount - oldConflicts;
+	}
+	
+	// adds delta to the counts of value in the cell's row, column, and region
+	private void countValue(int row, int col, int value, int delta)
+	{
+		int	count;
+		
+		if (value == EMPTY_CELL)	return;
+		count = (valueCounts[row][value] += delta);
+		if (count == 2 && delta > 0 || count == 1 && delta < 0)	conflictCount += delta;
+		count = (valueCounts[size + col][value] += delta);
+		if (count == 2 && delta > 0 || count == 1 && delta < 0)	conflictCount += delta;
+		count = (valueCounts[2*size + cellRegions[row][col]][value] += delta);
+		if (count == 2 && delta > 0 || count == 1 && delta < 0)	conflictCount += delta;
+	}
+	
+	// recomputes all value counts from scratch (after bulk changes to cells or regions)
+	private void recountValues()
+	{
+		for (int[] counts : valueCounts)	Arrays.fill(counts, 0);
+		conflictCount = 0;
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++)	countValue(row, col, cells[row][col], 1);
+		}
+	}
+	
+	/** getConflictCount() returns the number of times that a value appears more than
+		once in a row, column, or region (counting each unit and value once).  It is
+		kept up to date as cells change, so a puzzle with no conflicts returns 0
+		without scanning the grid.  (Cages are not checked.)
+	 */
+	public int getConflictCount()
+	{
+		return conflictCount;
+	}
+	
+	/** isCellInConflict() returns true if the cell has a value that also appears in
+		another cell of the same row, column, or region.
+	 */
+	public boolean isCellInConflict(int row, int col)
+	{
+		int	value;
+		
+		if (row < 0 || row >= size || col < 0 || col >= size)	return false;
+		value = cells[row][col];
+		return (value != EMPTY_CELL && (valueCounts[row][value] > 1 || valueCounts[size + col][value] > 1
+		                                || valueCounts[2*size + cellRegions[row][col]][value] > 1));
+	}
+	
+	/** isSolved() returns true if every cell has a value, no value is repeated in a
+		row, column, or region, and the values of each cage are all different and add
+		up to the cage's sum.
+	 */
+	public boolean isSolved()
+	{
+		int		sum, n;
+		
+		if (conflictCount != 0)	return false;
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				if (cells[row][col] == EMPTY_CELL)	return false;
+			}
+		}
+		for (KillerCage cage : cages) {
+			sum = 0;
+			n = cage.getCellCount();
+			for (int i = 0; i < n; i++) {
+				sum += cells[cage.getCellRow(i)][cage.getCellColumn(i)];
+				for (int j = 0; j < i; j++) {
+					if (cells[cage.getCellRow(i)][cage.getCellColumn(i)] == cells[cage.getCellRow(j)][cage.getCellColumn(j)])	return false;
+				}
+			}
+			if (sum != cage.getSum())	return false;
+		}
+		return true;
+	}
+
+	/** getModCount() returns a counter that changes whenever any cell value or
+		candidate of the puzzle changes.  If it has the same value at two different
+		times, then the puzzle was not changed in between.
+	 */
+	public int getModCount()
+	{
+		return modCount;
+	}
+	
+	/** getLinkGraph() returns the strong and weak links between the puzzle's
+		candidates (see LinkGraph), or null if the puzzle is larger than 64x64 or its
+		regions are not supported by PuzzleTopology.  The graph is created on the first
+		call and then kept up to date as the puzzle changes.
+	 */
+	public LinkGraph getLinkGraph()
+	{
+		PuzzleTopology	topo;
+		
+		if (size > 64)	return null;
+		if (links == null || (links.isStale() && !links.topology.matches(this))) {
+			topo = PuzzleTopology.forPuzzle(this);
+			if (topo == null)	return null;
+			links = new LinkGraph(topo);
+			links.invalidate();
+		}
+		if (links.isStale())	links.update(this);
+		return links;
+	}
+
+	/** hashState() returns a 64-bit hash of the puzzle's cell values and candidates
+		(but not of which cells are clues).  Different seeds give independent hashes,
+		so two calls with different seeds can be combined into a 128-bit key.
+	 */
+	public long hashState(long seed)
+	{
+		long	h = seed ^ size, word;
+		int		bit;
+		
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				// pack the cell value and its candidates into 64-bit words
+				word = cells[row][col];
+				bit = 7;
+				for (boolean b : candidates[row][col]) {
+					if (b)	word |= 1L << bit;
+					if (++bit == 64) {
+						h = mixHash(h, word);
+						word = 0;
+						bit = 0;
+					}
+				}
+				h = mixHash(h, word);
+			}
+		}
+		for (KillerCage cage : cages) {
+			h = mixHash(h, cage.getSum());
+			for (int i = 0; i < cage.getCellCount(); i++) {
+				h = mixHash(h, cage.getCellRow(i)*size + cage.getCellColumn(i));
+			}
+		}
+		return h ^ (h >>> 31);
+	}
+	
+	private static long mixHash(long h, long word)
+	{
+		h ^= word * 0x9E3779B97F4A7C15L;
+		h = Long.rotateLeft(h, 27) * 0xBF58476D1CE4E5B9L;
+		return h;
+	}
+	
+	public SolveTrace getSolveTrace()
+	{
+		return trace;
+	}
+	
+	/** setSolveTrace() starts recording all subsequent changes to cell values and
+		candidates in newTrace (or stops recording if newTrace is null).  Changes made
+		by setAllCells() are not recorded, so load the clues before attaching a trace.
+	 */
+	public void setSolveTrace(SolveTrace newTrace)
+	{
+		if (newTrace != null && newTrace.getPuzzleSize() != size) {
+			System.err.printf("SudokuPuzzle.setSolveTrace(): trace size does not match puzzle, trace=%d, size=%d\n", newTrace.getPuzzleSize(), size);
+			return;
+		}
+		trace = newTrace;
 	}
 	
 	/** setCellValue() sets  the cell's value and its status either to SOLVED (if value is positive)
 		or to UNSOLVED (if value is EMPTY_CELL).  I.e.  This function removes CLUE status from the cell.
+		Returns the change in getConflictCount() (positive if the new value duplicates
+		another cell, negative if removing the old value resolved a conflict).
 	 */
-	public void setCellValue(int row, int col, int value)
+	public int setCellValue(int row, int col, int value)
 	{
 		if (row >= 0 && row < size && col >= 0 && col < size && (value == EMPTY_CELL || (value >= 1 && value <= size))) {
-			cells[row][col] = value;
-			isClue[row][col] = false;
+			return updateCell(row, col, value, false, (trace != null) ? trace.getTechnique() : null);
 		}
 		else {
 			System.err.printf("SudokuPuzzle.setCellValue(): parameter(s) out of range, row=%d, col=%d, value=%d\n", row, col, value);
-			// return PARAM_ERR;  ??
+			return 0;
 		}
 	}
 	
-	/** setCellClue() sets the cell's value and its status to CLUE. */
-	public void setCellClue(int row, int col, int value)
+	/** setCellClue() sets the cell's value and its status to CLUE.  Returns the
+		change in getConflictCount() (see setCellValue()).
+	 */
+	public int setCellClue(int row, int col, int value)
 	{
 		if (row >= 0 && row < size && col >= 0 && col < size && (value >= 1 && value <= size)) {
-			cells[row][col] = value;
-			isClue[row][col] = true;
+			return updateCell(row, col, value, true, (trace != null) ? trace.getTechnique() : null);
 		}
 		else {
 			System.err.printf("SudokuPuzzle.setCellClue(): parameter(s) out of range, row=%d, col=%d, value=%d\n", row, col, value);
-			// return PARAM_ERR;  ??
+			return 0;
 		}
 	}
 	
-	public void setCellCandidates(int row, int col, int[] candidates)
+	/** setCellCandidates() makes the values in the array (1 to size) the only
+		candidates of the specified cell.
+	 */
+	public void setCellCandidates(int row, int col, int[] values)
 	{
+		SolveTechnique	tech = (trace != null) ? trace.getTechnique() : null;
+		
+		if (row < 0 || row >= size || col < 0 || col >= size) {
+			System.err.printf("SudokuPuzzle.setCellCandidates(): parameter(s) out of range, row=%d, col=%d\n", row, col);
+			return;
+		}
+		Arrays.fill(keepValues, false);
+		for (int value : values) {
+			if (value >= 1 && value <= size)	keepValues[value-1] = true;
+			else System.err.printf("SudokuPuzzle.setCellCandidates(): value out of range, value=%d\n", value);
+		}
+		for (int cand = 0; cand < size; cand++) {
+			updateCandidate(row, col, cand, keepValues[cand], tech);
+		}
+	}
 	
+	/** setCellCandidateMask() makes the values whose bits are set in mask (bit v-1
+		for value v) the only candidates of the specified cell.  Only works for puzzles
+		up to 64x64.
+	 */
+	public void setCellCandidateMask(int row, int col, long mask)
+	{
+		SolveTechnique	tech = (trace != null) ? trace.getTechnique() : null;
+		
+		if (row < 0 || row >= size || col < 0 || col >= size || size > 64) {
+			System.err.printf("SudokuPuzzle.setCellCandidateMask(): parameter(s) out of range, row=%d, col=%d, size=%d\n", row, col, size);
+			return;
+		}
+		for (int cand = 0; cand < size; cand++) {
+			updateCandidate(row, col, cand, (mask & (1L << cand)) != 0, tech);
+		}
 	}
 	
 	public int countCellCandidates(int row, int col)
@@ -267,9 +660,7 @@ public class SudokuPuzzle
 		
 		if (row >= 0 && row < size && col >= 0 && col < size) {
 			if (cells[row][col] == EMPTY_CELL) {				// status is UNSOLVED
-				for (boolean b : candidates[row][col]) {
-					if (b)	++count;
-				}
+				count = kernels.countTrue(candidates[row][col], size);
 			}
 			else return 0;
 		}
@@ -281,132 +672,254 @@ public class SudokuPuzzle
 		return count;
 	}
 	
+	/** getRegionCell() returns the i-th cell (0 to size-1) of one region as a cell
+		index (row*size + col).  Loop over i to visit a region's cells without
+		allocating.  Returns PARAM_ERR if rgnidx or i is out of range.
+	 */
+	public int getRegionCell(RegionType type, int rgnidx, int i)
+	{
+		if (rgnidx < 0 || rgnidx >= getRegionCount(type) || i < 0 || i >= size) {
+			System.err.printf("SudokuPuzzle.getRegionCell(): parameter(s) out of range, rgnidx=%d, i=%d\n", rgnidx, i);
+			return PARAM_ERR;
+		}
+		switch (type) {
+			case ROW:		return rgnidx*size + i;
+			case COLUMN:	return i*size + rgnidx;
+			default:		return regionCellLists[rgnidx][i][0]*size + regionCellLists[rgnidx][i][1];
+		}
+	}
+	
 	/** countRegionCandidateOccurences() counts the number of occurences of each
 		candidate value within one region (specified by the region type and its
-		index between 0 and num-1 for that region type) and returns the counts as
-		an array int[size+1].  The count of value 1 is in a[1], of value 2 in a[2],
-		etc.  The first element, a[0] is NO_ERR or an error code if any.  
+		index between 0 and num-1 for that region type) and stores the counts in
+		counts, which must have room for size+1 elements.  The count of value 1 is
+		in counts[1], of value 2 in counts[2], etc.  Returns NO_ERR or PARAM_ERR.
 	 */
-	public int[] countRegionCandidateOccurences(RegionType type, int rgnidx)
+	public int countRegionCandidateOccurences(RegionType type, int rgnidx, int[] counts)
 	{
-		int		rgnmax = getRegionCount(type);	// num of regions of type
-		int[]	counts = new int[size+1];
+		int			rgnmax = getRegionCount(type);	// num of regions of type
+		int			row, col, empty = 0;
 		
 		if (rgnidx < 0 || rgnidx >= rgnmax) {
 			System.err.printf("SudokuPuzzle.countRegionCandidateOccurences(): rgnidx out of range, rgnidx=%d, rgnmax=%d\n", rgnidx, rgnmax);
-			counts[0] = PARAM_ERR;
-			return counts;
+			return PARAM_ERR;
 		}
 		
-		switch (type) {
-			case ROW:
-				// iterate over the row's empty cells & count each candidate
-				for (int col = 0; col < size; col++) {
-					if (cells[rgnidx][col] == EMPTY_CELL) {				// status is UNSOLVED
-						for (int cand = 0; cand < size; cand++) {
-							if (candidates[rgnidx][col][cand])	++(counts[cand+1]);
-						}
-					}
-				}
-				System.out.println("Row " + rgnidx + " counts: " + Arrays.toString(counts));
-				break;
-			case COLUMN:
-				// iterate over the column's empty cells & count each candidate
-				for (int row = 0; row < size; row++) {
-					if (cells[row][rgnidx] == EMPTY_CELL) {				// status is UNSOLVED
-						for (int cand = 0; cand < size; cand++) {
-							if (candidates[row][rgnidx][cand])	++(counts[cand+1]);
-						}
-					}
-				}
-				System.out.println("Column " + rgnidx + " counts: " + Arrays.toString(counts));
-				break;
-			case OTHER:
-				// iterate over the region's empty cells & count each candidate
-				for (int[] cell : regionCellLists[rgnidx]) {
-					int row = cell[0];
-					int col = cell[1];
-					if (cells[row][col] == EMPTY_CELL) {				// status is UNSOLVED
-						for (int cand = 0; cand < size; cand++) {
-							if (candidates[row][col][cand])	++(counts[cand+1]);
-						}
-					}
-				}
-				System.out.println("Other " + rgnidx + " counts: " + Arrays.toString(counts));
-				break;
+		// collect the candidates of the region's empty cells & count them all at once
+		for (int i = 0; i < size; i++) {
+			switch (type) {
+				case ROW:		row = rgnidx;						col = i;							break;
+				case COLUMN:	row = i;							col = rgnidx;						break;
+				default:		row = regionCellLists[rgnidx][i][0];	col = regionCellLists[rgnidx][i][1];	break;
+			}
+			if (cells[row][col] == EMPTY_CELL) {				// status is UNSOLVED
+				unitCandidates[empty++] = candidates[row][col];
+			}
 		}
+		Arrays.fill(counts, 0, size+1, 0);
+		kernels.addCounts(unitCandidates, empty, size, counts, 1);
+		return NO_ERR;
+	}
+	
+	/** This version of countRegionCandidateOccurences() returns the counts in a
+		new array int[size+1].  The first element, a[0], is NO_ERR or an error code.
+	 */
+	public int[] countRegionCandidateOccurences(RegionType type, int rgnidx)
+	{
+		int[]	counts = new int[size+1];
 		
-		counts[0] = NO_ERR;		// redundant, but ...
+		counts[0] = countRegionCandidateOccurences(type, rgnidx, counts);
 		return counts;
 	}
 	
+	/** findCandidateCell() returns the cell index (row*size + col) of the first
+		occurence of the candidate value (1 to size) within one region (specified by
+		the region type and its index between 0 and num-1 for that region type).
+		Returns NOT_FOUND if the candidate does not occur in the region or PARAM_ERR.
+	 */
+	public int findCandidateCell(int candidate, RegionType type, int rgnidx)
+	{
+		int		rgnmax = getRegionCount(type);	// num of regions of type
+		int		row, col;
+		
+		if (rgnidx < 0 || rgnidx >= rgnmax || candidate < 1 || candidate > size) {
+			System.err.printf("SudokuPuzzle.findCandidateCell(): parameter(s) out of range, candidate=%d, rgnidx=%d, rgnmax=%d\n", candidate, rgnidx, rgnmax);
+			return PARAM_ERR;
+		}
+		
+		candidate = candidate - 1;	// candidate arrays are zero-indexed!
+		// iterate over the region's empty cells & search for candidate
+		for (int i = 0; i < size; i++) {
+			switch (type) {
+				case ROW:		row = rgnidx;						col = i;							break;
+				case COLUMN:	row = i;							col = rgnidx;						break;
+				default:		row = regionCellLists[rgnidx][i][0];	col = regionCellLists[rgnidx][i][1];	break;
+			}
+			if (cells[row][col] == EMPTY_CELL && candidates[row][col][candidate]) {
+				return row*size + col;
+			}
+		}
+		
+		// candidate was not found
+		return NOT_FOUND;
+	}
+	
 	/** findCandidateInRegion() returns an int[2] array containing the {row, col}
 		of the first occurence of the candidate value (1 to size) within one region 
-		(specified by the region type and its index between 0 and num-1 for that 
-		region type).  Returns NOT_FOUND or an error code in place of the row index 
-		if the candidate does not occur in the region or some other error occurred.
-		(All error codes should be less than zero).
+		(see findCandidateCell()).  Returns NOT_FOUND or an error code in place of the
+		row index if the candidate does not occur in the region or some other error
+		occurred.  (All error codes should be less than zero).
 	 */
 	public int[] findCandidateInRegion(int candidate, RegionType type, int rgnidx)
 	{
-		int		rgnmax = getRegionCount(type);	// num of regions of type
 		int[]	cell = new int[2];
+		int		idx = findCandidateCell(candidate, type, rgnidx);
 		
-		if (rgnidx < 0 || rgnidx >= rgnmax) {
-			System.err.printf("SudokuPuzzle.findCandidateInRegion(): rgnidx out of range, rgnidx=%d, rgnmax=%d\n", rgnidx, rgnmax);
-			cell[0] = PARAM_ERR;
-			return cell;
+		if (idx < 0) {
+			cell[0] = idx;
 		}
+		else {
+			cell[0] = idx / size;
+			cell[1] = idx % size;
+		}
+		return cell;
+	}
+	
+	
+	/** addCage() adds a Killer Sudoku cage to the puzzle.  Returns NO_ERR, or
+		PARAM_ERR if any of the cage's cells is out of range or already in a cage, or
+		if the cage has more than size cells.
+	 */
+	public int addCage(KillerCage cage)
+	{
+		int		row, col, n = cage.getCellCount();
 		
-		candidate = candidate - 1;	// candidate arrays are zero-indexed!
-		switch (type) {
-			case ROW:
-				// iterate over the row's empty cells & search for candidate
-				for (int col = 0; col < size; col++) {
-					if (cells[rgnidx][col] == EMPTY_CELL) {				// status is UNSOLVED
-						if (candidates[rgnidx][col][candidate]) {
-							cell[0] = rgnidx;
-							cell[1] = col;
-							System.out.println("Row " + rgnidx + " cell: " + Arrays.toString(cell));
-							return cell;
-						}
-					}
+		if (n < 1 || n > size || cage.getSum() < 1 || cage.getSum() > size*(size+1)/2) {
+			System.err.printf("SudokuPuzzle.addCage(): cage out of range, cells=%d, sum=%d\n", n, cage.getSum());
+			return PARAM_ERR;
+		}
+		if (cellCages == null) {
+			cellCages = new int[size][size];
+			for (int[] r : cellCages)	Arrays.fill(r, -1);
+		}
+		for (int i = 0; i < n; i++) {
+			row = cage.getCellRow(i);
+			col = cage.getCellColumn(i);
+			if (row < 0 || row >= size || col < 0 || col >= size || cellCages[row][col] >= 0) {
+				System.err.printf("SudokuPuzzle.addCage(): cell out of range or already in a cage, row=%d, col=%d\n", row, col);
+				// undo the cells marked so far
+				for (int j = 0; j < i; j++)	cellCages[cage.getCellRow(j)][cage.getCellColumn(j)] = -1;
+				return PARAM_ERR;
+			}
+			cellCages[row][col] = cages.size();
+		}
+		cages.add(cage);
+		++modCount;
+		return NO_ERR;
+	}
+	
+	/** addCages() adds all of the cages in a cage string (see KillerCage).
+		Returns NO_ERR or PARAM_ERR if any cage could not be parsed or added.
+	 */
+	public int addCages(String cageString)
+	{
+		List<KillerCage>	list = KillerCage.parseCages(cageString);
+		int					err = NO_ERR;
+		
+		if (list == null)	return PARAM_ERR;
+		for (KillerCage cage : list) {
+			if (addCage(cage) != NO_ERR)	err = PARAM_ERR;
+		}
+		return err;
+	}
+	
+	public void removeAllCages()
+	{
+		cages.clear();
+		cellCages = null;
+		++modCount;
+	}
+	
+	public int getCageCount()
+	{
+		return cages.size();
+	}
+	
+	public KillerCage getCage(int idx)
+	{
+		return cages.get(idx);
+	}
+	
+	// returns the index of the cage containing the cell at (row,col) or NOT_FOUND
+	public int getCellCage(int row, int col)
+	{
+		if (cellCages == null || row < 0 || row >= size || col < 0 || col >= size || cellCages[row][col] < 0) {
+			return NOT_FOUND;
+		}
+		return cellCages[row][col];
+	}
+	
+	/** applyCageConstraints() removes every candidate that cannot be part of a set of
+		different values adding up to the sum of its cage, given the values already in
+		the cage and the candidates of the cage's other empty cells (see CageSumTables).
+		Returns true if any candidates were removed.  Only works for sizes up to 64.
+	 */
+	public boolean applyCageConstraints()
+	{
+		CageSumTables	tables = CageSumTables.forSize(size);
+		KillerCage		cage;
+		boolean			madeChanges = false;
+		int				n, empty, remaining, row, col;
+		long			placed, others, allowed;
+		long[]			masks;
+		
+		if (cages.isEmpty() || tables == null)	return false;
+		
+		masks = new long[size];
+		for (int c = 0; c < cages.size(); c++) {
+			cage = cages.get(c);
+			n = cage.getCellCount();
+			
+			// collect the placed values and the candidates of the empty cells
+			empty = 0;
+			remaining = cage.getSum();
+			placed = 0;
+			for (int i = 0; i < n; i++) {
+				row = cage.getCellRow(i);
+				col = cage.getCellColumn(i);
+				masks[i] = 0;
+				if (cells[row][col] != EMPTY_CELL) {
+					remaining -= cells[row][col];
+					placed |= 1L << (cells[row][col] - 1);
 				}
-				break;
-			case COLUMN:
-				// iterate over the column's empty cells & search for candidate
-				for (int row = 0; row < size; row++) {
-					if (cells[row][rgnidx] == EMPTY_CELL) {				// status is UNSOLVED
-						if (candidates[row][rgnidx][candidate]) {
-							cell[0] = row;
-							cell[1] = rgnidx;
-							System.out.println("Column " + rgnidx + " cell: " + Arrays.toString(cell));
-							return cell;
-						}
+				else {
+					++empty;
+					for (int cand = 0; cand < size; cand++) {
+						if (candidates[row][col][cand])	masks[i] |= 1L << cand;
 					}
 				}
-				break;
-			case OTHER:
-				// iterate over the region's empty cells & search for candidate
-				for (int[] c : regionCellLists[rgnidx]) {
-					if (cells[c[0]][c[1]] == EMPTY_CELL) {				// status is UNSOLVED
-						if (candidates[c[0]][c[1]][candidate]) {
-							cell[0] = c[0];
-							cell[1] = c[1];
-							System.out.println("Other " + rgnidx + " cell: " + Arrays.toString(cell));
-							return cell;
-						}
-					}
+			}
+			
+			// keep only the candidates that can still complete the cage
+			for (int i = 0; i < n; i++) {
+				row = cage.getCellRow(i);
+				col = cage.getCellColumn(i);
+				if (cells[row][col] != EMPTY_CELL)	continue;
+				others = 0;
+				for (int j = 0; j < n; j++) {
+					if (j != i)	others |= masks[j];
+				}
+				allowed = tables.getCellDigits(empty, remaining, masks[i] & ~placed, others & ~placed);
+				for (long m = masks[i] & ~allowed; m != 0; m &= m - 1) {
+					updateCandidate(row, col, Long.numberOfTrailingZeros(m), false, SolveTechnique.KILLER_CAGE);
+					madeChanges = true;
 				}
-				break;
+			}
 		}
 		
-		// candidate was not found
-		cell[0] = NOT_FOUND;
-		return cell;
+		return madeChanges;
 	}
 	
-	
 	/** resetAllCandidates() sets all candidates (1 to size) to true for UNSOLVED cells
 		and to false for CLUE and SOLVED cells
 	 */
@@ -417,71 +930,70 @@ public class SudokuPuzzle
 			for (int col = 0; col < size; col++) {
 				// set all candidates to true if EMPTY_CELL (assumes this is the same as UNSOLVED)
 				// else set them to false
-				Arrays.fill(candidates[row][col], (cells[row][col] == EMPTY_CELL));
+				if (trace == null) {
+					Arrays.fill(candidates[row][col], (cells[row][col] == EMPTY_CELL));
+					++modCount;
+					if (links != null)	links.invalidate();
+				}
+				else {
+					// go one at a time so that only actual changes are recorded
+					for (int cand = 0; cand < size; cand++) {
+						updateCandidate(row, col, cand, (cells[row][col] == EMPTY_CELL), SolveTechnique.CANDIDATES);
+					}
+				}
 			}
 		}
 	}
 	
 	public void recalculateAllCandidates()
 	{
-		resetAllCandidates();
-		
-		final int	numRegions = 2*size + regionCellLists.length;
-		final int	ROW0 = 0;							// offset of row lists in regionKnowns[]
-		final int	COL0 = size;						// offset of col lists in regionKnowns[]
-		final int	OTHER0 = 2*size;					// offset of other regions' lists in regionKnowns[]
-		int			otherRegion, cand;
-		
-		// make empty sets to store all cell values found within each row/col/region
-		Set[]	regionKnowns = new Set[numRegions];
-		for (int i = 0; i < numRegions; i++) {
-			regionKnowns[i] = new HashSet<Integer>();
-		}
+		final int	ROW0 = 0;							// offset of rows in valueCounts[]
+		final int	COL0 = size;						// offset of cols in valueCounts[]
+		final int	OTHER0 = 2*size;					// offset of other regions in valueCounts[]
+		int			otherRegion;
+		boolean		known;
 		
-		// add each cell's value (if any) to its region sets
-		for (int row = 0; row < size; row++) {
-			for (int col = 0; col < size; col++) {
-				if (cells[row][col] != EMPTY_CELL) {
-					regionKnowns[ROW0+row].add(cells[row][col]);	// add to row's set
-					regionKnowns[COL0+col].add(cells[row][col]);	// add to col's set
-					otherRegion = getCellRegionIdx(row, col);
-					if (otherRegion != PARAM_ERR) {
-						// System.out.printf("Region map: row=%d, col=%d, otherRegion=%d\n", row, col, otherRegion);
-						regionKnowns[OTHER0+otherRegion].add(cells[row][col]);	// add to other set(s)
+		// valueCounts[] already says which values are in each row/col/region
+		if (trace == null) {
+			// copy them to zero-indexed sets (unitKnowns[u][v-1] is true if value v is in unit u)
+			// and then set each empty cell's candidates with one call
+			for (int unit = 0; unit < 3*size; unit++) {
+				for (int value = 1; value <= size; value++)	unitKnowns[unit][value-1] = (valueCounts[unit][value] > 0);
+			}
+			for (int row = 0; row < size; row++) {
+				for (int col = 0; col < size; col++) {
+					if (cells[row][col] == EMPTY_CELL) {
+						kernels.setUnknown(candidates[row][col], unitKnowns[ROW0+row], unitKnowns[COL0+col],
+						                   unitKnowns[OTHER0+cellRegions[row][col]], size);
 					}
+					else Arrays.fill(candidates[row][col], false);
 				}
 			}
+			++modCount;
+			if (links != null)	links.invalidate();
+			return;
 		}
 		
-		/*
-		// check set contents
-		for (int reg = 0; reg < numRegions; reg++) {
-			System.out.println("" + reg + ": " + regionKnowns[reg].toString());
-		} */
-		
-		// now look at each empty cell and remove candidates present in its region sets
+		// now look at each cell and set its candidates to the values not present in its
+		// region sets.  (Candidates are set in one pass instead of being reset first and
+		// then removed so that a solve trace only records the candidates that changed.)
 		for (int row = 0; row < size; row++) {
 			for (int col = 0; col < size; col++) {
 				if (cells[row][col] == EMPTY_CELL) {
-					for (Object obj : regionKnowns[ROW0+row]) {
-						cand = (Integer) obj;
-						candidates[row][col][cand-1] = false;
+					otherRegion = cellRegions[row][col];
+					for (int value = 1; value <= size; value++) {
+						known = valueCounts[ROW0+row][value] > 0 || valueCounts[COL0+col][value] > 0
+						        || valueCounts[OTHER0+otherRegion][value] > 0;
+						updateCandidate(row, col, value-1, !known, SolveTechnique.CANDIDATES);
 					}
-					for (Object obj : regionKnowns[COL0+col]) {
-						cand = (Integer) obj;
-						candidates[row][col][cand-1] = false;
-					}
-					otherRegion = getCellRegionIdx(row, col);
-					if (otherRegion != PARAM_ERR) {
-						for (Object obj : regionKnowns[OTHER0+otherRegion]) {
-							cand = (Integer) obj;
-							candidates[row][col][cand-1] = false;
-						}
+				}
+				else {
+					for (int cand = 0; cand < size; cand++) {
+						updateCandidate(row, col, cand, false, SolveTechnique.CANDIDATES);
 					}
 				}
 			}
 		}
-		
 	}
 	
 	/** acceptSingleCandidateSolutions() finds all UNSOLVED cells with only one
@@ -504,8 +1016,8 @@ public class SudokuPuzzle
 							if (candidates[row][col][cellval])	break;
 						}
 						// set cell value and clear candidate
-						cells[row][col] = cellval + 1;				// candidate idx is 1 less than value
-						candidates[row][col][cellval] = false;
+						updateCell(row, col, cellval + 1, false, SolveTechnique.NAKED_SINGLE);	// candidate idx is 1 less than value
+						updateCandidate(row, col, cellval, false, SolveTechnique.NAKED_SINGLE);
 						madeChanges = true;
 					}
 				}
@@ -526,7 +1038,7 @@ public class SudokuPuzzle
 			for (int col = 0; col < size; col++) {
 				// set the value of SOLVED cells to EMPTY_CELL (thereby making them UNSOLVED)
 				if (getCellStatus(row, col) == SOLVED) {
-					cells[row][col] = EMPTY_CELL;
+					updateCell(row, col, EMPTY_CELL, false, SolveTechnique.USER);
 				}
 			}
 		}
@@ -536,6 +1048,75 @@ public class SudokuPuzzle
 	}
 	
 	
+	/** clearAllCells() makes every cell (including CLUE cells) empty and sets all
+		candidates to true.  This allows one SudokuPuzzle object to be reused for
+		many puzzles of the same size.
+	 */
+	public void clearAllCells()
+	{
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				updateCell(row, col, EMPTY_CELL, false, SolveTechnique.USER);
+			}
+		}
+		resetAllCandidates();
+	}
+	
+	/** countPuzzleStringCells() returns the number of cells specified by a puzzle
+		string (see description above).  If the count is a perfect square, then its
+		square root is the size of the puzzle.
+	 */
+	public static int countPuzzleStringCells(String puzzleString)
+	{
+		int		count = 0, len = puzzleString.length();
+		char	c;
+		
+		for (int pos = 0; pos < len; pos++) {
+			c = puzzleString.charAt(pos);
+			if (Character.isDigit(c) || c == '.' || c == ' ' || c == '-') {
+				++count;
+			}
+			else if (c == '=' && pos+2 < len) {
+				++count;
+				pos += 2;
+			}
+		}
+		return count;
+	}
+	
+	/** toPuzzleString() returns a puzzle string (see description above) for the
+		current values of all cells (CLUE and SOLVED), using '.' for empty cells and
+		"=dd" for values greater than 9.  Rows are not separated.
+	 */
+	public String toPuzzleString()
+	{
+		return toPuzzleString(false, false);
+	}
+	
+	/** This version of toPuzzleString() can leave out the SOLVED cells (cluesOnly)
+		and end each row with a newline (rowsPerLine).
+	 */
+	public String toPuzzleString(boolean cluesOnly, boolean rowsPerLine)
+	{
+		StringBuilder	str = new StringBuilder(size*(size*((size > 9) ? 3 : 1) + 1));
+		int				value;
+		
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				value = cells[row][col];
+				if (cluesOnly && !isClue[row][col])	value = EMPTY_CELL;
+				if (value == EMPTY_CELL)	str.append('.');
+				else if (value <= 9)		str.append((char)('0' + value));
+				else {
+					// two-digit value ("=00" means 100)
+					str.append('=').append((char)('0' + (value/10)%10)).append((char)('0' + value%10));
+				}
+			}
+			if (rowsPerLine)	str.append('\n');
+		}
+		return str.toString();
+	}
+	
 	// set all cell values based on the given puzzleString (see description above)
 	public void setAllCells(String puzzleString)
 	{
@@ -543,6 +1124,8 @@ public class SudokuPuzzle
 		char c;
 		int pos = 0, len = puzzleString.length(), value;
 		
+		++modCount;
+		if (links != null)	links.invalidate();
 		// iterate over the puzzle's cells
 		for (int row = 0; row < size; row++) {
 			for (int col = 0; col < size; col++) {
@@ -611,6 +1194,7 @@ public class SudokuPuzzle
 				}
 			}
 		}
+		recountValues();
 	}
 	
 	// set all cell values from an 2D integer array; array should be at least size x size
@@ -631,6 +1215,8 @@ public class SudokuPuzzle
 		}
 		
 		// iterate over the puzzle's cells
+		++modCount;
+		if (links != null)	links.invalidate();
 		for (int row = 0; row < size; row++) {
 			for (int col = 0; col < size; col++) {
 				value = cellvalues[row][col];
@@ -644,14 +1230,154 @@ public class SudokuPuzzle
 				}
 				else {
 					System.err.printf("SudokuPuzzle.setAllCells(): cell value is out of range, value=%d\n", value);
+					recountValues();
 					return PARAM_ERR;
 				}
 			}
 		}
 		
+		recountValues();
 		return NO_ERR;
 	}
 
+	/** write() saves the complete state of the puzzle (cell values, clues, candidates,
+		regions, and cages, but not the solve trace) in a compact binary form that
+		read() can load quickly.  Values are stored in one byte each and clues and
+		candidates as bitmaps.
+	 */
+	public void write(DataOutput out) throws IOException
+	{
+		byte[]	buf = new byte[size*size];
+		int		i;
+		
+		out.writeShort(size);
+		
+		// cell values
+		i = 0;
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++)	buf[i++] = (byte)cells[row][col];
+		}
+		out.write(buf);
+		
+		// clues and candidates
+		out.write(packBits(isClue));
+		for (int row = 0; row < size; row++) {
+			out.write(packBits(candidates[row]));
+		}
+		
+		// regions
+		i = 0;
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++)	buf[i++] = (byte)cellRegions[row][col];
+		}
+		out.write(buf);
+		
+		// cages
+		out.writeShort(cages.size());
+		for (KillerCage cage : cages) {
+			out.writeShort(cage.getSum());
+			out.writeShort(cage.getCellCount());
+			for (int j = 0; j < cage.getCellCount(); j++) {
+				out.writeShort(cage.getCellRow(j)*size + cage.getCellColumn(j));
+			}
+		}
+	}
+	
+	/** read() creates a puzzle from the data saved by write().  The bytes for each
+		array are read in one block and unpacked directly into the new puzzle's arrays.
+	 */
+	public static SudokuPuzzle read(DataInput in) throws IOException
+	{
+		SudokuPuzzle	puzzle;
+		int				psize, i, ncages, sum, n, cell;
+		byte[]			buf, bits;
+		int[]			rows, cols;
+		int[][]			regionIdx;
+		
+		psize = in.readShort();
+		if (psize < 1 || psize > 100) {
+			throw new IOException("SudokuPuzzle.read(): puzzle size out of range, size=" + psize);
+		}
+		puzzle = new SudokuPuzzle(psize);
+		buf = new byte[psize*psize];
+		
+		// cell values
+		in.readFully(buf);
+		i = 0;
+		for (int row = 0; row < psize; row++) {
+			for (int col = 0; col < psize; col++) {
+				puzzle.cells[row][col] = buf[i++] & 0xFF;
+				if (puzzle.cells[row][col] > psize)	throw new IOException("SudokuPuzzle.read(): cell value out of range");
+			}
+		}
+		
+		// clues and candidates
+		bits = new byte[(psize*psize*psize + 7) / 8];
+		in.readFully(bits, 0, (psize*psize + 7) / 8);
+		unpackBits(bits, puzzle.isClue);
+		for (int row = 0; row < psize; row++) {
+			in.readFully(bits, 0, (psize*psize + 7) / 8);
+			unpackBits(bits, puzzle.candidates[row]);
+		}
+		
+		// regions
+		in.readFully(buf);
+		regionIdx = new int[psize][psize];
+		i = 0;
+		for (int row = 0; row < psize; row++) {
+			for (int col = 0; col < psize; col++)	regionIdx[row][col] = buf[i++] & 0xFF;
+		}
+		if (puzzle.setCellRegions(regionIdx) != NO_ERR)	throw new IOException("SudokuPuzzle.read(): bad regions");
+		
+		// cages
+		ncages = in.readShort();
+		for (int c = 0; c < ncages; c++) {
+			sum = in.readShort();
+			n = in.readShort();
+			if (n < 1 || n > psize)		throw new IOException("SudokuPuzzle.read(): bad cage");
+			rows = new int[n];
+			cols = new int[n];
+			for (int j = 0; j < n; j++) {
+				cell = in.readShort();
+				rows[j] = cell / psize;
+				cols[j] = cell % psize;
+			}
+			if (puzzle.addCage(new KillerCage(sum, rows, cols)) != NO_ERR)	throw new IOException("SudokuPuzzle.read(): bad cage");
+		}
+		
+		++puzzle.modCount;
+		return puzzle;
+	}
+	
+	// packs a boolean[n][m] array into a bitmap, row by row
+	private static byte[] packBits(boolean[][] flags)
+	{
+		int		n = 0;
+		byte[]	bits;
+		
+		for (boolean[] row : flags)	n += row.length;
+		bits = new byte[(n + 7) / 8];
+		n = 0;
+		for (boolean[] row : flags) {
+			for (boolean b : row) {
+				if (b)	bits[n >> 3] |= 1 << (n & 7);
+				++n;
+			}
+		}
+		return bits;
+	}
+	
+	private static void unpackBits(byte[] bits, boolean[][] flags)
+	{
+		int	n = 0;
+		
+		for (boolean[] row : flags) {
+			for (int j = 0; j < row.length; j++, n++) {
+				row[j] = (bits[n >> 3] & (1 << (n & 7))) != 0;
+			}
+		}
+	}
+	
 	// this main() is just for testing the SudokuPuzzle class
 	public static void main( String args[] )
 	{
@@ -0,0 +1,518 @@
+/*	SudokuService.java
+
+	A small, embedded HTTP service for solving puzzles, built only on the JDK's
+	com.sun.net.httpserver package.
+
+	Requests:
+
+		GET  /solve?p=<puzzle string>[&size=N][&ms=T]
+		POST /solve[?size=N][&ms=T]	(body contains one puzzle string per line)
+
+	Puzzle strings use the format of SudokuPuzzle.setAllCells(String).  If no size
+	is given, it is inferred from the number of cells in each puzzle string.  Each
+	puzzle produces one line of JSON in the response:
+
+		{"status":"solved","solutions":1,"unique":true,"grade":"EASY","solution":"..."}
+
+	where status is "solved", "multiple", "unsolvable", "budget_exceeded",
+	"cancelled", or "error".  Every request has a time limit, counted from when it
+	arrives:  the server's limit (solveMillis), or T milliseconds if that is
+	shorter.  A puzzle that isn't finished in time gets
+
+		{"status":"budget_exceeded","solutions":0,"nodes":123456,"progress":0.42}
+
+	with the number of solutions found so far, the search nodes tried, and a rough
+	estimate of the fraction of the search that was done.  stop() cancels the
+	puzzles being solved, which get the same fields with the status "cancelled",
+	and answers every request that is still queued with "503 Service Unavailable"
+	before it closes the connections.
+
+	HTTP threads only parse requests and put them on a bounded queue.  A fixed pool
+	of solver threads takes jobs from the queue in micro-batches (one blocking take
+	followed by draining whatever else is waiting), so that under load each wakeup
+	handles many requests.  Every solver thread owns a reusable BacktrackingSolver
+	and one reusable SudokuPuzzle per puzzle size.  When the queue is full, new
+	requests are rejected immediately with "503 Service Unavailable" rather than
+	piling up.
+
+	Usage:
+
+		java SudokuService [port [solverThreads [queueCapacity [maxBatch [solveMillis]]]]]
+		java SudokuService load <url> [clientThreads [seconds [puzzle]]]
+
+	The second form is a simple load generator for testing a running service.
+
+	October 18, 2026
+ */
+
+import com.sun.net.httpserver.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+
+public class SudokuService
+{
+	public static final int		DEFAULT_PORT = 8080;
+	public static final int		DEFAULT_QUEUE_CAPACITY = 4096;
+	public static final int		DEFAULT_MAX_BATCH = 64;
+	public static final int		DEFAULT_SOLVE_MILLIS = 1000;
+
+	private static final int		MAX_BODY_BYTES = 4 << 20;		// largest POST body accepted
+	private static final Charset	UTF8 = Charset.forName("UTF-8");
+
+	private final HttpServer					server;
+	private final ExecutorService				httpThreads;
+	private final ArrayBlockingQueue<Job>		queue;
+	private final Thread[]						workers;
+	private final int							maxBatch;
+	private final int							solveMillis;
+	private final SolveBudget[]					workerBudgets;	// budget of each worker's current job
+	private volatile boolean					running;
+
+	private final AtomicLong	puzzlesSolved = new AtomicLong();
+	private final AtomicLong	requestsRejected = new AtomicLong();
+	private final AtomicLong	puzzlesStopped = new AtomicLong();
+
+	// one request waiting to be solved
+	private static class Job
+	{
+		final HttpExchange	exchange;
+		final String[]		puzzles;
+		final int			size;		// 0 = infer from each puzzle string
+		final SolveBudget	budget;		// time limit for all of the puzzles
+
+		Job(HttpExchange exchange, String[] puzzles, int size, SolveBudget budget)
+		{
+			this.exchange = exchange;
+			this.puzzles = puzzles;
+			this.size = size;
+			this.budget = budget;
+		}
+	}
+
+
+	public SudokuService(int port, int solverThreads, int queueCapacity, int maxBatch) throws IOException
+	{
+		this(port, solverThreads, queueCapacity, maxBatch, DEFAULT_SOLVE_MILLIS);
+	}
+
+	public SudokuService(int port, int solverThreads, int queueCapacity, int maxBatch, int solveMillis) throws IOException
+	{
+		this.maxBatch = Math.max(1, maxBatch);
+		this.solveMillis = Math.max(1, solveMillis);
+		queue = new ArrayBlockingQueue<Job>(Math.max(1, queueCapacity));
+
+		// responses are small, so don't let Nagle's algorithm hold them back waiting for ACKs
+		// (this must be set before the first HttpServer is created)
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+		server = HttpServer.create(new InetSocketAddress(port), 1024);
+		server.createContext("/solve", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				acceptRequest(exchange);
+			}
+		});
+		server.createContext("/stats", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				respond(exchange, 200, "{\"solved\":" + puzzlesSolved.get()
+				                       + ",\"stopped\":" + puzzlesStopped.get()
+				                       + ",\"rejected\":" + requestsRejected.get()
+				                       + ",\"queued\":" + queue.size() + "}\n");
+			}
+		});
+		httpThreads = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+		server.setExecutor(httpThreads);
+
+		workers = new Thread[Math.max(1, solverThreads)];
+		workerBudgets = new SolveBudget[workers.length];
+		for (int i = 0; i < workers.length; i++) {
+			final int	index = i;
+			workers[i] = new Thread(new Runnable() {
+				public void run()
+				{
+					workerLoop(index);
+				}
+			}, "SudokuService-solver-" + i);
+			workers[i].setDaemon(true);
+		}
+	}
+
+	public void start()
+	{
+		running = true;
+		for (Thread t : workers)	t.start();
+		server.start();
+	}
+
+	public void stop()
+	{
+		running = false;
+		synchronized (workerBudgets) {
+			for (SolveBudget budget : workerBudgets) {
+				if (budget != null)	budget.cancel();
+			}
+		}
+		for (Thread t : workers)	t.interrupt();
+		rejectQueued();
+
+		// let the workers answer the jobs they had already taken (their budgets are
+		// cancelled, so this is quick) before the server closes the connections
+		try {
+			for (Thread t : workers)	t.join(1000);
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		rejectQueued();
+		server.stop(0);
+		httpThreads.shutdown();
+	}
+
+	// answers every queued job with an error instead of solving it
+	private void rejectQueued()
+	{
+		Job		job;
+
+		while ((job = queue.poll()) != null) {
+			rejectStopping(job.exchange);
+		}
+	}
+
+	private static void rejectStopping(HttpExchange exchange)
+	{
+		try {
+			respond(exchange, 503, errorJson("server stopping") + "\n");
+		}
+		catch (IOException ioe) {
+			// client went away;  nothing to do
+		}
+	}
+
+	public int getPort()
+	{
+		return server.getAddress().getPort();
+	}
+
+
+	/* HTTP thread side:  parse the request and queue it */
+
+	private void acceptRequest(HttpExchange exchange) throws IOException
+	{
+		String		method = exchange.getRequestMethod();
+		String		query = exchange.getRequestURI().getRawQuery();
+		String		puzzle = queryParam(query, "p");
+		String		sizeParam = queryParam(query, "size");
+		String		msParam = queryParam(query, "ms");
+		String[]	puzzles;
+		Job			job;
+		int			size = 0, millis = solveMillis;
+
+		if (!running) {
+			rejectStopping(exchange);
+			return;
+		}
+
+		if (sizeParam != null) {
+			try {
+				size = Integer.parseInt(sizeParam);
+			}
+			catch (NumberFormatException nfe) {
+				size = -1;
+			}
+			if (size < 1 || size > BacktrackingSolver.MAX_SIZE) {
+				respond(exchange, 400, errorJson("size must be between 1 and " + BacktrackingSolver.MAX_SIZE) + "\n");
+				return;
+			}
+		}
+
+		if (msParam != null) {
+			try {
+				millis = Integer.parseInt(msParam);
+			}
+			catch (NumberFormatException nfe) {
+				millis = -1;
+			}
+			if (millis < 1) {
+				respond(exchange, 400, errorJson("ms must be a positive number of milliseconds") + "\n");
+				return;
+			}
+			millis = Math.min(millis, solveMillis);
+		}
+
+		if (method.equals("GET")) {
+			if (puzzle == null) {
+				respond(exchange, 400, errorJson("missing puzzle parameter 'p'") + "\n");
+				return;
+			}
+			puzzles = new String[] { puzzle };
+		}
+		else if (method.equals("POST")) {
+			puzzles = readLines(exchange.getRequestBody());
+			if (puzzles == null) {
+				respond(exchange, 413, errorJson("request body too large") + "\n");
+				return;
+			}
+		}
+		else {
+			respond(exchange, 405, errorJson("use GET or POST") + "\n");
+			return;
+		}
+
+		job = new Job(exchange, puzzles, size, SolveBudget.millis(millis));
+		if (!queue.offer(job)) {
+			// backpressure:  tell the client to retry instead of queueing without bound
+			requestsRejected.incrementAndGet();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			respond(exchange, 503, errorJson("server busy") + "\n");
+		}
+		else if (!running && queue.remove(job)) {
+			// stop() may already have emptied the queue
+			rejectStopping(exchange);
+		}
+		// otherwise a solver thread (or stop()) will send the response
+	}
+
+	// returns the decoded value of the named parameter or null
+	private static String queryParam(String query, String name)
+	{
+		int		start, end, eq;
+
+		if (query == null)	return null;
+		for (start = 0; start < query.length(); start = end + 1) {
+			end = query.indexOf('&', start);
+			if (end < 0)	end = query.length();
+			eq = query.indexOf('=', start);
+			if (eq > start && eq < end && query.regionMatches(start, name, 0, eq - start) && name.length() == eq - start) {
+				try {
+					return URLDecoder.decode(query.substring(eq + 1, end), "UTF-8");
+				}
+				catch (UnsupportedEncodingException e) {
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+
+	/** readLines() returns the non-blank lines of the stream or null if it is longer
+		than MAX_BODY_BYTES.  The limit is checked as the bytes arrive, so a body
+		without line breaks can't use more memory than that either.
+	 */
+	private static String[] readLines(InputStream in) throws IOException
+	{
+		ArrayList<String>		lines = new ArrayList<String>();
+		ByteArrayOutputStream	body = new ByteArrayOutputStream(8192);
+		byte[]					buf = new byte[8192];
+		BufferedReader			reader;
+		String					line;
+		int						n;
+
+		try {
+			while ((n = in.read(buf)) >= 0) {
+				if (body.size() + n > MAX_BODY_BYTES)	return null;
+				body.write(buf, 0, n);
+			}
+		}
+		finally {
+			in.close();
+		}
+
+		reader = new BufferedReader(new StringReader(new String(body.toByteArray(), UTF8)));
+		while ((line = reader.readLine()) != null) {
+			line = line.trim();
+			if (line.length() > 0)	lines.add(line);
+		}
+		return lines.toArray(new String[lines.size()]);
+	}
+
+
+	/* Solver thread side */
+
+	private void workerLoop(int index)
+	{
+		ArrayList<Job>		batch = new ArrayList<Job>(maxBatch);
+		BacktrackingSolver	solver = new BacktrackingSolver();
+		SudokuPuzzle[]		puzzles = new SudokuPuzzle[BacktrackingSolver.MAX_SIZE+1];	// reused, one per size
+		StringBuilder		out = new StringBuilder(256);
+
+		while (running) {
+			try {
+				batch.add(queue.take());
+			}
+			catch (InterruptedException ie) {
+				break;
+			}
+			queue.drainTo(batch, maxBatch - 1);
+
+			for (Job job : batch) {
+				synchronized (workerBudgets) {
+					workerBudgets[index] = job.budget;
+					if (!running)	job.budget.cancel();
+				}
+				out.setLength(0);
+				for (String p : job.puzzles) {
+					if (!solveOne(p, job.size, job.budget, solver, puzzles, out))	puzzlesStopped.incrementAndGet();
+					out.append('\n');
+				}
+				puzzlesSolved.addAndGet(job.puzzles.length);
+				// stop() interrupts workers to wake them from take();  clear that here so
+				// that it can't close the connection while the response is written
+				Thread.interrupted();
+				try {
+					respond(job.exchange, 200, out);
+				}
+				catch (IOException ioe) {
+					// client went away;  nothing to do
+				}
+			}
+			batch.clear();
+		}
+	}
+
+	// solves one puzzle string and appends its JSON result to out;  returns false if
+	// the budget ran out
+	private static boolean solveOne(String puzzleString, int size, SolveBudget budget, BacktrackingSolver solver, SudokuPuzzle[] puzzles, StringBuilder out)
+	{
+		SudokuPuzzle	puzzle;
+		int				count;
+
+		if (size == 0) {
+			count = SudokuPuzzle.countPuzzleStringCells(puzzleString);
+			size = (int)Math.round(Math.sqrt(count));
+			if (size*size != count || size < 1 || size > BacktrackingSolver.MAX_SIZE) {
+				out.append(errorJson("cannot infer puzzle size from " + count + " cells"));
+				return true;
+			}
+		}
+
+		puzzle = puzzles[size];
+		if (puzzle == null) {
+			puzzle = puzzles[size] = new SudokuPuzzle(size);
+		}
+		else {
+			puzzle.clearAllCells();
+		}
+		puzzle.setAllCells(puzzleString);
+
+		if (solver.load(puzzle) != SudokuPuzzle.NO_ERR) {
+			out.append(errorJson("unsupported puzzle"));
+			return true;
+		}
+		count = solver.solve(2, budget);
+		if (solver.wasStopped()) {
+			out.append("{\"status\":\"").append(budget.isCancelled() ? "cancelled" : "budget_exceeded")
+			   .append("\",\"solutions\":").append(count)
+			   .append(",\"nodes\":").append(solver.getNodeCount())
+			   .append(",\"progress\":").append(String.format(Locale.ROOT, "%.3f", solver.getProgress()))
+			   .append('}');
+			return false;
+		}
+		if (count > 0)	solver.copySolutionTo(puzzle);
+
+		out.append("{\"status\":\"").append((count == 0) ? "unsolvable" : (count == 1) ? "solved" : "multiple")
+		   .append("\",\"solutions\":").append(count)
+		   .append(",\"unique\":").append(count == 1)
+		   .append(",\"grade\":\"").append(solver.getGrade())
+		   .append("\",\"nodes\":").append(solver.getNodeCount());
+		if (count > 0)	out.append(",\"solution\":\"").append(puzzle.toPuzzleString()).append('"');
+		out.append('}');
+		return true;
+	}
+
+	private static String errorJson(String message)
+	{
+		return "{\"status\":\"error\",\"message\":\"" + message.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+	}
+
+	private static void respond(HttpExchange exchange, int code, CharSequence body) throws IOException
+	{
+		byte[]	bytes = body.toString().getBytes(UTF8);
+
+		try {
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(code, bytes.length);
+			exchange.getResponseBody().write(bytes);
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+
+	/* Load generator */
+
+	private static void runLoad(final String url, int clientThreads, int seconds, final String puzzle) throws Exception
+	{
+		final AtomicLong	completed = new AtomicLong();
+		final AtomicLong	failed = new AtomicLong();
+		final long			endTime = System.nanoTime() + seconds * 1000000000L;
+		final String		target = url + ((url.indexOf('?') < 0) ? "?" : "&") + "p=" + URLEncoder.encode(puzzle, "UTF-8");
+		Thread[]			clients = new Thread[clientThreads];
+
+		for (int i = 0; i < clientThreads; i++) {
+			clients[i] = new Thread(new Runnable() {
+				public void run()
+				{
+					byte[]	buf = new byte[4096];
+
+					while (System.nanoTime() < endTime) {
+						try {
+							HttpURLConnection conn = (HttpURLConnection) new URL(target).openConnection();
+							InputStream in = (conn.getResponseCode() == 200) ? conn.getInputStream() : conn.getErrorStream();
+							if (conn.getResponseCode() == 200)	completed.incrementAndGet();
+							else								failed.incrementAndGet();
+							// read the whole response so that the connection is kept alive
+							if (in != null) {
+								while (in.read(buf) >= 0)	{}
+								in.close();
+							}
+						}
+						catch (IOException ioe) {
+							failed.incrementAndGet();
+						}
+					}
+				}
+			});
+			clients[i].start();
+		}
+		for (Thread t : clients)	t.join();
+
+		System.out.printf("%d requests in %d s (%.0f/s), %d failed or rejected\n",
+		                  completed.get(), seconds, completed.get() / (double)seconds, failed.get());
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		String	first9x9 = "..57.64../...5.3.8./1...8...2/42.....18/..6....../71......9/....3...6/.....1.../..34.29..";
+		int		ncpu = Runtime.getRuntime().availableProcessors();
+
+		if (args.length > 0 && args[0].equals("load")) {
+			if (args.length < 2) {
+				System.err.println("usage: java SudokuService load <url> [clientThreads [seconds [puzzle]]]");
+				System.exit(1);
+			}
+			runLoad(args[1],
+			        (args.length > 2) ? Integer.parseInt(args[2]) : 2*ncpu,
+			        (args.length > 3) ? Integer.parseInt(args[3]) : 10,
+			        (args.length > 4) ? args[4] : first9x9);
+			return;
+		}
+
+		SudokuService service = new SudokuService(
+				(args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT,
+				(args.length > 1) ? Integer.parseInt(args[1]) : ncpu,
+				(args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_QUEUE_CAPACITY,
+				(args.length > 3) ? Integer.parseInt(args[3]) : DEFAULT_MAX_BATCH,
+				(args.length > 4) ? Integer.parseInt(args[4]) : DEFAULT_SOLVE_MILLIS);
+		service.start();
+		System.out.println("SudokuService listening on port " + service.getPort());
+	}
+}
@@ -0,0 +1,160 @@
+/*	SudokuSession.java
+
+	Saves and loads a complete solving session:  the puzzle (values, clues,
+	candidates, regions, and cages), the view settings (edit mode, selection, and
+	display options), and the solve trace (if any), so that a long manual or
+	semi-automatic solve can be checkpointed and reopened exactly as it was.
+
+	This class does not use AWT or Swing, so sessions can also be read and written
+	by headless tools.  The view settings are stored as plain values.
+
+	Session file format (big-endian, as written by DataOutputStream):
+
+		int		magic ("SDKS")
+		short	format version (currently 1)
+		...		puzzle (see SudokuPuzzle.write())
+		byte	edit mode (ordinal of SudokuView.EditMode)
+		byte	flags:  1 = show candidates, 2 = show region colors, 4 = solving
+		short	selected row, selected column
+		byte	1 if a solve trace follows, otherwise 0
+		...		solve trace (see SolveTrace.write())
+		int		position of the puzzle within the solve trace
+
+	Files that don't start with the magic number are read as puzzle strings
+	(see SudokuPuzzle), with the size inferred from the number of cells.
+
+	October 18, 2026
+ */
+
+import java.io.*;
+
+
+public class SudokuSession
+{
+	private static final int	FILE_MAGIC = 0x53444B53;	// "SDKS"
+	private static final int	FILE_VERSION = 1;
+
+	// flag bits
+	private static final int	SHOW_CANDIDATES = 1;
+	private static final int	SHOW_REGION_COLORS = 2;
+	private static final int	SOLVING = 4;
+
+	public SudokuPuzzle		puzzle;
+	public int				editMode;				// ordinal of SudokuView.EditMode
+	public boolean			showCandidates;
+	public boolean			showRegionColors;
+	public boolean			solving;
+	public int				selectedRow, selectedColumn;
+	public SolveTrace		trace;					// may be null
+	public int				tracePosition;
+
+
+	public SudokuSession(SudokuPuzzle puzzle)
+	{
+		this.puzzle = puzzle;
+		this.trace = puzzle.getSolveTrace();
+		this.tracePosition = (trace != null) ? trace.length() : 0;
+	}
+
+	public void write(File file) throws IOException
+	{
+		DataOutputStream	out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+		try {
+			write(out);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	public void write(DataOutput out) throws IOException
+	{
+		out.writeInt(FILE_MAGIC);
+		out.writeShort(FILE_VERSION);
+		puzzle.write(out);
+		out.writeByte(editMode);
+		out.writeByte((showCandidates ? SHOW_CANDIDATES : 0) | (showRegionColors ? SHOW_REGION_COLORS : 0) | (solving ? SOLVING : 0));
+		out.writeShort(selectedRow);
+		out.writeShort(selectedColumn);
+		if (trace != null) {
+			out.writeByte(1);
+			trace.write(out);
+			out.writeInt(tracePosition);
+		}
+		else out.writeByte(0);
+	}
+
+	/** read() loads a session file or a puzzle string file.  The whole file is read
+		into memory with one call and parsed from there.
+	 */
+	public static SudokuSession read(File file) throws IOException
+	{
+		byte[]			data = new byte[(int)file.length()];
+		DataInputStream	in = new DataInputStream(new FileInputStream(file));
+
+		try {
+			in.readFully(data);
+		}
+		finally {
+			in.close();
+		}
+		return read(data);
+	}
+
+	public static SudokuSession read(byte[] data) throws IOException
+	{
+		DataInputStream	in = new DataInputStream(new ByteArrayInputStream(data));
+		SudokuSession	session;
+		int				version, flags, size, count;
+
+		if (data.length < 4 || in.readInt() != FILE_MAGIC) {
+			// not a session, so try a puzzle string
+			String str = new String(data, "UTF-8");
+			count = SudokuPuzzle.countPuzzleStringCells(str);
+			size = (int)Math.round(Math.sqrt(count));
+			if (size < 1 || size > 100 || size*size != count) {
+				throw new IOException("SudokuSession.read(): not a session file or puzzle string");
+			}
+			return new SudokuSession(new SudokuPuzzle(size, str));
+		}
+
+		version = in.readShort();
+		if (version != FILE_VERSION) {
+			throw new IOException("SudokuSession.read(): unsupported version " + version);
+		}
+		session = new SudokuSession(SudokuPuzzle.read(in));
+		session.editMode = in.readByte();
+		flags = in.readByte();
+		session.showCandidates = (flags & SHOW_CANDIDATES) != 0;
+		session.showRegionColors = (flags & SHOW_REGION_COLORS) != 0;
+		session.solving = (flags & SOLVING) != 0;
+		session.selectedRow = in.readShort();
+		session.selectedColumn = in.readShort();
+		if (in.readByte() != 0) {
+			session.trace = SolveTrace.read(in);
+			session.tracePosition = in.readInt();
+			if (session.trace.getPuzzleSize() != session.puzzle.getSize()
+			    || session.tracePosition < 0 || session.tracePosition > session.trace.length()) {
+				throw new IOException("SudokuSession.read(): solve trace does not match puzzle");
+			}
+		}
+		return session;
+	}
+
+	/** exportPuzzleString() writes the puzzle as a puzzle string, one row per line.
+		If cluesOnly is true, only the CLUE cells are written.  (Cages are not included
+		because other programs that read puzzle strings would not understand them.)
+	 */
+	public static void exportPuzzleString(SudokuPuzzle puzzle, boolean cluesOnly, File file) throws IOException
+	{
+		Writer	out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+
+		try {
+			out.write(puzzle.toPuzzleString(cluesOnly, true));
+		}
+		finally {
+			out.close();
+		}
+	}
+}
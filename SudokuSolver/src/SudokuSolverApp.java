@@ -15,6 +15,7 @@
 
 import java.awt.*;
 import java.awt.event.*;
+import java.io.*;
 import javax.swing.*;
 
 
@@ -24,6 +25,7 @@ public class SudokuSolverApp extends JFrame implements MenuHandler
 	
 	private final static int	winWidth = 500;
 	private final static int	winHeight = 75;
+	private final static int	exportSolveMillis = 2000;	// time limit for each solution when exporting images
 
 	// my puzzles
 	String  size4    = "4.../.1.2/..../2.3.";
@@ -34,6 +36,7 @@ public class SudokuSolverApp extends JFrame implements MenuHandler
 	private ActionListener	appmenulistener;	// listener for application-specific menu commands
 	private static boolean	runningOnMacOSX;
 	private static int		primaryCommandKey;
+	private File			lastDirectory;		// directory of the last opened file
 	
 	public static void main(String[] args)
 	{
@@ -222,6 +225,7 @@ public class SudokuSolverApp extends JFrame implements MenuHandler
 				newwindow.setPuzzle(new SudokuPuzzle(9));
 				break;
 			case MenuHandler.Cmd_Open:
+				newwindow = openSession();
 				break;	
 			case MenuHandler.Cmd_Close:
 				break;
@@ -230,6 +234,7 @@ public class SudokuSolverApp extends JFrame implements MenuHandler
 			case MenuHandler.Cmd_Save_As:
 				break;
 			case MenuHandler.Cmd_Export:
+				exportImages();
 				break;
 			case MenuHandler.Cmd_Edit_Cell_Values:
 				break;
@@ -282,4 +287,76 @@ public class SudokuSolverApp extends JFrame implements MenuHandler
 		
 		return true;
 	}
+	
+	// asks for a session or puzzle string file and opens it in a new window
+	private SudokuView openSession()
+	{
+		JFileChooser	chooser = new JFileChooser(lastDirectory);
+		SudokuSession	session;
+		SudokuView		window;
+		File			file;
+		
+		if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION)	return null;
+		file = chooser.getSelectedFile();
+		lastDirectory = file.getParentFile();
+		try {
+			session = SudokuSession.read(file);
+		}
+		catch (IOException ioe) {
+			JOptionPane.showMessageDialog(this, "Could not open " + file.getName() + ": " + ioe.getMessage());
+			return null;
+		}
+		window = new SudokuView();
+		window.setSession(session, file);
+		return window;
+	}
+	
+	// asks for a file of puzzle strings and a folder, and draws each puzzle (and
+	// optionally its solution) there as a PNG image on a background thread
+	private void exportImages()
+	{
+		JFileChooser	chooser = new JFileChooser(lastDirectory);
+		final File		file, folder;
+		final int		answer;
+		
+		if (chooser.showDialog(this, "Export Images") != JFileChooser.APPROVE_OPTION)	return;
+		file = chooser.getSelectedFile();
+		lastDirectory = file.getParentFile();
+		chooser = new JFileChooser(lastDirectory);
+		chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+		chooser.setDialogTitle("Folder for the images");
+		if (chooser.showDialog(this, "Export") != JFileChooser.APPROVE_OPTION)	return;
+		folder = chooser.getSelectedFile();
+		answer = JOptionPane.showConfirmDialog(this, "Export the solutions too?", "Export", JOptionPane.YES_NO_CANCEL_OPTION);
+		if (answer == JOptionPane.CANCEL_OPTION || answer == JOptionPane.CLOSED_OPTION)	return;
+		
+		new Thread("Export Images") {
+			public void run()
+			{
+				PuzzleImageExporter	exporter = new PuzzleImageExporter(folder, PuzzleRenderer.defaultCellSize,
+				                                                       Runtime.getRuntime().availableProcessors());
+				String				message;
+				
+				exporter.setSolutions(answer == JOptionPane.YES_OPTION);
+				exporter.setTimeLimit(exportSolveMillis);
+				try {
+					exporter.addFile(file.getPath());
+					exporter.finish();
+					message = "Exported " + exporter.getImageCount() + " images of " + exporter.getPuzzleCount() + " puzzles";
+					if (exporter.getErrorCount() > 0)	message += " (" + exporter.getErrorCount() + " errors)";
+				}
+				catch (Exception e) {
+					message = "Could not export " + file.getName() + ": " + e.getMessage();
+				}
+				
+				final String	result = message;
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run()
+					{
+						JOptionPane.showMessageDialog(SudokuSolverApp.this, result);
+					}
+				});
+			}
+		}.start();
+	}
 }
@@ -8,6 +8,7 @@
 
 import java.awt.*;
 import java.awt.event.*;
+import java.io.*;
 import java.math.*;
 import javax.swing.*;
 
@@ -18,41 +19,61 @@ public class SudokuView extends JFrame implements MouseListener, KeyListener, Me
 	private final static int	winWidth = 500;
 	private final static int	winHeight = 500;
 	private final static int	maxSqrWidth = 100;
-	private final static int	marginSize = 10;
-	private final static int	cellSize = 50;
-	private final static int	lgNumXOffset1digit = 15;
-	private final static int	lgNumXOffset2digit = 6;
-	private final static int	lgNumYOffset = 37;
-	private final static int	smNumXOffset[] = {7, 22, 37, 7, 22, 37, 7, 22, 37};
-	private final static int	smNumYOffset[] = {16, 16, 16, 31, 31, 31, 46, 46, 46};
+	private final static int	marginSize = PuzzleRenderer.marginSize;
+	private final static int	defaultCellSize = PuzzleRenderer.defaultCellSize;
+	private final static int	minCellSize = 4;
+	private final static int	maxCellSize = 150;
+	private final static int	minValueCellSize = PuzzleRenderer.minValueCellSize;
 	private final static Color	selectionColor = new Color(255, 255, 180);
+	private final static Color	hintColor = new Color(180, 255, 180);
+	private final static Color	hintElimColor = new Color(255, 200, 200);
+	private final static int	solveAllMillis = 2000;		// time limit for Solve All
+	
+	// hints are cached by puzzle state, so all windows share one engine
+	private final static HintEngine	hintEngine = new HintEngine();
 	
 	enum Direction { UP, RIGHT, DOWN, LEFT, NEXT, PREVIOUS };
 	enum EditMode  { VALUES, CLUES, RESERVES, REGIONS };
 
-	private Font	largeNumFont;
-	private Font	smallNumFont;
 	private Color[]	regionColors;
 	
+	// the grid is drawn by a panel in a scroll pane at a zoomable cell size;  the
+	// renderer's fonts and candidate layout are recomputed whenever the cell size changes
+	private GridPanel	gridPanel;
+	private JScrollPane	scrollPane;
+	private int			cellSize = defaultCellSize;
+	private final PuzzleRenderer	renderer = new PuzzleRenderer(defaultCellSize, null);
+	
 	private SudokuPuzzle	puzzleModel;						// ref to the puzzle model object to be displayed
+	private SolveTrace		solveTrace;							// log of changes for scrubbing thru the solution
+	private int				tracePosition = 0;					// current position of the puzzle in solveTrace
+	private SudokuHint		shownHint;							// hint being highlighted (if any)
+	private int				shownHintModCount;					// puzzle's mod count when the hint was found
 	private CellCoord		selectedCell = new CellCoord();		// top left corner (0,0)
 	private EditMode		editingMode = EditMode.CLUES;
 	private	boolean			showCandidates = false;
 	private	boolean			showRegionColors = false;
 	private boolean			solving = false;	// TEMP -- REMOVE
 	private float			saturation = 0.36f;	// TEMP -- REMOVE
+	private File			sessionFile;		// where the session was last opened or saved (if anywhere)
 	
 	public SudokuView()
 	{
 		super("Uncle A's Sudoku Solver");
 		setSize(winWidth, winHeight);
-		setVisible(true);
-		addMouseListener(this);
 		addKeyListener(this);
 		
-		largeNumFont = new Font("Lucida Grande", Font.PLAIN, 30);
-		smallNumFont = new Font("Lucida Grande", Font.PLAIN, 13);
 		InitializeColors(9);
+		
+		gridPanel = new GridPanel();
+		gridPanel.addMouseListener(this);
+		gridPanel.addMouseWheelListener(gridPanel);
+		scrollPane = new JScrollPane(gridPanel);
+		scrollPane.setFocusable(false);
+		scrollPane.setBorder(null);
+		getContentPane().add(scrollPane);
+		setCellSize(defaultCellSize);
+		setVisible(true);
 	}
 	
 	public SudokuPuzzle getPuzzle()
@@ -63,7 +84,124 @@ public class SudokuView extends JFrame implements MouseListener, KeyListener, Me
 	public void setPuzzle(SudokuPuzzle puzzle)
 	{
 		puzzleModel = puzzle;
+		solveTrace = new SolveTrace(puzzle.getSize());
+		tracePosition = 0;
+		puzzle.setSolveTrace(solveTrace);
 		InitializeColors(puzzle.getSize());
+		
+		// start with the whole puzzle in the window if its values can still be read
+		renderer.setCandidateColumns((int)Math.ceil(Math.sqrt(puzzle.getSize())));
+		setCellSize(Math.max(2*minValueCellSize, Math.min(defaultCellSize, (winWidth - 2*marginSize) / puzzle.getSize())));
+	}
+	
+	/** setCellSize() zooms the grid so that each cell is size pixels square,
+		keeping the selected cell in view.
+	 */
+	public void setCellSize(int size)
+	{
+		cellSize = Math.max(minCellSize, Math.min(maxCellSize, size));
+		renderer.setCellSize(cellSize);
+		
+		gridPanel.revalidate();
+		scrollToSelection();
+		repaint();
+	}
+	
+	public int getCellSize()
+	{
+		return cellSize;
+	}
+	
+	// scrolls the grid so that the selected cell is visible
+	private void scrollToSelection()
+	{
+		gridPanel.scrollRectToVisible(new Rectangle(marginSize + cellSize*selectedCell.getColumn() - cellSize,
+		                                            marginSize + cellSize*selectedCell.getRow() - cellSize,
+		                                            3*cellSize, 3*cellSize));
+	}
+	
+	/** getSession() returns the puzzle and the current state of the view, for saving.
+	 */
+	public SudokuSession getSession()
+	{
+		SudokuSession	session = new SudokuSession(puzzleModel);
+		
+		session.editMode = editingMode.ordinal();
+		session.showCandidates = showCandidates;
+		session.showRegionColors = showRegionColors;
+		session.solving = solving;
+		session.selectedRow = selectedCell.getRow();
+		session.selectedColumn = selectedCell.getColumn();
+		session.trace = solveTrace;
+		session.tracePosition = tracePosition;
+		return session;
+	}
+	
+	/** setSession() displays a session's puzzle and restores the view to the state
+		it was saved in.  file is where the session came from (or null).
+	 */
+	public void setSession(SudokuSession session, File file)
+	{
+		EditMode[]	modes = EditMode.values();
+		int			size = session.puzzle.getSize();
+		
+		setPuzzle(session.puzzle);
+		if (session.trace != null) {
+			solveTrace = session.trace;
+			tracePosition = session.tracePosition;
+			puzzleModel.setSolveTrace(solveTrace);
+		}
+		if (session.editMode >= 0 && session.editMode < modes.length) {
+			editingMode = modes[session.editMode];
+		}
+		showCandidates = session.showCandidates;
+		showRegionColors = session.showRegionColors;
+		solving = session.solving;
+		if (session.selectedRow >= 0 && session.selectedRow < size
+		    && session.selectedColumn >= 0 && session.selectedColumn < size) {
+			selectedCell.setCoord(session.selectedRow, session.selectedColumn);
+		}
+		sessionFile = file;
+		if (file != null)	setTitle(file.getName());
+		repaint();
+	}
+	
+	private void saveSession(File file)
+	{
+		try {
+			getSession().write(file);
+			sessionFile = file;
+			setTitle(file.getName());
+		}
+		catch (IOException ioe) {
+			JOptionPane.showMessageDialog(this, "Could not save " + file.getName() + ": " + ioe.getMessage());
+		}
+	}
+	
+	private void saveSessionAs()
+	{
+		JFileChooser	chooser = new JFileChooser(sessionFile);
+		
+		if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+			saveSession(chooser.getSelectedFile());
+		}
+	}
+	
+	// exports the puzzle as a puzzle string;  asks whether to leave out the solved cells
+	private void exportPuzzle()
+	{
+		JFileChooser	chooser = new JFileChooser(sessionFile);
+		int				answer;
+		
+		if (chooser.showDialog(this, "Export") != JFileChooser.APPROVE_OPTION)	return;
+		answer = JOptionPane.showConfirmDialog(this, "Export only the clues?", "Export", JOptionPane.YES_NO_CANCEL_OPTION);
+		if (answer == JOptionPane.CANCEL_OPTION || answer == JOptionPane.CLOSED_OPTION)	return;
+		try {
+			SudokuSession.exportPuzzleString(puzzleModel, answer == JOptionPane.YES_OPTION, chooser.getSelectedFile());
+		}
+		catch (IOException ioe) {
+			JOptionPane.showMessageDialog(this, "Could not export " + chooser.getSelectedFile().getName() + ": " + ioe.getMessage());
+		}
 	}
 	
 	private void InitializeColors(int num)
@@ -82,117 +220,128 @@ public class SudokuView extends JFrame implements MouseListener, KeyListener, Me
 		}
 	}
 	
-	public void paint( Graphics g )
+	/*	GridPanel draws the puzzle inside the window's scroll pane.  Only the cells
+		that intersect the clip rectangle are painted, so the cost of a repaint
+		depends on the size of the window rather than the size of the puzzle.  When
+		the cells are small, the candidates and then the digits are left out
+		(cells with values are drawn as colored squares instead).  The mouse wheel
+		scrolls, and zooms with the Control or Command key.
+	 */
+	private class GridPanel extends JPanel implements Scrollable, MouseWheelListener
 	{
-		int	gridTop, gridLeft, gridBottom, gridRight, gridSize;
-		
-		super.paint(g);
-		
-		/* final Font defaultFont = g.getFont();
-		System.out.printf("Font (logical): %s\n", defaultFont.getName());
-		System.out.printf("Font face: %s\n", defaultFont.getFontName());
-		System.out.printf("Font size: %f\n", defaultFont.getSize2D());
-		System.out.printf("Font style: %s %s %s\n", defaultFont.isPlain() ? "plain" : "",
-													defaultFont.isBold() ? "bold" : "",
-													defaultFont.isItalic() ? "italic" : ""); */
-		
-		// clear the window to white
-		Dimension winSize = this.getSize();		
-		g.setColor(Color.white);
-		g.fillRect(0, 0, winSize.width, winSize.height);
-
-		// get the size of our visible drawing area to avoid drawing underneath the window frame
-		Insets visibleArea = this.getInsets();
-		// define our own margins within that
-		Insets margins = new Insets(visibleArea.top    + marginSize, 
-		                            visibleArea.left   + marginSize, 
-		                            visibleArea.bottom + marginSize, 
-		                            visibleArea.right  + marginSize);
-		
-		/* System.out.printf("ViewRect: (%d, %d) (%d, %d)\n",  margins.top,
-															margins.left,
-															winHeight - margins.bottom,
-															winWidth - margins.right); */
-		
-		// draw Sudoku grid
-		g.setColor(Color.black);
-		gridSize = puzzleModel.getSize();
-		gridTop = margins.top;
-		gridLeft = margins.left;
-		gridBottom = margins.top + cellSize*gridSize;
-		gridRight = margins.right + cellSize*gridSize;
-		
-		for	( int i = 0; i <= gridSize; i++ )	{
-			// horizontal lines
-			g.drawLine(gridLeft, gridTop + cellSize*i, gridRight, gridTop + cellSize*i);
-			// vertical lines
-			g.drawLine(gridLeft + cellSize*i, gridTop, gridLeft + cellSize*i, gridBottom);
-			// make region boundaries thicker (only for puzzles with default regions for now) 
-			if (SudokuPuzzle.regionBoxHeights[gridSize] > 0) {
-				if (i % SudokuPuzzle.regionBoxHeights[gridSize] == 0) {
-					// horizontal
-					g.drawLine(gridLeft, gridTop + cellSize*i + 1, gridRight, gridTop + cellSize*i + 1);
-					g.drawLine(gridLeft, gridTop + cellSize*i - 1, gridRight, gridTop + cellSize*i - 1);
-				}
-				if (i % SudokuPuzzle.regionBoxWidths[gridSize] == 0) {
-					// vertical
-					g.drawLine(gridLeft + cellSize*i - 1, gridTop, gridLeft + cellSize*i - 1, gridBottom);
-					g.drawLine(gridLeft + cellSize*i + 1, gridTop, gridLeft + cellSize*i + 1, gridBottom);
-				}
+		private static final long	serialVersionUID = 1L;
+		
+		GridPanel()
+		{
+			setBackground(Color.white);
+			setFocusable(false);
+		}
+		
+		public Dimension getPreferredSize()
+		{
+			int	size = (puzzleModel != null) ? puzzleModel.getSize() : 9;
+			
+			return new Dimension(2*marginSize + cellSize*size + 1, 2*marginSize + cellSize*size + 1);
+		}
+		
+		public Dimension getPreferredScrollableViewportSize()
+		{
+			return getPreferredSize();
+		}
+		
+		public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction)
+		{
+			return cellSize;
+		}
+		
+		public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction)
+		{
+			return (orientation == SwingConstants.VERTICAL) ? visibleRect.height - cellSize : visibleRect.width - cellSize;
+		}
+		
+		public boolean getScrollableTracksViewportWidth()
+		{
+			return false;
+		}
+		
+		public boolean getScrollableTracksViewportHeight()
+		{
+			return false;
+		}
+		
+		public void mouseWheelMoved(MouseWheelEvent event)
+		{
+			if (event.isControlDown() || event.isMetaDown()) {
+				// zoom by about 10% per notch
+				setCellSize((event.getWheelRotation() < 0) ? cellSize + Math.max(1, cellSize/10) : cellSize - Math.max(1, cellSize/10));
+			}
+			else {
+				// let the scroll pane scroll
+				scrollPane.dispatchEvent(SwingUtilities.convertMouseEvent(this, event, scrollPane));
 			}
 		}
 		
+		protected void paintComponent(Graphics g)
+		{
+			super.paintComponent(g);
+			if (puzzleModel != null)	paintGrid(g);
+		}
+	}
+	
+	private void paintGrid(Graphics g)
+	{
+		int			gridTop, gridLeft, gridSize;
+		int			firstRow, lastRow, firstCol, lastCol, fill;
+		Rectangle	clip = g.getClipBounds();
+		
+		gridSize = puzzleModel.getSize();
+		gridTop = marginSize;
+		gridLeft = marginSize;
+		fill = Math.max(1, cellSize-3);
+		if (clip == null)	clip = new Rectangle(0, 0, 2*marginSize + cellSize*gridSize, 2*marginSize + cellSize*gridSize);
+		
+		// the rows and columns that are at least partly visible
+		firstRow = Math.max(0, (clip.y - gridTop) / cellSize);
+		lastRow = Math.min(gridSize - 1, (clip.y + clip.height - gridTop) / cellSize);
+		firstCol = Math.max(0, (clip.x - gridLeft) / cellSize);
+		lastCol = Math.min(gridSize - 1, (clip.x + clip.width - gridLeft) / cellSize);
+		if (firstRow > lastRow || firstCol > lastCol)	return;
+		
+		// draw Sudoku grid (only the visible part of each visible line)
+		renderer.drawGridLines(g, gridSize, firstRow, lastRow, firstCol, lastCol);
+		
 		if (editingMode == EditMode.CLUES || editingMode == EditMode.VALUES) {
 			// fill background of the selected cell
 			g.setColor(selectionColor);
-			g.fillRect(gridLeft + cellSize*selectedCell.getColumn() + 2, gridTop + cellSize*selectedCell.getRow() + 2, cellSize-3, cellSize-3);
+			g.fillRect(gridLeft + cellSize*selectedCell.getColumn() + 2, gridTop + cellSize*selectedCell.getRow() + 2, fill, fill);
 		}
 		else if (editingMode == EditMode.RESERVES) {
 			
+		}
+		if (shownHint != null && shownHintModCount == puzzleModel.getModCount()) {
+			// highlight the cells that justify the hint and those that it changes
+			g.setColor(hintColor);
+			for (int i = 0; i < shownHint.getCellCount(); i++) {
+				g.fillRect(gridLeft + cellSize*shownHint.getCellColumn(i) + 2, gridTop + cellSize*shownHint.getCellRow(i) + 2, fill, fill);
+			}
+			g.setColor(hintElimColor);
+			for (int i = 0; i < shownHint.getEliminationCount(); i++) {
+				g.fillRect(gridLeft + cellSize*shownHint.getEliminationColumn(i) + 2, gridTop + cellSize*shownHint.getEliminationRow(i) + 2, fill, fill);
+			}
 		}
 		// draw puzzle cell contents
-		int cellstatus, cellvalue, curCellX, curCellY, maxCandidate, lgNumXOffset;
+		boolean conflicts = (puzzleModel.getConflictCount() > 0);
 		
-		maxCandidate = (gridSize < 9) ? gridSize : 9;				// can only display candidates up to gridSize or 9
-		for ( int row = 0; row < gridSize; row++ )	{
-			for ( int col = 0; col < gridSize; col++ )	{
+		for ( int row = firstRow; row <= lastRow; row++ )	{
+			for ( int col = firstCol; col <= lastCol; col++ )	{
 				if (showRegionColors || editingMode == EditMode.REGIONS) {
 					// fill background of the cell with the region's color
 					g.setColor(regionColors[puzzleModel.getCellRegionIdx(row, col)]);
-					g.fillRect(gridLeft + cellSize*col + 2, gridTop + cellSize*row + 2, cellSize-3, cellSize-3);
-				}
-				
-				cellstatus = puzzleModel.getCellStatus(row, col);
-				if (cellstatus == SudokuPuzzle.UNSOLVED) {
-					if (showCandidates) {
-						// draw (small) candidate numbers
-						curCellX = gridLeft + col*cellSize;
-						curCellY = gridTop + row*cellSize;
-						
-						g.setFont(smallNumFont);
-						g.setColor(Color.darkGray);
-						for ( int i = 0; i < maxCandidate; i++ )	{
-							if (puzzleModel.testCellCandidate(row, col, i)) {
-								g.drawString(String.valueOf(i+1), curCellX + smNumXOffset[i], curCellY + smNumYOffset[i]);
-							}
-						}
-					}
-				}
-				else {
-					// draw clues and (large) answer numbers
-					g.setFont(largeNumFont);
-					if (cellstatus == SudokuPuzzle.CLUE)
-						 g.setColor(Color.black);
-					else g.setColor(Color.blue);
-					cellvalue = puzzleModel.getCellValue(row, col);
-					lgNumXOffset = (cellvalue < 10) ? lgNumXOffset1digit : lgNumXOffset2digit;
-					g.drawString(String.valueOf(cellvalue), gridLeft + col*cellSize + lgNumXOffset, 
-								 gridTop + row*cellSize + lgNumYOffset);
+					g.fillRect(gridLeft + col*cellSize + 2, gridTop + row*cellSize + 2, fill, fill);
 				}
+				renderer.drawCell(g, puzzleModel, row, col, showCandidates, conflicts);
 			}
 		}
-		
-		
 	}
 	
 	public void moveSelection(Direction dir)
@@ -239,6 +388,9 @@ public class SudokuView extends JFrame implements MouseListener, KeyListener, Me
 	
 	public void solveNextStep()
 	{		
+		// solving after scrubbing backwards discards the rest of the old solution
+		beginTraceStep();
+		
 		// first click fills in all candidates
 		if (!showCandidates) {
 			puzzleModel.resetAllCandidates();
@@ -249,50 +401,141 @@ public class SudokuView extends JFrame implements MouseListener, KeyListener, Me
 			puzzleModel.recalculateAllCandidates();
 			solving = true;
 		}
-		// subsequent clicks step thru the solution process
+		// subsequent clicks apply the next (cheapest) logical deduction
 		else {
-			if (!puzzleModel.acceptSingleCandidateSolutions()) {
-				int psize;
-				int[] counts, cell;
-				
-				// when there are no more single-candidate cells, try next technique
-				for (SudokuPuzzle.RegionType type : SudokuPuzzle.RegionType.values()) {
-					psize = puzzleModel.getSize();
-					for (int i = 0; i < psize; i++) {
-						counts = puzzleModel.countRegionCandidateOccurences(type, i);
-						if (counts[0] == SudokuPuzzle.NO_ERR) {
-							// search for candidates that occur exactly once
-							for (int cand = 1; cand < counts.length; cand++) {
-								if (counts[cand] == 1) {
-									// get the matching cell and set its value
-									cell = puzzleModel.findCandidateInRegion(cand, type, i);
-									if (cell[0] >= 0) {
-										puzzleModel.setCellValue(cell[0], cell[1], cand);
-										// (do we care that candidate doesn't get cleared? YES!)
-										// need to clear candidate value in all of the cell's regions
-										puzzleModel.recalculateAllCandidates();	// FIXME: overkill ...
-										System.out.println("Solved cell " + Arrays.toString(cell));
-									}
-								}
-							}
-						}
-					}
-				}
+			SolveBudget budget = SolveBudget.millis(solveAllMillis);
+			SudokuHint hint = hintEngine.getHint(puzzleModel, budget);
+			if (hint != null) {
+				hint.apply(puzzleModel);
+				setTitle(hint.toString());
+				System.out.println(hint);
 			}
+			else setTitle(budget.check() ? "No deduction found before the time limit" : "No further deductions found");
+		}
+		
+		endTraceStep();
+	}
+	
+	/** solveAll() applies logical deductions until none are left, then finishes
+		the puzzle with a BacktrackingSolver.  All of it is limited to solveAllMillis,
+		so a pathological puzzle can't hang the window;  the title tells how it went.
+	 */
+	public void solveAll()
+	{
+		SolveBudget					budget = SolveBudget.millis(solveAllMillis);
+		BacktrackingSolver			solver = new BacktrackingSolver();
+		BacktrackingSolver.Status	status = null;
+		SudokuHint					hint;
+		int							steps = 0;
+		
+		beginTraceStep();
+		if (!solving) {
+			puzzleModel.recalculateAllCandidates();
+			showCandidates = true;
+			solving = true;
+		}
+		while ((hint = hintEngine.getHint(puzzleModel, budget)) != null) {
+			hint.apply(puzzleModel);
+			++steps;
+		}
+		if (!puzzleModel.isSolved() && !budget.check() && solver.load(puzzleModel) == SudokuPuzzle.NO_ERR) {
+			status = solver.solve(budget);
+			if (status == BacktrackingSolver.Status.SOLVED || status == BacktrackingSolver.Status.MULTIPLE) {
+				solver.copySolutionTo(puzzleModel);
+			}
+		}
+		endTraceStep();
+		
+		if (puzzleModel.isSolved())	setTitle("Solved (" + steps + " logical steps" + ((status == BacktrackingSolver.Status.MULTIPLE) ? ", not the only solution)" : ")"));
+		else if (status == BacktrackingSolver.Status.UNSOLVABLE)	setTitle("No solution after " + steps + " logical steps");
+		else setTitle("Stopped after " + steps + " logical steps:  time limit reached");
+		this.repaint();
+	}
+	
+	/** showHint() highlights the next deduction without making it.  The highlight
+		disappears as soon as the puzzle changes.
+	 */
+	public void showHint()
+	{
+		SolveBudget	budget = SolveBudget.millis(solveAllMillis);
+		
+		if (!solving) {
+			// hints need accurate candidates
+			beginTraceStep();
 			puzzleModel.recalculateAllCandidates();
+			showCandidates = true;
+			solving = true;
+			endTraceStep();
 		}
+		shownHint = hintEngine.getHint(puzzleModel, budget);
+		shownHintModCount = puzzleModel.getModCount();
+		if (shownHint != null)	setTitle(shownHint.toString());
+		else setTitle(budget.check() ? "No hint found before the time limit" : "No further deductions found");
+		this.repaint();
+	}
+	
+	// call before changing the puzzle model
+	private void beginTraceStep()
+	{
+		solveTrace.truncate(tracePosition);
+	}
+	
+	// call after changing the puzzle model and the solving flags
+	private void endTraceStep()
+	{
+		solveTrace.markStep((showCandidates ? SolveTrace.STEP_SHOW_CANDIDATES : 0)
+		                    | (solving ? SolveTrace.STEP_SOLVING : 0));
+		tracePosition = solveTrace.length();
+	}
+	
+	/** stepBackward() and stepForward() scrub thru the recorded solution one step at
+		a time by replaying the solve trace.  Neither one changes the trace itself.
+		The solving and showCandidates flags go back to what they were at that step.
+	 */
+	public void stepBackward()
+	{
+		tracePosition = solveTrace.replayBackward(puzzleModel, tracePosition, solveTrace.previousStep(tracePosition));
+		restoreTraceFlags();
+		this.repaint();
+	}
+	
+	public void stepForward()
+	{
+		tracePosition = solveTrace.replayForward(puzzleModel, tracePosition, solveTrace.nextStep(tracePosition));
+		restoreTraceFlags();
+		this.repaint();
+	}
+	
+	private void restoreTraceFlags()
+	{
+		int		flags = solveTrace.getStepFlags(tracePosition);
+		
+		showCandidates = (flags & SolveTrace.STEP_SHOW_CANDIDATES) != 0;
+		solving = (flags & SolveTrace.STEP_SOLVING) != 0;
 	}
 	
 	public void resetPuzzle()
 	{
 		puzzleModel.resetAllCells();
+		solveTrace.clear();
+		tracePosition = 0;
 		showCandidates = false;
 		solving = false;
+		scrollToSelection();
 		this.repaint();
 	}
 	
 	public void mouseClicked(MouseEvent event)
-	{		
+	{
+		int row, col;
+		
+		// select the cell that was clicked (event is in grid panel coordinates)
+		if (puzzleModel == null || event.getX() < marginSize || event.getY() < marginSize)	return;
+		row = (event.getY() - marginSize) / cellSize;
+		col = (event.getX() - marginSize) / cellSize;
+		if (row >= puzzleModel.getSize() || col >= puzzleModel.getSize())	return;
+		selectedCell.setCoord(row, col);
+		this.repaint();
 	}
 	
 	public void mousePressed(MouseEvent event)	{}
@@ -347,12 +590,19 @@ public class SudokuView extends JFrame implements MouseListener, KeyListener, Me
 			System.exit(0);
 		}
 		else if	(key == '+' || key == '=') {
+			// '+' and '-' zoom in and out
+			setCellSize(cellSize + Math.max(1, cellSize/5));
+		}
+		else if	(key == '-') {
+			setCellSize(cellSize - Math.max(1, cellSize/5));
+		}
+		else if	(key == '}') {
 			saturation += 0.01f;
 			System.out.println("saturation = " + saturation);
 			InitializeColors(puzzleModel.getSize());
 			this.repaint();
 		}
-		else if	(key == '-') {
+		else if	(key == '{') {
 			saturation -= 0.01f;
 			System.out.println("saturation = " + saturation);
 			InitializeColors(puzzleModel.getSize());
@@ -372,15 +622,31 @@ public class SudokuView extends JFrame implements MouseListener, KeyListener, Me
 			// 'r' and 'R' reset the puzzle to clues only
 			resetPuzzle();
 		}
+		else if	(key == 'h' || key == 'H') {
+			// 'h' and 'H' show a hint for the next step
+			showHint();
+		}
+		else if	(key == '[') {
+			// '[' and ']' scrub backwards and forwards thru the solution
+			stepBackward();
+		}
+		else if	(key == ']') {
+			stepForward();
+		}
 		else if	(Character.isDigit(key)) {
 			// number keys change the value of the current cell and
 			// advance the selection to the next cell
 			int value = Integer.parseInt("" + key);
 			if (value <= puzzleModel.getSize()) {
+				beginTraceStep();
 				if (value != 0) {
 					puzzleModel.setCellClue(selectedCell.getRow(), selectedCell.getColumn(), value);
+					if (puzzleModel.isCellInConflict(selectedCell.getRow(), selectedCell.getColumn())) {
+						Toolkit.getDefaultToolkit().beep();		// the new value conflicts with another cell
+					}
 				}
 				else puzzleModel.setCellValue(selectedCell.getRow(), selectedCell.getColumn(), SudokuPuzzle.EMPTY_CELL);
+				endTraceStep();
 				moveSelection(Direction.NEXT);
 			}
 			else {
@@ -405,12 +671,17 @@ public class SudokuView extends JFrame implements MouseListener, KeyListener, Me
 	{
 		switch (menuCommand) {
 			case MenuHandler.Cmd_Close:
+				dispose();
 				break;
 			case MenuHandler.Cmd_Save:
+				if (sessionFile != null)	saveSession(sessionFile);
+				else						saveSessionAs();
 				break;
 			case MenuHandler.Cmd_Save_As:
+				saveSessionAs();
 				break;
 			case MenuHandler.Cmd_Export:
+				exportPuzzle();
 				break;
 			case MenuHandler.Cmd_Edit_Cell_Values:
 				editingMode = EditMode.VALUES;
@@ -433,6 +704,7 @@ public class SudokuView extends JFrame implements MouseListener, KeyListener, Me
 				this.repaint();			
 				break;
 			case MenuHandler.Cmd_Solve_All:
+				solveAll();
 				break;
 			case MenuHandler.Cmd_Reset_Puzzle:
 				resetPuzzle();
@@ -0,0 +1,116 @@
+/*	TranspositionTable.java
+
+	A fixed-size table of search results keyed by the Zobrist hash of a partial
+	grid, shared by any number of BacktrackingSolvers (and threads).
+
+	Different orders of guesses often reach the same partial grid, and everything
+	below a grid depends only on its values and the puzzle's layout.  When a solver
+	finishes a subtree it stores the exact number of solutions below it (0 for a
+	dead end), and when it reaches the same grid again it uses the stored count
+	instead of searching.
+
+	The table never grows.  Each key hashes to a bucket of two entries;  a new
+	result replaces the entry in its bucket that took less work to compute.  Every
+	entry is two longs, (key ^ data) and data, written and read without locks:  if
+	another thread changes an entry while it is being read, the key check fails and
+	the lookup is simply a miss.  (As with any 64-bit hash, two different grids
+	sharing a key is possible but vanishingly unlikely.)
+
+	October 19, 2026
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+public final class TranspositionTable
+{
+	public static final int		DEFAULT_ENTRIES = 1 << 16;
+
+	private static final long	MAX_COUNT = (1L << 56) - 1;
+
+	private final AtomicLongArray	slots;			// 2 longs per entry, 2 entries per bucket
+	private final int				bucketMask;
+
+
+	public TranspositionTable()
+	{
+		this(DEFAULT_ENTRIES);
+	}
+
+	// entries is rounded up to a power of two (at least 2)
+	public TranspositionTable(int entries)
+	{
+		int		buckets = Integer.highestOneBit(Math.max(2, entries) - 1);
+
+		slots = new AtomicLongArray(buckets*4);
+		bucketMask = buckets - 1;
+	}
+
+	public int getCapacity()
+	{
+		return (bucketMask + 1)*2;
+	}
+
+	/** zobrist() returns the hash key for value digit+1 in cell.  Keys are computed
+		rather than stored, so every solver and table agrees on them.
+	 */
+	public static long zobrist(int cell, int digit)
+	{
+		return mix((((long)cell) << 6) | digit);
+	}
+
+	// the SplitMix64 finalizer
+	static long mix(long z)
+	{
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/** probe() returns the number of solutions stored for key, or -1 if there is
+		none.
+	 */
+	public long probe(long key)
+	{
+		int		i = (int)(key >>> 32 ^ key) & bucketMask;
+		long	data;
+
+		for (int slot = i*4; slot < i*4 + 4; slot += 2) {
+			data = slots.get(slot + 1);
+			if (data != 0 && (slots.get(slot) ^ data) == key)	return data >>> 8;
+		}
+		return -1;
+	}
+
+	/** store() records the number of solutions below the grid with this key, and
+		the number of nodes it took to count them (which decides what is replaced
+		when the bucket is full).
+	 */
+	public void store(long key, long count, long work)
+	{
+		int		i = (int)(key >>> 32 ^ key) & bucketMask;
+		int		slot = i*4, victim = -1;
+		long	data, old;
+
+		// low 8 bits:  1 + log2(work), so data is never 0
+		data = (Math.min(count, MAX_COUNT) << 8) | (long)(65 - Long.numberOfLeadingZeros(work));
+		for ( ; slot < i*4 + 4; slot += 2) {
+			old = slots.get(slot + 1);
+			if (old != 0 && (slots.get(slot) ^ old) == key) {
+				victim = slot;
+				break;
+			}
+			if (victim < 0 || (old & 0xFF) < (slots.get(victim + 1) & 0xFF))	victim = slot;
+		}
+		slots.set(victim + 1, 0);
+		slots.set(victim, key ^ data);
+		slots.set(victim + 1, data);
+	}
+
+	// removes every entry
+	public void clear()
+	{
+		for (int slot = 0; slot < slots.length(); slot++)	slots.set(slot, 0);
+	}
+}
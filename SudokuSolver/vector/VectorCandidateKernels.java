@@ -0,0 +1,94 @@
+/*	VectorCandidateKernels.java
+
+	The version of CandidateKernels that uses the JDK Vector API, which processes
+	one candidate of many cells (or many candidates of one cell) per instruction.
+	Each boolean array is loaded as a vector mask, first with 256-bit vectors and
+	then with narrower ones, and the elements that are left over are done one at
+	a time.
+
+	setUnknown() is not overridden:  in CandidateBenchmark the vector version was
+	slower than the scalar loop on the recalculation pass (which is mostly
+	setUnknown()) at 25x25, 36x36, and 49x49, so only countTrue() and addCounts(),
+	which are faster, are replaced.
+
+	The species must be static final constants:  HotSpot only turns the vector
+	operations into SIMD instructions when it knows the species at compile time,
+	and is many times slower than plain loops when it doesn't.
+
+	This file needs the jdk.incubator.vector module, so it is compiled separately
+	from src/ (see CandidateKernels.java).  CandidateKernels.get() loads it by name
+	and falls back to the scalar version if it is missing.
+
+	October 18, 2026
+ */
+
+import jdk.incubator.vector.*;
+
+
+public class VectorCandidateKernels extends CandidateKernels
+{
+	private static final VectorSpecies<Byte>		BYTES_256 = ByteVector.SPECIES_256;
+	private static final VectorSpecies<Byte>		BYTES_128 = ByteVector.SPECIES_128;
+	private static final VectorSpecies<Byte>		BYTES_64 = ByteVector.SPECIES_64;
+	private static final VectorSpecies<Integer>		INTS_256 = IntVector.SPECIES_256;
+	private static final VectorSpecies<Integer>		INTS_128 = IntVector.SPECIES_128;
+
+
+	public VectorCandidateKernels()
+	{
+		// make sure the module really works before SudokuPuzzle starts using it
+		VectorMask.fromLong(BYTES_64, 1L).trueCount();
+	}
+
+	public String getName()
+	{
+		return "vector";
+	}
+
+	public int countTrue(boolean[] a, int n)
+	{
+		int i = 0, count = 0;
+
+		for ( ; i + 32 <= n; i += 32) {
+			count += VectorMask.fromArray(BYTES_256, a, i).trueCount();
+		}
+		for ( ; i + 16 <= n; i += 16) {
+			count += VectorMask.fromArray(BYTES_128, a, i).trueCount();
+		}
+		for ( ; i + 8 <= n; i += 8) {
+			count += VectorMask.fromArray(BYTES_64, a, i).trueCount();
+		}
+		for ( ; i < n; i++) {
+			if (a[i])	++count;
+		}
+		return count;
+	}
+
+	public void addCounts(boolean[][] list, int arrays, int n, int[] counts, int offset)
+	{
+		IntVector	sums;
+		int			i = 0, j;
+
+		// add one to each lane whose candidate is set, for every array, then add
+		// the lanes to counts
+		for ( ; i + 8 <= n; i += 8) {
+			sums = IntVector.fromArray(INTS_256, counts, offset + i);
+			for (j = 0; j < arrays; j++) {
+				sums = sums.add(1, VectorMask.fromArray(INTS_256, list[j], i));
+			}
+			sums.intoArray(counts, offset + i);
+		}
+		for ( ; i + 4 <= n; i += 4) {
+			sums = IntVector.fromArray(INTS_128, counts, offset + i);
+			for (j = 0; j < arrays; j++) {
+				sums = sums.add(1, VectorMask.fromArray(INTS_128, list[j], i));
+			}
+			sums.intoArray(counts, offset + i);
+		}
+		for ( ; i < n; i++) {
+			for (j = 0; j < arrays; j++) {
+				if (list[j][i])	++counts[offset + i];
+			}
+		}
+	}
+}